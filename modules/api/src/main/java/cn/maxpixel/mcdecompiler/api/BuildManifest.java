@@ -0,0 +1,147 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package cn.maxpixel.mcdecompiler.api;
+
+import cn.maxpixel.rewh.logging.LogManager;
+import cn.maxpixel.rewh.logging.Logger;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.stream.Stream;
+
+/**
+ * A manifest written next to an output after it is built. It records the fingerprint of the inputs the output was built
+ * from, and a stamp of the output itself, so that the next run can tell whether building again would produce the same
+ * output, and whether the output has been modified since.
+ * <p>
+ * The names of the classes to decompile are also recorded, as they are only known after deobfuscating.
+ */
+final class BuildManifest {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String HEADER = "# MinecraftDecompiler build manifest v1";
+    private static final String SUFFIX = ".mcd-manifest";
+
+    final String fingerprint;
+    final String stamp;
+    final ObjectList<String> classes;
+
+    BuildManifest(@NotNull String fingerprint, @NotNull String stamp, @NotNull Collection<String> classes) {
+        this.fingerprint = fingerprint;
+        this.stamp = stamp;
+        this.classes = new ObjectArrayList<>(classes);
+    }
+
+    /**
+     * @return The path of the manifest of the given output, which is a sibling of the output
+     */
+    static Path of(@NotNull Path output) {
+        return output.resolveSibling(output.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Reads the manifest of the given output.
+     * @return The manifest, or null if it doesn't exist or is malformed
+     */
+    static @Nullable BuildManifest read(@NotNull Path output) {
+        Path file = of(output);
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            if (!HEADER.equals(reader.readLine())) return null;
+            String fingerprint = reader.readLine();
+            String stamp = reader.readLine();
+            if (fingerprint == null || stamp == null) return null;
+            ObjectArrayList<String> classes = new ObjectArrayList<>();
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (!line.isEmpty()) classes.add(line);
+            }
+            return new BuildManifest(fingerprint, stamp, classes);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOGGER.debug("Failed to read build manifest {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the output is built from the inputs of the given fingerprint, and has not been modified since.
+     * @param fingerprint The fingerprint of the current inputs
+     * @param output The output
+     */
+    boolean isUpToDate(@NotNull String fingerprint, @NotNull Path output) {
+        return this.fingerprint.equals(fingerprint) && !stamp.isEmpty() && stamp.equals(stamp(output));
+    }
+
+    void write(@NotNull Path output) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(of(output))) {
+            writer.write(HEADER);
+            writer.newLine();
+            writer.write(fingerprint);
+            writer.newLine();
+            writer.write(stamp);
+            writer.newLine();
+            for (String name : classes) {
+                writer.write(name);
+                writer.newLine();
+            }
+        }
+    }
+
+    static void delete(@NotNull Path output) throws IOException {
+        Files.deleteIfExists(of(output));
+    }
+
+    /**
+     * Creates a stamp of the output from the sizes and last modified times of its files. Reading the attributes is much
+     * cheaper than hashing the content, and still catches the output being rebuilt or edited by something else.
+     * @param output A file or a directory
+     * @return The stamp, or an empty string if the output doesn't exist
+     */
+    static String stamp(@NotNull Path output) {
+        if (Files.notExists(output)) return "";
+        try (Stream<Path> files = Files.walk(output)) {
+            long[] stamp = new long[3];
+            files.forEach(file -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (!attributes.isRegularFile()) return;
+                    stamp[0]++;
+                    stamp[1] += attributes.size();
+                    stamp[2] = Math.max(stamp[2], attributes.lastModifiedTime().toMillis());
+                } catch (IOException e) {
+                    stamp[0] = Long.MIN_VALUE;
+                }
+            });
+            return stamp[0] < 0 ? "" : stamp[0] + ":" + stamp[1] + ":" + stamp[2];
+        } catch (IOException e) {
+            LOGGER.debug("Failed to stamp {}", output, e);
+            return "";
+        }
+    }
+}
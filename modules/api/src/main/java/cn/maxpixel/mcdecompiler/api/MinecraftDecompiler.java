@@ -25,15 +25,21 @@ import cn.maxpixel.mcdecompiler.common.app.util.*;
 import cn.maxpixel.mcdecompiler.decompiler.Decompilers;
 import cn.maxpixel.mcdecompiler.decompiler.IDecompiler;
 import cn.maxpixel.mcdecompiler.decompiler.IExternalResourcesDecompiler;
+import cn.maxpixel.mcdecompiler.decompiler.IInMemoryDecompiler;
 import cn.maxpixel.mcdecompiler.decompiler.ILibRecommendedDecompiler;
+import cn.maxpixel.mcdecompiler.decompiler.IStreamingDecompiler;
+import cn.maxpixel.mcdecompiler.decompiler.StreamingClassSource;
 import cn.maxpixel.mcdecompiler.mapping.NamespacedMapping;
 import cn.maxpixel.mcdecompiler.mapping.PairedMapping;
 import cn.maxpixel.mcdecompiler.mapping.collection.ClassifiedMapping;
 import cn.maxpixel.mcdecompiler.mapping.collection.MappingCollection;
 import cn.maxpixel.mcdecompiler.mapping.trait.NamespacedTrait;
+import cn.maxpixel.mcdecompiler.remapper.ClassGroupConsumer;
 import cn.maxpixel.mcdecompiler.remapper.ClassifiedDeobfuscator;
 import cn.maxpixel.mcdecompiler.remapper.DeobfuscationOptions;
-import cn.maxpixel.mcdecompiler.remapper.util.IOUtil;
+import cn.maxpixel.mcdecompiler.remapper.PipelineOptions;
+import cn.maxpixel.mcdecompiler.remapper.RemapCache;
+import cn.maxpixel.mcdecompiler.utils.ExecutionContext;
 import cn.maxpixel.mcdecompiler.utils.LambdaUtil;
 import cn.maxpixel.mcdecompiler.utils.Utils;
 import cn.maxpixel.rewh.logging.LogManager;
@@ -46,17 +52,27 @@ import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.CodeSource;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.jar.Manifest;
 import java.util.stream.Stream;
+import java.util.zip.Deflater;
 
-public class MinecraftDecompiler {// This class is not designed to be reusable
+/**
+ * Deobfuscates and decompiles a jar. The parallel work runs on the {@link Options#executionContext() context} of the
+ * options, which is closed by {@link #close()} if it was created for the options.
+ */
+public class MinecraftDecompiler implements AutoCloseable {// This class is not designed to be reusable
     private static final Logger LOGGER = LogManager.getLogger();
     static {
         ExtensionManager.init();
@@ -64,14 +80,30 @@ public class MinecraftDecompiler {// This class is not designed to be reusable
 
     private final Options options;
     private final ClassifiedDeobfuscator deobfuscator;
+    private Map<String, byte[]> remappedClasses;// Only when decompiling in memory
+    private boolean deobfuscated;
+    private boolean fingerprinted;
+    private String fingerprint;
 
     static {
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> FileUtil.deleteIfExists(Directories.TEMP_DIR)));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {// Own context, as the jobs' contexts may be closed already
+            try (ExecutionContext ctx = ExecutionContext.create("MCD-Cleanup", 1)) {
+                ctx.bind(c -> {
+                    FileUtil.deleteIfExists(Directories.TEMP_DIR);
+                    return null;
+                });
+            }
+        }));
     }
 
     public MinecraftDecompiler(Options options) {
         this.options = options;
-        this.deobfuscator = options.buildDeobfuscator();
+        try {
+            this.deobfuscator = options.executionContext().bind(ctx -> options.buildDeobfuscator());
+        } catch (Throwable t) {
+            close();
+            throw t;
+        }
     }
 
     public void deobfuscate() {
@@ -79,8 +111,151 @@ public class MinecraftDecompiler {// This class is not designed to be reusable
             LOGGER.info("Skipping deobfuscation as mappings are absent");
             return;
         }
+        String fingerprint = fingerprint();// Before the mappings are released
+        if (options.decompileInMemory()) {
+            ConcurrentHashMap<String, byte[]> classes = new ConcurrentHashMap<>();
+            deobfuscate(null, classes::putAll);
+            this.remappedClasses = classes;
+        } else {
+            Path outputJar = options.outputJar();
+            BuildManifest manifest = fingerprint != null ? BuildManifest.read(outputJar) : null;
+            if (manifest != null && manifest.isUpToDate(fingerprint, outputJar)) {
+                LOGGER.info("Skipping deobfuscation as the inputs and the output are unchanged");
+                deobfuscator.toDecompile.addAll(manifest.classes);
+                deobfuscator.release();
+            } else {
+                try {
+                    BuildManifest.delete(outputJar);
+                    deobfuscate(outputJar, null);
+                    if (fingerprint != null) {
+                        new BuildManifest(fingerprint, BuildManifest.stamp(outputJar), deobfuscator.toDecompile).write(outputJar);
+                    }
+                } catch (IOException e) {
+                    LOGGER.fatal("Error writing the build manifest", e);
+                    throw Utils.wrapInRuntime(e);
+                }
+            }
+        }
+        this.deobfuscated = true;
+    }
+
+    /**
+     * Fingerprints everything the deobfuscated classes depend on: the input jar, the mappings, the options, the extensions
+     * and the version of MCD.
+     * @return The fingerprint, or null if the outputs should always be rebuilt
+     */
+    private @Nullable String fingerprint() {
+        if (fingerprinted) return fingerprint;
+        fingerprinted = true;
+        if (options.forceRebuild()) return null;
         try {
-            deobfuscator.deobfuscate(options.inputJar(), options.outputJar());
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            if (!updateVersionDigest(md)) return null;
+            FileUtil.updateDigest(md, options.inputJar());
+            if (deobfuscator != null) {
+                byte[] mappings = deobfuscator.mappingFingerprint();
+                if (mappings == null) {
+                    LOGGER.info("Not using build manifests as the mappings can't be fingerprinted, the outputs will always be rebuilt");
+                    return null;
+                }
+                md.update(mappings);
+            } else AppUtils.updateDigest(md, "no mappings");
+            DeobfuscationOptions deobfuscation = options.deobfuscation();
+            // The jar-only options don't affect the classes in memory
+            AppUtils.updateDigest(md, (options.decompileInMemory() ? "in memory" : deobfuscation.includeOthers + " " +
+                    deobfuscation.compressionLevel) + " " + deobfuscation.rvn + " " + deobfuscation.reverse + " " + options.namespaceTarget());
+            for (String cls : deobfuscation.extraClasses.stream().sorted().toList()) AppUtils.updateDigest(md, cls);
+            md.update((byte) 1);
+            for (Path jar : deobfuscation.extraJars.stream().sorted().toList()) FileUtil.updateDigest(md, jar);
+            md.update((byte) 1);
+            deobfuscation.refMap.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(e -> {
+                AppUtils.updateDigest(md, e.getKey());
+                e.getValue().entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(e1 -> {
+                    AppUtils.updateDigest(md, e1.getKey());
+                    AppUtils.updateDigest(md, e1.getValue());
+                });
+            });
+            md.update((byte) 1);
+            ExtensionManager.fingerprint(md);
+            this.fingerprint = AppUtils.createHashString(md).toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            LOGGER.warn("Failed to fingerprint the inputs, the outputs will be rebuilt", e);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * @return The fingerprint of everything the decompiled output depends on, or null if the output should always be rebuilt
+     */
+    private @Nullable String fingerprint(IDecompiler decompiler) {
+        // The classes already in memory are what gets decompiled, whatever they were deobfuscated from
+        String fingerprint = remappedClasses != null ? fingerprint(remappedClasses) : fingerprint();
+        if (fingerprint == null) return null;
+        return String.join(" ", fingerprint, decompiler.name(), decompiler.getClass().getName(), String.valueOf(options.version()),
+                String.valueOf(options.bundledLibs().map(libs -> libs.stream().map(Path::toString).sorted().toList()).orElse(null)));
+    }
+
+    private @Nullable String fingerprint(Map<String, byte[]> classes) {
+        if (options.forceRebuild()) return null;
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            if (!updateVersionDigest(md)) return null;
+            for (String name : classes.keySet().stream().sorted().toList()) {
+                AppUtils.updateDigest(md, name);
+                md.update(classes.get(name));
+            }
+            return AppUtils.createHashString(md).toString();
+        } catch (NoSuchAlgorithmException e) {
+            LOGGER.warn("Failed to fingerprint the classes, the outputs will be rebuilt", e);
+            return null;
+        }
+    }
+
+    /**
+     * Updates the digest with the version of MCD. When MCD isn't run from a released jar(e.g. from an IDE or in tests),
+     * the version is unknown, so the class files of MCD are hashed instead.
+     * @return false if neither the version nor the class files are available
+     */
+    private static boolean updateVersionDigest(MessageDigest md) {
+        String version = MinecraftDecompiler.class.getPackage().getImplementationVersion();
+        if (version != null) {
+            AppUtils.updateDigest(md, version);
+            return true;
+        }
+        try {
+            TreeSet<Path> locations = new TreeSet<>();
+            for (Class<?> c : List.of(MinecraftDecompiler.class, ClassifiedDeobfuscator.class, MappingCollection.class,
+                    Decompilers.class, AppUtils.class, ExecutionContext.class)) {
+                CodeSource source = c.getProtectionDomain().getCodeSource();
+                if (source == null || source.getLocation() == null) {
+                    LOGGER.info("Not using build manifests as the code of MCD can't be located, the outputs will always be rebuilt");
+                    return false;
+                }
+                locations.add(Path.of(source.getLocation().toURI()));
+            }
+            for (Path location : locations) {
+                if (Files.isDirectory(location)) {
+                    List<Path> classFiles;
+                    try (Stream<Path> s = Files.walk(location)) {
+                        classFiles = s.filter(p -> p.toString().endsWith(".class")).sorted().toList();
+                    }
+                    for (Path classFile : classFiles) {
+                        AppUtils.updateDigest(md, location.relativize(classFile).toString());
+                        FileUtil.updateDigest(md, classFile);
+                    }
+                } else FileUtil.updateDigest(md, location);
+                md.update((byte) 1);
+            }
+            return true;
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            LOGGER.info("Not using build manifests as the code of MCD can't be fingerprinted, the outputs will always be rebuilt", e);
+            return false;
+        }
+    }
+
+    private void deobfuscate(@Nullable Path target, @Nullable ClassGroupConsumer classConsumer) {
+        try {
+            options.executionContext().bind(ctx -> deobfuscator.deobfuscate(options.inputJar(), target, classConsumer));
         } catch (IOException e) {
             LOGGER.fatal("Error deobfuscating", e);
             throw Utils.wrapInRuntime(e);
@@ -94,19 +269,57 @@ public class MinecraftDecompiler {// This class is not designed to be reusable
     }
 
     public void decompile(String decompilerName, @Nullable Path incrementalJar) {
+        options.executionContext().bind(ctx -> {
+            decompile0(decompilerName, incrementalJar, ctx);
+            return null;
+        });
+    }
+
+    private void decompile0(String decompilerName, @Nullable Path incrementalJar, ExecutionContext ctx) {
         var decompiler = Decompilers.get(decompilerName);
         if (decompiler == null) throw new IllegalArgumentException("Decompiler \"" + decompilerName + "\" does not exist");
-        if (deobfuscator != null) {
-            if (Files.notExists(options.outputJar())) deobfuscate();
+        var outputDir = options.outputDecompDir();
+        String fingerprint = incrementalJar == null ? fingerprint(decompiler) : null;
+        try {
+            if (fingerprint != null) {
+                BuildManifest manifest = BuildManifest.read(outputDir);
+                if (manifest != null && manifest.isUpToDate(fingerprint, outputDir)) {
+                    LOGGER.info("Skipping decompilation as the inputs and the decompiled output are unchanged");
+                    return;
+                }
+            }
+            BuildManifest.delete(outputDir);
+            decompile1(decompiler, incrementalJar, outputDir, ctx);
+            if (fingerprint != null) new BuildManifest(fingerprint, BuildManifest.stamp(outputDir), List.of()).write(outputDir);
+        } catch (IOException e) {
+            LOGGER.fatal("Error when decompiling", e);
+        }
+    }
+
+    private void decompile1(IDecompiler decompiler, @Nullable Path incrementalJar, Path outputDir, ExecutionContext ctx) throws IOException {
+        Map<String, byte[]> classes = null;
+        // Decompile while deobfuscating if the classes are not deobfuscated yet
+        boolean streaming = deobfuscator != null && options.decompileInMemory() && remappedClasses == null &&
+                incrementalJar == null && decompiler instanceof IStreamingDecompiler;
+        if (deobfuscator != null && !streaming) {
+            if (options.decompileInMemory() ? remappedClasses == null : !deobfuscated && (fingerprint() != null ||
+                    Files.notExists(options.outputJar()))) deobfuscate();
             if (deobfuscator.toDecompile.isEmpty()) {
                 LOGGER.info("Nothing to decompile, skipping decompilation");
                 return;
             }
+            classes = remappedClasses;
         }
         LOGGER.info("Decompiling using \"{}\"", decompiler.name());
         var inputJar = deobfuscator == null ? options.inputJar() : options.outputJar();
-        var outputDir = options.outputDecompDir();
-        try (FileSystem jarFs = JarUtil.createZipFs(inputJar)) {
+        if (classes != null && (incrementalJar != null || (!(decompiler instanceof IInMemoryDecompiler) &&
+                decompiler.getSourceType() == IDecompiler.SourceType.FILE))) {
+            LOGGER.info("Writing the classes in memory to a jar, as \"{}\" cannot decompile them directly", decompiler.name());
+            inputJar = Directories.TEMP_DIR.resolve("deobfuscated.jar").toAbsolutePath().normalize();
+            writeJar(classes, inputJar);
+            classes = null;
+        }
+        try (MappedZipFile jar = classes == null && !streaming ? MappedZipFile.open(inputJar) : null) {
             if (incrementalJar == null) FileUtil.deleteIfExists(outputDir);
             Files.createDirectories(outputDir);
             Path libDownloadPath = Files.createDirectories(Directories.DOWNLOAD_DIR.resolve("libs").toAbsolutePath().normalize());
@@ -117,30 +330,34 @@ public class MinecraftDecompiler {// This class is not designed to be reusable
                         DownloadingUtil.downloadLibraries(options.version(), libDownloadPath));
                 if (incrementalJar != null && decompiler.getSourceType() == IDecompiler.SourceType.DIRECTORY) {
                     if (deobfuscator == null) throw new UnsupportedOperationException();// FIXME: I guess no one use this, so just throw uoe before refactoring
-                    try (FileSystem incrementalFs = JarUtil.createZipFs(incrementalJar);
-                        Stream<Path> paths = FileUtil.iterateFiles(incrementalFs.getPath(""))) {
+                    try (MappedZipFile incremental = MappedZipFile.open(incrementalJar)) {
                         var toDecompile = deobfuscator.toDecompile;
                         ObjectOpenHashSet<String> possibleInnerClasses = new ObjectOpenHashSet<>();
                         ObjectOpenHashSet<String> maybeRemoved = new ObjectOpenHashSet<>();
-                        paths.forEach(p -> {
-                            String path = p.toString();
+                        incremental.entries().forEach(e -> {
+                            String path = e.name;
                             if (path.endsWith(".class")) {
-                                String fileName = p.getFileName().toString();
+                                String fileName = path.substring(path.lastIndexOf('/') + 1);
                                 if (toDecompile.contains(path)) {
+                                    MappedZipFile.Entry current = jar.getEntry(path);
                                     try {
                                         MessageDigest md = MessageDigest.getInstance("SHA-1");
-                                        md.update(IOUtil.readAllBytes(p));
+                                        md.update((byte) 1);
+                                        md.update(incremental.readAllBytes(e));
                                         StringBuilder hashA = AppUtils.createHashString(md);
 
-                                        md.update(IOUtil.readAllBytes(jarFs.getPath(path)));
+                                        if (current != null) {
+                                            md.update((byte) 1);
+                                            md.update(jar.readAllBytes(current));
+                                        } else md.update((byte) 0);// Removed, which must not hash like an empty class
                                         StringBuilder hashB = AppUtils.createHashString(md);
                                         if (hashA.compareTo(hashB) == 0) {
                                             maybeRemoved.add(path);
                                         } else if (fileName.lastIndexOf('$') > 0) {
                                             possibleInnerClasses.add(fileName.substring(0, fileName.indexOf('$')));
                                         }
-                                    } catch (IOException | NoSuchAlgorithmException e) {
-                                        throw Utils.wrapInRuntime(e);
+                                    } catch (IOException | NoSuchAlgorithmException ex) {
+                                        throw Utils.wrapInRuntime(ex);
                                     }
                                 } else { // deleted classes(delete java files here)
                                     FileUtil.deleteIfExists(outputDir.resolve(path.replace(".class", ".java")));
@@ -159,24 +376,113 @@ public class MinecraftDecompiler {// This class is not designed to be reusable
                 }
                 if (!libs.isEmpty()) lrd.receiveLibs(libs);
             }
+            if (streaming) {
+                decompileStreaming((IStreamingDecompiler) decompiler, outputDir, ctx);
+                return;
+            }
+            if (classes != null && decompiler instanceof IInMemoryDecompiler imd) {
+                imd.decompile(classes, outputDir);
+                return;
+            }
             switch (decompiler.getSourceType()) {
                 case DIRECTORY -> {// FIXME: temporary solution; needs refactoring
                     Path decompileClasses = Directories.TEMP_DIR.resolve("decompileClasses").toAbsolutePath().normalize();
-                    if (deobfuscator != null) deobfuscator.toDecompile.parallelStream().forEach(path -> FileUtil.copyFile(jarFs.getPath(path), decompileClasses.resolve(path)));
-                    else try (Stream<Path> s = FileUtil.iterateFiles(jarFs.getPath(""))) {
-                        s.forEach(p -> FileUtil.copyFile(p, decompileClasses.resolve(p.toString())));
+                    if (classes != null) {
+                        ctx.forEachBlocking(classes.entrySet(), e -> Files.write(FileUtil.makeParentDirs(decompileClasses.resolve(e.getKey())), e.getValue()));
+                        decompiler.decompile(decompileClasses, outputDir);
+                        return;
                     }
+                    List<MappedZipFile.Entry> entries = deobfuscator != null ? deobfuscator.toDecompile.stream()
+                            .map(jar::getEntry)
+                            .filter(Objects::nonNull)
+                            .toList() : jar.entries().stream().filter(e -> !e.isDirectory()).toList();
+                    ctx.forEachBlocking(entries, e -> extract(jar, e, decompileClasses));
                     decompiler.decompile(decompileClasses, outputDir);
                 }
                 case FILE -> decompiler.decompile(inputJar, outputDir);
             }
+        }
+    }
+
+    private void decompileStreaming(IStreamingDecompiler decompiler, Path outputDir, ExecutionContext ctx) throws IOException {
+        StreamingClassSource source = new StreamingClassSource();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread deobfuscation = ctx.threadFactory("Deobfuscate").newThread(() -> {
+            try {
+                deobfuscate(null, new ClassGroupConsumer() {
+                    @Override
+                    public void expect(Set<String> names) {
+                        source.expect(names);
+                    }
+
+                    @Override
+                    public void accept(Map<String, byte[]> classes) {
+                        source.publish(classes);
+                    }
+
+                    @Override
+                    public void failed(String name) {
+                        source.failed(name);
+                    }
+                });
+                source.finish();
+            } catch (Throwable t) {
+                failure.set(t);
+                source.fail(t);
+            }
+        });
+        deobfuscation.start();
+        try {
+            decompiler.decompile(source, outputDir);
+        } catch (Throwable t) {// Nothing consumes the classes any more, so stop the deobfuscation at its next class group
+            source.close();
+            throw t;
+        } finally {
+            try {
+                deobfuscation.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Utils.wrapInRuntime(e);
+            }
+        }
+        if (failure.get() != null) throw Utils.wrapInRuntime(failure.get());
+        this.remappedClasses = source.getClasses();
+    }
+
+    /**
+     * Closes the execution context if it was created for the options. A context set by
+     * {@link OptionBuilder#executionContext} is left open, as it is owned by the caller.
+     */
+    @Override
+    public void close() {
+        if (options.ownsExecutionContext()) options.executionContext().close();
+    }
+
+    private static void writeJar(Map<String, byte[]> classes, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try (ParallelZipWriter writer = new ParallelZipWriter(FileUtil.makeParentDirs(target), ParallelZipWriter.STORED)) {
+            ExecutionContext.current().forEachBlocking(classes.entrySet(), e -> {
+                ParallelZipWriter.Slot slot = writer.reserve();
+                try {
+                    slot.write(e.getKey(), e.getValue());
+                } finally {
+                    slot.cancel();// No-op if written
+                }
+            });
+        }
+    }
+
+    private static void extract(MappedZipFile jar, MappedZipFile.Entry entry, Path targetDir) {
+        try {
+            Files.write(FileUtil.makeParentDirs(targetDir.resolve(entry.name)), jar.readAllBytes(entry));
         } catch (IOException e) {
-            LOGGER.fatal("Error when decompiling", e);
+            LOGGER.error("Error extracting {}", entry.name, e);
         }
     }
 
     public static final class OptionBuilder {
         private static final Logger LOGGER = LogManager.getLogger("Option Builder");
+        private static final AtomicInteger JOB_ID = new AtomicInteger();
         private String version;
         private SideType type;
         private boolean includeOthers = true;
@@ -197,6 +503,16 @@ public class MinecraftDecompiler {// This class is not designed to be reusable
 
         private boolean skipWhenAbsent;
 
+        private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        private PipelineOptions pipeline;
+        private ExecutionContext executionContext;
+        private boolean virtualThreads = Boolean.getBoolean(ExecutionContext.VIRTUAL_THREADS_PROPERTY);
+        private boolean decompileInMemory;
+        private boolean remapCache;
+        private Path remapCacheDir;
+        private long remapCacheSize = RemapCache.DEFAULT_MAX_SIZE;
+        private boolean forceRebuild;
+
         public OptionBuilder(String version, SideType type) {
             this.version = Objects.requireNonNull(version, "version cannot be null!");
             this.type = Objects.requireNonNull(type, "type cannot be null!");
@@ -235,11 +551,9 @@ public class MinecraftDecompiler {// This class is not designed to be reusable
                     ObjectOpenHashSet<Path> libs = new ObjectOpenHashSet<>();
                     try (Stream<String> lines = Files.lines(metaInf.resolve("libraries.list"))) {
                         Path libraries = metaInf.resolve("libraries");
-                        lines.forEach(line -> {
-                            Path lib = libraries.resolve(line.split("\t")[2]);
-                            FileUtil.copyFile(lib, extractDir);
-                            libs.add(extractDir.resolve(lib.getFileName().toString()));
-                        });
+                        List<Path> libPaths = lines.map(line -> libraries.resolve(line.split("\t")[2])).toList();
+                        ExecutionContext.current().forEachBlocking(libPaths, lib -> FileUtil.copyFile(lib, extractDir));
+                        libPaths.forEach(lib -> libs.add(extractDir.resolve(lib.getFileName().toString())));
                     }
                     this.bundledLibs = Optional.of(ObjectSets.unmodifiable(libs));
                 } else this.inputJar = inputJar;
@@ -366,12 +680,121 @@ public class MinecraftDecompiler {// This class is not designed to be reusable
             return this;
         }
 
+        /**
+         * Set the compression level of the output jar.
+         * @param compressionLevel {@link Deflater#DEFAULT_COMPRESSION}, 0-9, or {@link ParallelZipWriter#STORED}
+         */
+        public OptionBuilder compressionLevel(int compressionLevel) {
+            if (compressionLevel != ParallelZipWriter.STORED && compressionLevel != Deflater.DEFAULT_COMPRESSION &&
+                    (compressionLevel < 0 || compressionLevel > 9)) {
+                throw new IllegalArgumentException("Invalid compression level " + compressionLevel);
+            }
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        /**
+         * Store the entries of the output jar without compressing them. Useful when the jar is only read by the decompiler.
+         */
+        public OptionBuilder storeUncompressed() {
+            return compressionLevel(ParallelZipWriter.STORED);
+        }
+
+        /**
+         * Set the parallelism and queue capacity of the stages of the deobfuscation pipeline.
+         * Defaults to the thread counts derived from the parallelism of the execution context.
+         */
+        public OptionBuilder pipeline(PipelineOptions pipeline) {
+            this.pipeline = Objects.requireNonNull(pipeline, "pipeline cannot be null");
+            return this;
+        }
+
+        /**
+         * Set the context to run the parallel work on. If not set, a new context with its own pool is created for
+         * every built {@link Options}, so that multiple jobs running in one JVM do not share threads. That context is
+         * closed by {@link MinecraftDecompiler#close()}, while the context set here is left to the caller to close.
+         */
+        public OptionBuilder executionContext(ExecutionContext executionContext) {
+            this.executionContext = Objects.requireNonNull(executionContext, "executionContext cannot be null");
+            return this;
+        }
+
+        /**
+         * Run blocking I/O, like downloading libraries and extracting classes, on virtual threads. Only works on Java 21
+         * or newer, otherwise a pool of platform threads is used. Ignored if the execution context is set.
+         */
+        public OptionBuilder useVirtualThreads() {
+            this.virtualThreads = true;
+            return this;
+        }
+
+        /**
+         * Keep the remapped classes in memory and hand them straight to the decompiler. The deobfuscated jar is not
+         * written, and no temporary class directory is needed by decompilers that can decompile classes in memory.
+         */
+        public OptionBuilder decompileInMemory() {
+            this.decompileInMemory = true;
+            return this;
+        }
+
+        /**
+         * Cache the remapped classes on disk, in {@link Directories#CACHE_DIR}, so that classes that are remapped again
+         * with the same mappings and options don't need to be visited again.
+         */
+        public OptionBuilder remapCache() {
+            this.remapCache = true;
+            return this;
+        }
+
+        /**
+         * Cache the remapped classes on disk, in the given directory.
+         * @see #remapCache()
+         */
+        public OptionBuilder remapCache(Path directory) {
+            this.remapCacheDir = Objects.requireNonNull(directory, "directory cannot be null");
+            return remapCache();
+        }
+
+        /**
+         * Set the max size of the remap cache. The least recently used classes are removed when the cache grows over it.
+         * @param maxSize Max size in bytes
+         */
+        public OptionBuilder remapCacheSize(long maxSize) {
+            if (maxSize <= 0) throw new IllegalArgumentException("Remap cache size must be positive");
+            this.remapCacheSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Always deobfuscate and decompile. By default, a manifest recording the fingerprint of the inputs is written
+         * next to each output, and the output is not built again if the inputs and the output are unchanged.
+         */
+        public OptionBuilder forceRebuild() {
+            this.forceRebuild = true;
+            return this;
+        }
+
         public Options build() {
             if(this.outputJar.getParent().equals(this.outputDecompDir))
                 throw new IllegalArgumentException("The parent directory of outputJar cannot be the same as outputDecomp");
+            ExecutionContext ctx = executionContext != null ? executionContext : ExecutionContext.create("MCD-" + JOB_ID.getAndIncrement(),
+                    ExecutionContext.availableProcessors(), virtualThreads);
+            PipelineOptions pipelineOptions = pipeline != null ? pipeline : new PipelineOptions(ctx.getParallelism());
+            boolean ownsContext = executionContext == null;
             return new Options() {
                 private final DeobfuscationOptions deobfuscation = new DeobfuscationOptions(includeOthers, rvn, reverse,
-                        ObjectSets.unmodifiable(extraJars), ObjectSets.unmodifiable(extraClasses), refMap);
+                        ObjectSets.unmodifiable(extraJars), ObjectSets.unmodifiable(extraClasses), refMap, compressionLevel, pipelineOptions,
+                        remapCache ? (remapCacheDir != null ? remapCacheDir : Directories.CACHE_DIR.resolve("remap")) : null, remapCacheSize);
+
+                @Override
+                public ExecutionContext executionContext() {
+                    return ctx;
+                }
+
+                @Override
+                public boolean ownsExecutionContext() {
+                    return ownsContext;
+                }
 
                 @Override
                 public String version() {
@@ -427,6 +850,16 @@ public class MinecraftDecompiler {// This class is not designed to be reusable
                 public boolean skipWhenAbsent() {
                     return skipWhenAbsent;
                 }
+
+                @Override
+                public boolean decompileInMemory() {
+                    return decompileInMemory;
+                }
+
+                @Override
+                public boolean forceRebuild() {
+                    return forceRebuild;
+                }
             };
         }
     }
@@ -471,5 +904,19 @@ public class MinecraftDecompiler {// This class is not designed to be reusable
         Optional<ObjectSet<Path>> bundledLibs();
 
         boolean skipWhenAbsent();
+
+        boolean decompileInMemory();
+
+        boolean forceRebuild();
+
+        ExecutionContext executionContext();
+
+        /**
+         * @return true if the {@link #executionContext() context} was created for these options, so that the
+         *         {@link MinecraftDecompiler} using them should close it
+         */
+        default boolean ownsExecutionContext() {
+            return false;
+        }
     }
 }
\ No newline at end of file
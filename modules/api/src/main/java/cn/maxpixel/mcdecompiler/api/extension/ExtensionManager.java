@@ -18,14 +18,18 @@
 
 package cn.maxpixel.mcdecompiler.api.extension;
 
+import cn.maxpixel.mcdecompiler.common.app.util.AppUtils;
 import cn.maxpixel.mcdecompiler.common.app.util.DataMap;
 import cn.maxpixel.mcdecompiler.remapper.processing.ClassProcessor;
 import cn.maxpixel.mcdecompiler.remapper.processing.Process;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectObjectImmutablePair;
 
 import java.io.IOException;
 import java.nio.file.FileSystem;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Comparator;
 import java.util.ServiceLoader;
 import java.util.function.Supplier;
 
@@ -49,6 +53,23 @@ public final class ExtensionManager {
         OPTION_REGISTRY.receiveOptions(EXTENSIONS);
     }
 
+    /**
+     * Updates the digest with the names and versions of the extensions, and the options they received.
+     * @param md The digest to update
+     */
+    public static void fingerprint(MessageDigest md) {
+        ObjectArrayList<Extension> extensions = new ObjectArrayList<>();
+        EXTENSIONS.forEach(extensions::add);
+        extensions.unstableSort(Comparator.comparing(Extension::getName));
+        for (Extension extension : extensions) {
+            AppUtils.updateDigest(md, extension.getName());
+            AppUtils.updateDigest(md, extension.getClass().getName());
+            AppUtils.updateDigest(md, String.valueOf(extension.getClass().getPackage().getImplementationVersion()));
+        }
+        md.update((byte) 1);
+        OPTION_REGISTRY.fingerprint(md);
+    }
+
     static void loadProcesses() {
         for (Extension extension : EXTENSIONS) {
             for (ObjectObjectImmutablePair<Process.Run, Supplier<Process>> process : extension.getProcesses()) {
@@ -18,6 +18,7 @@
 
 package cn.maxpixel.mcdecompiler.api.extension;
 
+import cn.maxpixel.mcdecompiler.common.app.util.AppUtils;
 import cn.maxpixel.mcdecompiler.mapping.util.MappingUtils;
 import cn.maxpixel.mcdecompiler.utils.LambdaUtil;
 import it.unimi.dsi.fastutil.objects.*;
@@ -27,6 +28,8 @@ import org.jetbrains.annotations.Nullable;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.security.MessageDigest;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -113,6 +116,22 @@ public final class OptionRegistry {
         } else throwNoValuesAllowed(option);
     }
 
+    /**
+     * Updates the digest with the presented options and their values, sorted by the option names.
+     * @param md The digest to update
+     */
+    public void fingerprint(MessageDigest md) {
+        ObjectArrayList<Option> list = new ObjectArrayList<>(presented);
+        list.unstableSort(Comparator.comparing(o -> o.options.get(0)));
+        for (Option o : list) {
+            AppUtils.updateDigest(md, o.options.get(0));
+            if (o instanceof Option.ValueAccepting<?> v) {
+                for (Object value : values.getOrDefault(v, ObjectArrayList.of())) AppUtils.updateDigest(md, String.valueOf(value));
+            }
+            md.update((byte) 1);
+        }
+    }
+
     private static MethodHandle findConverter(Class<?> clazz) {
         return CONVERTER_CACHE.computeIfAbsent(clazz, LambdaUtil.unwrap(c -> {
             try {
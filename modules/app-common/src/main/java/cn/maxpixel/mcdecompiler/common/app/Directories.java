@@ -23,4 +23,5 @@ import java.nio.file.Path;
 public class Directories {
     public static Path TEMP_DIR = Path.of("temp");
     public static Path DOWNLOAD_DIR = Path.of("downloads");
+    public static Path CACHE_DIR = Path.of("cache");
 }
\ No newline at end of file
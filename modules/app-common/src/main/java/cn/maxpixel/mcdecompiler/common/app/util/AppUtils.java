@@ -24,6 +24,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 
 public class AppUtils {
@@ -37,6 +38,15 @@ public class AppUtils {
         return out;
     }
 
+    /**
+     * Updates the digest with the string followed by a terminator, so that adjacent strings can't be confused with each
+     * other, e.g. "ab" + "c" and "a" + "bc".
+     */
+    public static void updateDigest(MessageDigest md, @NotNull String s) {
+        md.update(s.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+    }
+
     public static String file2Native(@NotNull String fileName) {
         return fileName.replace('\\', '/').replace(".class", "");
     }
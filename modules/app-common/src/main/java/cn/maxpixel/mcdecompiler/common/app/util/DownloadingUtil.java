@@ -21,11 +21,13 @@ package cn.maxpixel.mcdecompiler.common.app.util;
 import cn.maxpixel.mcdecompiler.common.app.Constants;
 import cn.maxpixel.mcdecompiler.common.app.Directories;
 import cn.maxpixel.mcdecompiler.common.app.SideType;
+import cn.maxpixel.mcdecompiler.utils.ExecutionContext;
 import cn.maxpixel.mcdecompiler.utils.LambdaUtil;
 import cn.maxpixel.mcdecompiler.utils.Utils;
 import cn.maxpixel.rewh.logging.LogManager;
 import cn.maxpixel.rewh.logging.Logger;
 import com.google.gson.JsonObject;
+import it.unimi.dsi.fastutil.objects.ObjectObjectImmutablePair;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import org.jetbrains.annotations.Blocking;
 import org.jetbrains.annotations.NonBlocking;
@@ -106,12 +108,19 @@ public class DownloadingUtil {
 
     @NonBlocking
     public static CompletableFuture<BufferedReader> downloadMapping(@NotNull String version, @NotNull SideType type) {
+        return downloadMappingFile(version, type).thenApply(LambdaUtil.unwrap(Files::newBufferedReader, LambdaUtil::rethrowAsCompletion));
+    }
+
+    @Blocking
+    public static Path downloadMappingFileSync(@NotNull String version, @NotNull SideType type) {
+        return downloadMappingFile(version, type).join();
+    }
+
+    @NonBlocking
+    public static CompletableFuture<Path> downloadMappingFile(@NotNull String version, @NotNull SideType type) {
         return VersionManifest.get(version).thenComposeAsync(object -> {
             String id = object.get("id").getAsString();
-            JsonObject mappings = object.getAsJsonObject("downloads")
-                    .getAsJsonObject(type + "_mappings");
-            if (mappings == null) throw new IllegalArgumentException("Version \"" + id +
-                    "\" doesn't have official mappings. Please use 1.14.4 or above");
+            JsonObject mappings = getMappingDownload(object, type);
             Path p = Directories.DOWNLOAD_DIR.resolve(id).resolve(type + "_mappings.txt");
             if (!FileUtil.verify(p, mappings.get("sha1").getAsString(), mappings.get("size").getAsLong())) {
                 LOGGER.info("Downloading {} {} mapping...", id, type);
@@ -120,7 +129,28 @@ public class DownloadingUtil {
                         HttpResponse.BodyHandlers.ofFile(FileUtil.makeParentDirs(p), OPEN_OPTIONS)
                 ).thenApply(HttpResponse::body);
             } else return CompletableFuture.completedFuture(p);
-        }).thenApply(LambdaUtil.unwrap(Files::newBufferedReader, LambdaUtil::rethrowAsCompletion));
+        });
+    }
+
+    /**
+     * Gets the info of the mapping without downloading it
+     * @param version version of Minecraft
+     * @param type Side of the mapping
+     * @return The local path of the mapping, and the SHA-1 hash of the remote mapping
+     */
+    @NonBlocking
+    public static CompletableFuture<ObjectObjectImmutablePair<Path, String>> getMappingInfo(@NotNull String version, @NotNull SideType type) {
+        return VersionManifest.get(version).thenApply(object -> ObjectObjectImmutablePair.of(
+                Directories.DOWNLOAD_DIR.resolve(object.get("id").getAsString()).resolve(type + "_mappings.txt"),
+                getMappingDownload(object, type).get("sha1").getAsString()
+        ));
+    }
+
+    private static JsonObject getMappingDownload(JsonObject version, SideType type) {
+        JsonObject mappings = version.getAsJsonObject("downloads").getAsJsonObject(type + "_mappings");
+        if (mappings == null) throw new IllegalArgumentException("Version \"" + version.get("id").getAsString() +
+                "\" doesn't have official mappings. Please use 1.14.4 or above");
+        return mappings;
     }
 
     /**
@@ -159,27 +189,28 @@ public class DownloadingUtil {
             return ObjectOpenHashSet.of();
         }
         LOGGER.info("Downloading libs of version {}", version);
-        return StreamSupport.stream(VersionManifest.getSync(version).getAsJsonArray("libraries").spliterator(), true)
+        var artifacts = StreamSupport.stream(VersionManifest.getSync(version).getAsJsonArray("libraries").spliterator(), false)
                 .map(ele -> ele.getAsJsonObject().getAsJsonObject("downloads"))
                 .map(obj -> obj.getAsJsonObject("artifact"))
                 .filter(Objects::nonNull)
-                .map(artifact -> {
-                    String url = artifact.get("url").getAsString();
-                    Path file = libDir.resolve(url.substring(url.lastIndexOf('/') + 1)); // libDir.resolve(lib file name)
-                    if (!FileUtil.verify(file, artifact.get("sha1").getAsString(), artifact.get("size").getAsLong())) {
-                        LOGGER.debug("Downloading {}", url);
-                        try {
-                            HTTP_CLIENT.send(HttpRequest.newBuilder(URI.create(url)).build(),
-                                    HttpResponse.BodyHandlers.ofFile(file, OPEN_OPTIONS));
-                        } catch (IOException e) {
-                            LOGGER.fatal("Error downloading files", e);
-                            throw Utils.wrapInRuntime(e);
-                        } catch (InterruptedException e) {
-                            LOGGER.fatal("Download process interrupted", e);
-                            throw Utils.wrapInRuntime(e);
-                        }
-                    }
-                    return file;
-                }).collect(ObjectOpenHashSet.toSet());
+                .toList();
+        return new ObjectOpenHashSet<>(ExecutionContext.current().mapBlocking(artifacts, artifact -> {
+            String url = artifact.get("url").getAsString();
+            Path file = libDir.resolve(url.substring(url.lastIndexOf('/') + 1)); // libDir.resolve(lib file name)
+            if (!FileUtil.verify(file, artifact.get("sha1").getAsString(), artifact.get("size").getAsLong())) {
+                LOGGER.debug("Downloading {}", url);
+                try {
+                    HTTP_CLIENT.send(HttpRequest.newBuilder(URI.create(url)).build(),
+                            HttpResponse.BodyHandlers.ofFile(file, OPEN_OPTIONS));
+                } catch (IOException e) {
+                    LOGGER.fatal("Error downloading files", e);
+                    throw Utils.wrapInRuntime(e);
+                } catch (InterruptedException e) {
+                    LOGGER.fatal("Download process interrupted", e);
+                    throw Utils.wrapInRuntime(e);
+                }
+            }
+            return file;
+        }));
     }
 }
\ No newline at end of file
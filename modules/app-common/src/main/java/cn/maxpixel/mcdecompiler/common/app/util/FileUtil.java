@@ -18,24 +18,26 @@
 
 package cn.maxpixel.mcdecompiler.common.app.util;
 
+import cn.maxpixel.mcdecompiler.utils.ExecutionContext;
 import cn.maxpixel.mcdecompiler.utils.Utils;
 import cn.maxpixel.rewh.logging.LogManager;
 import cn.maxpixel.rewh.logging.Logger;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.nio.file.DirectoryStream;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Objects;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static java.nio.file.StandardOpenOption.READ;
@@ -93,14 +95,31 @@ public final class FileUtil {
         }
     }
 
+    /**
+     * Delete the file, or the directory with all its contents.
+     * <p>
+     * The files of a directory are deleted on the I/O executor of the {@link ExecutionContext#current() current context},
+     * then the directories are deleted from the deepest one.
+     * @param path The file or directory to delete
+     */
     public static void deleteIfExists(@NotNull Path path) {
         try {
-            if (Files.isDirectory(path)) {
-                try (DirectoryStream<Path> ds = Files.newDirectoryStream(path)) {
-                    StreamSupport.stream(ds.spliterator(), true)
-                            .forEach(FileUtil::deleteIfExists);
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                ObjectArrayList<Path> files = new ObjectArrayList<>();
+                ObjectArrayList<Path> dirs = new ObjectArrayList<>();
+                try (Stream<Path> s = Files.walk(path)) {
+                    s.forEach(p -> (Files.isDirectory(p, LinkOption.NOFOLLOW_LINKS) ? dirs : files).add(p));
                 }
-            }
+                ExecutionContext.current().forEachBlocking(files, FileUtil::delete);
+                for (int i = dirs.size() - 1; i >= 0; i--) delete(dirs.get(i));// Children are after their parents
+            } else delete(path);
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.error("Failed to delete \"{}\"", path, e);
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
             if (Files.deleteIfExists(path)) {
                 LOGGER.debug("Deleted \"{}\"...", path);
             }
@@ -124,6 +143,13 @@ public final class FileUtil {
         return p;
     }
 
+    /**
+     * Iterate all the regular files under the path
+     * @apiNote The returned stream is sequential. To process the files in parallel, make it parallel and run the
+     * terminal operation through {@link ExecutionContext#invoke}/{@link ExecutionContext#run}
+     * @param path The path to iterate
+     * @return A stream of the files. Needs to be closed
+     */
     public static Stream<Path> iterateFiles(@NotNull Path path) {
         try {// TODO: implement a custom spliterator later
 //            DirectoryStream<Path> ds = Files.newDirectoryStream(path);
@@ -133,7 +159,7 @@ public final class FileUtil {
 //                            s.sequential().forEach(cons);
 //                        } else cons.accept(p);
 //                    }).onClose(LambdaUtil.unwrap(ds::close));
-            return Files.walk(path).parallel().filter(Files::isRegularFile);
+            return Files.walk(path).filter(Files::isRegularFile);
         } catch (IOException e) {
             LOGGER.fatal("Error iterating files", e);
             throw Utils.wrapInRuntime(e);
@@ -167,11 +193,10 @@ public final class FileUtil {
         if (Objects.requireNonNull(hash, "Why do you want to verify a file with null hash?").isBlank()) {
             throw new IllegalArgumentException("Why do you want to verify a file with no hash?");
         }
-        try (FileChannel fc = FileChannel.open(path, READ)) {
+        try {
             MessageDigest md = MessageDigest.getInstance("SHA-1");
-            ByteBuffer buf = ByteBuffer.allocateDirect(65536);
-            while (fc.read(buf.clear()) != -1) md.update(buf.flip());
-            return (size < 0 || fc.size() == size) && hash.contentEquals(AppUtils.createHashString(md));
+            long fileSize = updateDigest(md, path);
+            return (size < 0 || fileSize == size) && hash.contentEquals(AppUtils.createHashString(md));
         } catch (IOException e) {
             LOGGER.fatal("Error reading files", e);
             throw Utils.wrapInRuntime(e);
@@ -180,4 +205,18 @@ public final class FileUtil {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Updates the digest with the content of the file
+     * @param md The digest to update
+     * @param path File to read. Directory is not supported
+     * @return The size of the file
+     */
+    public static long updateDigest(@NotNull MessageDigest md, @NotNull Path path) throws IOException {
+        try (FileChannel fc = FileChannel.open(path, READ)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(65536);
+            while (fc.read(buf.clear()) != -1) md.update(buf.flip());
+            return fc.size();
+        }
+    }
+}
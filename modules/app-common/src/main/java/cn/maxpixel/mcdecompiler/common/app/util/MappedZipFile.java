@@ -0,0 +1,292 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.common.app.util;
+
+import cn.maxpixel.rewh.logging.LogManager;
+import cn.maxpixel.rewh.logging.Logger;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import it.unimi.dsi.fastutil.objects.ObjectLists;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * A read-only zip/jar file backed by a memory-mapped buffer.
+ * <p>
+ * The central directory is parsed once when the file is opened. Entries are then inflated straight from the
+ * mapped buffer into caller-supplied arrays, so reading the same file from many threads needs no locking.
+ *
+ * @implNote Only files smaller than 2GiB can be mapped. Encrypted entries are not supported
+ */
+@ApiStatus.Internal
+public final class MappedZipFile implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+    private static final int END_SIG = 0x06054b50;
+    private static final int ZIP64_END_SIG = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+
+    public static final int STORED = 0;
+    public static final int DEFLATED = 8;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final ObjectArrayList<Entry> entries;
+    private final Object2ObjectOpenHashMap<String, Entry> entryMap;
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private MappedZipFile(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new ZipException("Zip file is too large to be mapped: " + path);
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            this.entries = readCentralDirectory();
+            this.entryMap = new Object2ObjectOpenHashMap<>(entries.size());
+            for (Entry entry : entries) entryMap.putIfAbsent(entry.name, entry);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        LOGGER.trace("Mapped zip file \"{}\" with {} entries", path, entries.size());
+    }
+
+    public static MappedZipFile open(@NotNull Path path) throws IOException {
+        return new MappedZipFile(FileUtil.requireExist(path));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return All entries, including directories, in the order of the central directory
+     */
+    public ObjectList<Entry> entries() {
+        return ObjectLists.unmodifiable(entries);
+    }
+
+    public @Nullable Entry getEntry(@NotNull String name) {
+        return entryMap.get(name);
+    }
+
+    /**
+     * Inflates the entry into the given array.
+     * @param entry The entry to read
+     * @param dst The destination array. Its length must be at least {@link Entry#size}
+     * @return The number of bytes read, which always equals {@link Entry#size}
+     * @throws IOException If the entry is corrupted or uses an unsupported compression method
+     */
+    public int read(@NotNull Entry entry, byte @NotNull [] dst) throws IOException {
+        if (dst.length < entry.size) throw new IllegalArgumentException("Buffer is too small for entry " + entry.name);
+        int len = (int) entry.size;
+        ByteBuffer data = rawData(entry);
+        switch (entry.method) {
+            case STORED -> data.get(dst, 0, len);
+            case DEFLATED -> {
+                Inflater inflater = inflaters.get();
+                inflater.reset();
+                inflater.setInput(data);
+                try {
+                    int n = 0;
+                    while (n < len) {
+                        int read = inflater.inflate(dst, n, len - n);
+                        if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) break;
+                        n += read;
+                    }
+                    if (n != len) throw new ZipException("Unexpected end of entry " + entry.name);
+                } catch (DataFormatException e) {
+                    throw new ZipException("Invalid deflate data in entry " + entry.name + ": " + e.getMessage());
+                }
+            }
+            default -> throw new ZipException("Unsupported compression method " + entry.method + " of entry " + entry.name);
+        }
+        return len;
+    }
+
+    public byte[] readAllBytes(@NotNull Entry entry) throws IOException {
+        byte[] bytes = new byte[(int) entry.size];
+        read(entry, bytes);
+        return bytes;
+    }
+
+    public InputStream getInputStream(@NotNull Entry entry) throws IOException {
+        return new ByteArrayInputStream(readAllBytes(entry));
+    }
+
+    /**
+     * @return A read-only view of the compressed data of the entry, positioned at the first byte
+     */
+    public ByteBuffer rawData(@NotNull Entry entry) throws IOException {
+        if ((entry.flags & 1) != 0) throw new ZipException("Encrypted entry " + entry.name + " is not supported");
+        return buffer.slice(entry.dataOffset(), (int) entry.compressedSize).asReadOnlyBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();// The mapped buffer is released when it becomes unreachable
+    }
+
+    private ObjectArrayList<Entry> readCentralDirectory() throws IOException {
+        int end = findEnd();
+        long count = Short.toUnsignedInt(buffer.getShort(end + 10));
+        long cdSize = Integer.toUnsignedLong(buffer.getInt(end + 12));
+        long cdOffset = Integer.toUnsignedLong(buffer.getInt(end + 16));
+        if (count == 0xFFFF || cdSize == 0xFFFFFFFFL || cdOffset == 0xFFFFFFFFL) {
+            int locator = end - ZIP64_LOCATOR_SIZE;
+            if (locator >= 0 && buffer.getInt(locator) == ZIP64_LOCATOR_SIG) {
+                int zip64End = checkOffset(buffer.getLong(locator + 8));
+                if (buffer.getInt(zip64End) != ZIP64_END_SIG) throw new ZipException("Invalid ZIP64 end header");
+                count = buffer.getLong(zip64End + 32);
+                cdSize = buffer.getLong(zip64End + 40);
+                cdOffset = buffer.getLong(zip64End + 48);
+            }
+        }
+        int pos = checkOffset(cdOffset);
+        checkOffset(cdOffset + cdSize);
+        ObjectArrayList<Entry> list = new ObjectArrayList<>((int) Math.min(count, 65536));
+        for (long i = 0; i < count; i++) {
+            if (buffer.getInt(pos) != CENTRAL_HEADER_SIG) throw new ZipException("Invalid central directory header");
+            int flags = Short.toUnsignedInt(buffer.getShort(pos + 8));
+            int method = Short.toUnsignedInt(buffer.getShort(pos + 10));
+            long time = Integer.toUnsignedLong(buffer.getInt(pos + 12));
+            int crc = buffer.getInt(pos + 16);
+            long compressedSize = Integer.toUnsignedLong(buffer.getInt(pos + 20));
+            long size = Integer.toUnsignedLong(buffer.getInt(pos + 24));
+            int nameLen = Short.toUnsignedInt(buffer.getShort(pos + 28));
+            int extraLen = Short.toUnsignedInt(buffer.getShort(pos + 30));
+            int commentLen = Short.toUnsignedInt(buffer.getShort(pos + 32));
+            long localOffset = Integer.toUnsignedLong(buffer.getInt(pos + 42));
+            byte[] nameBytes = new byte[nameLen];
+            buffer.get(pos + 46, nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+            if (size == 0xFFFFFFFFL || compressedSize == 0xFFFFFFFFL || localOffset == 0xFFFFFFFFL) {
+                int extra = pos + 46 + nameLen, extraEnd = extra + extraLen;
+                while (extra + 4 <= extraEnd) {
+                    int id = Short.toUnsignedInt(buffer.getShort(extra));
+                    int len = Short.toUnsignedInt(buffer.getShort(extra + 2));
+                    if (id == 0x0001) {
+                        int off = extra + 4;
+                        if (size == 0xFFFFFFFFL) {
+                            size = buffer.getLong(off);
+                            off += 8;
+                        }
+                        if (compressedSize == 0xFFFFFFFFL) {
+                            compressedSize = buffer.getLong(off);
+                            off += 8;
+                        }
+                        if (localOffset == 0xFFFFFFFFL) localOffset = buffer.getLong(off);
+                        break;
+                    }
+                    extra += 4 + len;
+                }
+            }
+            if (size > Integer.MAX_VALUE || compressedSize > Integer.MAX_VALUE) throw new ZipException("Entry " + name + " is too large");
+            list.add(new Entry(name, flags, method, time, crc, compressedSize, size, checkOffset(localOffset)));
+            pos += 46 + nameLen + extraLen + commentLen;
+        }
+        return list;
+    }
+
+    private int findEnd() throws IOException {
+        int limit = Math.max(0, buffer.limit() - END_SIZE - 0xFFFF);
+        for (int i = buffer.limit() - END_SIZE; i >= limit; i--) {
+            if (buffer.getInt(i) == END_SIG && i + END_SIZE + Short.toUnsignedInt(buffer.getShort(i + 20)) <= buffer.limit()) {
+                return i;
+            }
+        }
+        throw new ZipException("End of central directory not found in " + path);
+    }
+
+    private int checkOffset(long offset) throws ZipException {
+        if (offset < 0 || offset > buffer.limit()) throw new ZipException("Invalid offset " + offset + " in " + path);
+        return (int) offset;
+    }
+
+    public final class Entry {
+        public final String name;
+        /**
+         * General purpose bit flags
+         */
+        public final int flags;
+        public final int method;
+        /**
+         * Last modified time in MS-DOS format
+         */
+        public final long dosTime;
+        public final int crc;
+        public final long compressedSize;
+        public final long size;
+        public final int localHeaderOffset;
+        private int dataOffset = -1;
+
+        private Entry(String name, int flags, int method, long dosTime, int crc, long compressedSize, long size, int localHeaderOffset) {
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        private int dataOffset() throws ZipException {
+            if (dataOffset < 0) {
+                if (buffer.getInt(localHeaderOffset) != LOCAL_HEADER_SIG) throw new ZipException("Invalid local header of entry " + name);
+                dataOffset = checkOffset(localHeaderOffset + 30L + Short.toUnsignedInt(buffer.getShort(localHeaderOffset + 26)) +
+                        Short.toUnsignedInt(buffer.getShort(localHeaderOffset + 28)));
+            }
+            return dataOffset;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
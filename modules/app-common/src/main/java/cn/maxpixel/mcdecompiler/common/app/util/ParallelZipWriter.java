@@ -0,0 +1,416 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.common.app.util;
+
+import cn.maxpixel.mcdecompiler.utils.Utils;
+import cn.maxpixel.rewh.logging.LogManager;
+import cn.maxpixel.rewh.logging.Logger;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A zip/jar writer that compresses entries on the calling threads and appends them on a single thread.
+ * <p>
+ * Callers {@link #reserve() reserve} a slot for every entry in the order the entries should appear in the output,
+ * then fill the slots from any thread. Each slot is compressed into its own buffer by the thread that fills it, and
+ * the appender thread writes the finished slots strictly in reservation order, so the output is deterministic no
+ * matter in which order the slots are filled. Entries of another zip file can be {@link Slot#copyRaw copied} without
+ * being inflated and deflated again.
+ * <p>
+ * The number of reserved slots that are not written yet can be bounded. {@link #reserve()} blocks when the bound is
+ * reached, so the memory used by the buffers stays flat.
+ * <p>
+ * Every reserved slot must be either written or {@link Slot#cancel() cancelled}, otherwise {@link #close()} never returns.
+ * If the slots can no longer be filled because the producer has failed, {@link #abort abort} the writer instead.
+ */
+@ApiStatus.Internal
+public final class ParallelZipWriter implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /**
+     * Compression level which stores entries without compressing them
+     */
+    public static final int STORED = -2;
+
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+    private static final int END_SIG = 0x06054b50;
+    private static final int ZIP64_END_SIG = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+    private static final int UTF8_FLAG = 1 << 11;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    /**
+     * Modification time of the written entries, fixed so that the same input gives the same output. 1980-02-01 is used
+     * instead of the earliest DOS time, which some tools shift before 1980 when converting it to their time zone
+     */
+    private static final int FIXED_DOS_TIME = toDosTime(LocalDateTime.of(1980, 2, 1, 0, 0));
+
+    private final Path target;
+    private final int level;
+    private final ThreadLocal<Deflater> deflaters;
+    private final OutputStream out;
+    private final Thread appender;
+    private final byte[] transferBuffer = new byte[65536];
+
+    private final ObjectArrayList<Slot> slots = new ObjectArrayList<>();
+    private final ObjectArrayList<Slot> written = new ObjectArrayList<>();
+    private final ObjectOpenHashSet<String> names = new ObjectOpenHashSet<>();
+    private final int window;
+    private int next;
+    private int maxPending;
+    private long blockedNanos;
+    private boolean closing;
+    private volatile boolean aborted;
+    private volatile Throwable failure;
+    private long offset;
+
+    public ParallelZipWriter(@NotNull Path target) throws IOException {
+        this(target, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param target The file to write to. Will be overwritten if it exists
+     * @param level The compression level. {@link Deflater#DEFAULT_COMPRESSION}, 0-9, or {@link #STORED}
+     */
+    public ParallelZipWriter(@NotNull Path target, int level) throws IOException {
+        this(target, level, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param target The file to write to. Will be overwritten if it exists
+     * @param level The compression level. {@link Deflater#DEFAULT_COMPRESSION}, 0-9, or {@link #STORED}
+     * @param window Max number of reserved slots that are not written yet
+     */
+    public ParallelZipWriter(@NotNull Path target, int level, int window) throws IOException {
+        if (window <= 0) throw new IllegalArgumentException("window must be positive");
+        if (level != STORED && level != Deflater.DEFAULT_COMPRESSION && (level < 0 || level > 9))
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        this.target = target;
+        this.level = level;
+        this.window = window;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level, true));
+        this.out = new BufferedOutputStream(Files.newOutputStream(FileUtil.makeParentDirs(target)), 65536);
+        this.appender = new Thread(this::append, "ZipWriter-Appender-" + target.getFileName());
+        appender.setDaemon(true);
+        appender.start();
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Reserves the position of the next entry. Blocks when there are too many slots not written yet.
+     * @return The slot to fill
+     * @throws IOException If the appender has failed
+     */
+    public synchronized Slot reserve() throws IOException {
+        if (closing) throw new IllegalStateException("Writer is closed");
+        if (slots.size() - next >= window) {
+            long start = System.nanoTime();
+            try {
+                while (slots.size() - next >= window && failure == null) wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reserving a slot", e);
+            }
+            blockedNanos += System.nanoTime() - start;
+        }
+        checkFailure();
+        Slot slot = new Slot();
+        slots.add(slot);
+        maxPending = Math.max(maxPending, slots.size() - next);
+        return slot;
+    }
+
+    private void append() {
+        try {
+            while (true) {
+                Slot slot;
+                synchronized (this) {
+                    while (next >= slots.size() || slots.get(next).state == Slot.PENDING) {
+                        if (failure != null || (closing && next >= slots.size())) return;
+                        wait();
+                    }
+                    slot = slots.set(next++, null);// Release the buffer once written
+                    notifyAll();
+                }
+                if (slot.state == Slot.FILLED) {
+                    if (names.add(slot.name)) {
+                        writeLocal(slot);
+                        written.add(slot);
+                    } else LOGGER.warn("Duplicate entry {}, skipping", slot.name);
+                    slot.data = null;
+                    slot.raw = null;
+                }
+            }
+        } catch (Throwable t) {
+            synchronized (this) {
+                failure = t;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Stops writing, leaving the output incomplete. Wakes up the threads blocked in {@link #reserve()}, which then
+     * throw, and lets {@link #close()} return without waiting for the pending slots and without throwing.
+     * @param cause Why the writer is aborted. Rethrown by {@link #reserve()}
+     */
+    public synchronized void abort(@NotNull Throwable cause) {
+        aborted = true;
+        if (failure == null) failure = cause;
+        notifyAll();
+    }
+
+    private void writeLocal(Slot slot) throws IOException {
+        slot.offset = offset;
+        boolean zip64 = offset >= ZIP64_MAGIC;
+        ByteBuffer header = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(LOCAL_HEADER_SIG)
+                .putShort((short) (zip64 ? 45 : 20))
+                .putShort((short) UTF8_FLAG)
+                .putShort((short) slot.method)
+                .putInt(slot.dosTime)
+                .putInt(slot.crc)
+                .putInt(slot.length)
+                .putInt(slot.size)
+                .putShort((short) slot.nameBytes.length)
+                .putShort((short) 0);
+        out.write(header.array());
+        out.write(slot.nameBytes);
+        if (slot.raw != null) {
+            ByteBuffer raw = slot.raw;
+            while (raw.hasRemaining()) {
+                int len = Math.min(raw.remaining(), transferBuffer.length);
+                raw.get(transferBuffer, 0, len);
+                out.write(transferBuffer, 0, len);
+            }
+        } else out.write(slot.data, 0, slot.length);
+        offset += 30L + slot.nameBytes.length + slot.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closing) return;
+            closing = true;
+            notifyAll();
+        }
+        try {
+            appender.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the appender", e);
+        }
+        try (out) {
+            if (aborted) return;
+            checkFailure();
+            writeCentralDirectory();
+        }
+        LOGGER.debug("Wrote {} entries to {}", written.size(), target);
+    }
+
+    public synchronized void logMetrics(@NotNull Logger logger) {
+        logger.info("Stage Write: {} entries, pending max {}/{}, reservations blocked for {} ms", written.size(), maxPending,
+                window == Integer.MAX_VALUE ? "unbounded" : window, TimeUnit.NANOSECONDS.toMillis(blockedNanos));
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long cdOffset = offset;
+        for (Slot slot : written) {
+            boolean zip64 = slot.offset >= ZIP64_MAGIC;
+            ByteBuffer header = ByteBuffer.allocate(46 + (zip64 ? 12 : 0)).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(CENTRAL_HEADER_SIG)
+                    .putShort((short) (zip64 ? 45 : 20))
+                    .putShort((short) (zip64 ? 45 : 20))
+                    .putShort((short) UTF8_FLAG)
+                    .putShort((short) slot.method)
+                    .putInt(slot.dosTime)
+                    .putInt(slot.crc)
+                    .putInt(slot.length)
+                    .putInt(slot.size)
+                    .putShort((short) slot.nameBytes.length)
+                    .putShort((short) (zip64 ? 12 : 0))
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putInt(0)
+                    .putInt((int) (zip64 ? ZIP64_MAGIC : slot.offset));
+            out.write(header.array(), 0, 46);
+            out.write(slot.nameBytes);
+            if (zip64) {
+                header.putShort((short) 1).putShort((short) 8).putLong(slot.offset);
+                out.write(header.array(), 46, 12);
+            }
+            offset += 46L + slot.nameBytes.length + (zip64 ? 12 : 0);
+        }
+        long cdSize = offset - cdOffset;
+        int count = written.size();
+        boolean zip64 = count >= 0xFFFF || cdOffset >= ZIP64_MAGIC;
+        ByteBuffer end = ByteBuffer.allocate(56 + 20 + 22).order(ByteOrder.LITTLE_ENDIAN);
+        if (zip64) {
+            end.putInt(ZIP64_END_SIG).putLong(44)
+                    .putShort((short) 45).putShort((short) 45)
+                    .putInt(0).putInt(0)
+                    .putLong(count).putLong(count)
+                    .putLong(cdSize).putLong(cdOffset);
+            end.putInt(ZIP64_LOCATOR_SIG).putInt(0).putLong(offset).putInt(1);
+        }
+        end.putInt(END_SIG)
+                .putShort((short) 0).putShort((short) 0)
+                .putShort((short) Math.min(count, 0xFFFF)).putShort((short) Math.min(count, 0xFFFF))
+                .putInt((int) Math.min(cdSize, ZIP64_MAGIC)).putInt((int) Math.min(cdOffset, ZIP64_MAGIC))
+                .putShort((short) 0);
+        out.write(end.array(), 0, end.position());
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable t = failure;
+        if (t != null) {
+            if (t instanceof IOException e) throw e;
+            throw Utils.wrapInRuntime(t);
+        }
+    }
+
+    private static int toDosTime(LocalDateTime time) {
+        if (time.getYear() < 1980) return (1 << 21) | (1 << 16);
+        return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16 |
+                time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+
+    public final class Slot {
+        private static final int PENDING = 0;
+        private static final int FILLED = 1;
+        private static final int CANCELLED = 2;
+
+        private volatile int state = PENDING;
+        private String name;
+        private byte[] nameBytes;
+        private int method;
+        private int dosTime;
+        private int crc;
+        private int size;
+        private byte[] data;
+        private ByteBuffer raw;
+        private int length;
+        private long offset;
+
+        private Slot() {}
+
+        /**
+         * Compresses the data on the current thread and hands the entry over to the appender.
+         * @param name The entry name
+         * @param bytes The uncompressed data. Must not be modified afterward when the writer is in {@link #STORED} mode
+         */
+        public void write(@NotNull String name, byte @NotNull [] bytes) {
+            write(name, bytes, bytes.length);
+        }
+
+        /**
+         * Compresses the data on the current thread and hands the entry over to the appender.
+         * @param name The entry name
+         * @param bytes The uncompressed data. Must not be modified afterward when the writer is in {@link #STORED} mode
+         * @param len The length of the data, starting at index 0
+         */
+        public void write(@NotNull String name, byte @NotNull [] bytes, int len) {
+            CRC32 crc32 = new CRC32();
+            crc32.update(bytes, 0, len);
+            byte[] data;
+            int length;
+            int method;
+            if (level == STORED) {
+                data = bytes;
+                length = len;
+                method = MappedZipFile.STORED;
+            } else {
+                Deflater deflater = deflaters.get();
+                deflater.reset();
+                deflater.setInput(bytes, 0, len);
+                deflater.finish();
+                data = new byte[Math.max(64, len / 2)];
+                length = 0;
+                while (!deflater.finished()) {
+                    if (length == data.length) data = Arrays.copyOf(data, data.length * 2);
+                    length += deflater.deflate(data, length, data.length - length);
+                }
+                method = MappedZipFile.DEFLATED;
+            }
+            fill(name, method, FIXED_DOS_TIME, (int) crc32.getValue(), len, data, null, length);
+        }
+
+        /**
+         * Copies the compressed data of an entry as-is. The modification time, CRC and sizes are kept.
+         * @param zip The zip file which contains the entry
+         * @param entry The entry to copy
+         * @throws IOException If the entry cannot be read or uses an unsupported compression method
+         */
+        public void copyRaw(@NotNull MappedZipFile zip, @NotNull MappedZipFile.Entry entry) throws IOException {
+            if (entry.method != MappedZipFile.STORED && entry.method != MappedZipFile.DEFLATED) {
+                throw new IOException("Unsupported compression method " + entry.method + " of entry " + entry.name);
+            }
+            ByteBuffer raw = zip.rawData(entry);
+            fill(entry.name, entry.method, (int) entry.dosTime, entry.crc, (int) entry.size, null, raw, raw.remaining());
+        }
+
+        private void fill(String name, int method, int dosTime, int crc, int size, byte[] data, ByteBuffer raw, int length) {
+            if (state != PENDING) throw new IllegalStateException("Slot is already filled or cancelled");
+            this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.size = size;
+            this.data = data;
+            this.raw = raw;
+            this.length = length;
+            complete(FILLED);
+        }
+
+        /**
+         * Marks this slot as empty. Does nothing if the slot is already filled or cancelled
+         */
+        public void cancel() {
+            if (state == PENDING) complete(CANCELLED);
+        }
+
+        private void complete(int state) {
+            synchronized (ParallelZipWriter.this) {
+                this.state = state;
+                ParallelZipWriter.this.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.common.app.util;
+
+import cn.maxpixel.mcdecompiler.utils.ExecutionContext;
+import cn.maxpixel.mcdecompiler.utils.LambdaUtil;
+import cn.maxpixel.mcdecompiler.utils.Utils;
+import cn.maxpixel.rewh.logging.Logger;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A stage of a pipeline. Items submitted to the stage are put into a bounded queue and processed by a fixed number of
+ * worker threads. When the queue is full, {@link #submit} blocks, so a slow stage pushes back on the stages before it.
+ * <p>
+ * Queue depth and blocking time are recorded, which tells which stage is the bottleneck: a stage whose queue is
+ * usually full and whose producers are often blocked is slower than the stages before it.
+ * <p>
+ * The worker threads have the {@link ExecutionContext#current() current context} bound, and are
+ * {@link ExecutionContext#reserveThreads reserved} out of its parallelism until the stage is closed. Stages open at the
+ * same time therefore don't run more threads than the parallelism of the job.
+ * <p>
+ * Once a worker has failed, the remaining items are no longer processed but handed to the discard callback, so that
+ * whatever they hold (e.g. a reserved {@link ParallelZipWriter.Slot}) can be released instead of being leaked.
+ *
+ * @param <T> Type of the items
+ */
+@ApiStatus.Internal
+public final class PipelineStage<T> implements AutoCloseable {
+    private static final Object END = new Object();
+
+    private final String name;
+    private final int capacity;
+    private final ArrayBlockingQueue<Object> queue;
+    private final LambdaUtil.Consumer_WithThrowable<T, ? extends Exception> action;
+    private final Consumer<? super T> discard;
+    private final ExecutionContext context;
+    private final Thread[] workers;
+
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+    private final LongAdder depthSum = new LongAdder();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private final long startTime = System.nanoTime();
+    private volatile Throwable failure;
+    private boolean closed;
+
+    /**
+     * @param name Name of the stage, used for naming the threads and logging
+     * @param parallelism Max number of worker threads. Fewer are started if the current context has fewer threads left
+     * @param capacity Capacity of the queue
+     * @param action Action to process each item
+     */
+    public PipelineStage(@NotNull String name, int parallelism, int capacity,
+                         @NotNull LambdaUtil.Consumer_WithThrowable<T, ? extends Exception> action) {
+        this(name, parallelism, capacity, action, item -> {});
+    }
+
+    /**
+     * @param name Name of the stage, used for naming the threads and logging
+     * @param parallelism Max number of worker threads. Fewer are started if the current context has fewer threads left
+     * @param capacity Capacity of the queue
+     * @param action Action to process each item
+     * @param discard Called for each submitted item that is not passed to the action because a worker has failed
+     */
+    public PipelineStage(@NotNull String name, int parallelism, int capacity,
+                         @NotNull LambdaUtil.Consumer_WithThrowable<T, ? extends Exception> action,
+                         @NotNull Consumer<? super T> discard) {
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism must be positive");
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.name = name;
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.action = action;
+        this.discard = discard;
+        this.context = ExecutionContext.current();
+        this.workers = new Thread[context.reserveThreads(parallelism)];
+        ThreadFactory threadFactory = context.threadFactory(name);
+        for (int i = 0; i < workers.length; i++) {
+            Thread t = threadFactory.newThread(this::work);
+            workers[i] = t;
+            t.start();
+        }
+    }
+
+    /**
+     * Submits an item to this stage. Blocks when the queue is full.
+     * @throws RuntimeException If a worker has failed or the current thread is interrupted. The item is not queued
+     *                          then, so it is up to the caller to release it
+     */
+    public void submit(@NotNull T item) {
+        checkFailure();
+        if (!queue.offer(item)) {
+            long start = System.nanoTime();
+            try {
+                while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) checkFailure();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Utils.wrapInRuntime(e);
+            }
+            blockedNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private void work() {
+        try {
+            while (true) {
+                Object o = queue.take();
+                if (o == END) return;
+                T item = cast(o);
+                if (failure != null) {// Keep draining the queue so that the producers and close() are not blocked
+                    discard(item);
+                    continue;
+                }
+                int depth = queue.size();
+                depthSum.add(depth);
+                maxDepth.accumulateAndGet(depth, Math::max);
+                long start = System.nanoTime();
+                try {
+                    action.accept(item);
+                } catch (Throwable t) {
+                    fail(t);
+                } finally {
+                    busyNanos.add(System.nanoTime() - start);
+                    processed.increment();
+                }
+            }
+        } catch (InterruptedException e) {
+            fail(e);// The items left in the queue are discarded on close
+        }
+    }
+
+    private synchronized void fail(Throwable t) {
+        if (failure == null) failure = t;
+        else if (failure != t) failure.addSuppressed(t);
+    }
+
+    private void discard(T item) {
+        try {
+            discard.accept(item);
+        } catch (Throwable t) {
+            fail(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T cast(Object o) {
+        return (T) o;
+    }
+
+    private void checkFailure() {
+        Throwable t = failure;
+        if (t != null) throw Utils.wrapInRuntime(t);
+    }
+
+    /**
+     * Waits for all the submitted items to be processed, then stops the workers.
+     * @throws RuntimeException If a worker has failed
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            for (int i = 0; i < workers.length; i++) {// One end marker per worker, whichever worker takes it
+                while (!queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+                    if (!isAnyAlive()) break;// Interrupted workers no longer take from the queue
+                }
+            }
+            for (Thread worker : workers) worker.join();
+            for (Object o; (o = queue.poll()) != null; ) {// Left by the workers that were interrupted
+                if (o != END) discard(cast(o));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Utils.wrapInRuntime(e);
+        } finally {
+            context.releaseThreads(workers.length);
+        }
+        checkFailure();
+    }
+
+    private boolean isAnyAlive() {
+        for (Thread worker : workers) {
+            if (worker.isAlive()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return Number of worker threads
+     */
+    public int getThreads() {
+        return workers.length;
+    }
+
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    public double getAverageQueueDepth() {
+        long count = processed.sum();
+        return count == 0 ? 0 : (double) depthSum.sum() / count;
+    }
+
+    public int getMaxQueueDepth() {
+        return maxDepth.get();
+    }
+
+    /**
+     * @return Ratio of the time the workers spent on processing items to the time the stage has existed
+     */
+    public double getUtilization() {
+        long elapsed = System.nanoTime() - startTime;
+        return elapsed == 0 ? 0 : (double) busyNanos.sum() / elapsed / workers.length;
+    }
+
+    public void logMetrics(@NotNull Logger logger) {
+        logger.info("Stage {}: {} items on {} threads, queue depth avg {}/{} max {}, utilization {}%, producers blocked for {} ms",
+                name, getProcessed(), workers.length, String.format("%.1f", getAverageQueueDepth()), capacity,
+                getMaxQueueDepth(), String.format("%.1f", getUtilization() * 100), TimeUnit.NANOSECONDS.toMillis(blockedNanos.sum()));
+    }
+}
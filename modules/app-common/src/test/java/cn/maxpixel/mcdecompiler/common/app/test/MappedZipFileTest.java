@@ -0,0 +1,142 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.common.app.test;
+
+import cn.maxpixel.mcdecompiler.common.app.util.MappedZipFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedZipFileTest {
+    private static final byte[] TEXT = "Hello, zip! ".repeat(1000).getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RANDOM = new byte[10000];
+
+    static {
+        new Random(0).nextBytes(RANDOM);
+    }
+
+    @Test
+    void testRead(@TempDir Path tmp) throws IOException {
+        Path path = tmp.resolve("test.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(path))) {
+            zos.setComment("A comment after the end header");
+            zos.putNextEntry(new ZipEntry("dir/"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("dir/deflated.txt"));
+            zos.write(TEXT);
+            zos.closeEntry();
+            zos.putNextEntry(stored("stored.bin", RANDOM));
+            zos.write(RANDOM);
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("empty"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("名前.txt"));
+            zos.write(TEXT, 0, 10);
+            zos.closeEntry();
+        }
+        try (MappedZipFile zip = MappedZipFile.open(path)) {
+            assertEquals(5, zip.entries().size());
+            assertEquals("dir/", zip.entries().get(0).name);
+            assertTrue(zip.entries().get(0).isDirectory());
+            assertEquals("dir/deflated.txt", zip.entries().get(1).name);
+            assertEquals("stored.bin", zip.entries().get(2).name);
+            assertEquals("empty", zip.entries().get(3).name);
+            assertEquals("名前.txt", zip.entries().get(4).name);
+
+            MappedZipFile.Entry deflated = zip.getEntry("dir/deflated.txt");
+            assertNotNull(deflated);
+            assertEquals(MappedZipFile.DEFLATED, deflated.method);
+            assertEquals(TEXT.length, deflated.size);
+            assertTrue(deflated.compressedSize < deflated.size);
+            assertEquals(crc(TEXT), deflated.crc);
+            assertArrayEquals(TEXT, zip.readAllBytes(deflated));
+            try (InputStream is = zip.getInputStream(deflated)) {
+                assertArrayEquals(TEXT, is.readAllBytes());
+            }
+
+            MappedZipFile.Entry stored = zip.getEntry("stored.bin");
+            assertNotNull(stored);
+            assertEquals(MappedZipFile.STORED, stored.method);
+            assertEquals(RANDOM.length, stored.compressedSize);
+            assertArrayEquals(RANDOM, zip.readAllBytes(stored));
+            assertEquals(RANDOM.length, zip.rawData(stored).remaining());
+
+            assertArrayEquals(new byte[0], zip.readAllBytes(zip.getEntry("empty")));
+            assertArrayEquals(java.util.Arrays.copyOf(TEXT, 10), zip.readAllBytes(zip.getEntry("名前.txt")));
+            assertNull(zip.getEntry("missing"));
+            assertThrows(IllegalArgumentException.class, () -> zip.read(deflated, new byte[1]));
+        }
+    }
+
+    @Test
+    void testZip64(@TempDir Path tmp) throws IOException {
+        int count = 0xFFFF + 10;// More entries than the end header can hold, so the ZIP64 end header is written
+        Path path = tmp.resolve("zip64.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(path))) {
+            zos.setLevel(0);
+            for (int i = 0; i < count; i++) {
+                zos.putNextEntry(new ZipEntry("e" + i));
+                zos.write(i & 0xFF);
+                zos.closeEntry();
+            }
+        }
+        try (MappedZipFile zip = MappedZipFile.open(path)) {
+            assertEquals(count, zip.entries().size());
+            for (int i : new int[] {0, 0xFFFE, 0xFFFF, count - 1}) {
+                MappedZipFile.Entry entry = zip.entries().get(i);
+                assertEquals("e" + i, entry.name);
+                assertArrayEquals(new byte[] {(byte) i}, zip.readAllBytes(entry));
+            }
+        }
+    }
+
+    @Test
+    void testCorrupted(@TempDir Path tmp) throws IOException {
+        Path path = tmp.resolve("corrupted.zip");
+        Files.write(path, TEXT);
+        assertThrows(ZipException.class, () -> MappedZipFile.open(path).close());
+    }
+
+    private static ZipEntry stored(String name, byte[] data) {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCompressedSize(data.length);
+        entry.setCrc(Integer.toUnsignedLong(crc(data)));
+        return entry;
+    }
+
+    private static int crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+}
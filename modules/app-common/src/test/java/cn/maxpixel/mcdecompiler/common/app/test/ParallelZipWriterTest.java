@@ -0,0 +1,185 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.common.app.test;
+
+import cn.maxpixel.mcdecompiler.common.app.util.MappedZipFile;
+import cn.maxpixel.mcdecompiler.common.app.util.ParallelZipWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelZipWriterTest {
+    private static byte[] content(int i) {
+        return ("Entry " + i + ' ').repeat(i % 50 + 1).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testReservationOrder(@TempDir Path tmp) throws Exception {
+        for (int level : new int[] {Deflater.DEFAULT_COMPRESSION, ParallelZipWriter.STORED}) {
+            Path path = tmp.resolve("order" + level + ".zip");
+            int count = 200;
+            List<ParallelZipWriter.Slot> slots = new ArrayList<>();
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try (ParallelZipWriter writer = new ParallelZipWriter(path, level)) {
+                for (int i = 0; i < count; i++) slots.add(writer.reserve());
+                List<Integer> order = new ArrayList<>();
+                for (int i = 0; i < count; i++) order.add(i);
+                Collections.shuffle(order, new Random(level));
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i : order) futures.add(executor.submit(() -> slots.get(i).write("e" + i, content(i))));
+                for (Future<?> future : futures) future.get();
+            } finally {
+                executor.shutdown();
+            }
+            try (ZipFile zip = new ZipFile(path.toFile())) {
+                List<? extends ZipEntry> entries = Collections.list(zip.entries());
+                assertEquals(count, entries.size());
+                for (int i = 0; i < count; i++) {
+                    ZipEntry entry = entries.get(i);
+                    assertEquals("e" + i, entry.getName());
+                    assertEquals(level == ParallelZipWriter.STORED ? ZipEntry.STORED : ZipEntry.DEFLATED, entry.getMethod());
+                    assertArrayEquals(content(i), zip.getInputStream(entry).readAllBytes());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCancelAndDuplicate(@TempDir Path tmp) throws IOException {
+        Path path = tmp.resolve("cancel.zip");
+        try (ParallelZipWriter writer = new ParallelZipWriter(path, Deflater.DEFAULT_COMPRESSION, 2)) {
+            ParallelZipWriter.Slot a = writer.reserve();
+            ParallelZipWriter.Slot cancelled = writer.reserve();
+            cancelled.cancel();
+            cancelled.cancel();// No-op
+            assertThrows(IllegalStateException.class, () -> cancelled.write("x", new byte[1]));
+            a.write("a", content(1));
+            a.cancel();// No-op on a filled slot
+            writer.reserve().write("a", content(2));// Duplicate, skipped
+            writer.reserve().write("b", content(3));
+        }
+        try (ZipFile zip = new ZipFile(path.toFile())) {
+            List<? extends ZipEntry> entries = Collections.list(zip.entries());
+            assertEquals(List.of("a", "b"), entries.stream().map(ZipEntry::getName).toList());
+            assertArrayEquals(content(1), zip.getInputStream(entries.get(0)).readAllBytes());
+            assertArrayEquals(content(3), zip.getInputStream(entries.get(1)).readAllBytes());
+        }
+    }
+
+    @Test
+    void testCopyRaw(@TempDir Path tmp) throws IOException {
+        Path source = tmp.resolve("source.zip");
+        byte[] random = new byte[5000];
+        new Random(0).nextBytes(random);
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(source))) {
+            ZipEntry deflated = new ZipEntry("deflated");
+            deflated.setTimeLocal(LocalDateTime.of(2015, 6, 7, 8, 9, 10));
+            zos.putNextEntry(deflated);
+            zos.write(content(49));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("random"));
+            zos.write(random);
+            zos.closeEntry();
+        }
+        Path path = tmp.resolve("copy.zip");
+        try (MappedZipFile zip = MappedZipFile.open(source);
+             ParallelZipWriter writer = new ParallelZipWriter(path)) {
+            for (MappedZipFile.Entry entry : zip.entries()) writer.reserve().copyRaw(zip, entry);
+            writer.reserve().write("new", content(5));
+        }
+        try (MappedZipFile expected = MappedZipFile.open(source);
+             MappedZipFile actual = MappedZipFile.open(path)) {
+            assertEquals(3, actual.entries().size());
+            for (MappedZipFile.Entry e : expected.entries()) {
+                MappedZipFile.Entry a = actual.getEntry(e.name);
+                assertNotNull(a);
+                assertEquals(e.method, a.method);
+                assertEquals(e.crc, a.crc);
+                assertEquals(e.compressedSize, a.compressedSize);
+                assertEquals(e.size, a.size);
+                assertEquals(e.dosTime, a.dosTime);
+                assertEquals(expected.rawData(e), actual.rawData(a));
+            }
+        }
+        try (ZipFile zip = new ZipFile(path.toFile())) {// Also verifies the CRC
+            assertArrayEquals(content(49), zip.getInputStream(zip.getEntry("deflated")).readAllBytes());
+            assertArrayEquals(random, zip.getInputStream(zip.getEntry("random")).readAllBytes());
+            assertArrayEquals(content(5), zip.getInputStream(zip.getEntry("new")).readAllBytes());
+            assertEquals(LocalDateTime.of(2015, 6, 7, 8, 9, 10), zip.getEntry("deflated").getTimeLocal());
+        }
+    }
+
+    @Test
+    void testReproducible(@TempDir Path tmp) throws Exception {
+        Path first = tmp.resolve("first.zip"), second = tmp.resolve("second.zip");
+        for (Path path : new Path[] {first, second}) {
+            try (ParallelZipWriter writer = new ParallelZipWriter(path)) {
+                for (int i = 0; i < 10; i++) writer.reserve().write("e" + i, content(i));
+            }
+            Thread.sleep(2100);// Longer than the 2 seconds resolution of the DOS time
+        }
+        assertEquals(-1L, Files.mismatch(first, second));
+        try (ZipFile zip = new ZipFile(first.toFile())) {
+            assertEquals(LocalDateTime.of(1980, 2, 1, 0, 0), zip.getEntry("e0").getTimeLocal());
+        }
+    }
+
+    @Test
+    void testWindow(@TempDir Path tmp) throws Exception {
+        Path path = tmp.resolve("window.zip");
+        try (ParallelZipWriter writer = new ParallelZipWriter(path, Deflater.DEFAULT_COMPRESSION, 2)) {
+            ParallelZipWriter.Slot first = writer.reserve();
+            writer.reserve().write("b", content(2));
+            Thread filler = new Thread(() -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                first.write("a", content(1));
+            });
+            filler.start();
+            long start = System.nanoTime();
+            writer.reserve().write("c", content(3));// Blocks until the first slot is written
+            assertTrue(System.nanoTime() - start >= 100_000_000L);
+            filler.join();
+        }
+        try (ZipFile zip = new ZipFile(path.toFile())) {
+            assertEquals(List.of("a", "b", "c"), Collections.list(zip.entries()).stream().map(ZipEntry::getName).toList());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.common.app.test;
+
+import cn.maxpixel.mcdecompiler.common.app.util.ParallelZipWriter;
+import cn.maxpixel.mcdecompiler.common.app.util.PipelineStage;
+import cn.maxpixel.mcdecompiler.utils.ExecutionContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineStageTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @Test
+    void testProcess() {
+        AtomicInteger sum = new AtomicInteger();
+        PipelineStage<Integer> stage = new PipelineStage<>("Test", 3, 2, sum::addAndGet);
+        try (stage) {
+            for (int i = 1; i <= 100; i++) stage.submit(i);
+        }
+        assertEquals(5050, sum.get());
+        assertEquals(100, stage.getProcessed());
+    }
+
+    @Test
+    void testThreadsShared() {
+        try (ExecutionContext ctx = ExecutionContext.create("Test", 4)) {
+            ctx.bind(c -> {
+                try (PipelineStage<Integer> first = new PipelineStage<>("First", 3, 2, i -> {});
+                     PipelineStage<Integer> second = new PipelineStage<>("Second", 3, 2, i -> {});
+                     PipelineStage<Integer> third = new PipelineStage<>("Third", 3, 2, i -> {})) {
+                    assertEquals(3, first.getThreads());
+                    assertEquals(1, second.getThreads());
+                    assertEquals(1, third.getThreads());// Always at least one
+                }
+                try (PipelineStage<Integer> stage = new PipelineStage<>("Test", 8, 2, i -> {})) {// Given back on close
+                    assertEquals(4, stage.getThreads());
+                }
+                return null;
+            });
+        }
+    }
+
+    @Test
+    void testFailureDoesNotHang(@TempDir Path tmp) {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            AtomicInteger discarded = new AtomicInteger();
+            AtomicInteger submitted = new AtomicInteger();
+            Throwable thrown = null;
+            // The window fits all the items. Otherwise reserve() could block on the slot of item 3 before submit() sees the failure
+            try (ParallelZipWriter writer = new ParallelZipWriter(tmp.resolve("out.zip"), Deflater.DEFAULT_COMPRESSION, 1024)) {
+                PipelineStage<Item> stage = new PipelineStage<>("Test", 2, 2, item -> {
+                    if (item.index == 3) throw new StackOverflowError();
+                    Thread.sleep(5);
+                    item.slot.write("e" + item.index, new byte[] {(byte) item.index});
+                }, item -> {
+                    discarded.incrementAndGet();
+                    item.slot.cancel();
+                });
+                try (stage) {
+                    for (int i = 0; i < 1000; i++) {
+                        ParallelZipWriter.Slot slot = writer.reserve();
+                        try {
+                            stage.submit(new Item(i, slot));
+                            submitted.incrementAndGet();
+                        } catch (Throwable t) {
+                            slot.cancel();
+                            throw t;
+                        }
+                    }
+                } catch (Throwable t) {
+                    writer.abort(t);
+                    thrown = t;
+                }
+            }// Must return although the slot of item 3 is never filled
+            assertNotNull(thrown);
+            assertInstanceOf(StackOverflowError.class, thrown.getCause());
+            assertTrue(submitted.get() < 1000);
+        });
+    }
+
+    @Test
+    void testAbort(@TempDir Path tmp) {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            ParallelZipWriter writer = new ParallelZipWriter(tmp.resolve("out.zip"), Deflater.DEFAULT_COMPRESSION, 1);
+            writer.reserve();// Never filled
+            Thread blocked = new Thread(() -> assertThrows(IOException.class, writer::reserve));
+            blocked.start();
+            IOException cause = new IOException("Producer failed");
+            writer.abort(cause);
+            blocked.join();
+            assertSame(cause, assertThrows(IOException.class, writer::reserve));
+            writer.close();
+        });
+    }
+
+    private record Item(int index, ParallelZipWriter.Slot slot) {}
+}
@@ -28,6 +28,7 @@ import cn.maxpixel.mcdecompiler.decompiler.VineflowerDecompiler;
 import cn.maxpixel.mcdecompiler.mapping.detector.FormatDetector;
 import cn.maxpixel.mcdecompiler.mapping.format.MappingFormat;
 import cn.maxpixel.mcdecompiler.mapping.format.MappingFormats;
+import cn.maxpixel.mcdecompiler.utils.ExecutionContext;
 import cn.maxpixel.mcdecompiler.utils.LambdaUtil;
 import cn.maxpixel.mcdecompiler.utils.Utils;
 import cn.maxpixel.rewh.logging.LogManager;
@@ -93,6 +94,19 @@ public class MinecraftDecompilerCommandLine {
                 .withRequiredArg().withValuesConvertedBy(new PathConverter(PathProperties.FILE_EXISTING));
         OptionSpecBuilder skipWhenAbsentO = parser.accepts("skip-when-absent",
                 "Skip remapping when mappings are absent");
+        ArgumentAcceptingOptionSpec<String> compressionLevelO = parser.accepts("compression-level", "Compression level " +
+                "of the output jar. Values are 0-9, or \"stored\" to store entries uncompressed").withRequiredArg();
+        OptionSpecBuilder virtualThreadsO = parser.accepts("virtual-threads", "Run blocking I/O on virtual threads. " +
+                "Requires Java 21 or newer");
+        OptionSpecBuilder inMemoryO = parser.accepts("in-memory", "Keep the deobfuscated classes in memory for the " +
+                "decompiler instead of writing the deobfuscated jar").availableIf(decompileO);
+        ArgumentAcceptingOptionSpec<Path> remapCacheO = parser.accepts("remap-cache", "Cache the remapped classes on disk " +
+                "so that unchanged classes are not remapped again. Optionally specify the cache directory")
+                .withOptionalArg().withValuesConvertedBy(new PathConverter());
+        ArgumentAcceptingOptionSpec<Long> remapCacheSizeO = parser.accepts("remap-cache-size", "Max size of the remap " +
+                "cache in MiB").availableIf(remapCacheO).withRequiredArg().ofType(Long.class);
+        OptionSpecBuilder forceO = parser.accepts("force", "Always deobfuscate and decompile, even if the inputs " +
+                "and the outputs are unchanged since the last run");
         AbstractOptionSpec<Void> help = parser.acceptsAll(of("h", "?", "help"), "For help").forHelp();
 
         for (Option option : ExtensionManager.OPTION_REGISTRY.getOptions()) {
@@ -159,7 +173,7 @@ public class MinecraftDecompilerCommandLine {
             builder = new MinecraftDecompiler.OptionBuilder(options.valueOf(versionO), options.valueOf(sideTypeO));
         }
         options.valueOfOptional(mappingPathO).ifPresent(LambdaUtil.unwrapConsumer(m -> builder
-                .withMapping(orDetect(options.valueOf(mappingFormatO), m).read(new FileInputStream(m)))));
+                .withMapping(orDetect(options.valueOf(mappingFormatO), m).read(new FileInputStream(m), ExecutionContext.availableProcessors()))));
         if (options.has(regenVarNameO)) builder.regenerateVariableNames();
         if (options.has(dontIncludeOthersO)) builder.doNotIncludeOthers();
         options.valueOfOptional(namespaceTargetO).ifPresent(builder::namespaceTarget);
@@ -169,11 +183,25 @@ public class MinecraftDecompilerCommandLine {
         builder.addExtraClasses(options.valuesOf(extraClassesO));
 
         if (options.has(skipWhenAbsentO)) builder.skipRemappingWhenMappingsAreAbsent();
+        options.valueOfOptional(compressionLevelO).ifPresent(level -> {
+            if ("stored".equalsIgnoreCase(level)) builder.storeUncompressed();
+            else builder.compressionLevel(Integer.parseInt(level));
+        });
+
+        if (options.has(virtualThreadsO)) builder.useVirtualThreads();
+        if (options.has(inMemoryO)) builder.decompileInMemory();
+        if (options.has(remapCacheO)) {
+            if (options.hasArgument(remapCacheO)) builder.remapCache(options.valueOf(remapCacheO));
+            else builder.remapCache();
+        }
+        options.valueOfOptional(remapCacheSizeO).ifPresent(size -> builder.remapCacheSize(size << 20));
+        if (options.has(forceO)) builder.forceRebuild();
 
-        MinecraftDecompiler md = new MinecraftDecompiler(builder.build());
-        md.deobfuscate();
+        try (MinecraftDecompiler md = new MinecraftDecompiler(builder.build())) {
+            if (!options.has(inMemoryO)) md.deobfuscate();// Otherwise, deobfuscate while decompiling
 
-        if (options.has(decompileO)) md.decompile(options.valueOf(decompileO), options.valueOf(incrementalDecompilationO));
+            if (options.has(decompileO)) md.decompile(options.valueOf(decompileO), options.valueOf(incrementalDecompilationO));
+        }
 
         LOGGER.info("Done. Thanks for using Minecraft Decompiler {}", MinecraftDecompilerCommandLine.class.getPackage().getImplementationVersion());
     }
@@ -0,0 +1,39 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.decompiler;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * A decompiler implements this interface can decompile classes from memory, so the classes do not need to be written
+ * to a jar or a directory first
+ */
+public interface IInMemoryDecompiler extends IDecompiler {
+    /**
+     * Decompile the classes in memory.
+     * @param classes The bytes of the classes, keyed by their entry names like "a/b/C.class". Must not be modified
+     *                during the decompilation
+     * @param targetDir Path for output. The path is absolute and normalized.
+     */
+    void decompile(@NotNull Map<String, byte[]> classes, @NotNull Path targetDir) throws IOException;
+}
@@ -0,0 +1,195 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package cn.maxpixel.mcdecompiler.decompiler;
+
+import cn.maxpixel.mcdecompiler.utils.Utils;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectSet;
+import it.unimi.dsi.fastutil.objects.ObjectSets;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Classes handed over from the deobfuscation to a {@link IStreamingDecompiler} while the deobfuscation is still running.
+ * <p>
+ * The producer {@link #expect expects} the names of all the classes first, then {@link #publish publishes} the classes
+ * in groups as they are done, and {@link #finish finishes} at last. The decompiler {@link #takeBatch takes} the published
+ * classes in batches, and can {@link #getClassBytes look up} any of the expected classes, waiting for it if it is not
+ * published yet. The decompiler {@link #close closes} the source if it stops early, which cancels the producer.
+ */
+public final class StreamingClassSource implements AutoCloseable {
+    private static final int MIN_BATCH_SIZE = 256;
+
+    private final int batches;
+    private final ConcurrentHashMap<String, byte[]> classes = new ConcurrentHashMap<>();
+    private final Object2ObjectOpenHashMap<String, byte[]> pending = new Object2ObjectOpenHashMap<>();
+    private ObjectSet<String> expected;
+    private int batchSize = MIN_BATCH_SIZE;
+    private boolean finished;
+    private volatile boolean closed;
+    private Throwable failure;
+
+    public StreamingClassSource() {
+        this(8);
+    }
+
+    /**
+     * @param batches The number of batches to split the classes into. More batches let the decompilation start
+     *                earlier, but each batch has its own overhead
+     */
+    public StreamingClassSource(int batches) {
+        if (batches <= 0) throw new IllegalArgumentException("batches must be positive");
+        this.batches = batches;
+    }
+
+    /**
+     * Sets the names of all the classes that are going to be published.
+     * @param names Entry names of the classes, like "a/b/C.class"
+     * @throws CancellationException If the source is closed
+     */
+    public synchronized void expect(@NotNull Collection<String> names) {
+        checkClosed();
+        this.expected = ObjectSets.unmodifiable(new ObjectOpenHashSet<>(names));
+        this.batchSize = Math.max(MIN_BATCH_SIZE, (names.size() + batches - 1) / batches);
+        notifyAll();
+    }
+
+    /**
+     * Publishes a group of classes. A group should contain a top-level class and all of its inner classes.
+     * @param group The classes, keyed by their entry names
+     * @throws CancellationException If the source is closed
+     */
+    public void publish(@NotNull Map<String, byte[]> group) {
+        checkClosed();
+        classes.putAll(group);
+        synchronized (this) {
+            pending.putAll(group);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Marks a class as not going to be published, so lookups of it do not wait.
+     */
+    public synchronized void failed(@NotNull String name) {
+        if (expected != null && expected.contains(name)) {
+            ObjectOpenHashSet<String> set = new ObjectOpenHashSet<>(expected);
+            set.remove(name);
+            this.expected = ObjectSets.unmodifiable(set);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Marks that all the classes are published.
+     */
+    public synchronized void finish() {
+        this.finished = true;
+        notifyAll();
+    }
+
+    /**
+     * Marks that the producer has failed. The waiting and following calls to {@link #takeBatch} throw the failure.
+     */
+    public synchronized void fail(@NotNull Throwable failure) {
+        this.failure = failure;
+        this.finished = true;
+        notifyAll();
+    }
+
+    /**
+     * Closes the source, after which the producer fails with a {@link CancellationException} when it expects or publishes
+     * classes, and nothing waits for the classes any more.
+     */
+    @Override
+    public synchronized void close() {
+        this.closed = true;
+        this.finished = true;
+        notifyAll();
+    }
+
+    private void checkClosed() {
+        if (closed) throw new CancellationException("The classes are no longer consumed");
+    }
+
+    /**
+     * Takes the published classes which are not taken yet. Waits until there are enough classes for a batch, or all the
+     * classes are published.
+     * @return The classes, or null if all the classes are taken
+     * @throws RuntimeException If the producer has failed or the current thread is interrupted
+     */
+    public synchronized @Nullable Map<String, byte[]> takeBatch() {
+        try {
+            while (!finished && pending.size() < batchSize) wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Utils.wrapInRuntime(e);
+        }
+        if (failure != null) throw Utils.wrapInRuntime(failure);
+        if (pending.isEmpty()) return null;
+        Object2ObjectOpenHashMap<String, byte[]> batch = new Object2ObjectOpenHashMap<>(pending);
+        pending.clear();
+        return batch;
+    }
+
+    /**
+     * @return Names of the expected classes. Waits until the producer has expected them
+     */
+    public synchronized ObjectSet<String> getExpectedNames() {
+        try {
+            while (expected == null && !finished) wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Utils.wrapInRuntime(e);
+        }
+        return expected == null ? ObjectSets.emptySet() : expected;
+    }
+
+    /**
+     * Gets the bytes of a class. Waits for the class if it is expected but not published yet.
+     * @param name The entry name of the class
+     * @return The bytes, or null if the class is not expected, or failed to be produced
+     */
+    public byte @Nullable [] getClassBytes(@NotNull String name) {
+        byte[] bytes = classes.get(name);
+        if (bytes != null) return bytes;
+        synchronized (this) {
+            try {
+                while ((bytes = classes.get(name)) == null && !finished && (expected == null || expected.contains(name))) wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Utils.wrapInRuntime(e);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return An unmodifiable view of all the published classes
+     */
+    public Map<String, byte[]> getClasses() {
+        return Collections.unmodifiableMap(classes);
+    }
+}
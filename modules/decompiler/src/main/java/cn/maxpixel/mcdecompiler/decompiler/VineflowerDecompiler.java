@@ -24,6 +24,7 @@ import cn.maxpixel.mcdecompiler.common.app.util.DownloadingUtil;
 import cn.maxpixel.mcdecompiler.decompiler.thread.ExternalJarClassLoader;
 import cn.maxpixel.mcdecompiler.utils.Utils;
 import cn.maxpixel.rewh.logging.LogManager;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectSet;
 import org.jetbrains.annotations.NotNull;
 
@@ -34,10 +35,12 @@ import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static cn.maxpixel.mcdecompiler.common.app.Constants.FERNFLOWER_ABSTRACT_PARAMETER_NAMES;
 
-public class VineflowerDecompiler implements IExternalResourcesDecompiler, ILibRecommendedDecompiler {
+public class VineflowerDecompiler implements IExternalResourcesDecompiler, ILibRecommendedDecompiler, IStreamingDecompiler {
     private static final String VERSION = Decompilers.getProperty("VineFlower-Version", "vineflower.version");
     private static final URI RESOURCE = URI.create("https://repo1.maven.org/maven2/org/vineflower/vineflower/" + VERSION + "/vineflower-" + VERSION + ".jar");
     private static final URI RESOURCE_HASH = URI.create("https://repo1.maven.org/maven2/org/vineflower/vineflower/" + VERSION + "/vineflower-" + VERSION + ".jar.sha1");
@@ -58,17 +61,41 @@ public class VineflowerDecompiler implements IExternalResourcesDecompiler, ILibR
     @Override
     public void decompile(@NotNull Path source, @NotNull Path targetDir) throws IOException {
         checkArgs(source, targetDir);
+        decompile(Map.of(), null, source.toFile(), targetDir);
+    }
+
+    @Override
+    public void decompile(@NotNull Map<String, byte[]> classes, @NotNull Path targetDir) throws IOException {
+        if (!Files.isDirectory(targetDir)) throw new IllegalArgumentException("target must be directory");
+        decompile(classes, null, null, targetDir);
+    }
+
+    @Override
+    public void decompile(@NotNull StreamingClassSource classes, @NotNull Path targetDir) throws IOException {
+        if (!Files.isDirectory(targetDir)) throw new IllegalArgumentException("target must be directory");
+        decompile(Map.of(), classes, null, targetDir);
+    }
+
+    private void decompile(Map<String, byte[]> classes, StreamingClassSource stream, File source, Path targetDir) throws IOException {
         try (ExternalJarClassLoader cl = new ExternalJarClassLoader(new URL[] {decompilerJarPath.toUri().toURL()})) {
-            File[] sources;
+            ObjectArrayList<File> sources = new ObjectArrayList<>(2);
+            if (source != null) sources.add(source);
             Path abstractMethodParameterNames = Directories.TEMP_DIR.resolve(FERNFLOWER_ABSTRACT_PARAMETER_NAMES);
-            if (Files.exists(abstractMethodParameterNames))
-                sources = new File[] {source.toFile(), abstractMethodParameterNames.toAbsolutePath().normalize().toFile()};
-            else sources = new File[] {source.toFile()};
+            if (Files.exists(abstractMethodParameterNames)) sources.add(abstractMethodParameterNames.toAbsolutePath().normalize().toFile());
             Thread thread = (Thread) cl.loadClass("cn.maxpixel.mcdecompiler.decompiler.thread.VineFlowerDecompileThread")
-                    .getConstructor(File[].class, File[].class, File.class)
-                    .newInstance(sources, libs, targetDir.toFile());
+                    .getConstructor(Map.class, StreamingClassSource.class, File[].class, File[].class, File.class)
+                    .newInstance(classes, stream, sources.toArray(new File[0]), libs, targetDir.toFile());
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            thread.setUncaughtExceptionHandler((t, e) -> failure.set(e));
             thread.start();
-            while (thread.isAlive()) Thread.onSpinWait();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                thread.interrupt();
+                Thread.currentThread().interrupt();
+                throw Utils.wrapInRuntime(e);
+            }
+            if (failure.get() != null) throw Utils.wrapInRuntime(failure.get());
         } catch(ReflectiveOperationException e) {
             LogManager.getLogger().fatal("Failed to load VineFlower", e);
             throw Utils.wrapInRuntime(e);
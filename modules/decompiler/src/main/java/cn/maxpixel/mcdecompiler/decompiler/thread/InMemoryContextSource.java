@@ -0,0 +1,94 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.decompiler.thread;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import org.jetbrains.java.decompiler.main.extern.IContextSource;
+import org.jetbrains.java.decompiler.main.extern.IResultSaver;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * A Vineflower source of the classes in memory. The decompiled classes are saved to the root of the result saver.
+ */
+class InMemoryContextSource implements IContextSource {
+    private final Map<String, byte[]> classes;
+
+    InMemoryContextSource(Map<String, byte[]> classes) {
+        this.classes = classes;
+    }
+
+    @Override
+    public String getName() {
+        return "in-memory classes";
+    }
+
+    @Override
+    public Entries getEntries() {
+        ObjectArrayList<Entry> entries = new ObjectArrayList<>(classes.size());
+        ObjectOpenHashSet<String> directories = new ObjectOpenHashSet<>();
+        for (String name : classes.keySet()) {
+            if (!name.endsWith(CLASS_SUFFIX)) continue;
+            entries.add(Entry.atBase(name.substring(0, name.length() - CLASS_SUFFIX.length())));
+            for (int i = name.indexOf('/'); i >= 0; i = name.indexOf('/', i + 1)) directories.add(name.substring(0, i));
+        }
+        return new Entries(entries, new ObjectArrayList<>(directories), ObjectArrayList.of());
+    }
+
+    @Override
+    public byte[] getClassBytes(String className) {
+        return classes.get(className.concat(CLASS_SUFFIX));
+    }
+
+    @Override
+    public InputStream getInputStream(String resource) {
+        byte[] bytes = classes.get(resource);
+        return bytes == null ? null : new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public IOutputSink createOutputSink(IResultSaver saver) {
+        return new IOutputSink() {
+            @Override
+            public void begin() {
+            }
+
+            @Override
+            public void acceptClass(String qualifiedName, String fileName, String content, int[] mapping) {
+                if (content != null) saver.saveClassFile("", qualifiedName, fileName, content, mapping);
+            }
+
+            @Override
+            public void acceptDirectory(String directory) {
+                saver.saveFolder(directory);
+            }
+
+            @Override
+            public void acceptOther(String path) {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package cn.maxpixel.mcdecompiler.decompiler.thread;
+
+import cn.maxpixel.mcdecompiler.decompiler.StreamingClassSource;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import org.jetbrains.java.decompiler.main.extern.IContextSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Set;
+
+/**
+ * A Vineflower library of the classes of a {@link StreamingClassSource}, except the classes decompiled in the current
+ * batch. Lookups of the classes not published yet wait for them.
+ */
+class StreamingLibrarySource implements IContextSource {
+    private final StreamingClassSource stream;
+    private final Set<String> excluded;
+
+    StreamingLibrarySource(StreamingClassSource stream, Set<String> excluded) {
+        this.stream = stream;
+        this.excluded = excluded;
+    }
+
+    @Override
+    public String getName() {
+        return "streamed classes";
+    }
+
+    @Override
+    public Entries getEntries() {
+        Set<String> names = stream.getExpectedNames();
+        ObjectArrayList<Entry> entries = new ObjectArrayList<>(names.size());
+        ObjectOpenHashSet<String> directories = new ObjectOpenHashSet<>();
+        for (String name : names) {
+            if (excluded.contains(name) || !name.endsWith(CLASS_SUFFIX)) continue;
+            entries.add(Entry.atBase(name.substring(0, name.length() - CLASS_SUFFIX.length())));
+            for (int i = name.indexOf('/'); i >= 0; i = name.indexOf('/', i + 1)) directories.add(name.substring(0, i));
+        }
+        return new Entries(entries, new ObjectArrayList<>(directories), ObjectArrayList.of());
+    }
+
+    @Override
+    public boolean isLazy() {
+        return true;
+    }
+
+    @Override
+    public byte[] getClassBytes(String className) {
+        return excluded.contains(className.concat(CLASS_SUFFIX)) ? null : stream.getClassBytes(className.concat(CLASS_SUFFIX));
+    }
+
+    @Override
+    public InputStream getInputStream(String resource) {
+        byte[] bytes = excluded.contains(resource) ? null : stream.getClassBytes(resource);
+        return bytes == null ? null : new ByteArrayInputStream(bytes);
+    }
+}
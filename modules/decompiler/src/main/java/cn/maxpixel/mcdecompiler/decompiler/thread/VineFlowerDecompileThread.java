@@ -18,22 +18,38 @@
 
 package cn.maxpixel.mcdecompiler.decompiler.thread;
 
+import cn.maxpixel.mcdecompiler.decompiler.StreamingClassSource;
+import cn.maxpixel.mcdecompiler.utils.Utils;
 import cn.maxpixel.rewh.logging.LogManager;
 import cn.maxpixel.rewh.logging.Logger;
 import org.jetbrains.java.decompiler.main.decompiler.ConsoleDecompiler;
+import org.jetbrains.java.decompiler.main.extern.IContextSource;
 
 import java.io.File;
+import java.lang.reflect.Field;
 import java.util.Map;
 
 public class VineFlowerDecompileThread extends Thread {
     private static final Logger LOGGER = LogManager.getLogger("VineFlower");
 
+    private final Map<String, byte[]> classes;
+    private final StreamingClassSource stream;
     private final File[] sources;
     private final File[] libraries;
     private final File target;
 
     public VineFlowerDecompileThread(File[] sources, File[] libraries, File target) {
+        this(Map.of(), null, sources, libraries, target);
+    }
+
+    /**
+     * @param classes Classes to decompile from memory, keyed by the entry names
+     * @param stream Classes to decompile batch by batch as they are published. Can be null
+     */
+    public VineFlowerDecompileThread(Map<String, byte[]> classes, StreamingClassSource stream, File[] sources, File[] libraries, File target) {
         super("VineFlower-Decompile");
+        this.classes = classes;
+        this.stream = stream;
         this.sources = sources;
         this.libraries = libraries;
         this.target = target;
@@ -41,14 +57,44 @@ public class VineFlowerDecompileThread extends Thread {
 
     @Override
     public void run() {
+        if (stream == null) decompile(classes, null);
+        else {// Each batch is decompiled in its own context, with all the other classes as a library
+            Map<String, byte[]> batch;
+            for (int i = 1; (batch = stream.takeBatch()) != null; i++) {
+                LOGGER.info("Decompiling batch {} of {} classes", i, batch.size());
+                decompile(batch, new StreamingLibrarySource(stream, batch.keySet()));
+            }
+        }
+    }
+
+    private void decompile(Map<String, byte[]> classes, IContextSource classpath) {
         Map<String, Object> options = Map.of(
 //                "log", "TRACE",
                 "asc", "1",
                 "bsm", "1"
         );
         ConsoleDecompiler decompiler = new AccessibleConsoleDecompiler(target, options, LOGGER);
+        if (!classes.isEmpty()) addContextSource(decompiler, "addSource", new InMemoryContextSource(classes));
+        if (classpath != null) addContextSource(decompiler, "addLibrary", classpath);
         for(File source : sources) decompiler.addSource(source);
         for(File library : libraries) decompiler.addLibrary(library);
         decompiler.decompileContext();
     }
+
+    /**
+     * This class is compiled against the ConsoleDecompiler of FernFlower, which does not have the IContextSource API of
+     * Vineflower. So the source is added to the engine of the decompiler reflectively.
+     * @param method "addSource" or "addLibrary"
+     */
+    private static void addContextSource(ConsoleDecompiler decompiler, String method, IContextSource source) {
+        try {
+            Field engineField = ConsoleDecompiler.class.getDeclaredField("engine");
+            engineField.setAccessible(true);
+            Object engine = engineField.get(decompiler);
+            engine.getClass().getMethod(method, IContextSource.class).invoke(engine, source);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.fatal("Failed to add the in-memory source", e);
+            throw Utils.wrapInRuntime(e);
+        }
+    }
 }
\ No newline at end of file
@@ -18,14 +18,15 @@
 
 package cn.maxpixel.mcdecompiler.mapping;
 
-import cn.maxpixel.mcdecompiler.mapping.component.Component;
-import cn.maxpixel.mcdecompiler.mapping.component.Owned;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import cn.maxpixel.mcdecompiler.mapping.component.*;
+import it.unimi.dsi.fastutil.objects.AbstractObjectCollection;
 import it.unimi.dsi.fastutil.objects.ObjectCollection;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Objects;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
@@ -34,7 +35,31 @@ import java.util.function.Supplier;
  * @implNote This class should only be extended, so it is abstract
  */
 public abstract class Mapping implements NameGetter {
-    protected final Object2ObjectOpenHashMap<@NotNull Class<? extends Component>, Component> components = new Object2ObjectOpenHashMap<>();
+    private static final Object[] EMPTY = {};
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+    /**
+     * Id of each component class, which is the index of its slot. Ids of the built-in components are assigned first
+     * so that the slots of the common mappings stay small
+     */
+    private static final ClassValue<Integer> IDS = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(@NotNull Class<?> type) {
+            return NEXT_ID.getAndIncrement();
+        }
+    };
+
+    static {
+        for (Class<?> c : List.of(Owned.class, Descriptor.Unmapped.class, Descriptor.Mapped.class, Descriptor.Namespaced.class,
+                StaticIdentifiable.class, Documented.class, LocalVariableTable.Paired.class, LocalVariableTable.Namespaced.class)) {
+            IDS.get(c);
+        }
+    }
+
+    /**
+     * Components indexed by the id of their classes. A slot holds either the component, a {@link Supplier} of an
+     * empty component which is not created yet, or {@code null}
+     */
+    private Object[] components = EMPTY;
 
     /**
      * Constructor
@@ -42,7 +67,7 @@ public abstract class Mapping implements NameGetter {
      */
     protected Mapping(@NotNull Component @NotNull ... components) {
         for (@NotNull Component component : components) {
-            this.components.put(component.getClass(), component);
+            addComponent(component);
         }
     }
 
@@ -51,6 +76,42 @@ public abstract class Mapping implements NameGetter {
      */
     protected Mapping() {}
 
+    private static int id(Class<?> component) {
+        return IDS.get(component);
+    }
+
+    private Object slot(Class<?> component) {
+        int id = id(component);
+        return id < components.length ? components[id] : null;
+    }
+
+    private void setSlot(int id, Object value) {
+        if (id >= components.length) {
+            if (value == null) return;
+            components = Arrays.copyOf(components, id + 1);
+        }
+        components[id] = value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Component resolve(int id) {
+        Object value = components[id];
+        if (value == null || value instanceof Component) return (Component) value;
+        Component component = Objects.requireNonNull(((Supplier<? extends Component>) value).get());
+        components[id] = component;
+        onLazyComponentCreated(component);
+        return component;
+    }
+
+    /**
+     * Gets the value of the slot for comparing, without creating the lazy component
+     */
+    private static Object peek(Object[] components, int id) {
+        if (id >= components.length) return null;
+        Object value = components[id];
+        return value == null || value instanceof Component ? value : ((Supplier<?>) value).get();
+    }
+
     /**
      * Gets the component of given type if it is present.<br>
      * For the {@link Owned} component, it is recommended to use {@link #getOwned()} instead of this method
@@ -60,7 +121,22 @@ public abstract class Mapping implements NameGetter {
      */
     @SuppressWarnings("unchecked")
     public <C extends Component> C getComponent(@NotNull Class<? extends C> component) {
-        return (C) components.get(component);
+        int id = id(component);
+        return id < components.length ? (C) resolve(id) : null;
+    }
+
+    /**
+     * Gets the component of given type without creating it if it was {@link #addLazyComponent added lazily}. Such a
+     * component is still empty, so it reads as {@code null} like an absent one. Use {@link #hasComponent} to tell them
+     * apart.
+     *
+     * @implNote Unlike {@link #getComponent}, this never modifies the mapping, so it is safe to call from concurrent readers
+     * @param component Given component type. Cannot be null
+     * @return The component if exists and is created, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public <C extends Component> C peekComponent(@NotNull Class<? extends C> component) {
+        return slot(component) instanceof Component c ? (C) c : null;
     }
 
     /**
@@ -71,10 +147,11 @@ public abstract class Mapping implements NameGetter {
      */
     @SuppressWarnings("unchecked")
     public <C extends Component> @NotNull C getOrCreateComponent(@NotNull Class<? extends C> component, @NotNull Supplier<? extends C> factory) {
-        var value = components.get(component);
+        int id = id(component);
+        Component value = id < components.length ? resolve(id) : null;
         if (value == null) {
             value = Objects.requireNonNull(factory.get());
-            components.put(component, value);
+            setSlot(id, value);
         }
         return (C) value;
     }
@@ -105,18 +182,77 @@ public abstract class Mapping implements NameGetter {
      * @return True if the component exists, false otherwise
      */
     public boolean hasComponent(@NotNull Class<? extends Component> component) {
-        return components.containsKey(component);
+        return slot(component) != null;
     }
 
     /**
      * Gets all the components of this mapping.
      *
+     * @implNote The returned collection is a view. Iterating over it creates the lazily added components
      * @return All the components of this mapping
      */
     public @NotNull ObjectCollection<? extends Component> getComponents() {
-        return components.values();
+        return new AbstractObjectCollection<>() {
+            @Override
+            public @NotNull ObjectIterator<Component> iterator() {
+                return new ObjectIterator<>() {
+                    private int next = advance(0), last = -1;
+
+                    private int advance(int from) {
+                        while (from < components.length && components[from] == null) from++;
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < components.length;
+                    }
+
+                    @Override
+                    public Component next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        last = next;
+                        next = advance(next + 1);
+                        return resolve(last);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last < 0) throw new IllegalStateException();
+                        components[last] = null;
+                        last = -1;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (Object value : components) if (value != null) size++;
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Performs the action on every component created so far. Lazily added components which have not been created
+     * are skipped, as they are still empty
+     *
+     * @param action The action
+     */
+    protected void forEachCreatedComponent(@NotNull Consumer<? super Component> action) {
+        for (Object value : components) {
+            if (value instanceof Component c) action.accept(c);
+        }
     }
 
+    /**
+     * Called when a lazily added component is created, before it is returned
+     *
+     * @param component The created component
+     */
+    protected void onLazyComponentCreated(@NotNull Component component) {}
+
     /**
      * Adds a component to this mapping.
      *
@@ -124,7 +260,22 @@ public abstract class Mapping implements NameGetter {
      * @param component The component to add or replace with
      */
     public void addComponent(@NotNull Component component) {
-        this.components.put(component.getClass(), component);
+        setSlot(id(component.getClass()), Objects.requireNonNull(component));
+    }
+
+    /**
+     * Adds an empty component which is created by the factory only when it is first got. Until then, the component
+     * takes no memory other than its slot.
+     * <p>
+     * {@link #hasComponent} returns true for the component from now on.
+     *
+     * @implNote If a component of the same class exists, replaces that component.
+     * @param component The class of the component
+     * @param factory The factory creating the empty component. Should be a non-capturing lambda or a method reference
+     *                so that no object is allocated for each mapping
+     */
+    public <C extends Component> void addLazyComponent(@NotNull Class<C> component, @NotNull Supplier<? extends C> factory) {
+        setSlot(id(component), Objects.requireNonNull(factory));
     }
 
     /**
@@ -134,7 +285,7 @@ public abstract class Mapping implements NameGetter {
      * @param component The class of the component to remove
      */
     public void removeComponent(@NotNull Class<? extends Component> component) {
-        components.remove(Objects.requireNonNull(component));
+        setSlot(id(Objects.requireNonNull(component)), null);
     }
 
     /**
@@ -143,9 +294,7 @@ public abstract class Mapping implements NameGetter {
      * @throws IllegalStateException If any of the component fails validation
      */
     public void validate() throws IllegalStateException {
-        for (Component value : components.values()) {
-            value.validate();
-        }
+        forEachCreatedComponent(Component::validate);
     }
 
     /* Auto-generated equals, hashCode and toString methods */
@@ -153,18 +302,32 @@ public abstract class Mapping implements NameGetter {
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Mapping mapping)) return false;
-        return components.equals(mapping.components);
+        Object[] other = mapping.components;
+        for (int i = 0, len = Math.max(components.length, other.length); i < len; i++) {
+            if (!Objects.equals(peek(components, i), peek(other, i))) return false;
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return components.hashCode();
+        int h = 0;
+        for (int i = 0; i < components.length; i++) {
+            Object value = peek(components, i);
+            if (value != null) h += value.getClass().hashCode() ^ value.hashCode();
+        }
+        return h;
     }
 
     @Override
     public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "{", "}");
+        for (int i = 0; i < components.length; i++) {
+            Object value = peek(components, i);
+            if (value != null) joiner.add(value.getClass() + "=>" + value);
+        }
         return "Mapping{" +
-                "components=" + components +
+                "components=" + joiner +
                 '}';
     }
 }
\ No newline at end of file
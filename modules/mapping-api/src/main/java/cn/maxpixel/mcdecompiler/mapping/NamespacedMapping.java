@@ -20,17 +20,24 @@ package cn.maxpixel.mcdecompiler.mapping;
 
 import cn.maxpixel.mcdecompiler.mapping.component.Component;
 import cn.maxpixel.mcdecompiler.mapping.component.Owned;
+import cn.maxpixel.mcdecompiler.mapping.trait.NamespaceTable;
 import cn.maxpixel.mcdecompiler.mapping.util.MappingUtils;
-import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.AbstractObjectSet;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import it.unimi.dsi.fastutil.objects.ObjectSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 
 /**
  * A mapping with names under namespaces
+ * <p>
+ * The names are stored in an array indexed by a {@link NamespaceTable}, which is shared by all the mappings with the
+ * same namespaces.
  */
 public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
     // Forge
@@ -42,10 +49,18 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
     public static final String INTERMEDIARY = "intermediary";
     public static final String YARN = "named";
 
+    // Marks the namespaces this mapping has no name under. Compared by identity
+    private static final String ABSENT = new String();
+
     private String unmappedNamespace;
     private String mappedNamespace;
     private String fallbackNamespace;
-    private final Object2ObjectLinkedOpenHashMap<String, String> names = new Object2ObjectLinkedOpenHashMap<>();
+    // Indexes of the namespaces above in the table, -1 if the table doesn't have them
+    private int unmappedIndex = -1;
+    private int mappedIndex = -1;
+    private int fallbackIndex = -1;
+    private NamespaceTable table = NamespaceTable.EMPTY;
+    private String[] names = {};
 
     /**
      * Constructor
@@ -54,7 +69,7 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
      */
     public NamespacedMapping(Map<String, String> names) {
         if (names.containsKey(null)) throw new IllegalArgumentException();
-        this.names.putAll(names);
+        putAll(names);
     }
 
     /**
@@ -64,7 +79,7 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
      * @param name The name
      */
     public NamespacedMapping(String namespace, String name) {
-        this.names.put(Objects.requireNonNull(namespace), name);
+        setName(namespace, name);
     }
 
     /**
@@ -75,9 +90,7 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
      */
     public NamespacedMapping(String[] namespaces, String[] names) {
         if (namespaces.length != names.length) throw new IllegalArgumentException();
-        for (int i = 0; i < namespaces.length; i++) {
-            this.names.put(Objects.requireNonNull(namespaces[i]), names[i]);
-        }
+        putAll(namespaces, names, 0);
     }
 
     /**
@@ -96,9 +109,7 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
         // namespaces.length != (names.length - Objects.checkIndex(nameStart, names.length))
         if (names.length - namespaces.length != Objects.checkIndex(nameStart, names.length))
             throw new IllegalArgumentException();
-        for (int i = 0; i < namespaces.length; i++) {
-            this.names.put(Objects.requireNonNull(namespaces[i]), names[i + nameStart]);
-        }
+        putAll(namespaces, names, nameStart);
     }
 
     /**
@@ -108,9 +119,9 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
      * @param name The name
      */
     public NamespacedMapping(String[] namespaces, String name) {
-        for (String namespace : namespaces) {
-            this.names.put(Objects.requireNonNull(namespace), name);
-        }
+        this.table = NamespaceTable.of(namespaces);
+        this.names = new String[table.size()];
+        Arrays.fill(names, name);
     }
 
     /**
@@ -122,7 +133,7 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
     public NamespacedMapping(Map<String, String> names, Component... components) {
         super(components);
         if (names.containsKey(null)) throw new IllegalArgumentException();
-        this.names.putAll(names);
+        putAll(names);
     }
 
     /**
@@ -134,7 +145,7 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
      */
     public NamespacedMapping(String namespace, String name, Component... components) {
         super(components);
-        this.names.put(Objects.requireNonNull(namespace), name);
+        setName(namespace, name);
     }
 
     /**
@@ -147,9 +158,7 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
     public NamespacedMapping(String[] namespaces, String[] names, Component... components) {
         super(components);
         if (namespaces.length != names.length) throw new IllegalArgumentException();
-        for (int i = 0; i < namespaces.length; i++) {
-            this.names.put(Objects.requireNonNull(namespaces[i]), names[i]);
-        }
+        putAll(namespaces, names, 0);
     }
 
     /**
@@ -174,9 +183,7 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
         // namespaces.length != (names.length - Objects.checkIndex(nameStart, names.length))
         if (names.length - namespaces.length != Objects.checkIndex(nameStart, names.length))
             throw new IllegalArgumentException();
-        for (int i = 0; i < namespaces.length; i++) {
-            this.names.put(Objects.requireNonNull(namespaces[i]), names[i + nameStart]);
-        }
+        putAll(namespaces, names, nameStart);
     }
 
     /**
@@ -188,9 +195,56 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
      */
     public NamespacedMapping(String[] namespaces, String name, Component... components) {
         super(components);
-        for (String namespace : namespaces) {
-            this.names.put(Objects.requireNonNull(namespace), name);
+        this.table = NamespaceTable.of(namespaces);
+        this.names = new String[table.size()];
+        Arrays.fill(names, name);
+    }
+
+    private void putAll(Map<String, String> names) {
+        this.table = NamespaceTable.of(names.keySet().toArray(new String[0]));
+        this.names = new String[table.size()];
+        names.forEach((namespace, name) -> this.names[table.indexOf(namespace)] = name);
+    }
+
+    private void putAll(String[] namespaces, String[] names, int nameStart) {
+        this.table = NamespaceTable.of(namespaces);
+        if (table.size() == namespaces.length) {
+            this.names = Arrays.copyOfRange(names, nameStart, nameStart + namespaces.length);
+        } else {// Duplicated namespaces, the last name wins
+            this.names = new String[table.size()];
+            for (int i = 0; i < namespaces.length; i++) this.names[table.indexOf(namespaces[i])] = names[i + nameStart];
+        }
+    }
+
+    /**
+     * @return The index of the namespace, adding it to the table if absent
+     */
+    private int ensureNamespace(String namespace) {
+        int index = table.indexOf(namespace);
+        if (index < 0) {
+            this.table = table.with(namespace);
+            int oldSize = names.length;
+            this.names = Arrays.copyOf(names, table.size());
+            Arrays.fill(names, oldSize, names.length, ABSENT);
+            index = oldSize;
+            if (unmappedNamespace != null && unmappedIndex < 0) this.unmappedIndex = table.indexOf(unmappedNamespace);
+            if (mappedNamespace != null && mappedIndex < 0) this.mappedIndex = table.indexOf(mappedNamespace);
+            if (fallbackNamespace != null && fallbackIndex < 0) this.fallbackIndex = table.indexOf(fallbackNamespace);
         }
+        return index;
+    }
+
+    private String nameAt(int index) {
+        if (index < 0) return null;
+        String name = names[index];
+        return name == ABSENT ? null : name;
+    }
+
+    /**
+     * @return The table of the namespaces of this mapping. It may contain namespaces this mapping has no name under
+     */
+    public @NotNull NamespaceTable getNamespaceTable() {
+        return table;
     }
 
     @SuppressWarnings("unchecked")
@@ -206,7 +260,64 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
      * @return The namespaces this mapping currently has
      */
     public @NotNull ObjectSet<String> getNamespaces() {
-        return names.keySet();
+        return new AbstractObjectSet<>() {
+            @Override
+            public ObjectIterator<String> iterator() {
+                return new ObjectIterator<>() {
+                    private int next = advance(0);
+                    private int last = -1;
+
+                    private int advance(int i) {
+                        while (i < names.length && names[i] == ABSENT) i++;
+                        return i;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < names.length;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        this.last = next;
+                        this.next = advance(next + 1);
+                        return table.get(last);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last < 0) throw new IllegalStateException();
+                        names[last] = ABSENT;
+                        this.last = -1;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (String name : names) if (name != ABSENT) size++;
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String namespace && NamespacedMapping.this.contains(namespace);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                if (!contains(o)) return false;
+                names[table.indexOf((String) o)] = ABSENT;
+                return true;
+            }
+
+            @Override
+            public void clear() {
+                Arrays.fill(names, ABSENT);
+            }
+        };
     }
 
     /**
@@ -216,7 +327,8 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
      * @param name The name to set
      */
     public void setName(@NotNull String namespace, @Nullable String name) {
-        names.put(Objects.requireNonNull(namespace), name);
+        int index = ensureNamespace(Objects.requireNonNull(namespace));// The array may be replaced
+        names[index] = name;
     }
 
     /**
@@ -226,7 +338,7 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
      * @return The name under the given namespace
      */
     public String getName(@NotNull String namespace) {
-        return names.get(Objects.requireNonNull(namespace));
+        return nameAt(table.indexOf(Objects.requireNonNull(namespace)));
     }
 
     /**
@@ -237,7 +349,7 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
      * @return The name under the given namespace if exists, otherwise the given default value
      */
     public String getName(@NotNull String namespace, @Nullable String defaultValue) {
-        return names.getOrDefault(Objects.requireNonNull(namespace), defaultValue);
+        return contains(namespace) ? names[table.indexOf(namespace)] : defaultValue;
     }
 
     /**
@@ -248,10 +360,13 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
      * @return this mapping
      */
     public NamespacedMapping swap(@NotNull String fromNamespace, @NotNull String toNamespace) {
-        names.put(Objects.requireNonNull(toNamespace), names.put(Objects.requireNonNull(fromNamespace), names.get(toNamespace)));
-        for (Component component : getComponents()) {
+        int from = ensureNamespace(Objects.requireNonNull(fromNamespace)), to = ensureNamespace(Objects.requireNonNull(toNamespace));
+        String name = nameAt(from);
+        names[from] = nameAt(to);
+        names[to] = name;
+        forEachCreatedComponent(component -> {
             if (component instanceof Component.Swappable s) s.swap(fromNamespace, toNamespace);
-        }
+        });
         return this;
     }
 
@@ -262,21 +377,22 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
      * @return if this mapping contains the given namespace
      */
     public boolean contains(@NotNull String namespace) {
-        return names.containsKey(Objects.requireNonNull(namespace));
+        int index = table.indexOf(Objects.requireNonNull(namespace));
+        return index >= 0 && names[index] != ABSENT;
     }
 
     @Override
     public String getUnmappedName() {
         if (unmappedNamespace == null) throw new IllegalStateException("Set a namespace for unmapped name first");
-        return names.get(unmappedNamespace);
+        return nameAt(unmappedIndex);
     }
 
     @Override
     public String getMappedName() {
         if (mappedNamespace == null) throw new IllegalStateException("Set a namespace for mapped name first");
-        var name = names.get(mappedNamespace);
+        var name = nameAt(mappedIndex);
         if (fallbackNamespace == null || MappingUtils.isStringNotBlank(name)) return name;
-        return names.get(fallbackNamespace);
+        return nameAt(fallbackIndex);
     }
 
     @Override
@@ -292,17 +408,19 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
     @Override
     public void setUnmappedNamespace(@NotNull String namespace) {
         this.unmappedNamespace = Objects.requireNonNull(namespace);
-        for (Component component : getComponents()) {
+        this.unmappedIndex = table.indexOf(namespace);
+        forEachCreatedComponent(component -> {
             if (component instanceof NameGetter.Namespace n) n.setUnmappedNamespace(namespace);
-        }
+        });
     }
 
     @Override
     public void setMappedNamespace(@NotNull String namespace) {
         this.mappedNamespace = Objects.requireNonNull(namespace);
-        for (Component component : getComponents()) {
+        this.mappedIndex = table.indexOf(namespace);
+        forEachCreatedComponent(component -> {
             if (component instanceof NameGetter.Namespace n) n.setMappedNamespace(namespace);
-        }
+        });
     }
 
     @Override
@@ -313,8 +431,18 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
     @Override
     public void setFallbackNamespace(@NotNull String namespace) {
         this.fallbackNamespace = Objects.requireNonNull(namespace);
-        for (Component component : getComponents()) {
+        this.fallbackIndex = table.indexOf(namespace);
+        forEachCreatedComponent(component -> {
             if (component instanceof NameGetter.Namespace n) n.setFallbackNamespace(namespace);
+        });
+    }
+
+    @Override
+    protected void onLazyComponentCreated(@NotNull Component component) {
+        if (component instanceof NameGetter.Namespace n) {
+            if (unmappedNamespace != null) n.setUnmappedNamespace(unmappedNamespace);
+            if (mappedNamespace != null) n.setMappedNamespace(mappedNamespace);
+            if (fallbackNamespace != null) n.setFallbackNamespace(fallbackNamespace);
         }
     }
 
@@ -323,18 +451,35 @@ public class NamespacedMapping extends Mapping implements NameGetter.Namespace {
     public boolean equals(Object o) {
         if (!(o instanceof NamespacedMapping that)) return false;
         if (!super.equals(o)) return false;
-        return names.equals(that.names);
+        int count = 0;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == ABSENT) continue;
+            String namespace = table.get(i);
+            if (!that.contains(namespace) || !Objects.equals(names[i], that.getName(namespace))) return false;
+            count++;
+        }
+        return count == that.getNamespaces().size();
     }
 
     @Override
     public int hashCode() {
-        return 31 * super.hashCode() + Objects.hashCode(names);
+        int h = 0;// Same as the hash code of a map from the namespaces to the names
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] != ABSENT) h += table.get(i).hashCode() ^ Objects.hashCode(names[i]);
+        }
+        return 31 * super.hashCode() + h;
     }
 
     @Override
     public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == ABSENT) continue;
+            if (sb.length() > 1) sb.append(", ");
+            sb.append(table.get(i)).append("=>").append(names[i]);
+        }
         return "NamespacedMapping{" +
-                "names=" + names +
+                "names=" + sb.append('}') +
                 "} " + super.toString();
     }
 }
\ No newline at end of file
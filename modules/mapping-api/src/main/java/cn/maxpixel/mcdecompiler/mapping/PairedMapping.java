@@ -21,7 +21,7 @@ package cn.maxpixel.mcdecompiler.mapping;
 import cn.maxpixel.mcdecompiler.mapping.component.Component;
 import cn.maxpixel.mcdecompiler.mapping.component.Owned;
 import cn.maxpixel.mcdecompiler.mapping.util.Validation;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 
 import java.util.Objects;
@@ -116,11 +116,11 @@ public class PairedMapping extends Mapping {
         String temp = unmappedName;
         unmappedName = mappedName;
         mappedName = temp;
+        ObjectArrayList<Component> components = new ObjectArrayList<>(4);
+        forEachCreatedComponent(components::add);// Lazily added components are empty, so they need no reversing
         ObjectOpenHashSet<Class<? extends Component>> skipped = new ObjectOpenHashSet<>();
-        Object2ObjectOpenHashMap<Class<? extends Component>, Component> toAdd = new Object2ObjectOpenHashMap<>();
-        var it = getComponents().iterator();
-        while (it.hasNext()) {
-            Component component = it.next();
+        ObjectArrayList<Component> toAdd = new ObjectArrayList<>();
+        for (Component component : components) {
             if (skipped.contains(component.getClass())) continue;
             if (component instanceof Component.Reversible r) r.reverse();
             if (component instanceof Component.ConvertingReversible c) {
@@ -130,13 +130,12 @@ public class PairedMapping extends Mapping {
                     skipped.add(targetClass);
                     c.reverse(targetComponent);
                 } else {
-                    var converted = c.convert();
-                    toAdd.put(converted.getClass(), converted);
-                    it.remove();
+                    toAdd.add(c.convert());
+                    removeComponent(component.getClass());
                 }
             }
         }
-        components.putAll(toAdd);
+        toAdd.forEach(this::addComponent);
         return this;
     }
 
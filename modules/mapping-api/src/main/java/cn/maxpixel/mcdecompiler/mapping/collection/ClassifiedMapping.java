@@ -23,6 +23,7 @@ import cn.maxpixel.mcdecompiler.mapping.NamespacedMapping;
 import cn.maxpixel.mcdecompiler.mapping.PairedMapping;
 import cn.maxpixel.mcdecompiler.mapping.trait.MappingTrait;
 import cn.maxpixel.mcdecompiler.mapping.trait.NamespacedTrait;
+import cn.maxpixel.mcdecompiler.utils.ExecutionContext;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import org.jetbrains.annotations.NotNull;
@@ -95,8 +96,10 @@ public class ClassifiedMapping<T extends Mapping> extends MappingCollection<T> {
      * @param m mapping to reverse
      */
     public static void reverse(@NotNull ClassifiedMapping<PairedMapping> m) {
-        if (!m.classes.isEmpty()) m.classes.parallelStream().forEach(ClassMapping::reverse);
-        if (!m.packages.isEmpty()) m.packages.parallelStream().forEach(PairedMapping::reverse);
+        ExecutionContext.current().run(() -> {
+            if (!m.classes.isEmpty()) m.classes.parallelStream().forEach(ClassMapping::reverse);
+            if (!m.packages.isEmpty()) m.packages.parallelStream().forEach(PairedMapping::reverse);
+        });
     }
 
     /**
@@ -142,8 +145,10 @@ public class ClassifiedMapping<T extends Mapping> extends MappingCollection<T> {
      * @param targetNamespace target namespace to swap with
      */
     public static void swap(@NotNull ClassifiedMapping<NamespacedMapping> m, @NotNull String sourceNamespace, @NotNull String targetNamespace) {
-        if (!m.classes.isEmpty()) m.classes.parallelStream().forEach(cm -> ClassMapping.swap(cm, sourceNamespace, targetNamespace));
-        if (!m.packages.isEmpty()) m.packages.parallelStream().forEach(nm -> nm.swap(sourceNamespace, targetNamespace));
+        ExecutionContext.current().run(() -> {
+            if (!m.classes.isEmpty()) m.classes.parallelStream().forEach(cm -> ClassMapping.swap(cm, sourceNamespace, targetNamespace));
+            if (!m.packages.isEmpty()) m.packages.parallelStream().forEach(nm -> nm.swap(sourceNamespace, targetNamespace));
+        });
     }
 
     /**
@@ -0,0 +1,471 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package cn.maxpixel.mcdecompiler.mapping.collection;
+
+import cn.maxpixel.mcdecompiler.mapping.NamespacedMapping;
+import cn.maxpixel.mcdecompiler.mapping.component.Descriptor;
+import cn.maxpixel.mcdecompiler.mapping.component.Documented;
+import cn.maxpixel.mcdecompiler.mapping.component.LocalVariableTable;
+import cn.maxpixel.mcdecompiler.mapping.component.StaticIdentifiable;
+import cn.maxpixel.mcdecompiler.mapping.trait.NamespacedTrait;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import it.unimi.dsi.fastutil.objects.ObjectLists;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A read-only, off-heap copy of a namespaced {@link ClassifiedMapping}.
+ * <p>
+ * All the data are stored in a single buffer, which is either a direct buffer ({@link #of}) or a memory-mapped file
+ * ({@link #write} and {@link #map}), so holding many large mappings costs almost no heap. Strings are only created
+ * when they are requested, and are not cached.
+ * <p>
+ * Classes, fields, methods and local variables are all entries, identified by ints. The entries of a class follow it:
+ * first the fields, then the methods, each followed by its local variables. The children of an entry are the entries in
+ * {@code (entry, getEnd(entry))}, and can be iterated with {@code for (int e = entry + 1; e < getEnd(entry); e = getEnd(e))}.
+ * <p>
+ * The names under each namespace, descriptors, documents, {@link StaticIdentifiable static flags} and local variable
+ * tables are stored. Other components are not. A name that is null or missing reads as null.
+ * {@link #getClassMapping} and {@link #toClassifiedMapping} convert the entries back into mappings when needed.
+ * <p>
+ * This is an export-only format for API users: none of the {@link cn.maxpixel.mcdecompiler.mapping.format.MappingFormat
+ * mapping formats}, the remapper or the command line reads or writes stores. The layout is specific to a store version
+ * and may change between versions of this library, so it is not meant for exchanging mappings.
+ */
+public final class ClassifiedMappingStore {
+    public static final int CLASS = 0;
+    public static final int FIELD = 1;
+    public static final int METHOD = 2;
+    public static final int LOCAL_VARIABLE = 3;
+    public static final int ABSENT = -1;
+
+    private static final int MAGIC = 0x5344434D;// "MCDS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int KIND_MASK = 0b11;
+    private static final int HAS_STATIC = 1 << 2;
+    private static final int STATIC = 1 << 3;
+    private static final int HAS_LVT = 1 << 4;
+    private static final int LV_INDEX_SHIFT = 8;
+
+    private final ByteBuffer buffer;
+    private final ObjectList<String> namespaces;
+    private final int capacity;
+    // String i is pool[stringOffsets[i], stringOffsets[i + 1]), encoded in UTF-8
+    private final IntBuffer stringOffsets;
+    private final IntBuffer classEntries;
+    // Kind, flags and the index of local variables
+    private final IntBuffer info;
+    // The entry after the last child of the entry
+    private final IntBuffer ends;
+    // String ids of the names of entry i are at [i * namespaceCount, (i + 1) * namespaceCount)
+    private final IntBuffer names;
+    private final IntBuffer docs;
+    private final IntBuffer descs;
+    private final IntBuffer descNamespaces;
+    // Open-addressing tables of the indexes in classEntries, one per namespace
+    private final IntBuffer classIndex;
+    private final ByteBuffer pool;
+
+    private ClassifiedMappingStore(ByteBuffer buffer) {
+        this.buffer = buffer;
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC) throw new IllegalArgumentException("Not a mapping store");
+        if (in.getInt() != VERSION) throw new IllegalArgumentException("Unsupported mapping store version");
+        int namespaceCount = in.getInt(), classCount = in.getInt(), entryCount = in.getInt(), stringCount = in.getInt();
+        this.capacity = in.getInt();
+        int poolSize = in.getInt();
+        if (namespaceCount <= 0 || classCount < 0 || entryCount < classCount || stringCount < 0 || poolSize < 0 ||
+                capacity <= 0 || (capacity & (capacity - 1)) != 0) throw new IllegalArgumentException("Corrupted mapping store");
+        try {
+            this.stringOffsets = ints(in, stringCount + 1);
+            IntBuffer namespaceIds = ints(in, namespaceCount);
+            this.classEntries = ints(in, classCount);
+            this.info = ints(in, entryCount);
+            this.ends = ints(in, entryCount);
+            this.names = ints(in, entryCount * namespaceCount);
+            this.docs = ints(in, entryCount);
+            this.descs = ints(in, entryCount);
+            this.descNamespaces = ints(in, entryCount);
+            this.classIndex = ints(in, capacity * namespaceCount);
+            this.pool = in.slice(in.position(), poolSize);
+            String[] namespaces = new String[namespaceCount];
+            for (int i = 0; i < namespaceCount; i++) namespaces[i] = getString(namespaceIds.get(i));
+            this.namespaces = ObjectLists.unmodifiable(ObjectArrayList.wrap(namespaces));
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IllegalArgumentException("Corrupted mapping store", e);
+        }
+    }
+
+    private static IntBuffer ints(ByteBuffer in, int length) {
+        IntBuffer ints = in.slice(in.position(), length * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        in.position((in.position() + length * 4 + 7) & -8);
+        return ints;
+    }
+
+    /**
+     * Copies the mappings into a direct buffer.
+     * @param mappings The mappings. Must have {@link NamespacedTrait}
+     */
+    public static ClassifiedMappingStore of(@NotNull ClassifiedMapping<NamespacedMapping> mappings) {
+        ByteBuffer[] sections = new Builder(mappings).build();
+        int size = 0;
+        for (ByteBuffer section : sections) size += section.remaining();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        for (ByteBuffer section : sections) buffer.put(section);
+        return new ClassifiedMappingStore(buffer.flip());
+    }
+
+    /**
+     * Writes the mappings in the layout read by {@link #map}.
+     * @param mappings The mappings. Must have {@link NamespacedTrait}
+     */
+    public static void write(@NotNull ClassifiedMapping<NamespacedMapping> mappings, @NotNull WritableByteChannel channel) throws IOException {
+        for (ByteBuffer section : new Builder(mappings).build()) {
+            while (section.hasRemaining()) channel.write(section);
+        }
+    }
+
+    /**
+     * Reads a store written by {@link #write}. Nothing is copied, the store reads from the buffer.
+     * @param buffer The buffer, usually memory-mapped from a file. Its position and byte order are not changed
+     * @throws IllegalArgumentException If the buffer does not contain a valid store
+     */
+    public static ClassifiedMappingStore map(@NotNull ByteBuffer buffer) {
+        return new ClassifiedMappingStore(buffer.slice());
+    }
+
+    /**
+     * @return Size of the store in bytes
+     */
+    public int size() {
+        return buffer.capacity();
+    }
+
+    public @NotNull ObjectList<String> getNamespaces() {
+        return namespaces;
+    }
+
+    /**
+     * @return Index of the namespace, or {@link #ABSENT} if the store doesn't have the namespace
+     */
+    public int getNamespaceIndex(@NotNull String namespace) {
+        return namespaces.indexOf(namespace);
+    }
+
+    public int getClassCount() {
+        return classEntries.capacity();
+    }
+
+    public int getEntryCount() {
+        return info.capacity();
+    }
+
+    /**
+     * @param index Index of the class, in the order of the classes of the original mappings
+     * @return The entry of the class
+     */
+    public int getClass(int index) {
+        return classEntries.get(index);
+    }
+
+    /**
+     * @return One of {@link #CLASS}, {@link #FIELD}, {@link #METHOD} and {@link #LOCAL_VARIABLE}
+     */
+    public int getKind(int entry) {
+        return info.get(entry) & KIND_MASK;
+    }
+
+    /**
+     * @return The entry after the last child of the given entry
+     */
+    public int getEnd(int entry) {
+        return ends.get(entry);
+    }
+
+    public @Nullable String getName(int entry, int namespace) {
+        return getString(names.get(entry * namespaces.size() + namespace));
+    }
+
+    public @Nullable String getName(int entry, @NotNull String namespace) {
+        int ns = getNamespaceIndex(namespace);
+        return ns == ABSENT ? null : getName(entry, ns);
+    }
+
+    /**
+     * @return The document joined with {@code \n}, or null if the entry has no {@link Documented} component
+     */
+    public @Nullable String getDocument(int entry) {
+        return getString(docs.get(entry));
+    }
+
+    public @Nullable String getDescriptor(int entry) {
+        return getString(descs.get(entry));
+    }
+
+    public @Nullable String getDescriptorNamespace(int entry) {
+        return getString(descNamespaces.get(entry));
+    }
+
+    /**
+     * @return Whether the method has the {@link StaticIdentifiable} component
+     */
+    public boolean isStaticIdentifiable(int entry) {
+        return (info.get(entry) & HAS_STATIC) != 0;
+    }
+
+    public boolean isStatic(int entry) {
+        return (info.get(entry) & STATIC) != 0;
+    }
+
+    /**
+     * @return The index of the local variable in the {@link LocalVariableTable}
+     */
+    public int getLocalVariableIndex(int entry) {
+        return info.get(entry) >>> LV_INDEX_SHIFT;
+    }
+
+    /**
+     * @return The entry of the class, or {@link #ABSENT} if not found
+     */
+    public int findClass(int namespace, @NotNull String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int mask = capacity - 1, base = namespace * capacity, count = namespaces.size();
+        int i = HashCommon.mix(name.hashCode()) & mask;
+        int index;
+        while ((index = classIndex.get(base + i)) != ABSENT) {
+            int entry = classEntries.get(index);
+            if (matches(names.get(entry * count + namespace), bytes)) return entry;
+            i = (i + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Finds a field or a method of a class.
+     * @param cls The entry of the class
+     * @param kind {@link #FIELD} or {@link #METHOD}
+     * @param desc The descriptor, or null if it doesn't matter
+     * @return The entry of the member, or {@link #ABSENT} if not found
+     */
+    public int findMember(int cls, int kind, int namespace, @NotNull String name, @Nullable String desc) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] descBytes = desc == null ? null : desc.getBytes(StandardCharsets.UTF_8);
+        int count = namespaces.size();
+        for (int e = cls + 1, end = ends.get(cls); e < end; e = ends.get(e)) {
+            if ((info.get(e) & KIND_MASK) == kind && matches(names.get(e * count + namespace), bytes) &&
+                    (descBytes == null || matches(descs.get(e), descBytes))) return e;
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Creates the mapping of a class with all its members on the heap. The unmapped namespace is set to the first one.
+     * @param cls The entry of the class
+     */
+    public ClassMapping<NamespacedMapping> getClassMapping(int cls) {
+        if (getKind(cls) != CLASS) throw new IllegalArgumentException("Not a class entry");
+        ClassMapping<NamespacedMapping> cm = new ClassMapping<>(toMapping(cls));
+        for (int e = cls + 1, end = ends.get(cls); e < end; e = ends.get(e)) {
+            NamespacedMapping member = toMapping(e);
+            String desc = getDescriptor(e);
+            if (desc != null) member.addComponent(new Descriptor.Namespaced(desc, getDescriptorNamespace(e)));
+            if (getKind(e) == FIELD) cm.addField(member);
+            else {
+                int info = this.info.get(e);
+                if ((info & HAS_STATIC) != 0) {
+                    StaticIdentifiable si = new StaticIdentifiable();
+                    si.setStatic((info & STATIC) != 0);
+                    member.addComponent(si);
+                }
+                if ((info & HAS_LVT) != 0) {
+                    LocalVariableTable.Namespaced lvt = new LocalVariableTable.Namespaced();
+                    for (int lv = e + 1, lvEnd = ends.get(e); lv < lvEnd; lv++) lvt.setLocalVariable(getLocalVariableIndex(lv), toMapping(lv));
+                    member.addComponent(lvt);
+                }
+                cm.addMethod(member);
+            }
+        }
+        ClassMapping.setUnmappedNamespace(cm, namespaces.get(0));
+        return cm;
+    }
+
+    /**
+     * Creates all the mappings on the heap.
+     */
+    public ClassifiedMapping<NamespacedMapping> toClassifiedMapping() {
+        NamespacedTrait trait = new NamespacedTrait(namespaces.toArray(new String[0]));
+        trait.setUnmappedNamespace(namespaces.get(0));
+        ClassifiedMapping<NamespacedMapping> mappings = new ClassifiedMapping<>(trait);
+        mappings.classes.ensureCapacity(getClassCount());
+        for (int i = 0; i < getClassCount(); i++) mappings.classes.add(getClassMapping(classEntries.get(i)));
+        return mappings;
+    }
+
+    private NamespacedMapping toMapping(int entry) {
+        NamespacedMapping mapping = new NamespacedMapping();
+        for (int ns = 0; ns < namespaces.size(); ns++) {
+            String name = getName(entry, ns);
+            if (name != null) mapping.setName(namespaces.get(ns), name);
+        }
+        String doc = getDocument(entry);
+        if (doc != null) mapping.addComponent(new Documented(doc));
+        return mapping;
+    }
+
+    private @Nullable String getString(int id) {
+        if (id == ABSENT) return null;
+        int start = stringOffsets.get(id);
+        byte[] bytes = new byte[stringOffsets.get(id + 1) - start];
+        pool.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean matches(int id, byte[] bytes) {
+        if (id == ABSENT) return false;
+        int start = stringOffsets.get(id);
+        if (stringOffsets.get(id + 1) - start != bytes.length) return false;
+        for (int i = 0; i < bytes.length; i++) if (pool.get(start + i) != bytes[i]) return false;
+        return true;
+    }
+
+    /**
+     * Flattens the mappings into the columns of the store
+     */
+    private static final class Builder {
+        private final Object2IntOpenHashMap<String> stringIds = new Object2IntOpenHashMap<>();
+        private final IntArrayList stringOffsets = new IntArrayList();
+        private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        private final String[] namespaces;
+        private final ClassifiedMapping<NamespacedMapping> mappings;
+        private final IntArrayList classEntries = new IntArrayList();
+        private final IntArrayList info = new IntArrayList();
+        private final IntArrayList ends = new IntArrayList();
+        private final IntArrayList names = new IntArrayList();
+        private final IntArrayList docs = new IntArrayList();
+        private final IntArrayList descs = new IntArrayList();
+        private final IntArrayList descNamespaces = new IntArrayList();
+
+        private Builder(ClassifiedMapping<NamespacedMapping> mappings) {
+            NamespacedTrait trait = mappings.getTrait(NamespacedTrait.class);
+            if (trait == null) throw new IllegalArgumentException("Only namespaced mappings can be stored");
+            this.namespaces = trait.namespaces.toArray(new String[0]);
+            this.mappings = mappings;
+            stringIds.defaultReturnValue(ABSENT);
+            stringOffsets.add(0);
+        }
+
+        private ByteBuffer[] build() {
+            for (ClassMapping<NamespacedMapping> cm : mappings.classes) {
+                int cls = add(cm.mapping, CLASS);
+                classEntries.add(cls);
+                for (NamespacedMapping field : cm.getFields()) add(field, FIELD);
+                for (NamespacedMapping method : cm.getMethods()) {
+                    int m = add(method, METHOD), flags = 0;
+                    StaticIdentifiable si = method.getComponent(StaticIdentifiable.class);
+                    if (si != null) flags |= si.isStatic ? HAS_STATIC | STATIC : HAS_STATIC;
+                    if (method.hasComponent(LocalVariableTable.Namespaced.class)) {
+                        flags |= HAS_LVT;
+                        LocalVariableTable.Namespaced lvt = method.peekComponent(LocalVariableTable.Namespaced.class);
+                        int[] indexes = lvt == null ? new int[0] : lvt.getLocalVariableIndexes().toIntArray();// Null if still empty
+                        Arrays.sort(indexes);
+                        for (int index : indexes) {
+                            NamespacedMapping lv = lvt.getLocalVariable(index);
+                            if (lv == null) continue;
+                            info.set(add(lv, LOCAL_VARIABLE), LOCAL_VARIABLE | index << LV_INDEX_SHIFT);
+                        }
+                    }
+                    info.set(m, METHOD | flags);
+                    ends.set(m, info.size());
+                }
+                ends.set(cls, info.size());
+            }
+            int[] nsIds = new int[namespaces.length];
+            for (int i = 0; i < namespaces.length; i++) nsIds[i] = intern(namespaces[i]);
+            int capacity = HashCommon.arraySize(Math.max(classEntries.size(), 1), .5f);
+            int[] classIndex = new int[capacity * namespaces.length];
+            Arrays.fill(classIndex, ABSENT);
+            for (int ns = 0; ns < namespaces.length; ns++) {
+                int base = ns * capacity;
+                for (int c = 0; c < classEntries.size(); c++) {
+                    String name = mappings.classes.get(c).mapping.getName(namespaces[ns]);
+                    if (name == null) continue;
+                    int i = HashCommon.mix(name.hashCode()) & (capacity - 1);
+                    while (classIndex[base + i] != ABSENT) i = (i + 1) & (capacity - 1);
+                    classIndex[base + i] = c;
+                }
+            }
+            byte[] pool = this.pool.toByteArray();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(MAGIC).putInt(VERSION).putInt(namespaces.length).putInt(classEntries.size()).putInt(info.size())
+                    .putInt(stringOffsets.size() - 1).putInt(capacity).putInt(pool.length).flip();
+            return new ByteBuffer[] {
+                    header, ints(stringOffsets.toIntArray()), ints(nsIds), ints(classEntries.toIntArray()), ints(info.toIntArray()),
+                    ints(ends.toIntArray()), ints(names.toIntArray()), ints(docs.toIntArray()), ints(descs.toIntArray()),
+                    ints(descNamespaces.toIntArray()), ints(classIndex), ByteBuffer.wrap(pool)
+            };
+        }
+
+        private int add(NamespacedMapping mapping, int kind) {
+            int entry = info.size();
+            info.add(kind);
+            ends.add(entry + 1);
+            for (String namespace : namespaces) names.add(intern(mapping.getName(namespace)));
+            Documented doc = mapping.peekComponent(Documented.class);// Don't create the lazy documents, which are empty
+            docs.add(doc != null ? intern(doc.getContentString()) : mapping.hasComponent(Documented.class) ? intern("") : ABSENT);
+            Descriptor.Namespaced desc = mapping.getComponent(Descriptor.Namespaced.class);
+            descs.add(desc == null ? ABSENT : intern(desc.descriptor));
+            descNamespaces.add(desc == null ? ABSENT : intern(desc.descriptorNamespace));
+            return entry;
+        }
+
+        private int intern(@Nullable String s) {
+            if (s == null) return ABSENT;
+            int id = stringIds.getInt(s);
+            if (id == ABSENT) {
+                id = stringOffsets.size() - 1;
+                stringIds.put(s, id);
+                pool.writeBytes(s.getBytes(StandardCharsets.UTF_8));
+                stringOffsets.add(pool.size());
+            }
+            return id;
+        }
+
+        private static ByteBuffer ints(int[] ints) {
+            ByteBuffer out = ByteBuffer.allocate((ints.length * 4 + 7) & -8).order(ByteOrder.LITTLE_ENDIAN);
+            out.asIntBuffer().put(ints);
+            return out;
+        }
+    }
+}
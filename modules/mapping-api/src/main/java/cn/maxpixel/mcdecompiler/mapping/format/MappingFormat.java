@@ -70,7 +70,22 @@ public interface MappingFormat<M extends Mapping, C extends MappingCollection<M>
     }
 
     default @NotNull C read(@NotNull InputStream is) {
-        return read(new InputStreamReader(is, StandardCharsets.UTF_8));
+        try {
+            return read(is.readAllBytes());
+        } catch (IOException e) {
+            throw Utils.wrapInRuntime(e);
+        }
+    }
+
+    /**
+     * Reads the mappings from UTF-8 encoded bytes.
+     *
+     * @apiNote The line-based formats parse the bytes in place, which is faster than reading from a {@link Reader}
+     * @param bytes The contents
+     * @return The mappings
+     */
+    default @NotNull C read(byte @NotNull [] bytes) {
+        return read(InputCollection.Entry.of(bytes, null));
     }
 
     default @NotNull C read(@NotNull InputCollection contents) {
@@ -81,6 +96,34 @@ public interface MappingFormat<M extends Mapping, C extends MappingCollection<M>
         }
     }
 
+    default @NotNull C read(@NotNull InputStream is, int parallelism) {
+        try {
+            return read(is.readAllBytes(), parallelism);
+        } catch (IOException e) {
+            throw Utils.wrapInRuntime(e);
+        }
+    }
+
+    /**
+     * Reads the mappings from UTF-8 encoded bytes, parsing chunks of the bytes in parallel if the format supports it.
+     * The result is the same as {@link #read(byte[])}.
+     *
+     * @param bytes The contents
+     * @param parallelism Max number of chunks to parse in parallel
+     * @return The mappings
+     */
+    default @NotNull C read(byte @NotNull [] bytes, int parallelism) {
+        return read(InputCollection.Entry.of(bytes, null), parallelism);
+    }
+
+    default @NotNull C read(@NotNull InputCollection contents, int parallelism) {
+        try {
+            return getProcessor().process(contents, parallelism);
+        } catch (IOException e) {
+            throw Utils.wrapInRuntime(e);
+        }
+    }
+
     default void write(@NotNull C collection, @NotNull OutputStream os) throws IOException {
         write(collection, new OutputStreamWriter(os, StandardCharsets.UTF_8));
     }
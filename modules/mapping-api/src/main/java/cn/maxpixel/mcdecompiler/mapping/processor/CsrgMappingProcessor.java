@@ -24,8 +24,15 @@ import cn.maxpixel.mcdecompiler.mapping.collection.ClassifiedMapping;
 import cn.maxpixel.mcdecompiler.mapping.format.MappingFormat;
 import cn.maxpixel.mcdecompiler.mapping.format.MappingFormats;
 import cn.maxpixel.mcdecompiler.mapping.util.InputCollection;
+import cn.maxpixel.mcdecompiler.mapping.util.LineChunks;
+import cn.maxpixel.mcdecompiler.mapping.util.LineTokenizer;
 import cn.maxpixel.mcdecompiler.mapping.util.MappingUtils;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import cn.maxpixel.mcdecompiler.utils.ExecutionContext;
+import it.unimi.dsi.fastutil.objects.*;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Set;
 
 public enum CsrgMappingProcessor implements MappingProcessor.Classified<PairedMapping> {
     INSTANCE;
@@ -37,11 +44,23 @@ public enum CsrgMappingProcessor implements MappingProcessor.Classified<PairedMa
 
     @Override
     public ClassifiedMapping<PairedMapping> process(InputCollection contents) {
+        return process(contents, 1);
+    }
+
+    @Override
+    public ClassifiedMapping<PairedMapping> process(InputCollection contents, int parallelism) {
         ClassifiedMapping<PairedMapping> mappings = new ClassifiedMapping<>();
         Object2ObjectOpenHashMap<String, ClassMapping<PairedMapping>> classes = new Object2ObjectOpenHashMap<>(); // k: unmapped name
         for (var content : contents) {
+            byte[] bytes = content.bytes();
+            if (bytes != null) {
+                int[] bounds = LineChunks.split(bytes, parallelism, null);
+                if (bounds.length == 2) process(new LineTokenizer(bytes, true), mappings.packages, classes, null);
+                else merge(LineChunks.parse(bytes, bounds, true, Chunk::new), mappings.packages, classes);
+                continue;
+            }
             try (var lines = preprocess(content.lines().map(this::stripComments))) {
-                lines.parallel().forEach(s -> {
+                ExecutionContext.current().run(() -> lines.parallel().forEach(s -> {
                     String[] sa = MappingUtils.split(s, ' ');
                     switch (sa.length) {
                         case 2 -> { // Class / Package
@@ -73,10 +92,67 @@ public enum CsrgMappingProcessor implements MappingProcessor.Classified<PairedMa
                         }
                         default -> throw new IllegalArgumentException("Is this CSRG mapping format?");
                     }
-                });
+                }));
             }
         }
         mappings.classes.addAll(classes.values());
         return mappings;
     }
-}
\ No newline at end of file
+
+    private static void process(LineTokenizer t, ObjectList<PairedMapping> packages,
+                                Object2ObjectMap<String, ClassMapping<PairedMapping>> classes, @Nullable Set<String> declared) {
+        while (t.nextLine()) {
+            switch (t.split(' ')) {
+                case 2 -> { // Class / Package
+                    int e0 = t.end(0), e1 = t.end(1);
+                    if (t.get(e0 - 1) == '/') {
+                        packages.add(new PairedMapping(t.string(t.start(0), e0 - 1), t.string(t.start(1), e1 - 1)));
+                    } else {
+                        ClassMapping<PairedMapping> classMapping = new ClassMapping<>(new PairedMapping(t.token(0), t.token(1)));
+                        ClassMapping<PairedMapping> old = classes.put(classMapping.mapping.unmappedName, classMapping);
+                        if (old != null) {
+                            classMapping.addFields(old.getFields());
+                            classMapping.addMethods(old.getMethods());
+                        }
+                        if (declared != null) declared.add(classMapping.mapping.unmappedName);
+                    }
+                }
+                case 3 -> classes.computeIfAbsent(t.token(0), MappingUtils.Paired.COMPUTE_DEFAULT_CLASS) // Field
+                        .addField(MappingUtils.Paired.o(t.token(1), t.token(2)));
+                case 4 -> classes.computeIfAbsent(t.token(0), MappingUtils.Paired.COMPUTE_DEFAULT_CLASS) // Method
+                        .addMethod(MappingUtils.Paired.duo(t.token(1), t.token(3), t.token(2)));
+                default -> throw new IllegalArgumentException("Is this CSRG mapping format?");
+            }
+        }
+    }
+
+    private static void merge(List<Chunk> chunks, ObjectList<PairedMapping> packages,
+                              Object2ObjectMap<String, ClassMapping<PairedMapping>> classes) {
+        for (Chunk chunk : chunks) {
+            packages.addAll(chunk.packages);
+            for (var e : chunk.classes.object2ObjectEntrySet()) {
+                ClassMapping<PairedMapping> cm = e.getValue();
+                ClassMapping<PairedMapping> existing = classes.putIfAbsent(e.getKey(), cm);
+                if (existing != null) {
+                    if (chunk.declared.contains(e.getKey())) existing.mapping = cm.mapping; // The class line seen last wins
+                    existing.addFields(cm.getFields());
+                    existing.addMethods(cm.getMethods());
+                }
+            }
+        }
+    }
+
+    /**
+     * Result of a chunk. Classes are kept in the order they are seen, so that merging the chunks in order adds them in
+     * the same order as the sequential parse.
+     */
+    private static final class Chunk {
+        private final ObjectArrayList<PairedMapping> packages = new ObjectArrayList<>();
+        private final Object2ObjectLinkedOpenHashMap<String, ClassMapping<PairedMapping>> classes = new Object2ObjectLinkedOpenHashMap<>();
+        private final ObjectOpenHashSet<String> declared = new ObjectOpenHashSet<>(); // Classes that have a class line
+
+        private Chunk(LineTokenizer t) {
+            process(t, packages, classes, declared);
+        }
+    }
+}
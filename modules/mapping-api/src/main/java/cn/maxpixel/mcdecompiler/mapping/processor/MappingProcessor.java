@@ -70,6 +70,20 @@ public interface MappingProcessor<T extends Mapping, C extends MappingCollection
      */
     C process(InputCollection contents) throws IOException;
 
+    /**
+     * Processes contents like {@link #process(InputCollection)}, splitting each content into chunks that are processed
+     * in parallel if supported. The result is the same as {@link #process(InputCollection)}.
+     *
+     * @param contents Content tree to process
+     * @param parallelism Max number of chunks to split each content into
+     * @throws IOException When IO errors occur
+     * @return a mapping collection
+     * @implNote Only the contents given as bytes can be split. The default implementation ignores the parallelism
+     */
+    default C process(InputCollection contents, int parallelism) throws IOException {
+        return process(contents);
+    }
+
     interface Unique<T extends Mapping> extends MappingProcessor<T, UniqueMapping<T>> {
     }
 
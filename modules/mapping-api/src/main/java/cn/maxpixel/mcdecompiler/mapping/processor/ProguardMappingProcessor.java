@@ -24,10 +24,14 @@ import cn.maxpixel.mcdecompiler.mapping.collection.ClassifiedMapping;
 import cn.maxpixel.mcdecompiler.mapping.format.MappingFormat;
 import cn.maxpixel.mcdecompiler.mapping.format.MappingFormats;
 import cn.maxpixel.mcdecompiler.mapping.util.InputCollection;
+import cn.maxpixel.mcdecompiler.mapping.util.LineChunks;
+import cn.maxpixel.mcdecompiler.mapping.util.LineTokenizer;
 import cn.maxpixel.mcdecompiler.mapping.util.MappingUtils;
 import cn.maxpixel.mcdecompiler.mapping.util.NamingUtil;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 public enum ProguardMappingProcessor implements MappingProcessor.Classified<PairedMapping> {
     INSTANCE;
@@ -39,8 +43,24 @@ public enum ProguardMappingProcessor implements MappingProcessor.Classified<Pair
 
     @Override
     public ClassifiedMapping<PairedMapping> process(InputCollection contents) {
+        return process(contents, 1);
+    }
+
+    @Override
+    public ClassifiedMapping<PairedMapping> process(InputCollection contents, int parallelism) {
         ClassifiedMapping<PairedMapping> mappings = new ClassifiedMapping<>();
         for (var content : contents) {
+            byte[] bytes = content.bytes();
+            if (bytes != null) {
+                int[] bounds = LineChunks.split(bytes, parallelism, LineChunks.UNINDENTED);// Split between class blocks
+                if (bounds.length == 2) process(new LineTokenizer(bytes, true), mappings);
+                else LineChunks.parse(bytes, bounds, true, t -> {
+                    ClassifiedMapping<PairedMapping> chunk = new ClassifiedMapping<>();
+                    process(t, chunk);
+                    return chunk;
+                }).forEach(mappings::add);
+                continue;
+            }
             try (var lines = preprocess(content.lines().map(this::stripComments))) {
                 lines.forEach(new Consumer<>() {
                     private ClassMapping<PairedMapping> currentClass;
@@ -102,6 +122,64 @@ public enum ProguardMappingProcessor implements MappingProcessor.Classified<Pair
         }
     }
 
+    private static void process(LineTokenizer t, ClassifiedMapping<PairedMapping> mappings) {
+        Object2ObjectOpenHashMap<String, String> descriptors = new Object2ObjectOpenHashMap<>();// k: java type name
+        Function<String, String> java2Descriptor = NamingUtil::java2Descriptor;
+        StringBuilder descriptor = new StringBuilder();
+        ClassMapping<PairedMapping> currentClass = null;
+        while (t.nextLine()) {
+            int start = t.lineStart(), end = t.lineEnd();
+            if (!t.startsWith("    ")) {
+                int splitIndex = t.indexOf(" -> ", start, end);
+                if (splitIndex <= start) error();
+                ClassMapping<PairedMapping> classMapping = new ClassMapping<>(new PairedMapping(
+                        NamingUtil.asNativeName(t.string(splitIndex + 4, end - 1)),
+                        NamingUtil.asNativeName(t.string(start, splitIndex))
+                ));
+                mappings.classes.add(classMapping);
+                currentClass = classMapping;
+                continue;
+            }
+            int leftBracket = t.indexOf('(', start, end);
+            int rightBracket = t.lastIndexOf(')', start, end);
+            if (leftBracket >= 0 && rightBracket >= 0) {
+                int lineNum = t.indexOf(':', start, end);
+                descriptor.setLength(0);
+                descriptor.append('(');
+                int prev = leftBracket;
+                for (int next = t.indexOf(',', prev + 1, rightBracket); next > 0;
+                     prev = next, next = t.indexOf(',', prev + 1, rightBracket)) {
+                    descriptor.append(descriptors.computeIfAbsent(t.string(prev + 1, next), java2Descriptor));
+                }
+                if (rightBracket - 1 != leftBracket) {
+                    descriptor.append(descriptors.computeIfAbsent(t.string(prev + 1, rightBracket), java2Descriptor));
+                }
+                descriptor.append(')');
+                if (lineNum >= 0) {
+                    int split1 = t.indexOf(' ', start + 11, end);// skip leading 4 spaces, descriptor name(at least 3 chars), and line number(at least 4 chars)
+                    if (split1 < 0) error();
+                    int lineNum1 = t.indexOf(':', lineNum + 2, end);
+                    if (lineNum1 < 0) error();
+                    currentClass.addMethod(MappingUtils.Paired.ldmo(t.string(rightBracket + 5, end), t.string(split1 + 1, leftBracket),
+                            descriptor.append(descriptors.computeIfAbsent(t.string(lineNum1 + 1, split1), java2Descriptor)).toString(),
+                            t.parseInt(start + 4, lineNum), t.parseInt(lineNum + 1, lineNum1)));
+                } else { // no line number
+                    int split1 = t.indexOf(' ', start + 7, end);// skip leading 4 spaces and descriptor name/line number(at least 3 chars)
+                    if (split1 < 0) error();
+                    currentClass.addMethod(MappingUtils.Paired.dmo(t.string(rightBracket + 5, end), t.string(split1 + 1, leftBracket),
+                            descriptor.append(descriptors.computeIfAbsent(t.string(start + 4, split1), java2Descriptor)).toString()));
+                }
+            } else {
+                int split1 = t.indexOf(' ', start + 7, end);// skip leading 4 spaces and descriptor name(at least 3 chars)
+                if (split1 < 0) error();
+                int split2 = t.indexOf(" -> ", split1 + 2, end);// skip split1(1 char) and mapped name(at least 1 char)
+                if (split2 < 0) error();
+                currentClass.addField(MappingUtils.Paired.dmo(t.string(split2 + 4, end), t.string(split1 + 1, split2),
+                        descriptors.computeIfAbsent(t.string(start + 4, split1), java2Descriptor)));
+            }
+        }
+    }
+
     private static void error() {
         throw new IllegalArgumentException("Is this Proguard mapping format?");
     }
@@ -24,9 +24,17 @@ import cn.maxpixel.mcdecompiler.mapping.collection.ClassifiedMapping;
 import cn.maxpixel.mcdecompiler.mapping.format.MappingFormat;
 import cn.maxpixel.mcdecompiler.mapping.format.MappingFormats;
 import cn.maxpixel.mcdecompiler.mapping.util.InputCollection;
+import cn.maxpixel.mcdecompiler.mapping.util.LineChunks;
+import cn.maxpixel.mcdecompiler.mapping.util.LineTokenizer;
 import cn.maxpixel.mcdecompiler.mapping.util.MappingUtils;
+import cn.maxpixel.mcdecompiler.utils.ExecutionContext;
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
 
+import java.util.List;
 import java.util.function.Function;
 
 public enum SrgMappingProcessor implements MappingProcessor.Classified<PairedMapping> {
@@ -42,11 +50,23 @@ public enum SrgMappingProcessor implements MappingProcessor.Classified<PairedMap
 
     @Override
     public ClassifiedMapping<PairedMapping> process(InputCollection contents) {
+        return process(contents, 1);
+    }
+
+    @Override
+    public ClassifiedMapping<PairedMapping> process(InputCollection contents, int parallelism) {
         ClassifiedMapping<PairedMapping> mappings = new ClassifiedMapping<>();
         Object2ObjectOpenHashMap<String, ClassMapping<PairedMapping>> classes = new Object2ObjectOpenHashMap<>(); // k: unmapped name
         for (var content : contents) {
+            byte[] bytes = content.bytes();
+            if (bytes != null) {
+                int[] bounds = LineChunks.split(bytes, parallelism, null);
+                if (bounds.length == 2) process(new LineTokenizer(bytes, true), mappings.packages, classes);
+                else merge(LineChunks.parse(bytes, bounds, true, Chunk::new), mappings.packages, classes);
+                continue;
+            }
             try (var lines = preprocess(content.lines().map(this::stripComments))) {
-                lines.parallel().forEach(s -> {
+                ExecutionContext.current().run(() -> lines.parallel().forEach(s -> {
                     String[] strings = MappingUtils.split(s, ' ');
                     switch (strings[0]) {
                         case "CL:" -> {
@@ -78,13 +98,80 @@ public enum SrgMappingProcessor implements MappingProcessor.Classified<PairedMap
                         }
                         default -> throw new IllegalArgumentException("Is this SRG mapping format?");
                     }
-                });
+                }));
             }
         }
         mappings.classes.addAll(classes.values());
         return mappings;
     }
 
+    private static void process(LineTokenizer t, ObjectList<PairedMapping> packages,
+                                Object2ObjectMap<String, ClassMapping<PairedMapping>> classes) {
+        while (t.nextLine()) {
+            int n = t.split(' ');
+            int s0 = t.start(0), e0 = t.end(0);
+            if (t.regionEquals(s0, e0, "CL:") && n >= 3) {
+                String unmapped = t.token(1);
+                if (!classes.containsKey(unmapped)) classes.put(unmapped, new ClassMapping<>(new PairedMapping(unmapped, t.token(2))));
+            } else if (t.regionEquals(s0, e0, "FD:") && n >= 3) {
+                int slash1 = lastSlash(t, 1), slash2 = lastSlash(t, 2);
+                PairedMapping fieldMapping = MappingUtils.Paired.o(t.string(slash1 + 1, t.end(1)), t.string(slash2 + 1, t.end(2)));
+                getOrCreate(classes, t.string(t.start(1), slash1), t, slash2, 2).addField(fieldMapping);
+            } else if (t.regionEquals(s0, e0, "MD:") && n >= 5) {
+                int slash1 = lastSlash(t, 1), slash3 = lastSlash(t, 3);
+                PairedMapping methodMapping = MappingUtils.Paired.d2o(t.string(slash1 + 1, t.end(1)),
+                        t.string(slash3 + 1, t.end(3)), t.token(2), t.token(4));
+                getOrCreate(classes, t.string(t.start(1), slash1), t, slash3, 3).addMethod(methodMapping);
+            } else if (t.regionEquals(s0, e0, "PK:") && n >= 3) {
+                packages.add(new PairedMapping(t.token(1), t.token(2)));
+            } else throw new IllegalArgumentException("Is this SRG mapping format?");
+        }
+    }
+
+    private static int lastSlash(LineTokenizer t, int token) {
+        int slash = t.lastIndexOf('/', t.start(token), t.end(token));
+        if (slash < 0) throw new IllegalArgumentException("Is this SRG mapping format?");
+        return slash;
+    }
+
+    private static ClassMapping<PairedMapping> getOrCreate(Object2ObjectMap<String, ClassMapping<PairedMapping>> classes,
+                                                           String unmapped, LineTokenizer t, int mappedSlash, int mappedToken) {
+        ClassMapping<PairedMapping> cm = classes.get(unmapped);
+        if (cm == null) {
+            cm = new ClassMapping<>(new PairedMapping(unmapped, t.string(t.start(mappedToken), mappedSlash)));
+            classes.put(unmapped, cm);
+        }
+        return cm;
+    }
+
+    private static void merge(List<Chunk> chunks, ObjectList<PairedMapping> packages,
+                              Object2ObjectMap<String, ClassMapping<PairedMapping>> classes) {
+        for (Chunk chunk : chunks) {
+            packages.addAll(chunk.packages);
+            for (var e : chunk.classes.object2ObjectEntrySet()) {
+                ClassMapping<PairedMapping> cm = e.getValue();
+                ClassMapping<PairedMapping> existing = classes.putIfAbsent(e.getKey(), cm); // The class seen first wins
+                if (existing != null) {
+                    existing.addFields(cm.getFields());
+                    existing.addMethods(cm.getMethods());
+                }
+            }
+        }
+    }
+
+    /**
+     * Result of a chunk. Classes are kept in the order they are seen, so that merging the chunks in order adds them in
+     * the same order as the sequential parse.
+     */
+    private static final class Chunk {
+        private final ObjectArrayList<PairedMapping> packages = new ObjectArrayList<>();
+        private final Object2ObjectLinkedOpenHashMap<String, ClassMapping<PairedMapping>> classes = new Object2ObjectLinkedOpenHashMap<>();
+
+        private Chunk(LineTokenizer t) {
+            process(t, packages, classes);
+        }
+    }
+
     private static String getClassName(String s) {
         return s.substring(0, s.lastIndexOf('/'));
     }
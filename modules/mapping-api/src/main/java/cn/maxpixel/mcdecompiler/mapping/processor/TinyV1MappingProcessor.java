@@ -25,7 +25,9 @@ import cn.maxpixel.mcdecompiler.mapping.format.MappingFormat;
 import cn.maxpixel.mcdecompiler.mapping.format.MappingFormats;
 import cn.maxpixel.mcdecompiler.mapping.trait.NamespacedTrait;
 import cn.maxpixel.mcdecompiler.mapping.util.InputCollection;
+import cn.maxpixel.mcdecompiler.mapping.util.LineTokenizer;
 import cn.maxpixel.mcdecompiler.mapping.util.MappingUtils;
+import cn.maxpixel.mcdecompiler.utils.ExecutionContext;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 
 import java.io.IOException;
@@ -44,7 +46,10 @@ public enum TinyV1MappingProcessor implements MappingProcessor.Classified<Namesp
 
     @Override
     public ClassifiedMapping<NamespacedMapping> process(InputCollection contents) throws IOException {
-        try (var reader = contents.getAsSingle().asBufferedReader()) {
+        var content = contents.getAsSingle();
+        byte[] bytes = content.bytes();
+        if (bytes != null) return process(new LineTokenizer(bytes, false));
+        try (var reader = content.asBufferedReader()) {
             String firstLine = reader.readLine();
             if (!firstLine.startsWith("v1")) error();
             String[] namespaces = MappingUtils.split(firstLine, '\t', 3);
@@ -53,7 +58,7 @@ public enum TinyV1MappingProcessor implements MappingProcessor.Classified<Namesp
             ClassifiedMapping<NamespacedMapping> mappings = new ClassifiedMapping<>(trait);
             Object2ObjectOpenHashMap<String, ClassMapping<NamespacedMapping>> classes = new Object2ObjectOpenHashMap<>(); // k: the first namespace, usually unmapped name
             String k = namespaces[0];
-            reader.lines().parallel().filter(NOT_BLANK).forEach(s -> {
+            ExecutionContext.current().run(() -> reader.lines().parallel().filter(NOT_BLANK).forEach(s -> {
                 String[] sa = MappingUtils.split(s, '\t');
                 switch (sa[0]) {
                     case "CLASS" -> {
@@ -78,13 +83,44 @@ public enum TinyV1MappingProcessor implements MappingProcessor.Classified<Namesp
                     }
                     default -> error();
                 }
-            });
+            }));
             mappings.classes.addAll(classes.values());
             mappings.updateCollection();
             return mappings;
         }
     }
 
+    private static ClassifiedMapping<NamespacedMapping> process(LineTokenizer t) {
+        if (!t.nextLine() || !t.startsWith("v1")) error();
+        t.split('\t', 3);
+        String[] namespaces = t.tokens();
+        var trait = new NamespacedTrait(namespaces);
+        trait.setUnmappedNamespace(namespaces[0]);
+        ClassifiedMapping<NamespacedMapping> mappings = new ClassifiedMapping<>(trait);
+        Object2ObjectOpenHashMap<String, ClassMapping<NamespacedMapping>> classes = new Object2ObjectOpenHashMap<>(); // k: the first namespace, usually unmapped name
+        Function<String, ClassMapping<NamespacedMapping>> mappingFunc = MAPPING_FUNC.apply(namespaces);
+        String k = namespaces[0];
+        while (t.nextLine()) {
+            t.split('\t');
+            int s0 = t.start(0), e0 = t.end(0);
+            if (t.regionEquals(s0, e0, "CLASS")) {
+                String[] sa = t.tokens();
+                ClassMapping<NamespacedMapping> classMapping = new ClassMapping<>(new NamespacedMapping(namespaces, sa, 1));
+                ClassMapping<NamespacedMapping> old = classes.put(sa[1], classMapping);
+                if (old != null) classMapping.addFields(old.getFields()).addMethods(old.getMethods());
+            } else if (t.regionEquals(s0, e0, "FIELD")) {
+                String[] sa = t.tokens();
+                classes.computeIfAbsent(sa[1], mappingFunc).addField(MappingUtils.Namespaced.duo(namespaces, sa, 3, k, sa[2]));
+            } else if (t.regionEquals(s0, e0, "METHOD")) {
+                String[] sa = t.tokens();
+                classes.computeIfAbsent(sa[1], mappingFunc).addMethod(MappingUtils.Namespaced.duo(namespaces, sa, 3, k, sa[2]));
+            } else error();
+        }
+        mappings.classes.addAll(classes.values());
+        mappings.updateCollection();
+        return mappings;
+    }
+
     private static void error() {
         throw new IllegalArgumentException("Is this Tiny v1 mapping format?");
     }
@@ -28,6 +28,7 @@ import cn.maxpixel.mcdecompiler.mapping.format.MappingFormats;
 import cn.maxpixel.mcdecompiler.mapping.trait.NamespacedTrait;
 import cn.maxpixel.mcdecompiler.mapping.trait.PropertiesTrait;
 import cn.maxpixel.mcdecompiler.mapping.util.InputCollection;
+import cn.maxpixel.mcdecompiler.mapping.util.LineTokenizer;
 import cn.maxpixel.mcdecompiler.mapping.util.MappingUtils;
 import cn.maxpixel.mcdecompiler.mapping.util.TinyUtil;
 
@@ -44,7 +45,10 @@ public enum TinyV2MappingProcessor implements MappingProcessor.Classified<Namesp
 
     @Override
     public ClassifiedMapping<NamespacedMapping> process(InputCollection contents) throws IOException {
-        try (var reader = contents.getAsSingle().asBufferedReader()) {
+        var content = contents.getAsSingle();
+        byte[] bytes = content.bytes();
+        if (bytes != null) return process(new LineTokenizer(bytes, false));
+        try (var reader = content.asBufferedReader()) {
             String firstLine = reader.readLine();
             if (!firstLine.startsWith("tiny\t2\t0")) error();
             String[] namespaces = MappingUtils.split(firstLine, '\t', 9);
@@ -93,6 +97,83 @@ public enum TinyV2MappingProcessor implements MappingProcessor.Classified<Namesp
         }
     }
 
+    private static ClassifiedMapping<NamespacedMapping> process(LineTokenizer t) {
+        if (!t.nextLine() || !t.startsWith("tiny\t2\t0")) error();
+        t.split('\t', 9);
+        String[] namespaces = t.tokens();
+        var trait = new NamespacedTrait(namespaces);
+        trait.setUnmappedNamespace(namespaces[0]);
+        ClassifiedMapping<NamespacedMapping> mappings = new ClassifiedMapping<>(trait);
+        ClassMapping<NamespacedMapping> currentClass = null;
+        NamespacedMapping currentMember = null;
+        NamespacedMapping currentLocalVariable = null;
+        while (t.nextLine()) {
+            if (t.byteAt(0) == '\t') {
+                if (currentClass == null) {
+                    var props = mappings.getOrCreateTrait(PropertiesTrait.class, PropertiesTrait::new);
+                    if (t.split('\t', 1) == 2) props.setProperty(t.token(0), TinyUtil.unescape(t.rawString(t.start(1), t.end(1))));
+                    else props.addProperty(t.token(0));
+                    continue;
+                }
+                if (t.byteAt(1) == '\t') {
+                    if (t.byteAt(2) == '\t') {
+                        if (t.byteAt(3) == 'c') {
+                            currentLocalVariable.getComponent(Documented.class).setContentString(unescape(t, 5));
+                        } else error();
+                        continue;
+                    }
+                    currentLocalVariable = null;
+                    switch (t.byteAt(2)) {
+                        case 'c' -> currentMember.getComponent(Documented.class).setContentString(unescape(t, 4));
+                        case 'p' -> {
+                            t.split('\t', 4);
+                            String[] sa = t.tokens();
+                            currentLocalVariable = MappingUtils.Namespaced.d(namespaces, sa, 1);
+                            currentMember.getComponent(LocalVariableTable.Namespaced.class)
+                                    .setLocalVariable(t.parseInt(t.start(0), t.end(0)), currentLocalVariable);
+                        }
+                        default -> error();
+                    }
+                    continue;
+                }
+                currentMember = null;
+                switch (t.byteAt(1)) {
+                    case 'c' -> {
+                        t.split('\t', 3);
+                        currentClass.mapping.getComponent(Documented.class).setContentString(
+                                TinyUtil.unescape(t.rawString(t.start(0), t.end(0))));
+                    }
+                    case 'f' -> {
+                        t.split('\t', 3);
+                        String[] sa = t.tokens();
+                        currentMember = MappingUtils.Namespaced.dduo(namespaces, sa, 1, namespaces[0], sa[0]);
+                        currentClass.addField(currentMember);
+                    }
+                    case 'm' -> {
+                        t.split('\t', 3);
+                        String[] sa = t.tokens();
+                        currentMember = MappingUtils.Namespaced.dlduo(namespaces, sa, 1, namespaces[0], sa[0]);
+                        currentClass.addMethod(currentMember);
+                    }
+                    default -> error();
+                }
+                continue;
+            }
+            if (t.byteAt(0) == 'c') {
+                t.split('\t', 2);
+                ClassMapping<NamespacedMapping> classMapping = new ClassMapping<>(MappingUtils.Namespaced.d(namespaces, t.tokens()));
+                mappings.classes.add(classMapping);
+                currentClass = classMapping;
+            } else error();
+        }
+        mappings.updateCollection();
+        return mappings;
+    }
+
+    private static String unescape(LineTokenizer t, int beginIndex) {
+        return TinyUtil.unescape(t.rawString(Math.min(t.lineStart() + beginIndex, t.lineEnd()), t.lineEnd()));
+    }
+
     private static NamespacedMapping processTree(String[] namespaces, String s, ClassMapping<NamespacedMapping> classMapping) {
         String[] sa = MappingUtils.split(s, '\t', 3);
         switch (s.charAt(1)) {
@@ -24,6 +24,8 @@ import cn.maxpixel.mcdecompiler.mapping.collection.ClassifiedMapping;
 import cn.maxpixel.mcdecompiler.mapping.format.MappingFormat;
 import cn.maxpixel.mcdecompiler.mapping.format.MappingFormats;
 import cn.maxpixel.mcdecompiler.mapping.util.InputCollection;
+import cn.maxpixel.mcdecompiler.mapping.util.LineChunks;
+import cn.maxpixel.mcdecompiler.mapping.util.LineTokenizer;
 import cn.maxpixel.mcdecompiler.mapping.util.MappingUtils;
 
 import java.util.function.Consumer;
@@ -38,8 +40,24 @@ public enum TsrgV1MappingProcessor implements MappingProcessor.Classified<Paired
 
     @Override
     public ClassifiedMapping<PairedMapping> process(InputCollection contents) {
+        return process(contents, 1);
+    }
+
+    @Override
+    public ClassifiedMapping<PairedMapping> process(InputCollection contents, int parallelism) {
         ClassifiedMapping<PairedMapping> mappings = new ClassifiedMapping<>();
         for (var content : contents) {
+            byte[] bytes = content.bytes();
+            if (bytes != null) {
+                int[] bounds = LineChunks.split(bytes, parallelism, LineChunks.UNINDENTED);
+                if (bounds.length == 2) process(new LineTokenizer(bytes, true), mappings);
+                else LineChunks.parse(bytes, bounds, true, t -> {
+                    ClassifiedMapping<PairedMapping> chunk = new ClassifiedMapping<>();
+                    process(t, chunk);
+                    return chunk;
+                }).forEach(mappings::add);
+                continue;
+            }
             try (var lines = preprocess(content.lines().map(this::stripComments))) {
                 lines.forEach(new Consumer<>() {
                     private ClassMapping<PairedMapping> currentClass;
@@ -71,6 +89,29 @@ public enum TsrgV1MappingProcessor implements MappingProcessor.Classified<Paired
         return mappings;
     }
 
+    private static void process(LineTokenizer t, ClassifiedMapping<PairedMapping> mappings) {
+        ClassMapping<PairedMapping> currentClass = null;
+        while (t.nextLine()) {
+            if (t.byteAt(0) == '\t') {
+                switch (t.split(' ', 1)) {
+                    case 2 -> currentClass.addField(MappingUtils.Paired.o(t.token(0), t.token(1)));
+                    case 3 -> currentClass.addMethod(MappingUtils.Paired.duo(t.token(0), t.token(2), t.token(1)));
+                    default -> error();
+                }
+                continue;
+            }
+            if (t.split(' ') < 2) error();
+            int e0 = t.end(0);
+            if (t.get(e0 - 1) == '/') {
+                mappings.packages.add(new PairedMapping(t.string(t.start(0), e0 - 1), t.string(t.start(1), t.end(1) - 1)));
+            } else {
+                ClassMapping<PairedMapping> classMapping = new ClassMapping<>(new PairedMapping(t.token(0), t.token(1)));
+                mappings.classes.add(classMapping);
+                currentClass = classMapping;
+            }
+        }
+    }
+
     private static void error() {
         throw new IllegalArgumentException("Is this TSRG v1 mapping format?");
     }
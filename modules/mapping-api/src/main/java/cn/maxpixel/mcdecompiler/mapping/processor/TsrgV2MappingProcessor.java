@@ -27,6 +27,7 @@ import cn.maxpixel.mcdecompiler.mapping.format.MappingFormat;
 import cn.maxpixel.mcdecompiler.mapping.format.MappingFormats;
 import cn.maxpixel.mcdecompiler.mapping.trait.NamespacedTrait;
 import cn.maxpixel.mcdecompiler.mapping.util.InputCollection;
+import cn.maxpixel.mcdecompiler.mapping.util.LineTokenizer;
 import cn.maxpixel.mcdecompiler.mapping.util.MappingUtils;
 
 import java.io.IOException;
@@ -42,7 +43,10 @@ public enum TsrgV2MappingProcessor implements MappingProcessor.Classified<Namesp
 
     @Override
     public ClassifiedMapping<NamespacedMapping> process(InputCollection contents) throws IOException {
-        try (var reader = contents.getAsSingle().asBufferedReader()) {
+        var content = contents.getAsSingle();
+        byte[] bytes = content.bytes();
+        if (bytes != null) return process(new LineTokenizer(bytes, true));
+        try (var reader = content.asBufferedReader()) {
             String firstLine = getFirstLine(reader);
             if (!firstLine.startsWith("tsrg2")) error();
             String[] namespaces = MappingUtils.split(firstLine, ' ', 6);
@@ -66,7 +70,7 @@ public enum TsrgV2MappingProcessor implements MappingProcessor.Classified<Namesp
                                     .setLocalVariable(Integer.parseInt(sa[0]), new NamespacedMapping(namespaces, sa, 1));
                             return;
                         }
-                        currentMethod = processTree(namespaces, s, currentClass);
+                        currentMethod = processTree(namespaces, MappingUtils.split(s, ' ', 1), currentClass);
                         return;
                     }
                     String[] sa = MappingUtils.split(s, ' ');
@@ -85,8 +89,47 @@ public enum TsrgV2MappingProcessor implements MappingProcessor.Classified<Namesp
         }
     }
 
-    private static NamespacedMapping processTree(String[] namespaces, String s, ClassMapping<NamespacedMapping> classMapping) {
-        String[] sa = MappingUtils.split(s, ' ', 1);
+    private static ClassifiedMapping<NamespacedMapping> process(LineTokenizer t) {
+        if (!t.nextLine() || !t.startsWith("tsrg2")) error();
+        t.split(' ', 6);
+        String[] namespaces = t.tokens();
+        var trait = new NamespacedTrait(namespaces);
+        trait.setUnmappedNamespace(namespaces[0]);
+        ClassifiedMapping<NamespacedMapping> mappings = new ClassifiedMapping<>(trait);
+        ClassMapping<NamespacedMapping> currentClass = null;
+        NamespacedMapping currentMethod = null;
+        while (t.nextLine()) {
+            if (t.byteAt(0) == '\t') {
+                if (t.byteAt(1) == '\t') {
+                    if (t.regionEquals(t.lineStart(), t.lineEnd(), "\t\tstatic")) {
+                        currentMethod.getComponent(StaticIdentifiable.class).setStatic(true);
+                        continue;
+                    }
+                    t.split(' ', 2);
+                    currentMethod.getComponent(LocalVariableTable.Namespaced.class)
+                            .setLocalVariable(t.parseInt(t.start(0), t.end(0)), new NamespacedMapping(namespaces, t.tokens(), 1));
+                    continue;
+                }
+                t.split(' ', 1);
+                currentMethod = processTree(namespaces, t.tokens(), currentClass);
+                continue;
+            }
+            int n = t.split(' ');
+            if (t.get(t.end(0) - 1) == '/') {
+                String[] sa = new String[n];
+                for (int j = 0; j < n; j++) sa[j] = t.string(t.start(j), t.end(j) - 1);
+                mappings.packages.add(new NamespacedMapping(namespaces, sa));
+            } else {
+                ClassMapping<NamespacedMapping> classMapping = new ClassMapping<>(new NamespacedMapping(namespaces, t.tokens()));
+                mappings.classes.add(classMapping);
+                currentClass = classMapping;
+            }
+        }
+        mappings.updateCollection();
+        return mappings;
+    }
+
+    private static NamespacedMapping processTree(String[] namespaces, String[] sa, ClassMapping<NamespacedMapping> classMapping) {
         switch (sa.length - namespaces.length) {
             case 0 -> classMapping.addField(MappingUtils.Namespaced.o(namespaces, sa));
             case 1 -> {
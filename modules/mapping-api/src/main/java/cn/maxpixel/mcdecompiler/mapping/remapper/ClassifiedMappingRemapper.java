@@ -24,51 +24,284 @@ import cn.maxpixel.mcdecompiler.mapping.NamespacedMapping;
 import cn.maxpixel.mcdecompiler.mapping.collection.ClassMapping;
 import cn.maxpixel.mcdecompiler.mapping.collection.ClassifiedMapping;
 import cn.maxpixel.mcdecompiler.mapping.component.Descriptor;
+import cn.maxpixel.mcdecompiler.mapping.component.LocalVariableTable;
 import cn.maxpixel.mcdecompiler.mapping.component.StaticIdentifiable;
 import cn.maxpixel.mcdecompiler.mapping.trait.NamespacedTrait;
+import cn.maxpixel.mcdecompiler.utils.ExecutionContext;
 import cn.maxpixel.mcdecompiler.utils.Utils;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectList;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Remapper backed by a {@link ClassifiedMapping}.
+ * <p>
+ * Class names, member names and descriptors are interned into {@link SymbolTable}s when the remapper is built. Members
+ * are stored in flat arrays, and are looked up in open-addressing tables keyed by packed symbol ids. The methods taking
+ * strings translate them to ids and delegate to the ones taking ids.
+ * <p>
+ * The remapper never changes once built. It can be {@link #freeze() frozen} to compact the symbol tables and drop the
+ * references to the mappings.
+ * <p>
+ * The tables can be {@link #writeSnapshot written} as a snapshot, which can be {@link #mapSnapshot mapped} back into a
+ * remapper that reads them directly from the buffer.
+ */
 public class ClassifiedMappingRemapper implements MappingRemapper {
-    private final Object2ObjectOpenHashMap<String, ? extends Object2ObjectOpenHashMap<String, ? extends Mapping>> fieldByUnm;
-    private final Object2ObjectOpenHashMap<String, ? extends Object2ObjectOpenHashMap<String,
-            ? extends Object2ObjectOpenHashMap<String, ? extends Mapping>>> methodsByUnm;
-    private final Object2ObjectOpenHashMap<String, ? extends ClassMapping<? extends Mapping>> mappingByUnm;
-    private final Object2ObjectOpenHashMap<String, ? extends ClassMapping<? extends Mapping>> mappingByMap;
+    private static final int SNAPSHOT_MAGIC = 0x5244434D;// "MCDR"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER_SIZE = 24;
+
     private final DescriptorRemapper descriptorRemapper;
     private boolean methodStaticIdentifiable;
+    private boolean frozen;
+
+    private final SymbolTable classSymbols;
+    // Mapped names of the classes, with the same ids as the ones of their unmapped names
+    private final SymbolTable mappedClassSymbols;
+    private final SymbolTable memberSymbols;
+    private final SymbolTable mappedMemberSymbols;
+    private final SymbolTable descSymbols;
+    // Class id -> class mapping. Only the ones with local variable names are kept after freezing. Null if mapped from a snapshot
+    private final ClassMapping<? extends Mapping>[] classes;
+    // The fields of the class with id i are at [fieldStart[i], fieldStart[i + 1]). The mapped names are ids in mappedMemberSymbols
+    private final IntBuffer fieldStart;
+    private final IntBuffer fieldNames;
+    private final IntBuffer fieldMapped;
+    // (owner id, name id) -> field index
+    private final LongIntTable fieldIndex;
+    // The methods of the class with id i are at [methodStart[i], methodStart[i + 1]). Methods with the same name are adjacent
+    private final IntBuffer methodStart;
+    private final IntBuffer methodNames;
+    private final IntBuffer methodDescs;
+    private final IntBuffer methodMapped;
+    // (owner id, name id) -> index of the first method with the name
+    private final LongIntTable methodGroups;
+    // (index of the first method with the name, descriptor id) -> method index
+    private final LongIntTable methodIndex;
 
+    /**
+     * Builds the remapper. Class names are interned first, then the members of each class are indexed in one parallel
+     * pass, in which each task only writes its own result. The results are merged into the tables in the order of the
+     * classes, so the ids are the same no matter how the pass is scheduled.
+     */
+    @SuppressWarnings("unchecked")
     public ClassifiedMappingRemapper(ClassifiedMapping<?> mappings) {
-        this.fieldByUnm = genFieldsByUnmappedNameMap(mappings.classes);
-        this.mappingByUnm = genMappingsByUnmappedNameMap(mappings.classes);
-        this.mappingByMap = genMappingsByMappedNameMap(mappings.classes);
-        this.descriptorRemapper = new DescriptorRemapper(mappingByUnm, mappingByMap);
+        int classCount = mappings.classes.size(), fieldCount = 0, methodCount = 0;
+        this.classSymbols = new SymbolTable(classCount);
+        this.mappedClassSymbols = new SymbolTable(classCount);
+        this.classes = new ClassMapping<?>[classCount];
+        for (int c = 0; c < classCount; c++) {
+            ClassMapping<? extends Mapping> cm = mappings.classes.get(c);
+            String unmapped = cm.mapping.getUnmappedName();
+            String mapped = cm.mapping.getMappedName();
+            if (classSymbols.intern(unmapped) != c) throw new IllegalArgumentException("Class duplicated: " + unmapped);
+            if (mappedClassSymbols.intern(mapped) != c) throw new IllegalArgumentException("Class duplicated: " + mapped);
+            classes[c] = cm;
+            fieldCount += cm.getFields().size();
+            methodCount += cm.getMethods().size();
+        }
+        this.descriptorRemapper = new SymbolDescriptorRemapper();
         var namespaced = mappings.getTrait(NamespacedTrait.class);
-        var remapperMap = namespaced != null ? new Object2ObjectOpenHashMap<String, UniDescriptorRemapper>() : null;
-        this.methodsByUnm = mappings.classes.parallelStream().collect(Collectors.toMap(cm -> cm.mapping.getUnmappedName(), cm -> {
-            Object2ObjectOpenHashMap<String, Object2ObjectOpenHashMap<String, Mapping>> map =
-                    new Object2ObjectOpenHashMap<>();
-            for (Mapping mm : cm.getMethods()) {
-                var m = map.computeIfAbsent(mm.getUnmappedName(), k -> new Object2ObjectOpenHashMap<>());
-                if (!methodStaticIdentifiable && mm.hasComponent(StaticIdentifiable.class)) methodStaticIdentifiable = true;
-                if (m.putIfAbsent(namespaced == null ? getUnmappedDesc(mm) : getUnmappedDesc(mm, namespaced.getUnmappedNamespace(),
-                        remapperMap, (ClassifiedMapping<NamespacedMapping>) mappings), mm) != null) {
+        ConcurrentHashMap<String, UniDescriptorRemapper> remappers = new ConcurrentHashMap<>();
+        ClassIndex[] indexes = ExecutionContext.current().invoke(() -> mappings.classes.parallelStream()
+                .map(cm -> new ClassIndex(cm, namespaced, remappers)).toArray(ClassIndex[]::new));
+
+        this.memberSymbols = new SymbolTable(fieldCount + methodCount);
+        this.mappedMemberSymbols = new SymbolTable(fieldCount + methodCount);
+        this.descSymbols = new SymbolTable(methodCount);
+        int[] fieldStart = new int[classCount + 1];
+        int[] fieldNames = new int[fieldCount];
+        int[] fieldMapped = new int[fieldCount];
+        this.fieldIndex = new LongIntTable(fieldCount);
+        int[] methodStart = new int[classCount + 1];
+        int[] methodNames = new int[methodCount];
+        int[] methodDescs = new int[methodCount];
+        int[] methodMapped = new int[methodCount];
+        this.methodGroups = new LongIntTable(methodCount);
+        this.methodIndex = new LongIntTable(methodCount);
+        int f = 0, m = 0;
+        for (int owner = 0; owner < classCount; owner++) {
+            ClassIndex index = indexes[owner];
+            indexes[owner] = null;
+            if (index.staticIdentifiable) this.methodStaticIdentifiable = true;
+            fieldStart[owner] = f;
+            for (int i = 0; i < index.fieldNames.length; i++) {
+                int name = memberSymbols.intern(index.fieldNames[i]);
+                if (fieldIndex.putIfAbsent(SymbolTable.pack(owner, name), f) != SymbolTable.ABSENT) {
+                    throw new IllegalArgumentException("Field duplicated... This should not happen!");
+                }
+                fieldNames[f] = name;
+                fieldMapped[f++] = mappedMemberSymbols.intern(index.fieldMapped[i]);
+            }
+            methodStart[owner] = m;
+            for (int i = 0; i < index.methodNames.length; i++) {
+                int name = memberSymbols.intern(index.methodNames[i]);
+                int desc = descSymbols.intern(index.methodDescs[i]);
+                int group = methodGroups.putIfAbsent(SymbolTable.pack(owner, name), m);
+                if (methodIndex.putIfAbsent(SymbolTable.pack(group == SymbolTable.ABSENT ? m : group, desc), m) != SymbolTable.ABSENT) {
                     throw new IllegalArgumentException("Method duplicated... This should not happen!");
                 }
+                methodNames[m] = name;
+                methodDescs[m] = desc;
+                methodMapped[m++] = mappedMemberSymbols.intern(index.methodMapped[i]);
             }
-            return map;
-        }, Utils::onKeyDuplicate, Object2ObjectOpenHashMap::new));
+        }
+        fieldStart[classCount] = f;
+        methodStart[classCount] = m;
+        this.fieldStart = IntBuffer.wrap(fieldStart);
+        this.fieldNames = IntBuffer.wrap(fieldNames);
+        this.fieldMapped = IntBuffer.wrap(fieldMapped);
+        this.methodStart = IntBuffer.wrap(methodStart);
+        this.methodNames = IntBuffer.wrap(methodNames);
+        this.methodDescs = IntBuffer.wrap(methodDescs);
+        this.methodMapped = IntBuffer.wrap(methodMapped);
+        classSymbols.trim();
+        mappedClassSymbols.trim();
+        memberSymbols.trim();
+        mappedMemberSymbols.trim();
+        descSymbols.trim();
+    }
+
+    private ClassifiedMappingRemapper(ByteBuffer in, int flags) {
+        this.methodStaticIdentifiable = (flags & 1) != 0;
+        this.frozen = true;
+        this.classes = null;
+        this.classSymbols = SymbolTable.map(in);
+        this.mappedClassSymbols = SymbolTable.map(in);
+        this.memberSymbols = SymbolTable.map(in);
+        this.mappedMemberSymbols = SymbolTable.map(in);
+        this.descSymbols = SymbolTable.map(in);
+        this.fieldStart = mapInts(in);
+        this.fieldNames = mapInts(in);
+        this.fieldMapped = mapInts(in);
+        this.fieldIndex = LongIntTable.map(in);
+        this.methodStart = mapInts(in);
+        this.methodNames = mapInts(in);
+        this.methodDescs = mapInts(in);
+        this.methodMapped = mapInts(in);
+        this.methodGroups = LongIntTable.map(in);
+        this.methodIndex = LongIntTable.map(in);
+        this.descriptorRemapper = new SymbolDescriptorRemapper();
+        int classCount = classSymbols.size();
+        if (mappedClassSymbols.size() != classCount || fieldStart.capacity() != classCount + 1 || methodStart.capacity() != classCount + 1 ||
+                fieldNames.capacity() != fieldMapped.capacity() || methodNames.capacity() != methodDescs.capacity() ||
+                methodNames.capacity() != methodMapped.capacity() || in.hasRemaining()) {
+            throw new IllegalArgumentException("Corrupted remapper snapshot");
+        }
+    }
+
+    /**
+     * Maps a snapshot written by {@link #writeSnapshot}. Nothing is parsed or copied: the returned remapper reads the
+     * tables from the buffer, and only creates the strings it returns. Usually the buffer is memory-mapped from a file.
+     * <p>
+     * The returned remapper is {@link #isFrozen() frozen}, and has no class mappings.
+     * @param snapshot The snapshot. Its position and byte order are not changed
+     * @throws IllegalArgumentException If the buffer is not a valid snapshot
+     */
+    public static ClassifiedMappingRemapper mapSnapshot(@NotNull ByteBuffer snapshot) {
+        ByteBuffer in = snapshot.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < SNAPSHOT_HEADER_SIZE || in.getInt() != SNAPSHOT_MAGIC) throw new IllegalArgumentException("Not a remapper snapshot");
+        if (in.getInt() != SNAPSHOT_VERSION) throw new IllegalArgumentException("Unsupported remapper snapshot version");
+        int flags = in.getInt();
+        in.getInt();
+        if (in.getLong() != in.capacity()) throw new IllegalArgumentException("Truncated remapper snapshot");
+        try {
+            return new ClassifiedMappingRemapper(in, flags);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IllegalArgumentException("Corrupted remapper snapshot", e);
+        }
+    }
+
+    /**
+     * Writes a snapshot of this remapper, which can be {@link #mapSnapshot mapped} back later without building the
+     * remapper again. Only what remapping needs is written, the class mappings and local variable names are not.
+     * <p>
+     * This remapper is {@link #freeze() frozen} first.
+     * @throws IllegalStateException If this remapper is mapped from a snapshot
+     */
+    public void writeSnapshot(@NotNull WritableByteChannel channel) throws IOException {
+        if (classes == null) throw new IllegalStateException("The remapper is already a snapshot");
+        freeze();
+        ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer[] sections = {
+                header, classSymbols.write(), mappedClassSymbols.write(), memberSymbols.write(), mappedMemberSymbols.write(),
+                descSymbols.write(), writeInts(fieldStart), writeInts(fieldNames), writeInts(fieldMapped), fieldIndex.write(),
+                writeInts(methodStart), writeInts(methodNames), writeInts(methodDescs), writeInts(methodMapped),
+                methodGroups.write(), methodIndex.write()
+        };
+        long size = 0L;
+        for (ByteBuffer section : sections) size += section.remaining();
+        header.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(methodStaticIdentifiable ? 1 : 0).putInt(0).putLong(size).flip();
+        for (ByteBuffer section : sections) {
+            while (section.hasRemaining()) channel.write(section);
+        }
+    }
+
+    private static ByteBuffer writeInts(IntBuffer ints) {
+        int length = ints.capacity();
+        ByteBuffer out = ByteBuffer.allocate((8 + length * 4 + 7) & -8).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(length).putInt(0);
+        out.asIntBuffer().put(ints.duplicate().clear());
+        return out.position(0);
+    }
+
+    private static IntBuffer mapInts(ByteBuffer in) {
+        int length = in.getInt();
+        in.getInt();
+        if (length < 0) throw new IllegalArgumentException("Corrupted remapper snapshot");
+        IntBuffer ints = in.slice(in.position(), length * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        in.position((in.position() + length * 4 + 7) & -8);
+        return ints;
+    }
+
+    /**
+     * Freezes the symbol tables into compact open-addressing arrays, and drops the references to the class mappings
+     * except the ones that have local variable names, so that the rest of the mappings can be garbage collected.
+     * <p>
+     * Remapping is not affected, but {@link #getClassMappingUnmapped} returns null for the dropped classes afterwards.
+     */
+    public synchronized void freeze() {
+        if (frozen) return;
+        classSymbols.freeze();
+        mappedClassSymbols.freeze();
+        memberSymbols.freeze();
+        mappedMemberSymbols.freeze();
+        descSymbols.freeze();
+        for (int i = 0; i < classes.length; i++) {
+            if (!hasLocalVariables(classes[i])) classes[i] = null;
+        }
+        this.frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private static boolean hasLocalVariables(ClassMapping<? extends Mapping> cm) {
+        for (Mapping m : cm.getMethods()) {
+            LocalVariableTable<?> lvt = m.peekComponent(LocalVariableTable.Paired.class);// Lazily added tables are empty
+            if (lvt == null) lvt = m.peekComponent(LocalVariableTable.Namespaced.class);
+            if (lvt != null && !lvt.isEmpty()) return true;
+        }
+        return false;
     }
 
     @Override
     public boolean hasClassMapping(String name) {
-        return mappingByUnm.containsKey(name);
+        return classSymbols.getId(name) != SymbolTable.ABSENT;
     }
 
     @Override
@@ -78,44 +311,77 @@ public class ClassifiedMappingRemapper implements MappingRemapper {
 
     @Override
     public @Nullable("When no corresponding mapping found") String mapClass(@NotNull String name) {
-        ClassMapping<? extends Mapping> classMapping = mappingByUnm.get(name);
-        if (classMapping != null) return classMapping.mapping.getMappedName();
-        return null;
+        int id = classSymbols.getId(name);
+        return id == SymbolTable.ABSENT ? null : mappedClassSymbols.get(id);
     }
 
     @Override
     public @Nullable("When no corresponding mapping found") String unmapClass(@NotNull String name) {
-        ClassMapping<? extends Mapping> classMapping = mappingByMap.get(name);
-        if (classMapping != null) return classMapping.mapping.getUnmappedName();
-        return null;
+        int id = mappedClassSymbols.getId(name);
+        return id == SymbolTable.ABSENT ? null : classSymbols.get(id);
     }
 
     @Override
     public @Nullable("When no corresponding mapping found") String mapField(@NotNull String owner, @NotNull String name) {
-        var fields = fieldByUnm.get(owner);
-        if (fields != null) {
-            var mapping = fields.get(name);
-            if (mapping != null) return mapping.getMappedName();
-        }
-        return null;
+        int o = classSymbols.getId(owner);
+        if (o == SymbolTable.ABSENT) return null;
+        int n = memberSymbols.getId(name);
+        return n == SymbolTable.ABSENT ? null : mapField(o, n);
+    }
+
+    /**
+     * @param owner Id of the owner in {@link #getClassSymbols()}
+     * @param name Id of the name in {@link #getMemberSymbols()}
+     */
+    public @Nullable("When no corresponding mapping found") String mapField(int owner, int name) {
+        int i = fieldIndex.get(SymbolTable.pack(owner, name));
+        return i == SymbolTable.ABSENT ? null : mappedMemberSymbols.get(fieldMapped.get(i));
     }
 
     @Override
     public @Nullable("When no corresponding mapping found") String mapMethod(@NotNull String owner, @NotNull String name,
                                      @Nullable("When desc doesn't matter") String desc) {
-        var methods = methodsByUnm.get(owner);
-        if (methods != null) {
-            var mappings = methods.get(name);
-            if (mappings != null) {
-                if (desc == null) {
-                    if (!mappings.isEmpty()) return mappings.values().iterator().next().getMappedName();
-                } else {
-                    var mapping = mappings.get(desc);
-                    if (mapping != null) return mapping.getMappedName();
-                }
-            }
-        }
-        return null;
+        int o = classSymbols.getId(owner);
+        if (o == SymbolTable.ABSENT) return null;
+        int n = memberSymbols.getId(name);
+        if (n == SymbolTable.ABSENT) return null;
+        if (desc == null) return mapMethod(o, n, SymbolTable.ABSENT);
+        int d = descSymbols.getId(desc);
+        return d == SymbolTable.ABSENT ? null : mapMethod(o, n, d);
+    }
+
+    /**
+     * @param owner Id of the owner in {@link #getClassSymbols()}
+     * @param name Id of the name in {@link #getMemberSymbols()}
+     * @param desc Id of the descriptor in {@link #getDescriptorSymbols()}, or {@link SymbolTable#ABSENT} when desc doesn't matter
+     */
+    public @Nullable("When no corresponding mapping found") String mapMethod(int owner, int name, int desc) {
+        int group = methodGroups.get(SymbolTable.pack(owner, name));
+        if (group == SymbolTable.ABSENT) return null;
+        if (desc == SymbolTable.ABSENT) return mappedMemberSymbols.get(methodMapped.get(group));
+        int i = methodIndex.get(SymbolTable.pack(group, desc));
+        return i == SymbolTable.ABSENT ? null : mappedMemberSymbols.get(methodMapped.get(i));
+    }
+
+    /**
+     * @return Symbols of the unmapped names of the classes. The id of a class is its index in the mappings
+     */
+    public SymbolTable getClassSymbols() {
+        return classSymbols;
+    }
+
+    /**
+     * @return Symbols of the unmapped names of the fields and methods
+     */
+    public SymbolTable getMemberSymbols() {
+        return memberSymbols;
+    }
+
+    /**
+     * @return Symbols of the unmapped descriptors of the methods
+     */
+    public SymbolTable getDescriptorSymbols() {
+        return descSymbols;
     }
 
     @Override
@@ -123,8 +389,39 @@ public class ClassifiedMappingRemapper implements MappingRemapper {
         return descriptorRemapper;
     }
 
-    public ClassMapping<? extends Mapping> getClassMappingUnmapped(@NotNull String name) {
-        return mappingByUnm.get(name);
+    /**
+     * @return The class mapping, or null if not found. After {@link #freeze() freezing}, only the ones that have local
+     *         variable names are returned
+     */
+    public @Nullable ClassMapping<? extends Mapping> getClassMappingUnmapped(@NotNull String name) {
+        int id = classSymbols.getId(name);
+        return id == SymbolTable.ABSENT || classes == null ? null : classes[id];
+    }
+
+    /**
+     * Iterates the mapped methods of a class.
+     * @param owner The unmapped name of the class
+     * @param action Accepts the unmapped name, the unmapped descriptor and the mapped name of each method
+     */
+    public void forEachMethod(@NotNull String owner, @NotNull MethodConsumer action) {
+        int o = classSymbols.getId(owner);
+        if (o == SymbolTable.ABSENT) return;
+        for (int i = methodStart.get(o), end = methodStart.get(o + 1); i < end; i++) {
+            action.accept(memberSymbols.get(methodNames.get(i)), descSymbols.get(methodDescs.get(i)), mappedMemberSymbols.get(methodMapped.get(i)));
+        }
+    }
+
+    /**
+     * Iterates the mapped fields of a class.
+     * @param owner The unmapped name of the class
+     * @param action Accepts the unmapped name and the mapped name of each field
+     */
+    public void forEachField(@NotNull String owner, @NotNull BiConsumer<String, String> action) {
+        int o = classSymbols.getId(owner);
+        if (o == SymbolTable.ABSENT) return;
+        for (int i = fieldStart.get(o), end = fieldStart.get(o + 1); i < end; i++) {
+            action.accept(memberSymbols.get(fieldNames.get(i)), mappedMemberSymbols.get(fieldMapped.get(i)));
+        }
     }
 
     public String getUnmappedDesc(Mapping mapping) {
@@ -145,28 +442,126 @@ public class ClassifiedMappingRemapper implements MappingRemapper {
 
     public static <T extends Mapping> Object2ObjectOpenHashMap<String, Object2ObjectOpenHashMap<String, T>> genFieldsByUnmappedNameMap(
             ObjectList<ClassMapping<T>> mapping) {
-        return mapping.parallelStream().collect(Collectors.toMap(
+        return ExecutionContext.current().invoke(() -> mapping.parallelStream().collect(Collectors.toMap(
                 cm -> cm.mapping.getUnmappedName(),
                 cm -> cm.getFields().parallelStream().collect(Collectors.toMap(NameGetter::getUnmappedName, Function.identity(),
                         Utils::onKeyDuplicate, Object2ObjectOpenHashMap::new)),
-                Utils::onKeyDuplicate, Object2ObjectOpenHashMap::new));
+                Utils::onKeyDuplicate, Object2ObjectOpenHashMap::new)));
     }
 
     public static <T extends Mapping> Object2ObjectOpenHashMap<String, ClassMapping<T>> genMappingsByUnmappedNameMap(
             ObjectList<ClassMapping<T>> mapping) {
-        return mapping.parallelStream().collect(Collectors.toMap(cm -> cm.mapping.getUnmappedName(),
-                Function.identity(), Utils::onKeyDuplicate, Object2ObjectOpenHashMap::new));
+        return ExecutionContext.current().invoke(() -> mapping.parallelStream().collect(Collectors.toMap(cm -> cm.mapping.getUnmappedName(),
+                Function.identity(), Utils::onKeyDuplicate, Object2ObjectOpenHashMap::new)));
     }
 
     public static <T extends Mapping> Object2ObjectOpenHashMap<String, ClassMapping<T>> genMappingsByMappedNameMap(
             ObjectList<ClassMapping<T>> mapping) {
-        return mapping.parallelStream().collect(Collectors.toMap(cm -> cm.mapping.getMappedName(),
-                Function.identity(), Utils::onKeyDuplicate, Object2ObjectOpenHashMap::new));
+        return ExecutionContext.current().invoke(() -> mapping.parallelStream().collect(Collectors.toMap(cm -> cm.mapping.getMappedName(),
+                Function.identity(), Utils::onKeyDuplicate, Object2ObjectOpenHashMap::new)));
     }
 
     public static Object2ObjectOpenHashMap<String, ClassMapping<NamespacedMapping>> genMappingsByNamespaceMap(
             ObjectList<ClassMapping<NamespacedMapping>> mapping, String namespace) {
-        return mapping.parallelStream().collect(Collectors.toMap(m -> m.mapping.getName(namespace),
-                Function.identity(), Utils::onKeyDuplicate, Object2ObjectOpenHashMap::new));
+        return ExecutionContext.current().invoke(() -> mapping.parallelStream().collect(Collectors.toMap(m -> m.mapping.getName(namespace),
+                Function.identity(), Utils::onKeyDuplicate, Object2ObjectOpenHashMap::new)));
+    }
+
+    /**
+     * The members of a class, with the methods sorted by name so that the ones with the same name are adjacent
+     */
+    private final class ClassIndex {
+        private final String[] fieldNames;
+        private final String[] fieldMapped;
+        private final String[] methodNames;
+        private final String[] methodDescs;
+        private final String[] methodMapped;
+        private boolean staticIdentifiable;
+
+        @SuppressWarnings("unchecked")
+        private ClassIndex(ClassMapping<? extends Mapping> cm, @Nullable NamespacedTrait namespaced,
+                           ConcurrentHashMap<String, UniDescriptorRemapper> remappers) {
+            ObjectList<? extends Mapping> fields = cm.getFields();
+            this.fieldNames = new String[fields.size()];
+            this.fieldMapped = new String[fieldNames.length];
+            for (int i = 0; i < fieldNames.length; i++) {
+                Mapping fm = fields.get(i);
+                fieldNames[i] = fm.getUnmappedName();
+                fieldMapped[i] = fm.getMappedName();
+            }
+            ObjectList<? extends Mapping> methods = cm.getMethods();
+            int count = methods.size();
+            String[] names = new String[count];
+            int[] order = new int[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = methods.get(i).getUnmappedName();
+                order[i] = i;
+            }
+            IntArrays.mergeSort(order, (a, b) -> names[a].compareTo(names[b]));
+            this.methodNames = new String[count];
+            this.methodDescs = new String[count];
+            this.methodMapped = new String[count];
+            for (int i = 0; i < count; i++) {
+                Mapping mm = methods.get(order[i]);
+                methodNames[i] = names[order[i]];
+                methodMapped[i] = mm.getMappedName();
+                if (!staticIdentifiable && mm.hasComponent(StaticIdentifiable.class)) staticIdentifiable = true;
+                methodDescs[i] = namespaced == null ? getUnmappedDesc(mm) : getUnmappedDesc((NamespacedMapping) mm,
+                        namespaced.getUnmappedNamespace(), remappers);
+            }
+        }
+    }
+
+    private String getUnmappedDesc(NamespacedMapping mapping, String unmappedNamespace, ConcurrentHashMap<String, UniDescriptorRemapper> remappers) {
+        var desc = mapping.getComponent(Descriptor.Namespaced.class);
+        if (desc != null) return unmappedNamespace.equals(desc.descriptorNamespace) ? desc.descriptor : remappers
+                .computeIfAbsent(desc.descriptorNamespace, NamespaceDescriptorRemapper::new)
+                .unmapMethodDesc(desc.descriptor);
+        else throw new IllegalArgumentException("Mapping for methods must support at least one of the descriptor components");
+    }
+
+    /**
+     * Unmaps descriptors in another namespace. The names of the classes in that namespace share ids with the unmapped names
+     */
+    private final class NamespaceDescriptorRemapper extends UniDescriptorRemapper {
+        private final SymbolTable names;
+
+        @SuppressWarnings("unchecked")
+        private NamespaceDescriptorRemapper(String namespace) {
+            this.names = new SymbolTable(classes.length);
+            for (int c = 0; c < classes.length; c++) {
+                String name = ((ClassMapping<NamespacedMapping>) classes[c]).mapping.getName(namespace);
+                if (names.intern(name) != c) throw new IllegalArgumentException("Class duplicated: " + name);
+            }
+        }
+
+        @Override
+        protected String mapClass(@NotNull String name) {
+            int id = classSymbols.getId(name);
+            return id == SymbolTable.ABSENT ? name : names.get(id);
+        }
+
+        @Override
+        protected String unmapClass(@NotNull String name) {
+            int id = names.getId(name);
+            return id == SymbolTable.ABSENT ? name : classSymbols.get(id);
+        }
+    }
+
+    private final class SymbolDescriptorRemapper extends DescriptorRemapper {
+        @Override
+        protected String mapClass(@NotNull String name) {
+            return mapClassOrDefault(name);
+        }
+
+        @Override
+        protected String unmapClass(@NotNull String name) {
+            return unmapClassOrDefault(name);
+        }
+    }
+
+    @FunctionalInterface
+    public interface MethodConsumer {
+        void accept(String name, String descriptor, String mappedName);
     }
 }
\ No newline at end of file
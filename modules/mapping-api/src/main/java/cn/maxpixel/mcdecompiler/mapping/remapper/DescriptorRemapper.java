@@ -38,6 +38,13 @@ public class DescriptorRemapper extends UniDescriptorRemapper {
         this.mappingByMap = mappingByMap;
     }
 
+    /**
+     * For subclasses that override {@link #mapClass} and {@link #unmapClass}
+     */
+    protected DescriptorRemapper() {
+        this.mappingByMap = null;
+    }
+
     public DescriptorRemapper(ClassifiedMapping<?> collection) {
         this(ClassifiedMappingRemapper.genMappingsByUnmappedNameMap(collection.classes),
                 ClassifiedMappingRemapper.genMappingsByMappedNameMap(collection.classes));
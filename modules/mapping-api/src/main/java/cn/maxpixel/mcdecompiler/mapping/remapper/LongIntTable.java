@@ -0,0 +1,117 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.mapping.remapper;
+
+import it.unimi.dsi.fastutil.HashCommon;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * An open-addressing map from longs to non-negative ints with a fixed capacity. Each key is stored next to its value,
+ * so a lookup usually touches a single cache line.
+ * <p>
+ * Entries can only be added, and only when the table is being built. A built table can be {@link #write written} to a
+ * buffer and {@link #map mapped} back from it without copying.
+ */
+final class LongIntTable {
+    // slots[2i]: key, slots[2i + 1]: value + 1, or 0 if the slot is empty
+    private final long[] slots;
+    // The slots of a mapped table
+    private final LongBuffer mapped;
+    private final int mask;
+
+    /**
+     * @param expected The max number of entries
+     */
+    LongIntTable(int expected) {
+        int capacity = HashCommon.arraySize(Math.max(expected, 1), .5f);
+        this.slots = new long[capacity << 1];
+        this.mapped = null;
+        this.mask = capacity - 1;
+    }
+
+    private LongIntTable(LongBuffer mapped) {
+        this.slots = null;
+        this.mapped = mapped;
+        this.mask = (mapped.capacity() >> 1) - 1;
+    }
+
+    /**
+     * @return The value of the key, or {@link SymbolTable#ABSENT} if the key is not in the table
+     */
+    int get(long key) {
+        int i = (int) HashCommon.mix(key) & mask;
+        long value;
+        if (slots != null) {
+            while ((value = slots[(i << 1) + 1]) != 0L) {
+                if (slots[i << 1] == key) return (int) value - 1;
+                i = (i + 1) & mask;
+            }
+        } else {
+            while ((value = mapped.get((i << 1) + 1)) != 0L) {
+                if (mapped.get(i << 1) == key) return (int) value - 1;
+                i = (i + 1) & mask;
+            }
+        }
+        return SymbolTable.ABSENT;
+    }
+
+    /**
+     * @return The previous value of the key, or {@link SymbolTable#ABSENT} if the value is put
+     */
+    int putIfAbsent(long key, int value) {
+        if (slots == null) throw new IllegalStateException("Mapped tables are read-only");
+        if (value < 0) throw new IllegalArgumentException("Value must not be negative");
+        int i = (int) HashCommon.mix(key) & mask;
+        long v;
+        while ((v = slots[(i << 1) + 1]) != 0L) {
+            if (slots[i << 1] == key) return (int) v - 1;
+            i = (i + 1) & mask;
+        }
+        slots[i << 1] = key;
+        slots[(i << 1) + 1] = value + 1L;
+        return SymbolTable.ABSENT;
+    }
+
+    /**
+     * @return A little-endian buffer ready to be written: the capacity followed by the slots
+     */
+    ByteBuffer write() {
+        if (slots == null) throw new IllegalStateException("Mapped tables cannot be written");
+        ByteBuffer out = ByteBuffer.allocate(8 + slots.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(mask + 1).putInt(0);
+        out.asLongBuffer().put(slots);
+        return out.position(0);
+    }
+
+    /**
+     * @param in A little-endian buffer positioned at the table. It is positioned after the table when returned
+     */
+    static LongIntTable map(ByteBuffer in) {
+        int capacity = in.getInt();
+        in.getInt();
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0) throw new IllegalArgumentException("Invalid table");
+        int length = capacity << 4;
+        LongIntTable table = new LongIntTable(in.slice(in.position(), length).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer());
+        in.position(in.position() + length);
+        return table;
+    }
+}
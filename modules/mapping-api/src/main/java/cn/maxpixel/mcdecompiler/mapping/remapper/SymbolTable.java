@@ -0,0 +1,246 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.mapping.remapper;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Assigns dense int ids to strings, starting from 0 in the order they are interned.
+ * <p>
+ * Two ids can be packed into one long with {@link #pack(int, int)}, so that a pair of symbols can be used as a key of
+ * a primitive map.
+ * <p>
+ * A table can be {@link #freeze() frozen} when no more symbols will be interned. The symbols are then moved into an
+ * open-addressing array, and the hash map used for interning is dropped.
+ * <p>
+ * A frozen table can be {@link #write written} to a buffer, and {@link #map mapped} back from it. A mapped table reads
+ * the symbols directly from the buffer and only creates the strings when they are requested.
+ */
+public final class SymbolTable {
+    public static final int ABSENT = -1;
+
+    private Object2IntOpenHashMap<String> ids;
+    private ObjectArrayList<String> symbols;
+    private String[] frozenSymbols;
+    // Open-addressing table of the ids of the symbols, ABSENT if the slot is empty
+    private int[] frozenIds;
+    private int mask;
+    // Mapped: symbol i is pool[offsets[i], offsets[i + 1]), in chars, encoded in Latin-1 or UTF-16
+    private IntBuffer mappedOffsets;
+    private IntBuffer mappedIds;
+    private ByteBuffer mappedPool;
+    private boolean latin1;
+    // Strings of the mapped symbols that have been requested
+    private String[] decoded;
+
+    public SymbolTable() {
+        this(16);
+    }
+
+    public SymbolTable(int expected) {
+        this.ids = new Object2IntOpenHashMap<>(expected);
+        this.symbols = new ObjectArrayList<>(expected);
+        ids.defaultReturnValue(ABSENT);
+    }
+
+    private SymbolTable(IntBuffer offsets, IntBuffer ids, ByteBuffer pool, boolean latin1) {
+        this.mappedOffsets = offsets;
+        this.mappedIds = ids;
+        this.mappedPool = pool;
+        this.latin1 = latin1;
+        this.mask = ids.capacity() - 1;
+        this.decoded = new String[offsets.capacity() - 1];
+    }
+
+    /**
+     * @return The id of the symbol. A new id is assigned if the symbol is not interned yet
+     * @throws IllegalStateException If the table is frozen
+     */
+    public int intern(@NotNull String symbol) {
+        if (ids == null) throw new IllegalStateException("The symbol table is frozen");
+        int id = symbols.size();
+        int prev = ids.putIfAbsent(symbol, id);
+        if (prev != ABSENT) return prev;
+        symbols.add(symbol);
+        return id;
+    }
+
+    /**
+     * @return The id of the symbol, or {@link #ABSENT} if the symbol is not interned
+     */
+    public int getId(@NotNull String symbol) {
+        if (ids != null) return ids.getInt(symbol);
+        int i = HashCommon.mix(symbol.hashCode()) & mask;
+        int id;
+        if (frozenIds != null) {
+            while ((id = frozenIds[i]) != ABSENT) {
+                if (symbol.equals(frozenSymbols[id])) return id;
+                i = (i + 1) & mask;
+            }
+        } else {
+            while ((id = mappedIds.get(i)) != ABSENT) {
+                if (matches(id, symbol)) return id;
+                i = (i + 1) & mask;
+            }
+        }
+        return ABSENT;
+    }
+
+    public String get(int id) {
+        if (ids != null) return symbols.get(id);
+        if (frozenSymbols != null) return frozenSymbols[id];
+        String s = decoded[id];
+        if (s == null) decoded[id] = s = decode(id);// Racy but harmless, the strings are equal
+        return s;
+    }
+
+    public int size() {
+        if (ids != null) return symbols.size();
+        return frozenSymbols != null ? frozenSymbols.length : decoded.length;
+    }
+
+    public void trim() {
+        if (ids != null) {
+            ids.trim();
+            symbols.trim();
+        }
+    }
+
+    /**
+     * Freezes this table. No more symbols can be interned after this
+     */
+    public void freeze() {
+        if (ids == null) return;
+        String[] symbols = this.symbols.toArray(new String[0]);
+        int[] table = hashTable(symbols);
+        this.frozenSymbols = symbols;
+        this.frozenIds = table;
+        this.mask = table.length - 1;
+        this.ids = null;
+        this.symbols = null;
+    }
+
+    private static int[] hashTable(String[] symbols) {
+        int capacity = HashCommon.arraySize(Math.max(symbols.length, 1), .5f);
+        int[] table = new int[capacity];
+        Arrays.fill(table, ABSENT);
+        for (int id = 0; id < symbols.length; id++) {
+            int i = HashCommon.mix(symbols[id].hashCode()) & (capacity - 1);
+            while (table[i] != ABSENT) i = (i + 1) & (capacity - 1);
+            table[i] = id;
+        }
+        return table;
+    }
+
+    public boolean isFrozen() {
+        return ids == null;
+    }
+
+    /**
+     * Writes this table in the layout read by {@link #map}. The hash table is written as is, so it is valid as long as
+     * {@link String#hashCode()} is, which is specified.
+     * @return A little-endian buffer ready to be written, padded to a multiple of 8 bytes
+     * @throws IllegalStateException If the table is not frozen
+     */
+    public ByteBuffer write() {
+        if (frozenSymbols == null) throw new IllegalStateException("Only frozen symbol tables can be written");
+        boolean latin1 = true;
+        int chars = 0;
+        for (String symbol : frozenSymbols) {
+            chars += symbol.length();
+            for (int i = 0; latin1 && i < symbol.length(); i++) latin1 = symbol.charAt(i) < 256;
+        }
+        int poolSize = latin1 ? chars : chars << 1;
+        int size = 16 + (frozenSymbols.length + 1 + frozenIds.length) * 4 + poolSize;
+        ByteBuffer out = ByteBuffer.allocate((size + 7) & -8).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(frozenSymbols.length).putInt(frozenIds.length).putInt(latin1 ? 0 : 1).putInt(poolSize);
+        int offset = 0;
+        for (String symbol : frozenSymbols) {
+            out.putInt(offset);
+            offset += symbol.length();
+        }
+        out.putInt(offset);
+        for (int id : frozenIds) out.putInt(id);
+        for (String symbol : frozenSymbols) {
+            if (latin1) out.put(symbol.getBytes(StandardCharsets.ISO_8859_1));
+            else for (int i = 0; i < symbol.length(); i++) out.putChar(symbol.charAt(i));
+        }
+        return out.position(0);
+    }
+
+    /**
+     * Maps a table written by {@link #write}. Nothing is copied, the returned table reads from the buffer.
+     * @param in A little-endian buffer positioned at the table. It is positioned after the table when returned
+     * @return A frozen table
+     */
+    public static SymbolTable map(@NotNull ByteBuffer in) {
+        int count = in.getInt(), capacity = in.getInt(), coder = in.getInt(), poolSize = in.getInt();
+        if (count < 0 || capacity <= 0 || (capacity & (capacity - 1)) != 0 || (coder & ~1) != 0 || poolSize < 0) {
+            throw new IllegalArgumentException("Invalid symbol table");
+        }
+        SymbolTable table = new SymbolTable(slice(in, (count + 1) * 4).asIntBuffer(), slice(in, capacity * 4).asIntBuffer(),
+                slice(in, poolSize), coder == 0);
+        in.position((in.position() + 7) & -8);
+        return table;
+    }
+
+    private static ByteBuffer slice(ByteBuffer in, int length) {
+        ByteBuffer slice = in.slice(in.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+        in.position(in.position() + length);
+        return slice;
+    }
+
+    private boolean matches(int id, String symbol) {
+        String s = decoded[id];
+        if (s != null) return s.equals(symbol);
+        int start = mappedOffsets.get(id), length = symbol.length();
+        if (mappedOffsets.get(id + 1) - start != length) return false;
+        if (latin1) {
+            for (int i = 0; i < length; i++) if ((mappedPool.get(start + i) & 0xFF) != symbol.charAt(i)) return false;
+        } else {
+            for (int i = 0; i < length; i++) if (mappedPool.getChar((start + i) << 1) != symbol.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private String decode(int id) {
+        int start = mappedOffsets.get(id), length = mappedOffsets.get(id + 1) - start;
+        if (latin1) {
+            byte[] bytes = new byte[length];
+            mappedPool.get(start, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) chars[i] = mappedPool.getChar((start + i) << 1);
+        return new String(chars);
+    }
+
+    public static long pack(int high, int low) {
+        return (long) high << 32 | Integer.toUnsignedLong(low);
+    }
+}
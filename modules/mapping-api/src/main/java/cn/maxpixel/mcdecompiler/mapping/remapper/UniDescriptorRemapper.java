@@ -27,17 +27,36 @@ import org.intellij.lang.annotations.Pattern;
 import org.intellij.lang.annotations.Subst;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Lightweight remapper for descriptors of one direction in place of the general heavyweight {@link MappingRemapper}s.
+ * <p>
+ * Translated descriptors are cached in both directions, as the same descriptors are remapped over and over. A descriptor
+ * that references no mapped classes is returned as is.
  */
 public class UniDescriptorRemapper {
+    /**
+     * Max number of descriptors cached for each direction. The cache is cleared when full
+     */
+    public static final int CACHE_SIZE = 65536;
+
     private final Object2ObjectOpenHashMap<String, ? extends ClassMapping<? extends Mapping>> mappingByUnm;
+    private final ConcurrentHashMap<String, String> mapCache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> unmapCache = new ConcurrentHashMap<>();
 
     public UniDescriptorRemapper(Object2ObjectOpenHashMap<String, ? extends ClassMapping<? extends Mapping>> mappingByUnm) {
         this.mappingByUnm = mappingByUnm;
     }
 
-    private String mapClass(@NotNull String name) {
+    /**
+     * For subclasses that override {@link #mapClass} and {@link #unmapClass}
+     */
+    protected UniDescriptorRemapper() {
+        this.mappingByUnm = null;
+    }
+
+    protected String mapClass(@NotNull String name) {
         ClassMapping<? extends Mapping> classMapping = mappingByUnm.get(name);
         if (classMapping != null) return classMapping.mapping.getMappedName();
         return name;
@@ -51,24 +70,39 @@ public class UniDescriptorRemapper {
 
     @Subst("I")
     public @Pattern(MethodOrFieldDesc.FIELD_DESC_PATTERN) String mapDesc(@Pattern(MethodOrFieldDesc.FIELD_DESC_PATTERN) String unmappedDesc) {
-        return mapDesc(unmappedDesc, true);
+        if (unmappedDesc.indexOf('L') < 0) return unmappedDesc;// no need to map
+        String ret = mapCache.get(unmappedDesc);
+        return ret != null ? ret : cache(mapCache, unmappedDesc, mapDesc(unmappedDesc, true));
     }
 
     @Subst("()V")
     public @Pattern(MethodOrFieldDesc.METHOD_DESC_PATTERN) String mapMethodDesc(@Pattern(MethodOrFieldDesc.METHOD_DESC_PATTERN) String unmappedDesc) {
-        return mapMethodDesc(unmappedDesc, true);
+        if (unmappedDesc.length() == 3 || unmappedDesc.indexOf('L') < 0) return unmappedDesc;// no need to map
+        String ret = mapCache.get(unmappedDesc);
+        return ret != null ? ret : cache(mapCache, unmappedDesc, mapMethodDesc(unmappedDesc, true));
     }
 
     @Subst("I")
     public @Pattern(MethodOrFieldDesc.FIELD_DESC_PATTERN) String unmapDesc(@Pattern(MethodOrFieldDesc.FIELD_DESC_PATTERN) String mappedDesc) {
-        return mapDesc(mappedDesc, false);
+        if (mappedDesc.indexOf('L') < 0) return mappedDesc;// no need to map
+        String ret = unmapCache.get(mappedDesc);
+        return ret != null ? ret : cache(unmapCache, mappedDesc, mapDesc(mappedDesc, false));
     }
 
     @Subst("()V")
     public @Pattern(MethodOrFieldDesc.METHOD_DESC_PATTERN) String unmapMethodDesc(@Pattern(MethodOrFieldDesc.METHOD_DESC_PATTERN) String mappedDesc) {
-        return mapMethodDesc(mappedDesc, false);
+        if (mappedDesc.length() == 3 || mappedDesc.indexOf('L') < 0) return mappedDesc;// no need to map
+        String ret = unmapCache.get(mappedDesc);
+        return ret != null ? ret : cache(unmapCache, mappedDesc, mapMethodDesc(mappedDesc, false));
+    }
+
+    private static String cache(ConcurrentHashMap<String, String> cache, String desc, String ret) {
+        if (cache.size() >= CACHE_SIZE) cache.clear();
+        cache.put(desc, ret);
+        return ret;
     }
 
+    // Returns desc itself if no class in it is mapped
     @Subst("I")
     private String mapDesc(@Pattern(MethodOrFieldDesc.FIELD_DESC_PATTERN) String desc, boolean map) {
         int i = 0;
@@ -76,34 +110,40 @@ public class UniDescriptorRemapper {
         return switch (desc.charAt(i)) {
             case 'Z', 'B', 'C', 'D', 'F', 'I', 'J', 'S' -> desc;
             case 'L' -> {
-                StringBuilder ret = new StringBuilder(desc.length()).append(desc, 0, ++i);
-                int j = desc.indexOf(';', i + 1);// skip 'L' and the first char
+                int j = desc.indexOf(';', i + 2);// skip 'L' and the first char
                 if (j < 0) MappingUtils.throwInvalidDescriptor(false);
-                yield ret.append(map ? mapClass(desc.substring(i, j)) : unmapClass(desc.substring(i, j)))
-                        .append(desc, j, desc.length()).toString();
+                String name = desc.substring(i + 1, j);
+                String mapped = map ? mapClass(name) : unmapClass(name);
+                yield name.equals(mapped) ? desc : new StringBuilder(desc.length() - name.length() + mapped.length())
+                        .append(desc, 0, i + 1).append(mapped).append(desc, j, desc.length()).toString();
             }
             default -> MappingUtils.throwInvalidDescriptor(false);
         };
     }
 
+    // Returns desc itself if no class in it is mapped
     @Subst("()V")
     private String mapMethodDesc(@Pattern(MethodOrFieldDesc.METHOD_DESC_PATTERN) String desc, boolean map) {
-        if (desc.length() == 3 || desc.indexOf('L') < 0) return desc;// no need to map
-        StringBuilder ret = new StringBuilder(desc.length());
+        StringBuilder ret = null;
         int start = 0;
         for (int i = 1; i < desc.length(); i++) {
             switch (desc.charAt(i)) {
                 case 'Z', 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'V', '[', ')' -> {} // no op
                 case 'L' -> {
-                    ret.append(desc, start, ++i);
-                    start = desc.indexOf(';', i + 1);// skip 'L'(++i) and the first char
-                    if (start < 0) MappingUtils.throwInvalidDescriptor(true);
-                    ret.append(map ? mapClass(desc.substring(i, start)) : unmapClass(desc.substring(i, start)));
-                    i = start;// will do i++, so don't assign `start + 1` here
+                    int end = desc.indexOf(';', i + 2);// skip 'L' and the first char
+                    if (end < 0) MappingUtils.throwInvalidDescriptor(true);
+                    String name = desc.substring(i + 1, end);
+                    String mapped = map ? mapClass(name) : unmapClass(name);
+                    if (!name.equals(mapped)) {
+                        if (ret == null) ret = new StringBuilder(desc.length() + 16);
+                        ret.append(desc, start, i + 1).append(mapped);
+                        start = end;
+                    }
+                    i = end;// will do i++, so don't assign `end + 1` here
                 }
                 default -> MappingUtils.throwInvalidDescriptor(true);
             }
         }
-        return ret.append(desc, start, desc.length()).toString();
+        return ret == null ? desc : ret.append(desc, start, desc.length()).toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package cn.maxpixel.mcdecompiler.mapping.trait;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable ordered table of namespaces, which gives each namespace an index.
+ * <p>
+ * Tables are interned, so all the mappings with the same namespaces share one table and only store their names in an
+ * array indexed by it. A table grows by deriving a new table {@link #with} one more namespace, which keeps the indexes
+ * of the existing namespaces.
+ */
+public final class NamespaceTable {
+    private static final ConcurrentHashMap<List<String>, NamespaceTable> TABLES = new ConcurrentHashMap<>();
+    // Mappings read from a file are usually created with the same namespaces one after another
+    private static volatile NamespaceTable last;
+    public static final NamespaceTable EMPTY = of(new String[0]);
+
+    private final String[] namespaces;
+    private final ConcurrentHashMap<String, NamespaceTable> derived = new ConcurrentHashMap<>();
+
+    private NamespaceTable(String[] namespaces) {
+        this.namespaces = namespaces;
+    }
+
+    /**
+     * @param namespaces The namespaces. Duplicated ones only take the index of the first occurrence
+     * @return The interned table of the namespaces
+     */
+    public static NamespaceTable of(@NotNull String @NotNull [] namespaces) {
+        NamespaceTable table = last;
+        if (table != null && Arrays.equals(table.namespaces, namespaces)) return table;
+        table = TABLES.computeIfAbsent(List.of(namespaces), list -> new NamespaceTable(list.stream().distinct().toArray(String[]::new)));
+        last = table;
+        return table;
+    }
+
+    /**
+     * @return The table with the given namespace appended, or this table if it already has the namespace
+     */
+    public NamespaceTable with(@NotNull String namespace) {
+        if (indexOf(namespace) >= 0) return this;
+        return derived.computeIfAbsent(namespace, ns -> {
+            String[] namespaces = Arrays.copyOf(this.namespaces, this.namespaces.length + 1);
+            namespaces[this.namespaces.length] = ns;
+            return of(namespaces);
+        });
+    }
+
+    /**
+     * @return The index of the namespace, or -1 if this table doesn't have it
+     */
+    public int indexOf(@NotNull String namespace) {
+        for (int i = 0; i < namespaces.length; i++) {
+            if (namespaces[i] == namespace) return i;
+        }
+        for (int i = 0; i < namespaces.length; i++) {
+            if (namespaces[i].equals(namespace)) return i;
+        }
+        return -1;
+    }
+
+    public String get(int index) {
+        return namespaces[index];
+    }
+
+    public int size() {
+        return namespaces.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof NamespaceTable that)) return false;
+        return Arrays.equals(namespaces, that.namespaces);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(namespaces);
+    }
+
+    @Override
+    public String toString() {
+        return "NamespaceTable" + Arrays.toString(namespaces);
+    }
+}
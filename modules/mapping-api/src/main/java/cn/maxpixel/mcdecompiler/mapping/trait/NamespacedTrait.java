@@ -49,6 +49,13 @@ public class NamespacedTrait implements MappingTrait, NameGetter.Namespace {
         this.namespaces = ObjectLinkedOpenHashSet.of(namespaces);
     }
 
+    /**
+     * @return The interned table of the namespaces, which is shared by the mappings read with these namespaces
+     */
+    public @NotNull NamespaceTable getNamespaceTable() {
+        return NamespaceTable.of(namespaces.toArray(new String[0]));
+    }
+
     @Override
     public String getUnmappedNamespace() {
         return Objects.requireNonNull(unmappedNamespace, "The unmapped namespace has not been set");
@@ -6,9 +6,9 @@ import it.unimi.dsi.fastutil.objects.ObjectIterators;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
-import java.io.Reader;
+import java.io.*;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.Objects;
 import java.util.function.Function;
@@ -39,6 +39,25 @@ public interface InputCollection extends Iterable<InputCollection.Entry> {
             this(reader, null);
         }
 
+        /**
+         * Creates an entry of UTF-8 encoded contents. Processors supporting it parse the bytes directly instead of
+         * reading them line by line
+         * @param bytes The contents
+         * @param name The name, may be null
+         * @return The entry
+         */
+        public static Entry of(byte @NotNull [] bytes, @Nullable String name) {
+            return new Entry(new BytesReader(bytes), name);
+        }
+
+        /**
+         * Gets the contents if this entry is created by {@link #of(byte[], String)}
+         * @return The UTF-8 encoded contents, or {@code null} if this entry is created from a reader
+         */
+        public byte @Nullable [] bytes() {
+            return reader instanceof BytesReader br ? br.bytes : null;
+        }
+
         public BufferedReader asBufferedReader() {
             return MappingUtils.asBufferedReader(reader);
         }
@@ -91,6 +110,33 @@ public interface InputCollection extends Iterable<InputCollection.Entry> {
         }
     }
 
+    /**
+     * A reader of UTF-8 encoded bytes, which keeps the bytes for the processors
+     */
+    final class BytesReader extends Reader {
+        private final byte[] bytes;
+        private Reader delegate;
+
+        private BytesReader(byte @NotNull [] bytes) {
+            this.bytes = Objects.requireNonNull(bytes);
+        }
+
+        private Reader delegate() {
+            if (delegate == null) delegate = new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8);
+            return delegate;
+        }
+
+        @Override
+        public int read(char @NotNull [] cbuf, int off, int len) throws IOException {
+            return delegate().read(cbuf, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (delegate != null) delegate.close();
+        }
+    }
+
     /**
      * A lazy input collection
      * @param <E> Intermediate entry that can be used to create and identify an {@link Entry}
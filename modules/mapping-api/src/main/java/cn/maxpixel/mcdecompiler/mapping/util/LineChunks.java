@@ -0,0 +1,117 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.mapping.util;
+
+import cn.maxpixel.mcdecompiler.utils.ExecutionContext;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Splits UTF-8 encoded contents into chunks of whole lines, and parses the chunks in parallel.
+ * <p>
+ * Each chunk is read by its own {@link LineTokenizer} and {@link StringPool}, so the parser of a chunk does not share
+ * any state with the others. The results are returned in the order of the chunks, so the processors can merge them
+ * into the same mappings as a sequential parse.
+ */
+@ApiStatus.Internal
+public final class LineChunks {
+    /**
+     * Contents smaller than this are not worth splitting
+     */
+    public static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Lines that are not indented and not comments. Used by the formats whose members are indented under their class
+     */
+    public static final IntPredicate UNINDENTED = b -> b != '#' && !Character.isWhitespace(b);
+
+    private LineChunks() {
+        throw new AssertionError("No instances");
+    }
+
+    /**
+     * Splits the contents into at most {@code parallelism} chunks of about the same size.
+     *
+     * @param buf The contents
+     * @param parallelism Max number of chunks
+     * @param header Tests the first byte of a line to tell whether a chunk can start with this line. Every non-blank
+     *               line can start a chunk if null
+     * @return Boundaries of the chunks. Chunk {@code i} is from {@code bounds[i]} to {@code bounds[i + 1]}
+     */
+    public static int @NotNull [] split(byte @NotNull [] buf, int parallelism, @Nullable IntPredicate header) {
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism must be positive");
+        int chunks = Math.min(parallelism, buf.length / MIN_CHUNK_SIZE);
+        if (chunks <= 1) return new int[] {0, buf.length};
+        int[] bounds = new int[chunks + 1];
+        int count = 1;
+        for (int i = 1; i < chunks; i++) {
+            int p = nextChunkStart(buf, Math.max(bounds[count - 1], (int) ((long) buf.length * i / chunks)), header);
+            if (p >= buf.length) break;
+            if (p > bounds[count - 1]) bounds[count++] = p;
+        }
+        bounds[count++] = buf.length;
+        return count == bounds.length ? bounds : Arrays.copyOf(bounds, count);
+    }
+
+    private static boolean isLineTerminator(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    private static int nextChunkStart(byte[] buf, int p, IntPredicate header) {
+        int limit = buf.length;
+        if (p > 0 && !isLineTerminator(buf[p - 1])) {
+            while (p < limit && !isLineTerminator(buf[p])) p++;
+        }
+        while (true) {
+            while (p < limit && isLineTerminator(buf[p])) p++;
+            if (p >= limit || header == null || header.test(buf[p])) return p;
+            while (p < limit && !isLineTerminator(buf[p])) p++;
+        }
+    }
+
+    /**
+     * Parses the chunks on the pool of the {@link ExecutionContext#current() current context}.
+     *
+     * @param buf The contents
+     * @param bounds Boundaries of the chunks, returned by {@link #split}
+     * @param strip Whether to strip the comments and the trailing whitespaces of the lines
+     * @param parser Parses a chunk
+     * @return The results, in the order of the chunks
+     * @param <R> Type of the results
+     */
+    public static <R> @NotNull List<R> parse(byte @NotNull [] buf, int @NotNull [] bounds, boolean strip,
+                                             @NotNull Function<LineTokenizer, R> parser) {
+        if (bounds.length == 2) return List.of(parser.apply(tokenizer(buf, bounds, 0, strip)));
+        return ExecutionContext.current().invoke(() -> IntStream.range(0, bounds.length - 1).parallel()
+                .mapToObj(i -> parser.apply(tokenizer(buf, bounds, i, strip)))
+                .toList());
+    }
+
+    private static LineTokenizer tokenizer(byte[] buf, int[] bounds, int i, boolean strip) {
+        int from = bounds[i], to = bounds[i + 1];
+        return new LineTokenizer(buf, from, to, strip, new StringPool(buf, (to - from) >> 5));
+    }
+}
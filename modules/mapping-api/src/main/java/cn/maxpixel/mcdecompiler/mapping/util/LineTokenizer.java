@@ -0,0 +1,288 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package cn.maxpixel.mcdecompiler.mapping.util;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits UTF-8 encoded contents into lines and tokens in place.
+ * <p>
+ * Lines and tokens are ranges of the array. Strings are only created for what the processor keeps, and the names
+ * are deduplicated through a {@link StringPool}. Line terminators are {@code \n}, {@code \r} and {@code \r\n}, and
+ * blank lines are skipped.
+ *
+ * @implNote This class is not thread-safe
+ */
+@ApiStatus.Internal
+public final class LineTokenizer {
+    private final byte[] buf;
+    private final int limit;
+    private final boolean strip;
+    private final StringPool pool;
+    private int next;
+    private int lineStart, lineEnd;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int count;
+
+    /**
+     * @param buf The contents
+     * @param strip Whether to strip the comments(starting with {@code #}) and the trailing whitespaces of the lines,
+     *              like {@link cn.maxpixel.mcdecompiler.mapping.processor.MappingProcessor#preprocess} does
+     */
+    public LineTokenizer(byte @NotNull [] buf, boolean strip) {
+        this(buf, 0, buf.length, strip, new StringPool(buf, buf.length >> 5));
+    }
+
+    /**
+     * @param buf The contents
+     * @param from Start of the lines to read, which must be the start of a line
+     * @param to End of the lines to read, which must be the end of a line
+     * @param strip Whether to strip the comments and the trailing whitespaces of the lines
+     * @param pool The pool of the strings, whose source must be {@code buf}
+     */
+    public LineTokenizer(byte @NotNull [] buf, int from, int to, boolean strip, @NotNull StringPool pool) {
+        this.buf = buf;
+        this.next = from;
+        this.limit = to;
+        this.strip = strip;
+        this.pool = pool;
+    }
+
+    private static boolean isWhitespace(byte b) {// Same as Character.isWhitespace for ASCII
+        return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+    }
+
+    /**
+     * Moves to the next non-blank line
+     *
+     * @return false if there are no more lines
+     */
+    public boolean nextLine() {
+        while (next < limit) {
+            int s = next, e = s;
+            while (e < limit && buf[e] != '\n' && buf[e] != '\r') e++;
+            next = e + (e + 1 < limit && buf[e] == '\r' && buf[e + 1] == '\n' ? 2 : 1);
+            count = 0;
+            if (strip) {
+                int comment = indexOf('#', s, e);
+                if (comment >= 0) e = comment;
+                while (e > s && isWhitespace(buf[e - 1])) e--;
+                if (e == s) continue;
+            } else {
+                int i = s;
+                while (i < e && isWhitespace(buf[i])) i++;
+                if (i == e) continue;
+            }
+            lineStart = s;
+            lineEnd = e;
+            return true;
+        }
+        return false;
+    }
+
+    public int lineStart() {
+        return lineStart;
+    }
+
+    public int lineEnd() {
+        return lineEnd;
+    }
+
+    /**
+     * Gets a byte of the current line
+     *
+     * @param index Index relative to the start of the line
+     * @return The byte, or 0 if the index is out of the line
+     */
+    public byte byteAt(int index) {
+        int i = lineStart + index;
+        return i < lineEnd ? buf[i] : 0;
+    }
+
+    /**
+     * @param index Index in the contents
+     * @return The byte at the index
+     */
+    public byte get(int index) {
+        return buf[index];
+    }
+
+    /**
+     * @param ascii An ASCII string
+     * @return true if the current line starts with the string
+     */
+    public boolean startsWith(@NotNull String ascii) {
+        return regionEquals(lineStart, Math.min(lineEnd, lineStart + ascii.length()), ascii);
+    }
+
+    /**
+     * @param ascii An ASCII string
+     * @return true if the range equals the string
+     */
+    public boolean regionEquals(int start, int end, @NotNull String ascii) {
+        if (end - start != ascii.length()) return false;
+        for (int i = 0; i < ascii.length(); i++) {
+            if (buf[start + i] != ascii.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Splits the current line by the separator, keeping empty tokens
+     *
+     * @param sep The separator, must be ASCII
+     * @return The number of tokens
+     */
+    public int split(char sep) {
+        return split(sep, 0);
+    }
+
+    /**
+     * Splits the current line by the separator, starting from the given index, keeping empty tokens
+     *
+     * @param sep The separator, must be ASCII
+     * @param from Index relative to the start of the line
+     * @return The number of tokens
+     */
+    public int split(char sep, int from) {
+        int n = 0, s = lineStart + from;
+        for (int i = s; i < lineEnd; i++) {
+            if (buf[i] == sep) {
+                add(n++, s, i);
+                s = i + 1;
+            }
+        }
+        add(n++, s, lineEnd);
+        return count = n;
+    }
+
+    private void add(int n, int start, int end) {
+        if (n == starts.length) {
+            starts = Arrays.copyOf(starts, n << 1);
+            ends = Arrays.copyOf(ends, n << 1);
+        }
+        starts[n] = start;
+        ends[n] = end;
+    }
+
+    /**
+     * @return The number of tokens of the last split
+     */
+    public int count() {
+        return count;
+    }
+
+    public int start(int token) {
+        return starts[token];
+    }
+
+    public int end(int token) {
+        return ends[token];
+    }
+
+    /**
+     * @return The pooled string of the token
+     */
+    public @NotNull String token(int token) {
+        return pool.get(starts[token], ends[token]);
+    }
+
+    /**
+     * @return The pooled strings of all the tokens
+     */
+    public @NotNull String @NotNull [] tokens() {
+        String[] ret = new String[count];
+        for (int i = 0; i < count; i++) ret[i] = pool.get(starts[i], ends[i]);
+        return ret;
+    }
+
+    /**
+     * @return The pooled string of the range
+     */
+    public @NotNull String string(int start, int end) {
+        return pool.get(start, end);
+    }
+
+    /**
+     * @return A new string of the range, which is not pooled. For contents which are unlikely to repeat
+     */
+    public @NotNull String rawString(int start, int end) {
+        return new String(buf, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The current line
+     */
+    public @NotNull String line() {
+        return rawString(lineStart, lineEnd);
+    }
+
+    public int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == c) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param ascii An ASCII string
+     * @return Index of the first occurrence of the string in the range, or -1
+     */
+    public int indexOf(@NotNull String ascii, int from, int to) {
+        char first = ascii.charAt(0);
+        for (int i = indexOf(first, from, to); i >= 0 && i + ascii.length() <= to; i = indexOf(first, i + 1, to)) {
+            if (regionEquals(i, i + ascii.length(), ascii)) return i;
+        }
+        return -1;
+    }
+
+    public int lastIndexOf(char c, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (buf[i] == c) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a decimal integer like {@link Integer#parseInt(String)}
+     *
+     * @throws NumberFormatException If the range is not a valid integer
+     */
+    public int parseInt(int start, int end) {
+        if (start >= end) throw new NumberFormatException("Empty integer");
+        boolean negative = buf[start] == '-';
+        int i = negative || buf[start] == '+' ? start + 1 : start;
+        if (i == end || end - i > 10) throw new NumberFormatException("For input string: \"" + rawString(start, end) + '"');
+        long value = 0;
+        for (; i < end; i++) {
+            int d = buf[i] - '0';
+            if (d < 0 || d > 9) throw new NumberFormatException("For input string: \"" + rawString(start, end) + '"');
+            value = value * 10 + d;
+        }
+        if (negative) value = -value;
+        if (value != (int) value) throw new NumberFormatException("For input string: \"" + rawString(start, end) + '"');
+        return (int) value;
+    }
+}
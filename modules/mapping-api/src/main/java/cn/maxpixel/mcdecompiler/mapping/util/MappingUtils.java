@@ -63,7 +63,9 @@ public final class MappingUtils {
         }
 
         public static PairedMapping lvduo(String unmapped, String mapped, String unmappedDesc) {
-            return new PairedMapping(unmapped, mapped, new LocalVariableTable.Paired(), new Descriptor.Unmapped(unmappedDesc), new Owned<>());
+            PairedMapping mapping = new PairedMapping(unmapped, mapped, new Descriptor.Unmapped(unmappedDesc), new Owned<>());
+            mapping.addLazyComponent(LocalVariableTable.Paired.class, LocalVariableTable.Paired::new);
+            return mapping;
         }
 
         public static PairedMapping dmo(String unmapped, String mapped, String mappedDesc) {
@@ -94,11 +96,11 @@ public final class MappingUtils {
         }
 
         public static NamespacedMapping d(String[] namespaces, String[] names) {
-            return new NamespacedMapping(namespaces, names, new Documented());
+            return documented(new NamespacedMapping(namespaces, names));
         }
 
         public static NamespacedMapping d(String[] namespaces, String[] names, int start) {
-            return new NamespacedMapping(namespaces, names, start, new Documented());
+            return documented(new NamespacedMapping(namespaces, names, start));
         }
 
         public static NamespacedMapping duo(String[] namespaces, String[] names, int start, String descNamespace, String desc) {
@@ -106,17 +108,27 @@ public final class MappingUtils {
         }
 
         public static NamespacedMapping dduo(String[] namespaces, String[] names, int start, String descNamespace, String desc) {
-            return new NamespacedMapping(namespaces, names, start, new Owned<>(), new Descriptor.Namespaced(desc, descNamespace), new Documented());
+            return documented(duo(namespaces, names, start, descNamespace, desc));
         }
 
         public static NamespacedMapping slduo(String[] namespaces, String[] names, int start, String descNamespace, String desc) {
-            return new NamespacedMapping(namespaces, names, start, new Owned<>(), new Descriptor.Namespaced(desc, descNamespace),
-                    new StaticIdentifiable(), new LocalVariableTable.Namespaced());
+            return withLvt(new NamespacedMapping(namespaces, names, start, new Owned<>(), new Descriptor.Namespaced(desc, descNamespace),
+                    new StaticIdentifiable()));
         }
 
         public static NamespacedMapping dlduo(String[] namespaces, String[] names, int start, String descNamespace, String desc) {
-            return new NamespacedMapping(namespaces, names, start, new Owned<>(), new Descriptor.Namespaced(desc, descNamespace),
-                    new Documented(), new LocalVariableTable.Namespaced());
+            return withLvt(dduo(namespaces, names, start, descNamespace, desc));
+        }
+
+        // Documents and parameters are absent from most of the mappings, so the empty components are created on demand
+        private static NamespacedMapping documented(NamespacedMapping mapping) {
+            mapping.addLazyComponent(Documented.class, Documented::new);
+            return mapping;
+        }
+
+        private static NamespacedMapping withLvt(NamespacedMapping mapping) {
+            mapping.addLazyComponent(LocalVariableTable.Namespaced.class, LocalVariableTable.Namespaced::new);
+            return mapping;
         }
     }
 
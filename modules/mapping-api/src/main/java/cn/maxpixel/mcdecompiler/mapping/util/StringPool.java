@@ -0,0 +1,111 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package cn.maxpixel.mcdecompiler.mapping.util;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Deduplicates the strings decoded from ranges of a UTF-8 encoded array.
+ * <p>
+ * Ranges are compared byte by byte with the first range decoded to the same string, so a repeated name is only
+ * decoded once, and the parsed mappings share one instance of it.
+ *
+ * @implNote This class is not thread-safe
+ */
+@ApiStatus.Internal
+public final class StringPool {
+    private final byte[] source;
+    private String[] strings;
+    private int[] hashes;
+    private int[] offsets;
+    private int[] lengths;
+    private int size;
+    private int mask;
+
+    /**
+     * @param source The UTF-8 encoded array
+     * @param expected Expected number of distinct strings
+     */
+    public StringPool(byte @NotNull [] source, int expected) {
+        this.source = source;
+        int capacity = HashCommon.arraySize(Math.max(expected, 8), .5f);
+        this.strings = new String[capacity];
+        this.hashes = new int[capacity];
+        this.offsets = new int[capacity];
+        this.lengths = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Gets the string of the given range of the source array
+     *
+     * @param start Start of the range, inclusive
+     * @param end End of the range, exclusive
+     * @return The pooled string
+     */
+    public @NotNull String get(int start, int end) {
+        int len = end - start;
+        if (len == 0) return "";
+        int h = 1;
+        for (int i = start; i < end; i++) h = 31 * h + source[i];
+        int i = HashCommon.mix(h) & mask;
+        for (String s; (s = strings[i]) != null; i = (i + 1) & mask) {
+            if (hashes[i] == h && lengths[i] == len && Arrays.equals(source, offsets[i], offsets[i] + len, source, start, end)) {
+                return s;
+            }
+        }
+        String s = new String(source, start, len, StandardCharsets.UTF_8);
+        strings[i] = s;
+        hashes[i] = h;
+        offsets[i] = start;
+        lengths[i] = len;
+        if (++size * 2 > strings.length) rehash();
+        return s;
+    }
+
+    private void rehash() {
+        String[] oldStrings = strings;
+        int[] oldHashes = hashes, oldOffsets = offsets, oldLengths = lengths;
+        int capacity = oldStrings.length << 1;
+        strings = new String[capacity];
+        hashes = new int[capacity];
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+        mask = capacity - 1;
+        for (int j = 0; j < oldStrings.length; j++) {
+            if (oldStrings[j] == null) continue;
+            int i = HashCommon.mix(oldHashes[j]) & mask;
+            while (strings[i] != null) i = (i + 1) & mask;
+            strings[i] = oldStrings[j];
+            hashes[i] = oldHashes[j];
+            offsets[i] = oldOffsets[j];
+            lengths[i] = oldLengths[j];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+}
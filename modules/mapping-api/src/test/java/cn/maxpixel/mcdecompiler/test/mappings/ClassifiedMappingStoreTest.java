@@ -0,0 +1,200 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.test.mappings;
+
+import cn.maxpixel.mcdecompiler.mapping.NamespacedMapping;
+import cn.maxpixel.mcdecompiler.mapping.collection.ClassMapping;
+import cn.maxpixel.mcdecompiler.mapping.collection.ClassifiedMapping;
+import cn.maxpixel.mcdecompiler.mapping.collection.ClassifiedMappingStore;
+import cn.maxpixel.mcdecompiler.mapping.component.Descriptor;
+import cn.maxpixel.mcdecompiler.mapping.component.Documented;
+import cn.maxpixel.mcdecompiler.mapping.format.MappingFormats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.CleanupMode;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassifiedMappingStoreTest {
+    private static final String TINY_V2 = """
+            tiny\t2\t0\tofficial\tintermediary\tnamed
+            c\ta\tclass_1\tcom/x/Foo
+            \tc\tFoo doc\\nline2 中文
+            \tf\tI\tb\tfield_1\tbar
+            \t\tc\tfield doc
+            \tm\t(La;)V\tc\tmethod_1\tbaz
+            \t\tc\tmethod doc
+            \t\tp\t1\t\t\targ
+            \t\t\tc\tparam doc
+            \t\tp\t2\t\t\tother
+            \tm\t()V\td\tmethod_2\t
+            \tm\t()I\tc\tmethod_3\tqux
+            c\tb\tclass_2\tcom/x/Bar
+            """;
+
+    @Test
+    void testTiny1(@TempDir(cleanup = CleanupMode.ON_SUCCESS) Path tmp) throws IOException {
+        var is = getClass().getClassLoader().getResourceAsStream("1.17.1.tiny");
+        assertNotNull(is);
+        test(tmp, MappingFormats.TINY_V1.read(is));
+    }
+
+    @Test
+    void testTiny2(@TempDir(cleanup = CleanupMode.ON_SUCCESS) Path tmp) throws IOException {
+        test(tmp, MappingFormats.TINY_V2.read(new StringReader(TINY_V2)));
+    }
+
+    @Test
+    void testLazyDocuments() {
+        ClassifiedMapping<NamespacedMapping> mappings = MappingFormats.TINY_V2.read(new StringReader(TINY_V2));
+        NamespacedMapping bar = mappings.classes.get(1).mapping;
+        assertTrue(bar.hasComponent(Documented.class));
+        ClassifiedMappingStore store = ClassifiedMappingStore.of(mappings);
+        assertNull(bar.peekComponent(Documented.class));
+        assertEquals("", store.getDocument(store.getClass(1)));
+    }
+
+    @Test
+    void testFind() {
+        ClassifiedMappingStore store = ClassifiedMappingStore.of(MappingFormats.TINY_V2.read(new StringReader(TINY_V2)));
+        assertEquals(3, store.getNamespaces().size());
+        int named = store.getNamespaceIndex("named");
+        int foo = store.findClass(named, "com/x/Foo");
+        assertEquals(foo, store.findClass(store.getNamespaceIndex("official"), "a"));
+        assertEquals(foo, store.getClass(0));
+        assertEquals(ClassifiedMappingStore.CLASS, store.getKind(foo));
+        assertEquals("class_1", store.getName(foo, "intermediary"));
+        assertEquals("Foo doc\nline2 中文", store.getDocument(foo));
+        assertEquals(ClassifiedMappingStore.ABSENT, store.findClass(named, "com/x/Missing"));
+        assertEquals(ClassifiedMappingStore.ABSENT, store.findClass(named, "a"));// Only in another namespace
+
+        int bar = store.findMember(foo, ClassifiedMappingStore.FIELD, named, "bar", null);
+        assertEquals(ClassifiedMappingStore.FIELD, store.getKind(bar));
+        assertEquals("I", store.getDescriptor(bar));
+        assertEquals(ClassifiedMappingStore.ABSENT, store.findMember(foo, ClassifiedMappingStore.METHOD, named, "bar", null));
+
+        int baz = store.findMember(foo, ClassifiedMappingStore.METHOD, named, "baz", "(La;)V");
+        assertEquals("c", store.getName(baz, "official"));
+        assertEquals("method doc", store.getDocument(baz));
+        assertEquals(baz, store.findMember(foo, ClassifiedMappingStore.METHOD, store.getNamespaceIndex("official"), "c", null));
+        assertEquals(ClassifiedMappingStore.ABSENT, store.findMember(foo, ClassifiedMappingStore.METHOD, named, "baz", "()V"));
+        int qux = store.findMember(foo, ClassifiedMappingStore.METHOD, store.getNamespaceIndex("official"), "c", "()I");
+        assertEquals("qux", store.getName(qux, named));
+
+        int locals = 0;
+        for (int e = baz + 1; e < store.getEnd(baz); e = store.getEnd(e)) {
+            assertEquals(ClassifiedMappingStore.LOCAL_VARIABLE, store.getKind(e));
+            locals++;
+        }
+        assertEquals(2, locals);
+
+        int barClass = store.findClass(named, "com/x/Bar");
+        assertEquals(ClassifiedMappingStore.ABSENT, store.findMember(barClass, ClassifiedMappingStore.METHOD, named, "baz", null));
+    }
+
+    @Test
+    void testCorrupted(@TempDir(cleanup = CleanupMode.ON_SUCCESS) Path tmp) throws IOException {
+        ClassifiedMapping<NamespacedMapping> mappings = MappingFormats.TINY_V2.read(new StringReader(TINY_V2));
+        ByteBuffer valid = read(write(tmp, mappings));
+
+        ByteBuffer magic = copy(valid);
+        magic.putInt(0, 0x12345678);
+        assertThrows(IllegalArgumentException.class, () -> ClassifiedMappingStore.map(magic));
+
+        ByteBuffer version = copy(valid);
+        version.putInt(4, 100);
+        assertThrows(IllegalArgumentException.class, () -> ClassifiedMappingStore.map(version));
+
+        ByteBuffer namespaces = copy(valid);
+        namespaces.putInt(8, 0);
+        assertThrows(IllegalArgumentException.class, () -> ClassifiedMappingStore.map(namespaces));
+
+        ByteBuffer capacity = copy(valid);
+        capacity.putInt(24, 3);// Not a power of 2
+        assertThrows(IllegalArgumentException.class, () -> ClassifiedMappingStore.map(capacity));
+
+        ByteBuffer entries = copy(valid);
+        entries.putInt(16, Integer.MAX_VALUE / 8);
+        assertThrows(IllegalArgumentException.class, () -> ClassifiedMappingStore.map(entries));
+
+        assertThrows(IllegalArgumentException.class, () -> ClassifiedMappingStore.map(valid.slice(0, valid.capacity() / 2)));
+        assertThrows(IllegalArgumentException.class, () -> ClassifiedMappingStore.map(valid.slice(0, 10)));
+        assertDoesNotThrow(() -> ClassifiedMappingStore.map(valid));
+    }
+
+    private static void test(Path tmp, ClassifiedMapping<NamespacedMapping> mappings) throws IOException {
+        ClassifiedMappingStore direct = ClassifiedMappingStore.of(mappings);
+        ClassifiedMappingStore mapped = ClassifiedMappingStore.map(read(write(tmp, mappings)));
+        assertEquals(direct.size(), mapped.size());
+        for (ClassifiedMappingStore store : new ClassifiedMappingStore[] {direct, mapped}) {
+            assertEquals(mappings.classes.size(), store.getClassCount());
+            var back = store.toClassifiedMapping();
+            assertEquals(mappings.classes, back.classes);
+            for (int i = 0; i < mappings.classes.size(); i++) {
+                ClassMapping<NamespacedMapping> cm = mappings.classes.get(i);
+                int cls = store.getClass(i);
+                assertEquals(cm, store.getClassMapping(cls));
+                for (int ns = 0; ns < store.getNamespaces().size(); ns++) {
+                    String namespace = store.getNamespaces().get(ns);
+                    String name = cm.mapping.getName(namespace);
+                    if (name == null || name.isEmpty()) continue;
+                    assertEquals(cls, store.findClass(ns, name));
+                    for (NamespacedMapping m : cm.getMethods()) {
+                        String mn = m.getName(namespace);
+                        if (mn == null || mn.isEmpty()) continue;
+                        String desc = m.getComponent(Descriptor.Namespaced.class).descriptor;
+                        int e = store.findMember(cls, ClassifiedMappingStore.METHOD, ns, mn, desc);
+                        assertNotEquals(ClassifiedMappingStore.ABSENT, e);
+                        assertEquals(mn, store.getName(e, ns));
+                    }
+                }
+            }
+            assertEquals(ClassifiedMappingStore.ABSENT, store.findClass(0, "nope/Nope"));
+        }
+    }
+
+    private static Path write(Path tmp, ClassifiedMapping<NamespacedMapping> mappings) throws IOException {
+        Path path = tmp.resolve("mappings.bin");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ClassifiedMappingStore.write(mappings, channel);
+        }
+        return path;
+    }
+
+    private static ByteBuffer read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static ByteBuffer copy(ByteBuffer buffer) {
+        ByteBuffer copy = ByteBuffer.allocate(buffer.capacity()).order(ByteOrder.LITTLE_ENDIAN);
+        copy.put(buffer.duplicate()).clear();
+        return copy;
+    }
+}
@@ -116,6 +116,20 @@ class MappingComponentTest {
         assertNotNull(m1.getComponent(Documented.class));
     }
 
+    @Test
+    void testLazy() {
+        var m1 = new TestMapping();
+        m1.addLazyComponent(Documented.class, Documented::new);
+        assertTrue(m1.hasComponent(Documented.class));
+        assertNull(m1.peekComponent(Documented.class));
+        assertNull(m1.peekComponent(Documented.class));// Peeking doesn't create it
+        assertEquals(new TestMapping(new Documented()), m1);
+        var doc = m1.getComponent(Documented.class);
+        assertNotNull(doc);
+        assertSame(doc, m1.peekComponent(Documented.class));
+        assertNull(m1.peekComponent(Descriptor.Mapped.class));
+    }
+
     @Test
     void testValidate() {
         var du1 = new Descriptor.Unmapped("La");
@@ -0,0 +1,306 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.test.mappings;
+
+import cn.maxpixel.mcdecompiler.mapping.Mapping;
+import cn.maxpixel.mcdecompiler.mapping.PairedMapping;
+import cn.maxpixel.mcdecompiler.mapping.collection.ClassMapping;
+import cn.maxpixel.mcdecompiler.mapping.collection.ClassifiedMapping;
+import cn.maxpixel.mcdecompiler.mapping.collection.MappingCollection;
+import cn.maxpixel.mcdecompiler.mapping.component.Descriptor;
+import cn.maxpixel.mcdecompiler.mapping.component.Documented;
+import cn.maxpixel.mcdecompiler.mapping.component.Owned;
+import cn.maxpixel.mcdecompiler.mapping.format.MappingFormat;
+import cn.maxpixel.mcdecompiler.mapping.format.MappingFormats;
+import cn.maxpixel.mcdecompiler.mapping.util.LineChunks;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that reading from bytes, sequentially or in parallel chunks, gives the same mappings as reading from a
+ * {@link java.io.Reader}
+ */
+class MappingReadTest {
+    private static final int[] PARALLELISMS = {1, 2, 3, 4, 7, 16, 64};
+    private static final String TINY_V2 = """
+            tiny\t2\t0\tofficial\tintermediary\tnamed
+            c\ta\tclass_1\tcom/x/Foo
+            \tc\tFoo doc\\nline2 中文
+            \tf\tI\tb\tfield_1\tbar
+            \t\tc\tfield doc
+            \tm\t(La;)V\tc\tmethod_1\tbaz
+            \t\tc\tmethod doc
+            \t\tp\t1\t\t\targ
+            \t\t\tc\tparam doc
+            \t\tp\t2\t\t\tother
+            \tm\t()V\td\tmethod_2\t
+            c\tb\tclass_2\tcom/x/Bar
+            """;
+    private static final String PROGUARD = """
+            # compiler: R8
+            # pg_map_id: 1
+            com.mojang.Foo -> a:
+            # {"fileName":"Foo.java","id":"sourceFile"}
+                int field -> b
+                java.lang.String[] names -> c # comment
+                1:5:void <init>(int,java.lang.String) -> <init>
+                6:10:java.util.List[] get(com.mojang.Foo,long[][]) -> d
+                void noLine() -> e
+                12:12:boolean is() -> f
+            com.mojang.Bar -> b:
+                com.mojang.Foo foo -> a
+            com.mojang.Empty -> c:
+            """;
+
+    static String resource(String name) throws IOException {
+        try (InputStream is = MappingReadTest.class.getClassLoader().getResourceAsStream(name)) {
+            assertNotNull(is);
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    static <M extends Mapping, C extends MappingCollection<M>> String generate(MappingFormat<M, C> format, C collection) throws IOException {
+        StringWriter writer = new StringWriter();
+        format.write(collection, writer);
+        return writer.toString();
+    }
+
+    /**
+     * Builds SRG mappings from TSRG v1 ones, with a comment after every method
+     */
+    static String srg(ClassifiedMapping<PairedMapping> tsrg) {
+        StringBuilder sb = new StringBuilder("PK: a b\n");
+        for (ClassMapping<PairedMapping> cm : tsrg.classes) {
+            String u = cm.mapping.unmappedName, m = cm.mapping.mappedName;
+            sb.append("CL: ").append(u).append(' ').append(m).append('\n');
+            for (PairedMapping f : cm.getFields()) {
+                sb.append("FD: ").append(u).append('/').append(f.unmappedName).append(' ')
+                        .append(m).append('/').append(f.mappedName).append('\n');
+            }
+            for (PairedMapping md : cm.getMethods()) {
+                String desc = md.getComponent(Descriptor.Unmapped.class).descriptor;
+                sb.append("MD: ").append(u).append('/').append(md.unmappedName).append(' ').append(desc).append(' ')
+                        .append(m).append('/').append(md.mappedName).append(' ').append(desc).append(" # comment\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Builds Mojang-style Proguard mappings large enough to be split into many chunks. Every class line is followed by a
+     * {@code # {...}} line, which must stay in the chunk of its class
+     */
+    static String proguard(int classCount) {
+        StringBuilder sb = new StringBuilder("# compiler: R8\n# pg_map_id: 1\n");
+        for (int i = 0; i < classCount; i++) {
+            sb.append("com.mojang.Class").append(i).append(" -> c").append(i).append(":\n");
+            sb.append("# {\"fileName\":\"Class").append(i).append(".java\",\"id\":\"sourceFile\"}\n");
+            sb.append("    int field").append(i).append(" -> a\n");
+            sb.append("    # {\"id\":\"com.android.tools.r8.synthesized\"}\n");
+            sb.append("    java.lang.String[] names -> b\n");
+            sb.append("    1:5:void <init>(int,com.mojang.Class").append(i).append(") -> <init>\n");
+            sb.append("    6:10:java.util.List[] get(long[][]) -> c\n");
+            sb.append("    void noLine() -> d\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Shuffles the lines, so that the lines of a class are scattered over the whole text and over all the chunks
+     */
+    static String shuffle(String text, long seed) {
+        List<String> lines = new ArrayList<>(Arrays.asList(text.split("\n")));
+        Collections.shuffle(lines, new Random(seed));
+        return String.join("\n", lines);
+    }
+
+    static String crlf(String text) {
+        return text.replace("\n", "\r\n");
+    }
+
+    static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static <M extends Mapping, C extends MappingCollection<M>> C assertBytesRead(MappingFormat<M, C> format, String text) {
+        C expected = format.read(new StringReader(text));
+        assertEquals(expected, format.read(bytes(text)));
+        assertEquals(expected, format.read(bytes(crlf(text))));
+        assertEquals(expected, format.read(new StringReader(crlf(text))));
+        return expected;
+    }
+
+    @Test
+    void testSrg() throws IOException {
+        var tsrg = MappingFormats.TSRG_V1.read(new StringReader(resource("1.17.1.tsrg")));
+        var srg = assertBytesRead(MappingFormats.SRG, srg(tsrg));
+        assertEquals(tsrg.classes.size(), srg.classes.size());
+        assertEquals(1, srg.packages.size());
+    }
+
+    @Test
+    void testCsrg() throws IOException {
+        var csrg = assertBytesRead(MappingFormats.CSRG, resource("1.17.1.csrg") + "\n# comment\nabc/ def/   # trailing\n");
+        assertFalse(csrg.classes.isEmpty());
+        assertEquals(1, csrg.packages.size());
+    }
+
+    @Test
+    void testTsrg() throws IOException {
+        var tsrg = assertBytesRead(MappingFormats.TSRG_V1, resource("1.17.1.tsrg") + "\n# comment\n  \na/ b/\n");
+        assertEquals(1, tsrg.packages.size());
+    }
+
+    @Test
+    void testTsrg2() throws IOException {
+        var tiny = MappingFormats.TINY_V1.read(new StringReader(resource("1.17.1.tiny")));
+        assertBytesRead(MappingFormats.TSRG_V2, generate(MappingFormats.TSRG_V2, tiny));
+        var tiny2 = MappingFormats.TINY_V2.read(new StringReader(TINY_V2));
+        assertBytesRead(MappingFormats.TSRG_V2, generate(MappingFormats.TSRG_V2, tiny2));
+    }
+
+    @Test
+    void testTiny1() throws IOException {
+        var tiny = assertBytesRead(MappingFormats.TINY_V1, resource("1.17.1.tiny"));
+        assertFalse(tiny.classes.isEmpty());
+    }
+
+    @Test
+    void testTiny2() throws IOException {
+        var tiny = MappingFormats.TINY_V1.read(new StringReader(resource("1.17.1.tiny")));
+        assertBytesRead(MappingFormats.TINY_V2, generate(MappingFormats.TINY_V2, tiny));
+        var tiny2 = assertBytesRead(MappingFormats.TINY_V2, TINY_V2);
+        assertEquals("Foo doc\nline2 中文", tiny2.classes.get(0).mapping.getComponent(Documented.class).getContentString());
+    }
+
+    @Test
+    void testProguard() {
+        var proguard = assertBytesRead(MappingFormats.PROGUARD, PROGUARD);
+        assertEquals(3, proguard.classes.size());
+        assertEquals(6, proguard.classes.get(0).getFields().size() + proguard.classes.get(0).getMethods().size());
+    }
+
+    /**
+     * Checks that the mappings are equal, including the order of the classes and their members, and the owners
+     */
+    static void assertSameOrder(ClassifiedMapping<PairedMapping> expected, ClassifiedMapping<PairedMapping> actual) {
+        assertEquals(expected.packages, actual.packages);
+        assertEquals(expected.classes.size(), actual.classes.size());
+        for (int i = 0; i < expected.classes.size(); i++) {
+            ClassMapping<PairedMapping> e = expected.classes.get(i), a = actual.classes.get(i);
+            assertEquals(e.mapping, a.mapping);
+            assertEquals(e.getFields(), a.getFields());
+            assertEquals(e.getMethods(), a.getMethods());
+            for (PairedMapping m : a.getFields()) assertSame(a, m.getComponent(Owned.class).getOwner());
+            for (PairedMapping m : a.getMethods()) assertSame(a, m.getComponent(Owned.class).getOwner());
+        }
+    }
+
+    /**
+     * Checks that every parallelism reads the same mappings as the sequential byte path. The {@link java.io.Reader}
+     * path is only compared when {@code reader} is true, as it orders the classes of scattered input differently
+     */
+    private static ClassifiedMapping<PairedMapping> assertParallelRead(MappingFormat<PairedMapping, ClassifiedMapping<PairedMapping>> format,
+                                                                       String text, boolean reader) {
+        byte[] bytes = bytes(text);
+        ClassifiedMapping<PairedMapping> expected = format.read(bytes);
+        if (reader) assertEquals(format.read(new StringReader(text)), expected);
+        for (int parallelism : PARALLELISMS) {
+            assertSameOrder(expected, format.read(bytes, parallelism));
+        }
+        return expected;
+    }
+
+    @Test
+    void testLineChunks() throws IOException {
+        byte[] bytes = bytes(crlf(resource("1.17.1.tsrg")));
+        assertThrows(IllegalArgumentException.class, () -> LineChunks.split(bytes, 0, null));
+        assertArrayEquals(new int[] {0, 100}, LineChunks.split(new byte[100], 16, null));// Too small to split
+        for (int parallelism : PARALLELISMS) {
+            for (var header : Arrays.asList(null, LineChunks.UNINDENTED)) {
+                int[] bounds = LineChunks.split(bytes, parallelism, header);
+                assertTrue(bounds.length >= 2 && bounds.length <= parallelism + 1);
+                assertEquals(0, bounds[0]);
+                assertEquals(bytes.length, bounds[bounds.length - 1]);
+                for (int i = 1; i < bounds.length - 1; i++) {
+                    assertTrue(bounds[i] > bounds[i - 1]);
+                    assertEquals('\n', bytes[bounds[i] - 1]);// Starts a line
+                    if (header != null) assertTrue(header.test(bytes[bounds[i]]));
+                }
+            }
+        }
+        assertEquals(17, LineChunks.split(bytes, 16, null).length);
+    }
+
+    @Test
+    void testParallelTsrg() throws IOException {
+        String tsrg = resource("1.17.1.tsrg");
+        assertParallelRead(MappingFormats.TSRG_V1, tsrg + "\n# comment\n  \na/ b/\n", true);
+        assertParallelRead(MappingFormats.TSRG_V1, crlf(tsrg), true);
+    }
+
+    @Test
+    void testParallelCsrg() throws IOException {
+        String csrg = resource("1.17.1.csrg");
+        assertParallelRead(MappingFormats.CSRG, csrg + "\n# comment\nabc/ def/   # trailing\n", true);
+        assertParallelRead(MappingFormats.CSRG, crlf(csrg), true);
+        // A class declared in the first and the last chunk, with the members of all the classes spread over the chunks
+        var shuffled = assertParallelRead(MappingFormats.CSRG, "a first_declared\n" + shuffle(csrg, 42) + "\na last_declared\n", false);
+        assertEquals("last_declared", shuffled.classes.stream().filter(cm -> cm.mapping.unmappedName.equals("a"))
+                .findFirst().orElseThrow().mapping.mappedName);
+    }
+
+    @Test
+    void testParallelProguard() {
+        String proguard = proguard(5000);
+        for (String text : new String[] {proguard, crlf(proguard)}) {
+            byte[] bytes = bytes(text);
+            for (int parallelism : PARALLELISMS) {
+                int[] bounds = LineChunks.split(bytes, parallelism, LineChunks.UNINDENTED);
+                if (parallelism >= 16) assertTrue(bounds.length > 2);
+                for (int i = 1; i < bounds.length - 1; i++) {
+                    assertEquals('c', bytes[bounds[i]]);// Never a "# {...}" line or a member line
+                }
+            }
+            var read = assertParallelRead(MappingFormats.PROGUARD, text, true);
+            assertEquals(5000, read.classes.size());
+            assertEquals(5, read.classes.get(4999).getFields().size() + read.classes.get(4999).getMethods().size());
+        }
+    }
+
+    @Test
+    void testParallelSrg() throws IOException {
+        String srg = srg(MappingFormats.TSRG_V1.read(bytes(resource("1.17.1.tsrg"))));
+        assertParallelRead(MappingFormats.SRG, srg, true);
+        assertParallelRead(MappingFormats.SRG, crlf(srg), true);
+        assertParallelRead(MappingFormats.SRG, shuffle(srg, 7), false);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.test.mappings.benchmark;
+
+import cn.maxpixel.mcdecompiler.mapping.Mapping;
+import cn.maxpixel.mcdecompiler.mapping.PairedMapping;
+import cn.maxpixel.mcdecompiler.mapping.collection.ClassMapping;
+import cn.maxpixel.mcdecompiler.mapping.collection.ClassifiedMapping;
+import cn.maxpixel.mcdecompiler.mapping.component.Descriptor;
+import cn.maxpixel.mcdecompiler.mapping.format.TsrgV1MappingFormat;
+import cn.maxpixel.mcdecompiler.mapping.remapper.ClassifiedMappingRemapper;
+import cn.maxpixel.mcdecompiler.mapping.remapper.DescriptorRemapper;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remaps all the method descriptors of the mappings with a warm cache (hit), with an empty cache (miss), and remaps
+ * descriptors that reference no mapped classes (unmapped).
+ */
+@Fork(1)
+@Threads(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class DescriptorRemapSpeedTest {
+    private static final ClassifiedMapping<PairedMapping> mappings = TsrgV1MappingFormat.INSTANCE.read(
+            DescriptorRemapSpeedTest.class.getClassLoader().getResourceAsStream("1.17.1.tsrg"));
+    private static final Object2ObjectOpenHashMap<String, ClassMapping<PairedMapping>> mappingByUnm =
+            ClassifiedMappingRemapper.genMappingsByUnmappedNameMap(mappings.classes);
+    private static final Object2ObjectOpenHashMap<String, ClassMapping<PairedMapping>> mappingByMap =
+            ClassifiedMappingRemapper.genMappingsByMappedNameMap(mappings.classes);
+
+    private String[] descriptors;
+    private String[] mappedDescriptors;
+    private String[] unmappedDescriptors;
+    private DescriptorRemapper warm;
+
+    @Setup
+    public void setup() {
+        ObjectArrayList<String> descriptors = new ObjectArrayList<>();
+        for (ClassMapping<PairedMapping> cm : mappings.classes) {
+            for (Mapping m : cm.getMethods()) descriptors.add(m.getComponent(Descriptor.Unmapped.class).descriptor);
+        }
+        this.descriptors = descriptors.toArray(new String[0]);
+        this.warm = new DescriptorRemapper(mappingByUnm, mappingByMap);
+        this.mappedDescriptors = new String[this.descriptors.length];
+        for (int i = 0; i < this.descriptors.length; i++) mappedDescriptors[i] = warm.mapMethodDesc(this.descriptors[i]);
+        for (String desc : mappedDescriptors) warm.unmapMethodDesc(desc);
+        ObjectArrayList<String> unmapped = new ObjectArrayList<>();
+        for (int i = 0; i < this.descriptors.length; i++) {
+            if (this.descriptors[i].indexOf('L') >= 0 && this.descriptors[i].equals(mappedDescriptors[i])) unmapped.add(this.descriptors[i]);
+        }
+        this.unmappedDescriptors = unmapped.toArray(new String[0]);
+    }
+
+//    @Test
+    public void test() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(DescriptorRemapSpeedTest.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    @Benchmark
+    public void mapHit(Blackhole bh) {
+        for (String desc : descriptors) bh.consume(warm.mapMethodDesc(desc));
+    }
+
+    @Benchmark
+    public void unmapHit(Blackhole bh) {
+        for (String desc : mappedDescriptors) bh.consume(warm.unmapMethodDesc(desc));
+    }
+
+    @Benchmark
+    public void mapMiss(Blackhole bh) {
+        DescriptorRemapper cold = new DescriptorRemapper(mappingByUnm, mappingByMap);
+        for (String desc : descriptors) bh.consume(cold.mapMethodDesc(desc));
+    }
+
+    @Benchmark
+    public void mapUnmappedMiss(Blackhole bh) {
+        DescriptorRemapper cold = new DescriptorRemapper(mappingByUnm, mappingByMap);
+        for (String desc : unmappedDescriptors) bh.consume(cold.mapMethodDesc(desc));
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package cn.maxpixel.mcdecompiler.test.mappings.benchmark;
+
+import cn.maxpixel.mcdecompiler.mapping.Mapping;
+import cn.maxpixel.mcdecompiler.mapping.NamespacedMapping;
+import cn.maxpixel.mcdecompiler.mapping.PairedMapping;
+import cn.maxpixel.mcdecompiler.mapping.collection.ClassMapping;
+import cn.maxpixel.mcdecompiler.mapping.collection.ClassifiedMapping;
+import cn.maxpixel.mcdecompiler.mapping.collection.MappingCollection;
+import cn.maxpixel.mcdecompiler.mapping.collection.UniqueMapping;
+import cn.maxpixel.mcdecompiler.mapping.component.*;
+import cn.maxpixel.mcdecompiler.mapping.format.MappingFormats;
+import cn.maxpixel.mcdecompiler.mapping.util.InputCollection;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Memory cost of the bundled mappings.
+ * <p>
+ * {@link #report()} prints the retained heap of each loaded collection, broken down into class mappings, members and
+ * component types. The benchmarks parse the same files, and {@link #test()} runs them with the GC profiler
+ * ({@code -prof gc}), whose {@code gc.alloc.rate.norm} is the allocation volume of one parse.
+ */
+@Fork(1)
+@Threads(1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class MappingFootprintTest {
+    private static final String tiny1 = read("1.17.1.tiny");
+    private static final String tsrg = read("1.17.1.tsrg");
+    private static final String csrg = read("1.17.1.csrg");
+    private static final ObjectArrayList<String[]> mcp = readZip("mcp_stable-12-1.7.10.zip");
+
+    /**
+     * Removed one by one when reporting. {@link Owned} comes last, as it is what makes the members reach their
+     * classes
+     */
+    private static final List<Class<? extends Component>> COMPONENT_TYPES = List.of(Documented.class,
+            LocalVariableTable.Paired.class, LocalVariableTable.Namespaced.class, StaticIdentifiable.class, LineNumber.class,
+            Descriptor.Unmapped.class, Descriptor.Mapped.class, Descriptor.Namespaced.class, Owned.class);
+
+    private static String read(String n) {
+        try (var is = MappingFootprintTest.class.getClassLoader().getResourceAsStream(n)) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static ObjectArrayList<String[]> readZip(String n) {
+        ObjectArrayList<String[]> entries = new ObjectArrayList<>();
+        try (var is = new ZipInputStream(MappingFootprintTest.class.getClassLoader().getResourceAsStream(n))) {
+            for (ZipEntry e = is.getNextEntry(); e != null; e = is.getNextEntry()) {
+                if (!e.isDirectory()) entries.add(new String[] {e.getName(), new String(is.readAllBytes(), StandardCharsets.UTF_8)});
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return entries;
+    }
+
+    private static ClassifiedMapping<NamespacedMapping> loadTiny1() {
+        return MappingFormats.TINY_V1.read(new StringReader(tiny1));
+    }
+
+    private static ClassifiedMapping<PairedMapping> loadTsrg() {
+        return MappingFormats.TSRG_V1.read(new StringReader(tsrg));
+    }
+
+    private static ClassifiedMapping<PairedMapping> loadCsrg() {
+        return MappingFormats.CSRG.read(new StringReader(csrg));
+    }
+
+    private static UniqueMapping<PairedMapping> loadMcp() {
+        var input = InputCollection.of();
+        for (String[] entry : mcp) input.add(new InputCollection.Entry(new StringReader(entry[1]), entry[0]));
+        return MappingFormats.MCP.read(input);
+    }
+
+//    @Test
+    public void test() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MappingFootprintTest.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+//    @Test
+    public void report() {
+        report("1.17.1.tiny", loadTiny1());
+        report("1.17.1.tsrg", loadTsrg());
+        report("1.17.1.csrg", loadCsrg());
+        report("mcp_stable-12-1.7.10.zip", loadMcp());
+    }
+
+    /**
+     * Prints the retained heap of the collection.
+     * <p>
+     * The retained size of a component type is how much the collection shrinks when that component is removed from
+     * every mapping, so the local variables are counted in the {@link LocalVariableTable}. Lazily added components
+     * which were never created count as holders but retain nothing.
+     *
+     * @implNote The components are removed from the collection, so it must not be used afterward
+     */
+    private static void report(String name, MappingCollection<?> mappings) {
+        ObjectArrayList<ClassMapping<?>> classes = new ObjectArrayList<>();
+        ObjectArrayList<Mapping> members = new ObjectArrayList<>();
+        ObjectArrayList<Mapping> all = new ObjectArrayList<>(mappings.packages);
+        if (mappings instanceof ClassifiedMapping<?> cm) {
+            for (ClassMapping<?> c : cm.classes) {
+                classes.add(c);
+                all.add(c.mapping);
+                members.addAll(c.getFields());
+                members.addAll(c.getMethods());
+            }
+        } else if (mappings instanceof UniqueMapping<?> um) {
+            members.addAll(um.classes);
+            members.addAll(um.fields);
+            members.addAll(um.methods);
+            members.addAll(um.params);
+        }
+        all.addAll(members);
+
+        long total = GraphLayout.parseInstance(mappings).totalSize();
+        System.out.println("===== " + name + " =====");
+        System.out.printf("%-28s %10s %14s %10s%n", "", "count", "retained", "avg");
+        row(mappings.getClass().getSimpleName(), 1, total);
+
+        long remaining = total;
+        for (Class<? extends Component> type : COMPONENT_TYPES) {
+            int holders = 0;
+            for (Mapping m : all) {
+                if (m.hasComponent(type)) {
+                    holders++;
+                    m.removeComponent(type);
+                }
+            }
+            if (holders == 0) continue;
+            long after = GraphLayout.parseInstance(mappings).totalSize();
+            row(type.getName().substring(type.getPackageName().length() + 1), holders, remaining - after);
+            remaining = after;
+        }
+
+        // Without the Owned components, a member only reaches its own names
+        GraphLayout memberLayout = GraphLayout.parseInstance(members.toArray());
+        row("Member(w/o components)", members.size(), memberLayout.totalSize());
+        if (!classes.isEmpty()) {
+            row("ClassMapping(w/o members)", classes.size(),
+                    GraphLayout.parseInstance(classes.toArray()).subtract(memberLayout).totalSize());
+        }
+    }
+
+    private static void row(String name, long count, long size) {
+        System.out.printf("%-28s %10d %14d %10.1f%n", name, count, size, (double) size / count);
+    }
+
+    @Benchmark
+    public ClassifiedMapping<NamespacedMapping> readTinyV1() {
+        return loadTiny1();
+    }
+
+    @Benchmark
+    public ClassifiedMapping<PairedMapping> readTsrg() {
+        return loadTsrg();
+    }
+
+    @Benchmark
+    public ClassifiedMapping<PairedMapping> readCsrg() {
+        return loadCsrg();
+    }
+
+    @Benchmark
+    public UniqueMapping<PairedMapping> readMcp() {
+        return loadMcp();
+    }
+}
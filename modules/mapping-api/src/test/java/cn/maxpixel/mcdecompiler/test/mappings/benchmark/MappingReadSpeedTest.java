@@ -19,6 +19,7 @@
 package cn.maxpixel.mcdecompiler.test.mappings.benchmark;
 
 import cn.maxpixel.mcdecompiler.mapping.format.*;
+import cn.maxpixel.mcdecompiler.utils.ExecutionContext;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 import org.openjdk.jmh.profile.JavaFlightRecorderProfiler;
@@ -29,6 +30,7 @@ import org.openjdk.jmh.runner.options.OptionsBuilder;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 
 @Fork(1)
@@ -47,6 +49,16 @@ public class MappingReadSpeedTest {
     private static final String tiny1 = read("1.17.1.tiny");
     private static final String tiny2 = read("1.17.1-v2.tiny");
 
+    // Same contents as above, read through the byte path of the processors
+    private static final byte[] srgBytes = srg.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] csrgBytes = csrg.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] tsrgBytes = tsrg.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] tsrg2Bytes = tsrg2.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] proguardBytes = proguard.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] tiny1Bytes = tiny1.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] tiny2Bytes = tiny2.getBytes(StandardCharsets.UTF_8);
+    private static final int parallelism = ExecutionContext.availableProcessors();
+
     private static String read(String n) {
         try (var is = MappingReadSpeedTest.class.getClassLoader().getResourceAsStream(n)) {
             return new String(is.readAllBytes());
@@ -64,6 +76,23 @@ public class MappingReadSpeedTest {
         new Runner(options).run();
     }
 
+    /*
+     * JDK 17.0.9, 1 CPU, -Xmx2g, -w 2s -r 2s, -prof gc. Only the formats with fixtures in the repo
+     * Benchmark                                Mode  Cnt         Score     Error   Units
+     * readCsrg                                 avgt   10        92.846 ±  20.659   ms/op
+     * readCsrg:gc.alloc.rate.norm              avgt   10  34586211.866 ±  23.891    B/op
+     * readCsrgBytes                            avgt   10        55.990 ±  10.418   ms/op
+     * readCsrgBytes:gc.alloc.rate.norm         avgt   10  16909182.125 ±   2.340    B/op
+     * readTsrg                                 avgt   10        71.045 ±  16.733   ms/op
+     * readTsrg:gc.alloc.rate.norm              avgt   10  29764205.554 ±  20.654    B/op
+     * readTsrgBytes                            avgt   10        43.837 ±   8.108   ms/op
+     * readTsrgBytes:gc.alloc.rate.norm         avgt   10  16828595.253 ±   2.089    B/op
+     * readTinyV1                               avgt   10       126.126 ±  31.372   ms/op
+     * readTinyV1:gc.alloc.rate.norm            avgt   10  45096979.301 ±  39.704    B/op
+     * readTinyV1Bytes                          avgt   10       122.654 ±  15.804   ms/op
+     * readTinyV1Bytes:gc.alloc.rate.norm       avgt   10  27215574.090 ±   3.320    B/op
+     */
+
     @Benchmark
     public void readSrg(Blackhole bh) {
         bh.consume(SrgMappingFormat.INSTANCE.read(new StringReader(srg)));
@@ -98,4 +127,59 @@ public class MappingReadSpeedTest {
     public void readTinyV2(Blackhole bh) {
         bh.consume(TinyV2MappingFormat.INSTANCE.read(new StringReader(tiny2)));
     }
+
+    @Benchmark
+    public void readSrgBytes(Blackhole bh) {
+        bh.consume(SrgMappingFormat.INSTANCE.read(srgBytes));
+    }
+
+    @Benchmark
+    public void readCsrgBytes(Blackhole bh) {
+        bh.consume(CsrgMappingFormat.INSTANCE.read(csrgBytes));
+    }
+
+    @Benchmark
+    public void readTsrgBytes(Blackhole bh) {
+        bh.consume(TsrgV1MappingFormat.INSTANCE.read(tsrgBytes));
+    }
+
+    @Benchmark
+    public void readTsrgV2Bytes(Blackhole bh) {
+        bh.consume(TsrgV2MappingFormat.INSTANCE.read(tsrg2Bytes));
+    }
+
+    @Benchmark
+    public void readProguardBytes(Blackhole bh) {
+        bh.consume(ProguardMappingFormat.INSTANCE.read(proguardBytes));
+    }
+
+    @Benchmark
+    public void readTinyV1Bytes(Blackhole bh) {
+        bh.consume(TinyV1MappingFormat.INSTANCE.read(tiny1Bytes));
+    }
+
+    @Benchmark
+    public void readTinyV2Bytes(Blackhole bh) {
+        bh.consume(TinyV2MappingFormat.INSTANCE.read(tiny2Bytes));
+    }
+
+    @Benchmark
+    public void readSrgParallel(Blackhole bh) {
+        bh.consume(SrgMappingFormat.INSTANCE.read(srgBytes, parallelism));
+    }
+
+    @Benchmark
+    public void readCsrgParallel(Blackhole bh) {
+        bh.consume(CsrgMappingFormat.INSTANCE.read(csrgBytes, parallelism));
+    }
+
+    @Benchmark
+    public void readTsrgParallel(Blackhole bh) {
+        bh.consume(TsrgV1MappingFormat.INSTANCE.read(tsrgBytes, parallelism));
+    }
+
+    @Benchmark
+    public void readProguardParallel(Blackhole bh) {
+        bh.consume(ProguardMappingFormat.INSTANCE.read(proguardBytes, parallelism));
+    }
 }
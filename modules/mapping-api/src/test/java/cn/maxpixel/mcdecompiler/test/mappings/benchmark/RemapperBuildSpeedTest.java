@@ -0,0 +1,89 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package cn.maxpixel.mcdecompiler.test.mappings.benchmark;
+
+import cn.maxpixel.mcdecompiler.mapping.NamespacedMapping;
+import cn.maxpixel.mcdecompiler.mapping.PairedMapping;
+import cn.maxpixel.mcdecompiler.mapping.collection.ClassifiedMapping;
+import cn.maxpixel.mcdecompiler.mapping.format.MappingFormats;
+import cn.maxpixel.mcdecompiler.mapping.remapper.ClassifiedMappingRemapper;
+import cn.maxpixel.mcdecompiler.mapping.trait.NamespacedTrait;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds a remapper from a full Tiny v2 file, remapping from both the obfuscated and the intermediary namespace, and
+ * from a TSRG v1 file.
+ */
+@Fork(1)
+@Threads(1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class RemapperBuildSpeedTest {
+    private static final ClassifiedMapping<NamespacedMapping> tinyOfficial = MappingFormats.TINY_V2.read(
+            RemapperBuildSpeedTest.class.getClassLoader().getResourceAsStream("1.17.1-v2.tiny"));
+    private static final ClassifiedMapping<NamespacedMapping> tinyIntermediary = MappingFormats.TINY_V2.read(
+            RemapperBuildSpeedTest.class.getClassLoader().getResourceAsStream("1.17.1-v2.tiny"));
+    private static final ClassifiedMapping<PairedMapping> tsrg = MappingFormats.TSRG_V1.read(
+            RemapperBuildSpeedTest.class.getClassLoader().getResourceAsStream("1.17.1.tsrg"));
+
+    static {
+        setNamespaces(tinyOfficial, "official", "named");
+        setNamespaces(tinyIntermediary, "intermediary", "named");
+    }
+
+    private static void setNamespaces(ClassifiedMapping<NamespacedMapping> mappings, String unmapped, String mapped) {
+        NamespacedTrait trait = mappings.getTrait(NamespacedTrait.class);
+        trait.setUnmappedNamespace(unmapped);
+        trait.setMappedNamespace(mapped);
+        trait.updateCollection(mappings);
+    }
+
+//    @Test
+    public void test() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RemapperBuildSpeedTest.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    @Benchmark
+    public ClassifiedMappingRemapper tinyOfficial() {
+        return new ClassifiedMappingRemapper(tinyOfficial);
+    }
+
+    @Benchmark
+    public ClassifiedMappingRemapper tinyIntermediary() {
+        return new ClassifiedMappingRemapper(tinyIntermediary);
+    }
+
+    @Benchmark
+    public ClassifiedMappingRemapper tsrg() {
+        return new ClassifiedMappingRemapper(tsrg);
+    }
+}
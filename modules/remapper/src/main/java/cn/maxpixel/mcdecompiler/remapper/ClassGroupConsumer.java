@@ -0,0 +1,51 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.remapper;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Receives the remapped classes while the deobfuscation is still running. A top-level class is handed over together
+ * with all of its inner classes, as soon as the last of them is remapped.
+ * <p>
+ * Methods except {@link #expect} are called concurrently from the remapping threads.
+ */
+@FunctionalInterface
+public interface ClassGroupConsumer {
+    /**
+     * Called once before the remapping starts.
+     * @param names Entry names of all the classes to be remapped, like "a/b/C.class"
+     */
+    default void expect(Set<String> names) {
+    }
+
+    /**
+     * Called when a top-level class and all of its inner classes have been remapped.
+     * @param classes The remapped classes, keyed by their entry names
+     */
+    void accept(Map<String, byte[]> classes);
+
+    /**
+     * Called when a class failed to be remapped, so it is not going to be {@link #accept accepted}.
+     * @param name The entry name of the class
+     */
+    default void failed(String name) {
+    }
+}
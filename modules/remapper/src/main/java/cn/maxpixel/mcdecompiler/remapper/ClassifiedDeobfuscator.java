@@ -19,26 +19,70 @@
 package cn.maxpixel.mcdecompiler.remapper;
 
 import cn.maxpixel.mcdecompiler.common.app.SideType;
+import cn.maxpixel.mcdecompiler.common.app.util.AppUtils;
 import cn.maxpixel.mcdecompiler.common.app.util.DownloadingUtil;
+import cn.maxpixel.mcdecompiler.mapping.Mapping;
 import cn.maxpixel.mcdecompiler.mapping.NamespacedMapping;
 import cn.maxpixel.mcdecompiler.mapping.PairedMapping;
+import cn.maxpixel.mcdecompiler.mapping.collection.ClassMapping;
 import cn.maxpixel.mcdecompiler.mapping.collection.ClassifiedMapping;
+import cn.maxpixel.mcdecompiler.mapping.component.Descriptor;
+import cn.maxpixel.mcdecompiler.mapping.component.LocalVariableTable;
+import cn.maxpixel.mcdecompiler.mapping.component.StaticIdentifiable;
 import cn.maxpixel.mcdecompiler.mapping.format.MappingFormats;
 import cn.maxpixel.mcdecompiler.mapping.remapper.ClassifiedMappingRemapper;
 import cn.maxpixel.mcdecompiler.mapping.trait.NamespacedTrait;
 import cn.maxpixel.mcdecompiler.mapping.util.MappingUtils;
+import cn.maxpixel.mcdecompiler.utils.ExecutionContext;
+import cn.maxpixel.mcdecompiler.utils.Utils;
+import cn.maxpixel.rewh.logging.LogManager;
+import cn.maxpixel.rewh.logging.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.nio.file.Path;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.util.Arrays;
 
 public class ClassifiedDeobfuscator extends Deobfuscator<ClassifiedMappingRemapper> {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private ClassifiedMapping<?> mappings;
+    private byte[] mappingFingerprint;
+
     public ClassifiedDeobfuscator(String version, SideType side) {
         this(version, side, DeobfuscationOptions.DEFAULT);
     }
 
+    /**
+     * Deobfuscates with the official mappings of the given version.
+     * <p>
+     * The built remapper is saved as a snapshot next to the downloaded mappings, named after the hash of the mappings.
+     * Later runs with the same mappings memory-map the snapshot instead of downloading, parsing and building again.
+     */
     public ClassifiedDeobfuscator(String version, SideType side, DeobfuscationOptions options) {
-        this(MappingFormats.PROGUARD.read(DownloadingUtil.downloadMappingSync(version, side)), options);
+        super(options);
+        var info = DownloadingUtil.getMappingInfo(version, side).join();
+        Path snapshot = info.left().resolveSibling(side + "_mappings." + info.right() + (options.reverse ? ".reversed" : "") + ".remapper");
+        MessageDigest md = RemapCache.newDigest();
+        AppUtils.updateDigest(md, info.right());
+        md.update((byte) (options.reverse ? 1 : 0));
+        this.mappingFingerprint = md.digest();
+        this.remapper = mapSnapshot(snapshot);
+        if (remapper == null) {
+            byte[] bytes;
+            try {
+                bytes = Files.readAllBytes(DownloadingUtil.downloadMappingFileSync(version, side));
+            } catch (IOException e) {
+                throw Utils.wrapInRuntime(e);
+            }
+            ClassifiedMapping<PairedMapping> mappings = MappingFormats.PROGUARD.read(bytes, ExecutionContext.current().getParallelism());
+            if (options.reverse) mappings.reverse();
+            this.remapper = buildRemapper(mappings);
+            writeSnapshot(remapper, snapshot);
+        }
     }
 
     public ClassifiedDeobfuscator(ClassifiedMapping<PairedMapping> mappings) {
@@ -48,7 +92,8 @@ public class ClassifiedDeobfuscator extends Deobfuscator<ClassifiedMappingRemapp
     public ClassifiedDeobfuscator(ClassifiedMapping<PairedMapping> mappings, DeobfuscationOptions options) {
         super(options);
         if (options.reverse) mappings.reverse();
-        this.remapper = new ClassifiedMappingRemapper(mappings);
+        this.remapper = buildRemapper(mappings);
+        this.mappings = mappings;
     }
 
     public ClassifiedDeobfuscator(ClassifiedMapping<NamespacedMapping> mappings, String namespaceTarget) {
@@ -65,7 +110,53 @@ public class ClassifiedDeobfuscator extends Deobfuscator<ClassifiedMappingRemapp
         namespaced.setMappedNamespace(targetNamespace);
         namespaced.setFallbackNamespace(mappings.getFirstNamespace());
         mappings.updateCollection();
-        this.remapper = new ClassifiedMappingRemapper(mappings);
+        this.remapper = buildRemapper(mappings);
+        this.mappings = mappings;
+    }
+
+    private static ClassifiedMappingRemapper buildRemapper(ClassifiedMapping<?> mappings) {
+        long start = System.nanoTime();
+        ClassifiedMappingRemapper remapper = new ClassifiedMappingRemapper(mappings);
+        LOGGER.debug("Built the remapper of {} classes in {} ms", mappings.classes.size(), (System.nanoTime() - start) / 1_000_000);
+        return remapper;
+    }
+
+    private static @Nullable ClassifiedMappingRemapper mapSnapshot(Path file) {
+        if (Files.notExists(file)) return null;
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ClassifiedMappingRemapper remapper = ClassifiedMappingRemapper.mapSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            LOGGER.debug("Mapped the remapper snapshot {} in {} ms", file, (System.nanoTime() - start) / 1_000_000);
+            return remapper;// The mapped buffer stays valid after the channel is closed
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.warn("Failed to map the remapper snapshot {}, rebuilding it", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot to a temporary file first, so that a partially written snapshot is never mapped.
+     * Failures are logged and ignored, the snapshot is only an optimization.
+     */
+    private static void writeSnapshot(ClassifiedMappingRemapper remapper, Path file) {
+        Path tmp = file.resolveSibling(file.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                remapper.writeSnapshot(channel);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write the remapper snapshot {}", file, e);
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+        }
     }
 
     private static String inferTargetNamespace(String targetNamespace, @NotNull ClassifiedMapping<NamespacedMapping> mappings) {
@@ -75,9 +166,77 @@ public class ClassifiedDeobfuscator extends Deobfuscator<ClassifiedMappingRemapp
         return namespaces.last();
     }
 
+    /**
+     * Hashes the names, descriptors and local variable names of the mappings, which are what the remapping depends on.
+     */
+    @Override
+    public synchronized byte @Nullable [] mappingFingerprint() {
+        if (mappingFingerprint == null && mappings != null) {
+            MessageDigest md = RemapCache.newDigest();
+            for (ClassMapping<?> cm : mappings.classes) {
+                fingerprint(md, cm.mapping);
+                for (Mapping field : cm.getFields()) fingerprint(md, field);
+                md.update((byte) 1);
+                for (Mapping method : cm.getMethods()) fingerprint(md, method);
+                md.update((byte) 2);
+            }
+            this.mappingFingerprint = md.digest();
+        }
+        return mappingFingerprint;
+    }
+
+    private static void fingerprint(MessageDigest md, Mapping mapping) {
+        AppUtils.updateDigest(md, String.valueOf(mapping.getUnmappedName()));
+        AppUtils.updateDigest(md, String.valueOf(mapping.getMappedName()));
+        fingerprint(md, mapping.getComponent(Descriptor.Unmapped.class));
+        fingerprint(md, mapping.getComponent(Descriptor.Mapped.class));
+        fingerprint(md, mapping.getComponent(Descriptor.Namespaced.class));
+        StaticIdentifiable si = mapping.getComponent(StaticIdentifiable.class);
+        if (si != null) md.update((byte) (si.isStatic ? 3 : 4));
+        LocalVariableTable<?> lvt = mapping.peekComponent(LocalVariableTable.Paired.class);// Lazily added tables are empty
+        if (lvt == null) lvt = mapping.peekComponent(LocalVariableTable.Namespaced.class);
+        if (lvt != null) {
+            int[] indexes = lvt.getLocalVariableIndexes().toIntArray();
+            Arrays.sort(indexes);
+            for (int index : indexes) {
+                Mapping lv = lvt.getLocalVariable(index);
+                AppUtils.updateDigest(md, Integer.toString(index));
+                if (lv != null) AppUtils.updateDigest(md, String.valueOf(lv.getMappedName()));
+            }
+        }
+        md.update((byte) 0);
+    }
+
+    private static void fingerprint(MessageDigest md, @Nullable Descriptor descriptor) {
+        if (descriptor != null) AppUtils.updateDigest(md, descriptor.toString());
+    }
+
+    /**
+     * Freezes the remapper and drops the mappings, so that they can be garbage collected while remapping.
+     */
+    private synchronized void freeze() {
+        if (mappings == null) return;
+        if (options.remapCache != null) mappingFingerprint();// Computed from the mappings, which are dropped below
+        if (remapper != null) remapper.freeze();
+        this.mappings = null;
+    }
+
+    @Override
+    public void release() {
+        super.release();
+        this.mappings = null;
+    }
+
     @Override
     public ClassifiedDeobfuscator deobfuscate(Path source, Path target) throws IOException {
         super.deobfuscate(source, target);
         return this;
     }
+
+    @Override
+    public ClassifiedDeobfuscator deobfuscate(Path source, @Nullable Path target, @Nullable ClassGroupConsumer classConsumer) throws IOException {
+        freeze();
+        super.deobfuscate(source, target, classConsumer);
+        return this;
+    }
 }
\ No newline at end of file
@@ -18,12 +18,19 @@
 
 package cn.maxpixel.mcdecompiler.remapper;
 
+import cn.maxpixel.mcdecompiler.common.app.util.AppUtils;
+import cn.maxpixel.mcdecompiler.common.app.util.ParallelZipWriter;
 import it.unimi.dsi.fastutil.objects.Object2ObjectMaps;
 import it.unimi.dsi.fastutil.objects.ObjectSets;
+import org.jetbrains.annotations.Nullable;
 
 import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
 
 public class DeobfuscationOptions {
     public static final DeobfuscationOptions DEFAULT = new DeobfuscationOptions();
@@ -34,6 +41,19 @@ public class DeobfuscationOptions {
     public final Set<Path> extraJars;
     public final Set<String> extraClasses;
     public final Map<String, Map<String, String>> refMap;
+    /**
+     * Compression level of the output jar. {@link Deflater#DEFAULT_COMPRESSION}, 0-9, or {@link ParallelZipWriter#STORED}
+     */
+    public final int compressionLevel;
+    public final PipelineOptions pipeline;
+    /**
+     * Directory of the {@link RemapCache}, or null to disable the cache
+     */
+    public final @Nullable Path remapCache;
+    /**
+     * Max size of the remap cache in bytes
+     */
+    public final long remapCacheSize;
 
     public DeobfuscationOptions() {
         this(true, false, false);
@@ -45,11 +65,47 @@ public class DeobfuscationOptions {
 
     public DeobfuscationOptions(boolean includeOthers, boolean rvn, boolean reverse, Set<Path> extraJars,
                                 Set<String> extraClasses, Map<String, Map<String, String>> refMap) {
+        this(includeOthers, rvn, reverse, extraJars, extraClasses, refMap, Deflater.DEFAULT_COMPRESSION, PipelineOptions.DEFAULT);
+    }
+
+    public DeobfuscationOptions(boolean includeOthers, boolean rvn, boolean reverse, Set<Path> extraJars,
+                                Set<String> extraClasses, Map<String, Map<String, String>> refMap, int compressionLevel,
+                                PipelineOptions pipeline) {
+        this(includeOthers, rvn, reverse, extraJars, extraClasses, refMap, compressionLevel, pipeline, null, RemapCache.DEFAULT_MAX_SIZE);
+    }
+
+    public DeobfuscationOptions(boolean includeOthers, boolean rvn, boolean reverse, Set<Path> extraJars,
+                                Set<String> extraClasses, Map<String, Map<String, String>> refMap, int compressionLevel,
+                                PipelineOptions pipeline, @Nullable Path remapCache, long remapCacheSize) {
+        if (remapCacheSize <= 0) throw new IllegalArgumentException("Remap cache size must be positive");
         this.includeOthers = includeOthers;
         this.rvn = rvn;
         this.reverse = reverse;
         this.extraJars = extraJars;
         this.extraClasses = extraClasses;
         this.refMap = refMap;
+        this.compressionLevel = compressionLevel;
+        this.pipeline = Objects.requireNonNull(pipeline, "pipeline cannot be null");
+        this.remapCache = remapCache;
+        this.remapCacheSize = remapCacheSize;
+    }
+
+    /**
+     * Updates the digest with the options that change the remapped classes. The refMap is hashed in sorted order. Options
+     * that only choose which entries are written and how they are compressed don't change the classes, so they are not
+     * hashed.
+     * @param md The digest to update
+     */
+    public void fingerprint(MessageDigest md) {
+        md.update((byte) (rvn ? 1 : 0));
+        md.update((byte) (reverse ? 1 : 0));
+        for (Map.Entry<String, Map<String, String>> mixin : new TreeMap<>(refMap).entrySet()) {
+            AppUtils.updateDigest(md, mixin.getKey());
+            for (Map.Entry<String, String> e : new TreeMap<>(mixin.getValue()).entrySet()) {
+                AppUtils.updateDigest(md, e.getKey());
+                AppUtils.updateDigest(md, String.valueOf(e.getValue()));
+            }
+            md.update((byte) 1);
+        }
     }
 }
\ No newline at end of file
@@ -19,33 +19,40 @@
 package cn.maxpixel.mcdecompiler.remapper;
 
 import cn.maxpixel.mcdecompiler.common.app.util.AppUtils;
-import cn.maxpixel.mcdecompiler.common.app.util.FileUtil;
-import cn.maxpixel.mcdecompiler.common.app.util.JarUtil;
+import cn.maxpixel.mcdecompiler.common.app.util.MappedZipFile;
+import cn.maxpixel.mcdecompiler.common.app.util.ParallelZipWriter;
+import cn.maxpixel.mcdecompiler.common.app.util.PipelineStage;
 import cn.maxpixel.mcdecompiler.mapping.remapper.MappingRemapper;
 import cn.maxpixel.mcdecompiler.remapper.processing.ClassFileRemapper;
 import cn.maxpixel.mcdecompiler.remapper.processing.ClassProcessor;
 import cn.maxpixel.mcdecompiler.remapper.processing.ExtraClassesInformation;
-import cn.maxpixel.mcdecompiler.remapper.util.IOUtil;
+import cn.maxpixel.mcdecompiler.utils.ExecutionContext;
 import cn.maxpixel.rewh.logging.LogManager;
 import cn.maxpixel.rewh.logging.Logger;
-import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import it.unimi.dsi.fastutil.objects.*;
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.jar.JarFile;
 import java.util.jar.Manifest;
-import java.util.stream.Stream;
 
 public abstract class Deobfuscator<T extends MappingRemapper> {
     public static final int ASM_VERSION = Opcodes.ASM9;
     protected static final Logger LOGGER = LogManager.getLogger();
+    /**
+     * Version of the output of the remapping. Part of the key of the remap cache, change it when the output changes
+     */
+    private static final String CACHE_VERSION = "2";
 
     protected final DeobfuscationOptions options;
     protected final ClassProcessor processor;
@@ -59,69 +66,288 @@ public abstract class Deobfuscator<T extends MappingRemapper> {
     public final ObjectOpenHashSet<String> toDecompile = new ObjectOpenHashSet<>();
 
     public Deobfuscator<T> deobfuscate(Path source, Path target) throws IOException {
+        return deobfuscate(source, target, null);
+    }
+
+    /**
+     * Deobfuscate the source jar.
+     * @param source The jar to deobfuscate
+     * @param target The deobfuscated jar to write. Use null to skip writing the jar
+     * @param classConsumer Receives the remapped classes while the deobfuscation is running. Use null if the classes are
+     *                      not needed
+     */
+    public Deobfuscator<T> deobfuscate(Path source, @Nullable Path target, @Nullable ClassGroupConsumer classConsumer) throws IOException {
         LOGGER.info("Deobfuscating...");
-        Files.deleteIfExists(target);
-        try (FileSystem fs = JarUtil.createZipFs(FileUtil.requireExist(source));
-             FileSystem targetFs = JarUtil.createZipFs(FileUtil.makeParentDirs(target), true);
-             Stream<Path> paths = FileUtil.iterateFiles(fs.getPath(""))) {
-            Set<String> extraClasses = options.extraClasses;
-            boolean deobfAll = extraClasses.contains("*") || extraClasses.contains("*all*");
-            boolean extraClassesNotEmpty = !extraClasses.isEmpty();
-            ExtraClassesInformation info = new ExtraClassesInformation(options.refMap, FileUtil.iterateFiles(fs.getPath(""))
-                    .filter(p -> {
-                        String ps = p.toString();
-                        String k = AppUtils.file2Native(ps);
-                        return (deobfAll && ps.endsWith(".class")) || remapper.hasClassMapping(k) ||
-                                (extraClassesNotEmpty && extraClasses.stream().anyMatch(k::startsWith));
-                    }), true);
-            options.extraJars.forEach(jar -> {
-                try (FileSystem jarFs = JarUtil.createZipFs(jar);
-                    Stream<Path> s = FileUtil.iterateFiles(jarFs.getPath(""))) {
-                    s.filter(p -> p.toString().endsWith(".class")).forEach(info);
+        if (target != null) Files.deleteIfExists(target);
+        PipelineOptions pipeline = options.pipeline;
+        try (MappedZipFile zip = MappedZipFile.open(source);
+             ParallelZipWriter writer = target == null ? null : new ParallelZipWriter(target, options.compressionLevel, pipeline.queueCapacity)) {
+            ExtraClassesInformation info = new ExtraClassesInformation(options.refMap);
+            ObjectArrayList<Entry> entries = read(zip, info);
+            ExecutionContext.current().forEachBlocking(options.extraJars, jar -> {// Each jar is read on an I/O thread
+                try (MappedZipFile jarZip = MappedZipFile.open(jar)) {
+                    for (MappedZipFile.Entry e : jarZip.entries()) {
+                        if (!e.name.endsWith(".class")) continue;
+                        try {
+                            info.accept(jarZip.readAllBytes(e));
+                        } catch (IOException ex) {
+                            LOGGER.warn("Error when generating extra classes information", ex);
+                        }
+                    }
                 } catch (IOException e) {
                     LOGGER.warn("Error reading extra jar: {}", jar, e);
                 }
             });
             ClassFileRemapper cfr = new ClassFileRemapper(remapper, info);
+            if (!cfr.flattenHierarchy()) LOGGER.debug("The remapper can't be flattened, memoizing the super member lookups instead");
             processor.beforeRunning(cfr);
+            RemapCache cache = openCache();
+            byte[] cacheContext = cache != null ? cacheContext(info) : null;
             toDecompile.clear();
-            paths.forEach(path -> {
+            if (classConsumer != null) groupClasses(entries, classConsumer);
+            PipelineStage<Output> compress = new PipelineStage<>("Compress", pipeline.compressThreads, pipeline.queueCapacity, out -> {
                 try {
-                    String pathString = path.toString();
-                    String classKeyName = AppUtils.file2Native(pathString);
-                    if ((deobfAll && pathString.endsWith(".class")) || remapper.hasClassMapping(classKeyName) ||
-                            (extraClassesNotEmpty && extraClasses.stream().anyMatch(classKeyName::startsWith))) {
-                        ClassReader reader = new ClassReader(IOUtil.readAllBytes(path));
-                        ClassWriter writer = new ClassWriter(0);
-                        String s = remapper.mapClass(classKeyName);
-                        reader.accept(processor.getVisitor(writer, reader, cfr), 0);
-                        String mapped = s != null ? s.concat(".class") : pathString;
-                        synchronized (toDecompile) {
-                            toDecompile.add(mapped);
-                        }
-                        try (OutputStream os = Files.newOutputStream(FileUtil.makeParentDirs(targetFs.getPath(mapped)))) {
-                            os.write(writer.toByteArray());
-                        }
-                    } else if (options.includeOthers) {
-                        if (pathString.endsWith(".SF") || pathString.endsWith(".RSA")) return;
-                        try (InputStream inputStream = Files.newInputStream(path);
-                             OutputStream os = Files.newOutputStream(FileUtil.makeParentDirs(targetFs.getPath(pathString)))) {
-                            if (path.endsWith("META-INF/MANIFEST.MF")) {
-                                Manifest man = new Manifest(inputStream);
-                                man.getEntries().clear();
-                                man.write(os);
-                            } else inputStream.transferTo(os);
-                        }
+                    out.slot.write(out.name, out.bytes);
+                } catch (Exception e) {
+                    LOGGER.warn("Error when compressing {}", out.name, e);
+                } finally {
+                    out.slot.cancel();
+                }
+            }, out -> out.slot.cancel());
+            PipelineStage<Entry> remap = new PipelineStage<>("Remap", pipeline.remapThreads, pipeline.queueCapacity, entry -> {
+                ParallelZipWriter.Slot slot = entry.slot;
+                entry.slot = null;
+                ClassReader reader = entry.reader;
+                byte[] original = entry.bytes;
+                entry.reader = null;// Allow the bytes to be collected as soon as the class is remapped
+                entry.bytes = null;
+                String mapped = mappedName(entry);
+                byte[] bytes = null;
+                try {
+                    String key = cache != null ? RemapCache.key(cacheContext, original) : null;
+                    bytes = key != null ? cache.get(key) : null;
+                    if (bytes == null) {
+                        ClassWriter classWriter = new ClassWriter(0);
+                        reader.accept(processor.getVisitor(classWriter, reader, cfr), 0);
+                        bytes = classWriter.toByteArray();
+                        if (key != null) cache.put(key, bytes);
+                    }
+                    synchronized (toDecompile) {
+                        toDecompile.add(mapped);
+                    }
+                    if (slot != null) {
+                        compress.submit(new Output(slot, mapped, bytes));
+                        slot = null;
                     }
                 } catch (Exception e) {
-                    LOGGER.warn("Error when remapping classes or coping files", e);
+                    LOGGER.warn("Error when remapping classes", e);
+                } finally {
+                    if (slot != null) slot.cancel();
+                    if (entry.group != null) entry.group.complete(mapped, bytes, classConsumer);
                 }
+            }, entry -> {
+                if (entry.slot != null) entry.slot.cancel();
+                if (entry.group != null) entry.group.complete(mappedName(entry), null, classConsumer);
             });
+            try (cache; compress; remap) {
+                for (Entry entry : entries) {// Slots are reserved in the order of the source jar
+                    if (writer == null) {
+                        if (entry.isClass() && entry.reader != null) remap.submit(entry);
+                        continue;
+                    }
+                    ParallelZipWriter.Slot slot = writer.reserve();
+                    try {
+                        if (entry.isClass()) {
+                            if (entry.reader == null) slot.cancel();// Failed to read
+                            else {
+                                entry.slot = slot;
+                                remap.submit(entry);
+                            }
+                        } else if (options.includeOthers) {
+                            copyOther(zip, entry, slot, compress);
+                        } else slot.cancel();
+                    } catch (Throwable t) {
+                        slot.cancel();
+                        throw t;
+                    }
+                }
+            } catch (Throwable t) {// The pending slots may never be filled now, so don't let the writer wait for them
+                if (writer != null) writer.abort(t);
+                throw t;
+            }
+            remap.logMetrics(LOGGER);
+            cfr.logMetrics(LOGGER);
+            if (cache != null) cache.logMetrics(LOGGER);
+            if (writer != null) {
+                compress.logMetrics(LOGGER);
+                writer.logMetrics(LOGGER);
+            }
             processor.afterRunning(cfr);
         }
         return this;
     }
 
+    /**
+     * @return A hash of the mappings the remapper uses, or null if the mappings can't be hashed, in which case the
+     *         {@link RemapCache} is not used
+     */
+    public byte @Nullable [] mappingFingerprint() {
+        return null;
+    }
+
+    private @Nullable RemapCache openCache() {
+        if (options.remapCache == null) return null;
+        if (options.rvn) {// The generated abstract parameter names are recorded while visiting, which a cache hit skips
+            LOGGER.info("Not using the remap cache because variable names are regenerated");
+            return null;
+        }
+        if (mappingFingerprint() == null) {
+            LOGGER.info("Not using the remap cache because the mappings can't be hashed");
+            return null;
+        }
+        try {
+            return new RemapCache(options.remapCache, options.remapCacheSize);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to open the remap cache {}", options.remapCache, e);
+            return null;
+        }
+    }
+
+    /**
+     * Hashes everything other than the class itself that affects the remapped class.
+     */
+    private byte[] cacheContext(ExtraClassesInformation info) {
+        MessageDigest md = RemapCache.newDigest();
+        AppUtils.updateDigest(md, CACHE_VERSION);
+        md.update(mappingFingerprint());
+        info.fingerprint(md);
+        processor.fingerprint(md);
+        return md.digest();
+    }
+
+    private String mappedName(Entry entry) {
+        String s = remapper.mapClass(entry.classKeyName);
+        return s != null ? s.concat(".class") : entry.pathString;
+    }
+
+    /**
+     * Groups the classes to remap by their top-level classes, so that each top-level class can be handed over with all
+     * of its inner classes once they are remapped.
+     */
+    private void groupClasses(ObjectArrayList<Entry> entries, ClassGroupConsumer consumer) {
+        Object2ObjectOpenHashMap<String, ClassGroup> groups = new Object2ObjectOpenHashMap<>();
+        ObjectOpenHashSet<String> names = new ObjectOpenHashSet<>();
+        for (Entry entry : entries) {
+            if (!entry.isClass() || entry.reader == null) continue;
+            String name = entry.classKeyName;
+            int i = name.indexOf('$');
+            ClassGroup group = groups.computeIfAbsent(i > 0 ? name.substring(0, i) : name, k -> new ClassGroup());
+            group.remaining++;
+            entry.group = group;
+            names.add(mappedName(entry));
+        }
+        consumer.expect(ObjectSets.unmodifiable(names));
+    }
+
+    private static void copyOther(MappedZipFile zip, Entry entry, ParallelZipWriter.Slot slot, PipelineStage<Output> compress) {
+        String pathString = entry.pathString;
+        try {
+            if (pathString.endsWith(".SF") || pathString.endsWith(".RSA")) slot.cancel();
+            else if (pathString.equals(JarFile.MANIFEST_NAME)) {
+                try (InputStream inputStream = zip.getInputStream(entry.zipEntry)) {
+                    Manifest man = new Manifest(inputStream);
+                    man.getEntries().clear();
+                    ByteArrayOutputStream os = new ByteArrayOutputStream();
+                    man.write(os);
+                    compress.submit(new Output(slot, pathString, os.toByteArray()));
+                }
+            } else slot.copyRaw(zip, entry.zipEntry);// Untouched, so no need to inflate and deflate again
+        } catch (Exception e) {
+            LOGGER.warn("Error when copying {}", pathString, e);
+            slot.cancel();
+        }
+    }
+
+    /**
+     * Reads the source jar once. The classes to remap are read right away, scanned for the hierarchy information and
+     * kept in memory so that the remap pass can use the same bytes. Other entries are only kept as handles.
+     */
+    private ObjectArrayList<Entry> read(MappedZipFile zip, ExtraClassesInformation info) {
+        Set<String> extraClasses = options.extraClasses;
+        boolean deobfAll = extraClasses.contains("*") || extraClasses.contains("*all*");
+        boolean extraClassesNotEmpty = !extraClasses.isEmpty();
+        LongAdder bytesRead = new LongAdder();
+        ObjectArrayList<Entry> entries = new ObjectArrayList<>(zip.entries().size());
+        PipelineStage<Entry> read = new PipelineStage<>("Read", options.pipeline.readThreads, options.pipeline.queueCapacity, entry -> {
+            try {
+                byte[] bytes = zip.readAllBytes(entry.zipEntry);
+                bytesRead.add(bytes.length);
+                ClassReader reader = new ClassReader(bytes);
+                info.accept(reader);
+                entry.reader = reader;
+                entry.bytes = bytes;
+            } catch (Exception e) {
+                LOGGER.warn("Error when reading class {}", entry.pathString, e);
+            }
+        });
+        try (read) {
+            for (MappedZipFile.Entry zipEntry : zip.entries()) {
+                if (zipEntry.isDirectory()) continue;
+                String pathString = zipEntry.name;
+                String classKeyName = AppUtils.file2Native(pathString);
+                if ((deobfAll && pathString.endsWith(".class")) || remapper.hasClassMapping(classKeyName) ||
+                        (extraClassesNotEmpty && extraClasses.stream().anyMatch(classKeyName::startsWith))) {
+                    Entry entry = new Entry(zipEntry, classKeyName);
+                    entries.add(entry);
+                    read.submit(entry);
+                } else entries.add(new Entry(zipEntry, null));
+            }
+        }
+        read.logMetrics(LOGGER);
+        LOGGER.info("Read {} bytes of classes from {} entries", bytesRead.sum(), entries.size());
+        return entries;
+    }
+
+    private record Output(ParallelZipWriter.Slot slot, String name, byte[] bytes) {}
+
+    private static final class ClassGroup {
+        private final Object2ObjectArrayMap<String, byte[]> classes = new Object2ObjectArrayMap<>();
+        private int remaining;
+
+        /**
+         * @param bytes The remapped class, or null if failed to remap
+         */
+        private void complete(String name, byte[] bytes, ClassGroupConsumer consumer) {
+            if (bytes == null) consumer.failed(name);
+            boolean done;
+            synchronized (this) {
+                if (bytes != null) classes.put(name, bytes);
+                done = --remaining == 0;
+            }
+            if (done && !classes.isEmpty()) consumer.accept(Object2ObjectMaps.unmodifiable(classes));
+        }
+    }
+
+    private static final class Entry {
+        private final MappedZipFile.Entry zipEntry;
+        private final String pathString;
+        private final String classKeyName;
+        private ClassReader reader;
+        private byte[] bytes;
+        private ParallelZipWriter.Slot slot;
+        private ClassGroup group;
+
+        private Entry(MappedZipFile.Entry zipEntry, String classKeyName) {
+            this.zipEntry = zipEntry;
+            this.pathString = zipEntry.name;
+            this.classKeyName = classKeyName;
+        }
+
+        private boolean isClass() {
+            return classKeyName != null;
+        }
+    }
+
     /**
      * Release the remapper so that memory can be cleaned up after the deobfuscation.
      */
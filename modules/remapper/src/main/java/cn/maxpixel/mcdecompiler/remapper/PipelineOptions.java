@@ -0,0 +1,70 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.remapper;
+
+import cn.maxpixel.mcdecompiler.utils.ExecutionContext;
+
+/**
+ * Options of the stages of the deobfuscation pipeline: read, remap, compress and write.
+ * <p>
+ * Reading and remapping are separated by the hierarchy scan, which needs every class to be read first. Remapping,
+ * compressing and writing run at the same time, connected by bounded queues. The stages running at the same time
+ * share the parallelism of the {@link ExecutionContext}, so the thread counts here are upper bounds.
+ */
+public class PipelineOptions {
+    public static final PipelineOptions DEFAULT = new PipelineOptions();
+
+    /**
+     * Number of threads inflating the classes from the input jar
+     */
+    public final int readThreads;
+    /**
+     * Number of threads running the class visitors
+     */
+    public final int remapThreads;
+    /**
+     * Number of threads compressing the output entries
+     */
+    public final int compressThreads;
+    /**
+     * Capacity of the queue of each stage, and the max number of entries waiting to be written
+     */
+    public final int queueCapacity;
+
+    public PipelineOptions() {
+        this(ExecutionContext.availableProcessors());
+    }
+
+    /**
+     * @param processors Number of processors to derive the thread counts from. Reading runs alone, so it gets all of
+     *                   them. Remapping and compressing run together, so they split them
+     */
+    public PipelineOptions(int processors) {
+        this(Math.max(1, processors), Math.max(1, processors - processors / 4), Math.max(1, processors / 4), 256);
+    }
+
+    public PipelineOptions(int readThreads, int remapThreads, int compressThreads, int queueCapacity) {
+        if (readThreads <= 0 || remapThreads <= 0 || compressThreads <= 0) throw new IllegalArgumentException("Thread count must be positive");
+        if (queueCapacity <= 0) throw new IllegalArgumentException("Queue capacity must be positive");
+        this.readThreads = readThreads;
+        this.remapThreads = remapThreads;
+        this.compressThreads = compressThreads;
+        this.queueCapacity = queueCapacity;
+    }
+}
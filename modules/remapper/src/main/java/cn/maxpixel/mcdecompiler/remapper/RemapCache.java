@@ -0,0 +1,303 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package cn.maxpixel.mcdecompiler.remapper;
+
+import cn.maxpixel.mcdecompiler.common.app.util.AppUtils;
+import cn.maxpixel.mcdecompiler.utils.Utils;
+import cn.maxpixel.rewh.logging.LogManager;
+import cn.maxpixel.rewh.logging.Logger;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent cache of remapped classes.
+ * <p>
+ * Each entry is the output of the class visitors for one class, stored in its own file named after the key. The key is a
+ * hash of the class bytes and of everything else that affects the output: the mappings, the class hierarchy, the
+ * processes and the options. So an entry never needs to be invalidated, it is just not looked up anymore.
+ * <p>
+ * The total size of the entries is bounded. When it goes over the bound, the least recently used entries are removed.
+ * The access time is tracked with the last modified time of the files, which is updated when the cache is closed.
+ */
+public final class RemapCache implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int MAGIC = 0x4D43_4443;// MCDC
+    private static final int HEADER_SIZE = 12;
+    private static final String SUFFIX = ".bin";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Default max size of the cache in bytes
+     */
+    public static final long DEFAULT_MAX_SIZE = 512L << 20;
+
+    private final Path directory;
+    private final long maxSize;
+    private final ConcurrentHashMap<String, Node> index = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    /**
+     * Opens the cache in the given directory. The existing entries are indexed, and the oldest ones are removed if the
+     * directory is larger than the max size. The temporary files left by the writers that crashed are removed.
+     * @param directory The directory to store the entries in. Created if not exist
+     * @param maxSize Max total size of the entries in bytes
+     */
+    public RemapCache(@NotNull Path directory, long maxSize) throws IOException {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive");
+        this.directory = Files.createDirectories(directory);
+        this.maxSize = maxSize;
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {// A concurrent writer just fails to store the entry if it is removed here
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        LOGGER.debug("Failed to remove temporary file {}", file, e);
+                    }
+                    return;
+                }
+                if (!name.endsWith(SUFFIX)) return;
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    index.put(name.substring(0, name.length() - SUFFIX.length()),
+                            new Node(attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    size.addAndGet(attributes.size());
+                } catch (IOException e) {
+                    LOGGER.debug("Failed to read the attributes of cache entry {}", file, e);
+                }
+            });
+        }
+        LOGGER.debug("Opened remap cache {} with {} entries, {} bytes", directory, index.size(), size.get());
+        if (size.get() > maxSize) evict();
+    }
+
+    /**
+     * Computes the key of a class.
+     * @param context Hash of everything other than the class that affects the output
+     * @param classBytes Bytes of the class before remapping
+     * @return The key
+     */
+    public static String key(byte @NotNull [] context, byte @NotNull [] classBytes) {
+        MessageDigest md = newDigest();
+        md.update(context);
+        md.update(classBytes);
+        return AppUtils.createHashString(md).toString();
+    }
+
+    /**
+     * @return A new digest of the algorithm used by the cache keys
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw Utils.wrapInRuntime(e);
+        }
+    }
+
+    /**
+     * Gets the remapped class of the given key.
+     * @param key The key
+     * @return The remapped class, or null if not cached or the entry is corrupted
+     */
+    public byte @Nullable [] get(@NotNull String key) {
+        Node node = index.get(key);
+        if (node != null) {
+            Path file = file(key);
+            try {
+                byte[] data = Files.readAllBytes(file);
+                ByteBuffer buf = ByteBuffer.wrap(data);
+                if (data.length >= HEADER_SIZE && buf.getInt() == MAGIC && buf.getInt() == data.length - HEADER_SIZE) {
+                    int crc = buf.getInt();
+                    CRC32 crc32 = new CRC32();
+                    crc32.update(data, HEADER_SIZE, data.length - HEADER_SIZE);
+                    if ((int) crc32.getValue() == crc) {
+                        node.lastAccess = System.currentTimeMillis();
+                        node.accessed = true;
+                        hits.increment();
+                        bytesRead.add(data.length);
+                        byte[] bytes = new byte[data.length - HEADER_SIZE];
+                        System.arraycopy(data, HEADER_SIZE, bytes, 0, bytes.length);
+                        return bytes;
+                    }
+                }
+                LOGGER.debug("Removing corrupted cache entry {}", file);
+                remove(key, node);
+            } catch (NoSuchFileException e) {// Removed by someone else
+                if (index.remove(key, node)) size.addAndGet(-node.size);
+            } catch (IOException e) {
+                LOGGER.debug("Failed to read cache entry {}", file, e);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Stores a remapped class. Failures are logged and ignored, the cache is only an optimization.
+     * @param key The key
+     * @param bytes The remapped class
+     */
+    public void put(@NotNull String key, byte @NotNull [] bytes) {
+        if (index.containsKey(key)) return;
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes);
+        ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + bytes.length)
+                .putInt(MAGIC).putInt(bytes.length).putInt((int) crc32.getValue()).put(bytes);
+        Path file = file(key);
+        // Random rather than per thread, as the directory may be shared by other processes
+        Path tmp = file.resolveSibling(key + '.' + Long.toHexString(ThreadLocalRandom.current().nextLong()) + TEMP_SUFFIX);
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(tmp, data.array(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Failed to write cache entry {}", file, e);
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ex) {
+                e.addSuppressed(ex);
+            }
+            return;
+        }
+        if (index.putIfAbsent(key, new Node(data.capacity(), System.currentTimeMillis())) == null) {
+            stores.increment();
+            bytesWritten.add(data.capacity());
+            if (size.addAndGet(data.capacity()) > maxSize) evict();
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the cache is smaller than 90% of the max size, so that the next
+     * eviction doesn't happen right after this one.
+     */
+    private synchronized void evict() {
+        if (size.get() <= maxSize) return;
+        long target = maxSize / 10 * 9;
+        ObjectArrayList<String> keys = new ObjectArrayList<>(index.keySet());
+        keys.unstableSort(Comparator.comparingLong(k -> {
+            Node node = index.get(k);
+            return node == null ? Long.MIN_VALUE : node.lastAccess;
+        }));
+        for (String key : keys) {
+            if (size.get() <= target) break;
+            Node node = index.get(key);
+            if (node != null && remove(key, node)) evictions.increment();
+        }
+    }
+
+    private boolean remove(String key, Node node) {
+        if (!index.remove(key, node)) return false;
+        size.addAndGet(-node.size);
+        try {
+            Files.deleteIfExists(file(key));
+        } catch (IOException e) {
+            LOGGER.debug("Failed to remove cache entry {}", key, e);
+        }
+        return true;
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key.concat(SUFFIX));
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return Total size of the entries in bytes
+     */
+    public long getSize() {
+        return size.get();
+    }
+
+    public void logMetrics(@NotNull Logger logger) {
+        long hits = getHits(), lookups = hits + getMisses();
+        logger.info("Remap cache: {} hits, {} misses ({}% hit rate), {} stored, {} evicted, read {} bytes, wrote {} bytes, size {}/{} bytes",
+                hits, getMisses(), String.format("%.1f", lookups == 0 ? 0. : hits * 100. / lookups), getStores(),
+                getEvictions(), bytesRead.sum(), bytesWritten.sum(), getSize(), maxSize);
+    }
+
+    /**
+     * Records the access time of the entries that have been read.
+     */
+    @Override
+    public void close() {
+        index.forEach((key, node) -> {
+            if (!node.accessed) return;
+            try {
+                Files.setLastModifiedTime(file(key), FileTime.fromMillis(node.lastAccess));
+            } catch (IOException e) {
+                LOGGER.debug("Failed to update the access time of cache entry {}", key, e);
+            }
+        });
+    }
+
+    private static final class Node {
+        private final long size;
+        private volatile long lastAccess;
+        private volatile boolean accessed;
+
+        private Node(long size, long lastAccess) {
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
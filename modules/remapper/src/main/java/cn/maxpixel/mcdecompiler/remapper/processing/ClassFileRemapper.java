@@ -18,24 +18,64 @@
 
 package cn.maxpixel.mcdecompiler.remapper.processing;
 
+import cn.maxpixel.mcdecompiler.mapping.remapper.ClassifiedMappingRemapper;
 import cn.maxpixel.mcdecompiler.mapping.remapper.MappingRemapper;
+import cn.maxpixel.rewh.logging.Logger;
+import it.unimi.dsi.fastutil.objects.ObjectList;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.commons.Remapper;
 
 import java.lang.reflect.Modifier;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Remaps classes with the mappings, looking up the members that are not mapped in their owners in the super classes.
+ * <p>
+ * The hierarchy should be {@link #flattenHierarchy() flattened} before remapping, so that no super class is searched
+ * at all. When the remapper can't be flattened, the results of the super class lookups, including the members that are
+ * not found, are memoized instead, as the same members are referenced from many classes. The memo tables are shared by
+ * everything remapping with this instance.
+ */
 public class ClassFileRemapper extends Remapper {
+    private static final String[] NOT_FOUND = new String[0];
+
     public final MappingRemapper remapper;
     public final ExtraClassesInformation eci;
 
+    // String[] {0: unmapped owner class name, 1: mapped name}, or NOT_FOUND
+    private final ConcurrentHashMap<MemberKey, String[]> superMethods = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<MemberKey, String[]> superFields = new ConcurrentHashMap<>();
+    private final LongAdder methodHits = new LongAdder();
+    private final LongAdder methodMisses = new LongAdder();
+    private final LongAdder fieldHits = new LongAdder();
+    private final LongAdder fieldMisses = new LongAdder();
+    private FlattenedHierarchy hierarchy;
+
     public ClassFileRemapper(@NotNull MappingRemapper remapper, @NotNull ExtraClassesInformation eci) {
         this.remapper = Objects.requireNonNull(remapper);
         this.eci = Objects.requireNonNull(eci);
     }
 
+    /**
+     * Precomputes the mapped members inherited by every class. Must be called after the {@link #eci extra classes information}
+     * is complete and before remapping starts.
+     * @return true if the hierarchy is flattened, false if the remapper doesn't support it
+     * @see FlattenedHierarchy
+     */
+    public boolean flattenHierarchy() {
+        if (!(remapper instanceof ClassifiedMappingRemapper cmr)) return false;
+        this.hierarchy = new FlattenedHierarchy(this, cmr);
+        return true;
+    }
+
+    public @Nullable FlattenedHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
     @Override
     public String map(String internalName) {
         return remapper.mapClassOrDefault(internalName);
@@ -51,32 +91,59 @@ public class ClassFileRemapper extends Remapper {
     @Override
     public String mapMethodName(String owner, String name, String descriptor) {
         if (name.charAt(0) != '<') { // equivalent to !(name.equals("<init>") || name.equals("<clinit>"))
-            String mapped = remapper.mapMethod(owner, name, descriptor);
-            return mapped == null ? processSuperMethod(owner, name, descriptor).map(a -> a[1]).orElse(name) : mapped;
+            String mapped = resolveMethod(owner, name, descriptor);
+            return mapped == null ? name : mapped;
         }
         return name;
     }
 
-    private Optional<String[]> processSuperMethod(String owner, String name, String descriptor) {// TODO: Optimize this
-        return Optional.ofNullable(eci.getSuperNames(owner))
-                .flatMap(superNames -> {
-                    String nameAndDesc = name.concat(descriptor);
-                    return superNames.parallelStream().map(cls -> {
-                        var mapped = remapper.mapMethod(cls, name, descriptor);
-                        return mapped == null ? null : new String[] {cls, mapped};
-                    }).filter(Objects::nonNull)
-                        .reduce((l, r) -> reduceMethod(nameAndDesc, l, r))
-                        .or(() -> superNames.parallelStream()
-                                .map(n -> processSuperMethod(n, name, descriptor))
-                                .filter(Optional::isPresent)
-                                .map(Optional::get)
-                                .reduce((l, r) -> reduceMethod(nameAndDesc, l, r))
-                        );
-                });
+    /**
+     * Maps a method. If the method is not mapped in the owner, looks it up in the super classes of the owner.
+     * @param descriptor The descriptor of the method. Super classes are not looked up if it is null
+     * @return The mapped name, or null if the method is not mapped
+     */
+    public @Nullable String resolveMethod(@NotNull String owner, @NotNull String name, @Nullable String descriptor) {
+        String mapped = remapper.mapMethod(owner, name, descriptor);
+        if (mapped != null || descriptor == null) return mapped;
+        String[] inherited = superMethod(owner, name, descriptor);
+        return inherited == null ? null : inherited[1];
+    }
+
+    private String[] superMethod(String owner, String name, String descriptor) {
+        if (hierarchy != null) return hierarchy.getMethod(owner, name, descriptor);
+        MemberKey key = new MemberKey(owner, name, descriptor);
+        String[] result = superMethods.get(key);
+        if (result != null) {
+            methodHits.increment();
+        } else {
+            methodMisses.increment();
+            result = processSuperMethod(owner, name, descriptor);
+            superMethods.putIfAbsent(key, result == null ? NOT_FOUND : result);
+        }
+        return result == NOT_FOUND ? null : result;
+    }
+
+    // Not computeIfAbsent, as the lookup recurses into the table
+    private String[] processSuperMethod(String owner, String name, String descriptor) {
+        ObjectList<String> superNames = eci.getSuperNames(owner);
+        if (superNames == null) return null;
+        String nameAndDesc = name.concat(descriptor);
+        String[] result = null;
+        for (String cls : superNames) {
+            String mapped = remapper.mapMethod(cls, name, descriptor);
+            if (mapped != null) result = result == null ? new String[] {cls, mapped} :
+                    reduceMethod(nameAndDesc, result, new String[] {cls, mapped});
+        }
+        if (result != null) return result;
+        for (String cls : superNames) {
+            String[] inherited = superMethod(cls, name, descriptor);
+            if (inherited != null) result = result == null ? inherited : reduceMethod(nameAndDesc, result, inherited);
+        }
+        return result;
     }
 
     // String[] {0: unmapped owner class name, 1: mapped name}
-    private String[] reduceMethod(String nameAndDesc, @NotNull String[] left, @NotNull String[] right) {
+    String[] reduceMethod(String nameAndDesc, @NotNull String[] left, @NotNull String[] right) {
         if (left[0].equals(right[0])) return left;// just checking owner is enough
         if (left[1].equals(right[1])) return left;// may be an override
         int leftAcc = eci.getAccessFlags(left[0], nameAndDesc);
@@ -96,29 +163,54 @@ public class ClassFileRemapper extends Remapper {
 
     @Override
     public String mapFieldName(String owner, String name, String descriptor) {
+        String mapped = resolveField(owner, name);
+        return mapped == null ? name : mapped;
+    }
+
+    /**
+     * Maps a field. If the field is not mapped in the owner, looks it up in the super classes of the owner.
+     * @return The mapped name, or null if the field is not mapped
+     */
+    public @Nullable String resolveField(@NotNull String owner, @NotNull String name) {
         String mapped = remapper.mapField(owner, name);
-        return mapped == null ? processSuperField(owner, name).map(a -> a[1]).orElse(name) : mapped;
-    }
-
-    private Optional<String[]> processSuperField(String owner, String name) {
-        return Optional.ofNullable(eci.getSuperNames(owner))
-                .flatMap(superNames -> superNames.parallelStream()
-                        .map(cls -> {
-                            var mapped = remapper.mapField(cls, name);
-                            return mapped == null ? null : new String[] {cls, mapped};
-                        }).filter(Objects::nonNull)
-                        .reduce((l, r) -> reduceField(name, l, r))
-                        .or(() -> superNames.parallelStream()
-                                .map(n -> processSuperField(n, name))
-                                .filter(Optional::isPresent)
-                                .map(Optional::get)
-                                .reduce((l, r) -> reduceField(name, l, r))
-                        )
-                );
+        if (mapped != null) return mapped;
+        String[] inherited = superField(owner, name);
+        return inherited == null ? null : inherited[1];
+    }
+
+    private String[] superField(String owner, String name) {
+        if (hierarchy != null) return hierarchy.getField(owner, name);
+        MemberKey key = new MemberKey(owner, name, null);
+        String[] result = superFields.get(key);
+        if (result != null) {
+            fieldHits.increment();
+        } else {
+            fieldMisses.increment();
+            result = processSuperField(owner, name);
+            superFields.putIfAbsent(key, result == null ? NOT_FOUND : result);
+        }
+        return result == NOT_FOUND ? null : result;
+    }
+
+    private String[] processSuperField(String owner, String name) {
+        ObjectList<String> superNames = eci.getSuperNames(owner);
+        if (superNames == null) return null;
+        String[] result = null;
+        for (String cls : superNames) {
+            String mapped = remapper.mapField(cls, name);
+            if (mapped != null) result = result == null ? new String[] {cls, mapped} :
+                    reduceField(name, result, new String[] {cls, mapped});
+        }
+        if (result != null) return result;
+        for (String cls : superNames) {
+            String[] inherited = superField(cls, name);
+            if (inherited != null) result = result == null ? inherited : reduceField(name, result, inherited);
+        }
+        return result;
     }
 
     // String[] {0: unmapped owner class name, 1: mapped name}
-    private String[] reduceField(String name, @NotNull String[] left, @NotNull String[] right) {
+    String[] reduceField(String name, @NotNull String[] left, @NotNull String[] right) {
         if (left[0].equals(right[0])) return left;// just checking owner is enough
         int leftAcc = eci.getAccessFlags(left[0], name);
         int rightAcc = eci.getAccessFlags(right[0], name);
@@ -131,4 +223,31 @@ public class ClassFileRemapper extends Remapper {
             throw new IllegalArgumentException("This can't happen!");
         throw new IllegalArgumentException("Field duplicated... This should not happen!");
     }
-}
\ No newline at end of file
+
+    public long getMethodHits() {
+        return methodHits.sum();
+    }
+
+    public long getMethodMisses() {
+        return methodMisses.sum();
+    }
+
+    public long getFieldHits() {
+        return fieldHits.sum();
+    }
+
+    public long getFieldMisses() {
+        return fieldMisses.sum();
+    }
+
+    public void logMetrics(@NotNull Logger logger) {
+        if (hierarchy != null) {// Nothing is looked up in the memo tables
+            hierarchy.logMetrics(logger);
+            return;
+        }
+        logger.info("Super member lookups: methods {} hits/{} misses, fields {} hits/{} misses, {} entries memoized",
+                getMethodHits(), getMethodMisses(), getFieldHits(), getFieldMisses(), superMethods.size() + superFields.size());
+    }
+
+    private record MemberKey(String owner, String name, String descriptor) {}
+}
@@ -35,6 +35,7 @@ import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.commons.ClassRemapper;
 
 import java.io.IOException;
+import java.security.MessageDigest;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -80,6 +81,20 @@ public final class ClassProcessor {
         }
     }
 
+    /**
+     * Updates the digest with the options and the fingerprints of the processes, in the order they are applied.
+     * @param md The digest to update
+     */
+    public void fingerprint(MessageDigest md) {
+        options.fingerprint(md);
+        md.update((byte) 1);
+        for (Process process : before) process.fingerprint(md);
+        md.update((byte) 1);
+        CoreProcess.INSTANCE.fingerprint(md);
+        md.update((byte) 1);
+        for (Process process : after) process.fingerprint(md);
+    }
+
     public ClassVisitor getVisitor(ClassWriter writer, ClassReader reader, ClassFileRemapper mappingRemapper) {
         ClassVisitor cv = writer;
         for (Process process : after) {
@@ -119,14 +134,13 @@ public final class ClassProcessor {
                 ClassVisitor cv = parent;
                 VariableNameHandler handler = new VariableNameHandler();
                 if (cfr.remapper instanceof ClassifiedMappingRemapper cmr) {
+                    // Not from the class mapping, which a frozen remapper drops when it has no local variables
+                    if (cmr.isMethodStaticIdentifiable()) handler.setOmitThis();
                     ClassMapping<? extends Mapping> cm = cmr.getClassMappingUnmapped(className);
-                    if (cm != null) {
-                        MappingVariableNameProvider provider = new MappingVariableNameProvider(cm, cmr);
-                        if (provider.omitThis()) handler.setOmitThis();
-                        handler.addProvider(provider);
-                    }
+                    if (cm != null) handler.addProvider(new MappingVariableNameProvider(cm, cmr));
                 }
-                if ((access & Opcodes.ACC_RECORD) != 0) {
+                // ACC_RECORD is only set by ClassReader.accept(), the access read from the header never has it
+                if ((access & Opcodes.ACC_RECORD) != 0 || "java/lang/Record".equals(reader.getSuperName())) {
                     RecordNameRemapper r = new RecordNameRemapper(cv);
                     cv = r;
                     handler.addProvider(r);
@@ -138,10 +152,10 @@ public final class ClassProcessor {
                 if (eci.dontRemap.containsKey(className)) {
                     ObjectSet<String> skipped = eci.dontRemap.get(className);
                     if (!skipped.isEmpty()) {
-                        cv = new MixinClassRemapper(cv, cfr.remapper, eci, options.refMap, skipped, className);
+                        cv = new MixinClassRemapper(cv, cfr, options.refMap, skipped, className);
                     }
                 } else {
-                    cv = new MixinClassRemapper(cv, cfr.remapper, eci, options.refMap, ObjectSets.emptySet(), className);
+                    cv = new MixinClassRemapper(cv, cfr, options.refMap, ObjectSets.emptySet(), className);
                 }
                 return new RuntimeParameterAnnotationFixer(cv, className, access);
             };
@@ -18,16 +18,19 @@
 
 package cn.maxpixel.mcdecompiler.remapper.processing;
 
+import cn.maxpixel.mcdecompiler.common.app.util.AppUtils;
 import cn.maxpixel.mcdecompiler.remapper.Deobfuscator;
-import cn.maxpixel.mcdecompiler.remapper.util.IOUtil;
 import cn.maxpixel.rewh.logging.LogManager;
 import cn.maxpixel.rewh.logging.Logger;
 import it.unimi.dsi.fastutil.objects.*;
 import org.objectweb.asm.*;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -68,132 +71,190 @@ public class ExtraClassesInformation implements Consumer<Path> {// TODO: extensi
     @Override
     public void accept(Path classFilePath) {
         try {
-            ClassReader reader = new ClassReader(IOUtil.readAllBytes(classFilePath));
-            String className = reader.getClassName();
-            boolean needToRecord = (reader.getAccess() & (Opcodes.ACC_INTERFACE | Opcodes.ACC_RECORD)) == 0;
-            boolean notEnum = (reader.getAccess() & Opcodes.ACC_ENUM) == 0;
-            String superName = reader.getSuperName();
-            String[] interfaces = reader.getInterfaces();
-            int itfLen = interfaces.length;
-            if (needToRecord && !superName.startsWith("java/")) {
-                ObjectArrayList<String> list = new ObjectArrayList<>(itfLen + 1);
-                list.add(superName);
-                if (itfLen > 0) for(String itf : interfaces) {
-                    if (itf.startsWith("java/")) continue;
-                    list.add(itf);
-                }
-                synchronized (superClassMap) {
-                    superClassMap.put(className, list);
-                }
-            } else if (itfLen > 0) {
-                ObjectArrayList<String> list = new ObjectArrayList<>(itfLen);
-                for (String itf : interfaces) {
-                    if (itf.startsWith("java/")) continue;
-                    list.add(itf);
-                }
-                synchronized (superClassMap) {
-                    superClassMap.put(className, list);
-                }
+            accept(new ClassReader(Files.readAllBytes(classFilePath)));
+        } catch (IOException e) {
+            LOGGER.warn("Error when generating extra classes information", e);
+        }
+    }
+
+    /**
+     * Records the information of a class whose bytes have already been read.
+     * @param classBytes The bytes of the class file
+     */
+    public void accept(byte[] classBytes) {
+        accept(new ClassReader(classBytes));
+    }
+
+    /**
+     * Records the information of a class.
+     * @apiNote The reader can be reused afterward, this method doesn't modify it
+     * @param reader The reader of the class
+     */
+    public void accept(ClassReader reader) {
+        String className = reader.getClassName();
+        boolean needToRecord = (reader.getAccess() & (Opcodes.ACC_INTERFACE | Opcodes.ACC_RECORD)) == 0;
+        boolean notEnum = (reader.getAccess() & Opcodes.ACC_ENUM) == 0;
+        String superName = reader.getSuperName();
+        String[] interfaces = reader.getInterfaces();
+        int itfLen = interfaces.length;
+        if (needToRecord && !superName.startsWith("java/")) {
+            ObjectArrayList<String> list = new ObjectArrayList<>(itfLen + 1);
+            list.add(superName);
+            if (itfLen > 0) for(String itf : interfaces) {
+                if (itf.startsWith("java/")) continue;
+                list.add(itf);
             }
-            reader.accept(new ClassVisitor(Deobfuscator.ASM_VERSION) {
-                private final boolean recordAccess = needToRecord && notEnum;
-                private final Object2IntOpenHashMap<String> map = recordAccess ? new Object2IntOpenHashMap<>() : null;
-                private boolean isMixin;
-
-                @Override
-                public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
-                    if ("Lorg/spongepowered/asm/mixin/Mixin;".equals(descriptor)) {
-                        this.isMixin = true;
-                        ObjectArrayList<String> list = superClassMap.computeIfAbsent(className, s -> new ObjectArrayList<>());
-                        return new AnnotationVisitor(api) {
-                            @Override
-                            public AnnotationVisitor visitArray(String name) {
-                                return switch (name) {
-                                    case "value" -> new AnnotationVisitor(api) {
-                                        @Override
-                                        public void visit(String name, Object value) {
-                                            if (value instanceof Type t && t.getSort() == Type.OBJECT) {
-                                                list.add(t.getInternalName());
-                                            } else throw new IllegalArgumentException();
-                                        }
-                                    };
-                                    case "targets" -> new AnnotationVisitor(api) {
-                                        @Override
-                                        public void visit(String name, Object value) {
-                                            if (value instanceof String s) {
-                                                list.add(refMap.getOrDefault(className, Object2ObjectMaps.emptyMap())
-                                                        .getOrDefault(s, s));
-                                            } else throw new IllegalArgumentException();
-                                        }
-                                    };
-                                    default -> null;
+            synchronized (superClassMap) {
+                superClassMap.put(className, list);
+            }
+        } else if (itfLen > 0) {
+            ObjectArrayList<String> list = new ObjectArrayList<>(itfLen);
+            for (String itf : interfaces) {
+                if (itf.startsWith("java/")) continue;
+                list.add(itf);
+            }
+            synchronized (superClassMap) {
+                superClassMap.put(className, list);
+            }
+        }
+        reader.accept(new ClassVisitor(Deobfuscator.ASM_VERSION) {
+            private final boolean recordAccess = needToRecord && notEnum;
+            private final Object2IntOpenHashMap<String> map = recordAccess ? new Object2IntOpenHashMap<>() : null;
+            private boolean isMixin;
+
+            @Override
+            public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                if ("Lorg/spongepowered/asm/mixin/Mixin;".equals(descriptor)) {
+                    this.isMixin = true;
+                    ObjectArrayList<String> list = superClassMap.computeIfAbsent(className, s -> new ObjectArrayList<>());
+                    return new AnnotationVisitor(api) {
+                        @Override
+                        public AnnotationVisitor visitArray(String name) {
+                            return switch (name) {
+                                case "value" -> new AnnotationVisitor(api) {
+                                    @Override
+                                    public void visit(String name, Object value) {
+                                        if (value instanceof Type t && t.getSort() == Type.OBJECT) {
+                                            list.add(t.getInternalName());
+                                        } else throw new IllegalArgumentException();
+                                    }
+                                };
+                                case "targets" -> new AnnotationVisitor(api) {
+                                    @Override
+                                    public void visit(String name, Object value) {
+                                        if (value instanceof String s) {
+                                            list.add(refMap.getOrDefault(className, Object2ObjectMaps.emptyMap())
+                                                    .getOrDefault(s, s));
+                                        } else throw new IllegalArgumentException();
+                                    }
                                 };
+                                default -> null;
+                            };
+                        }
+
+                        @Override
+                        public void visit(String name, Object value) {
+                            if ("remap".equals(name) && value instanceof Boolean b && !b) {
+                                dontRemap.put(className, ObjectSets.emptySet());
                             }
+                        }
+                    };
+                }
+                return null;
+            }
 
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                if (recordAccess && (access & Opcodes.ACC_PUBLIC) == 0) map.put(name, access);
+                return !isMixin || dontRemap.get(className) == ObjectSets.<String>emptySet() ? null : new FieldVisitor(api) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                        return new AnnotationVisitor(api) {
                             @Override
                             public void visit(String name, Object value) {
                                 if ("remap".equals(name) && value instanceof Boolean b && !b) {
-                                    dontRemap.put(className, ObjectSets.emptySet());
+                                    dontRemap.computeIfAbsent(className, k -> new ObjectOpenHashSet<>())
+                                            .add(name);
                                 }
                             }
                         };
                     }
-                    return null;
-                }
-
-                @Override
-                public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
-                    if (recordAccess && (access & Opcodes.ACC_PUBLIC) == 0) map.put(name, access);
-                    return !isMixin || dontRemap.get(className) == ObjectSets.<String>emptySet() ? null : new FieldVisitor(api) {
-                        @Override
-                        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
-                            return new AnnotationVisitor(api) {
-                                @Override
-                                public void visit(String name, Object value) {
-                                    if ("remap".equals(name) && value instanceof Boolean b && !b) {
-                                        dontRemap.computeIfAbsent(className, k -> new ObjectOpenHashSet<>())
-                                                .add(name);
-                                    }
-                                }
-                            };
-                        }
-                    };
-                }
+                };
+            }
 
-                @Override
-                public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
-                    if (recordAccess && (access & Opcodes.ACC_PUBLIC) == 0) map.put(name.concat(descriptor), access);
-                    return !isMixin || dontRemap.get(className) == ObjectSets.<String>emptySet() ? null : new MethodVisitor(api) {
-                        @Override
-                        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
-                            return new AnnotationVisitor(api) {
-                                @Override
-                                public void visit(String name, Object value) {
-                                    if ("remap".equals(name) && value instanceof Boolean b && !b) {
-                                        dontRemap.computeIfAbsent(className, k -> new ObjectOpenHashSet<>())
-                                                .add(name.concat(descriptor));
-                                    }
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                if (recordAccess && (access & Opcodes.ACC_PUBLIC) == 0) map.put(name.concat(descriptor), access);
+                return !isMixin || dontRemap.get(className) == ObjectSets.<String>emptySet() ? null : new MethodVisitor(api) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                        return new AnnotationVisitor(api) {
+                            @Override
+                            public void visit(String name, Object value) {
+                                if ("remap".equals(name) && value instanceof Boolean b && !b) {
+                                    dontRemap.computeIfAbsent(className, k -> new ObjectOpenHashSet<>())
+                                            .add(name.concat(descriptor));
                                 }
-                            };
-                        }
-                    };
-                }
+                            }
+                        };
+                    }
+                };
+            }
 
-                @Override
-                public void visitEnd() {
-                    if (recordAccess && !map.isEmpty()) {
-                        map.defaultReturnValue(Opcodes.ACC_PUBLIC);
-                        synchronized (accessMap) {
-                            accessMap.put(className, map);
-                        }
+            @Override
+            public void visitEnd() {
+                if (recordAccess && !map.isEmpty()) {
+                    map.defaultReturnValue(Opcodes.ACC_PUBLIC);
+                    synchronized (accessMap) {
+                        accessMap.put(className, map);
                     }
                 }
-            }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
-        } catch (IOException e) {
-            LOGGER.warn("Error when generating extra classes information", e);
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    }
+
+    /**
+     * Updates the digest with all the recorded information. Classes are visited in sorted order, so the result doesn't
+     * depend on the order the classes were read in.
+     * @param md The digest to update
+     */
+    public void fingerprint(MessageDigest md) {
+        for (String name : sorted(superClassMap.keySet())) {
+            AppUtils.updateDigest(md, name);
+            for (String superName : superClassMap.get(name)) AppUtils.updateDigest(md, superName);
+            md.update((byte) 1);
+        }
+        md.update((byte) 2);
+        for (String name : sorted(accessMap.keySet())) {
+            AppUtils.updateDigest(md, name);
+            Object2IntOpenHashMap<String> map = accessMap.get(name);
+            for (String member : sorted(map.keySet())) {
+                AppUtils.updateDigest(md, member);
+                AppUtils.updateDigest(md, Integer.toHexString(map.getInt(member)));
+            }
+            md.update((byte) 1);
+        }
+        md.update((byte) 2);
+        for (String name : sorted(dontRemap.keySet())) {
+            AppUtils.updateDigest(md, name);
+            for (String member : sorted(dontRemap.get(name))) AppUtils.updateDigest(md, member);
+            md.update((byte) 1);
         }
     }
 
+    private static ObjectArrayList<String> sorted(Set<String> set) {
+        ObjectArrayList<String> list = new ObjectArrayList<>(set);
+        list.unstableSort(null);
+        return list;
+    }
+
+    /**
+     * @return Names of all the classes whose super classes are recorded
+     */
+    public ObjectSet<String> getClassNames() {
+        return ObjectSets.unmodifiable(superClassMap.keySet());
+    }
+
     public ObjectList<String> getSuperNames(String name) {
         return superClassMap.get(name);
     }
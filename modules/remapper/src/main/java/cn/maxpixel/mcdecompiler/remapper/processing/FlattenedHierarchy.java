@@ -0,0 +1,242 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.remapper.processing;
+
+import cn.maxpixel.mcdecompiler.mapping.remapper.ClassifiedMappingRemapper;
+import cn.maxpixel.rewh.logging.LogManager;
+import cn.maxpixel.rewh.logging.Logger;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import it.unimi.dsi.fastutil.objects.ObjectSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * The class hierarchy with the mapped members of each class propagated down to all its subclasses.
+ * <p>
+ * The hierarchy is walked once in topological order, super classes first, so looking up an inherited member is a
+ * single hash lookup instead of a recursive search. The result is the same as the one of the lookups done by
+ * {@link ClassFileRemapper}: members declared in the direct super classes take precedence over the ones those classes
+ * inherit, and members inherited from several super classes are resolved by their access flags. The members that
+ * cannot be resolved are reported when the hierarchy is built.
+ * <p>
+ * Subclasses share the tables of their super classes where possible, so a chain of classes that don't declare mapped
+ * members costs nothing.
+ */
+public final class FlattenedHierarchy {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final Object2ObjectOpenHashMap<String, String[]> EMPTY = new Object2ObjectOpenHashMap<>(0);
+    private static final int VISITING = 1;
+    private static final int VISITED = 2;
+
+    // class name -> member key -> String[] {0: unmapped owner class name, 1: mapped name}
+    private final Object2ObjectOpenHashMap<String, Object2ObjectOpenHashMap<String, String[]>> methods;
+    private final Object2ObjectOpenHashMap<String, Object2ObjectOpenHashMap<String, String[]>> fields;
+    private final ObjectArrayList<String> problems = new ObjectArrayList<>();
+    private final int classCount;
+    private final long buildNanos;
+    private final LongAdder methodLookups = new LongAdder();
+    private final LongAdder methodsFound = new LongAdder();
+    private final LongAdder fieldLookups = new LongAdder();
+    private final LongAdder fieldsFound = new LongAdder();
+
+    FlattenedHierarchy(ClassFileRemapper cfr, ClassifiedMappingRemapper remapper) {
+        long start = System.nanoTime();
+        ObjectArrayList<String> order = topologicalOrder(cfr.eci);
+        Table methodTable = new Table("Method", (cls, table) -> remapper.forEachMethod(cls, (name, desc, mapped) ->
+                table.put(name.concat(desc), new String[] {cls, mapped})), cfr::reduceMethod);
+        Table fieldTable = new Table("Field", (cls, table) -> remapper.forEachField(cls, (name, mapped) ->
+                table.put(name, new String[] {cls, mapped})), cfr::reduceField);
+        for (String cls : order) {
+            ObjectList<String> superNames = cfr.eci.getSuperNames(cls);
+            methodTable.inherit(cls, superNames);
+            fieldTable.inherit(cls, superNames);
+        }
+        this.methods = methodTable.inherited;
+        this.fields = fieldTable.inherited;
+        this.classCount = order.size();
+        this.buildNanos = System.nanoTime() - start;
+        LOGGER.info("Flattened the hierarchy of {} classes in {} ms, {} inherited methods and {} inherited fields",
+                classCount, TimeUnit.NANOSECONDS.toMillis(buildNanos), count(methods), count(fields));
+        if (!problems.isEmpty()) {
+            problems.unstableSort(null);
+            LOGGER.warn("Found {} problems in the class hierarchy, the affected members may be remapped incorrectly", problems.size());
+            for (String problem : problems) LOGGER.warn(problem);
+        }
+    }
+
+    /**
+     * @return {0: unmapped owner class name, 1: mapped name} of the method the class inherits, or null if the class
+     *         doesn't inherit a mapped method with the given name and descriptor
+     */
+    public String @Nullable [] getMethod(@NotNull String owner, @NotNull String name, @NotNull String descriptor) {
+        methodLookups.increment();
+        var table = methods.get(owner);
+        String[] result = table == null ? null : table.get(name.concat(descriptor));
+        if (result != null) methodsFound.increment();
+        return result;
+    }
+
+    /**
+     * @return {0: unmapped owner class name, 1: mapped name} of the field the class inherits, or null if the class
+     *         doesn't inherit a mapped field with the given name
+     */
+    public String @Nullable [] getField(@NotNull String owner, @NotNull String name) {
+        fieldLookups.increment();
+        var table = fields.get(owner);
+        String[] result = table == null ? null : table.get(name);
+        if (result != null) fieldsFound.increment();
+        return result;
+    }
+
+    /**
+     * @return Descriptions of the ambiguous members and circular inheritances found when building the hierarchy
+     */
+    public ObjectList<String> getProblems() {
+        return problems;
+    }
+
+    public void logMetrics(@NotNull Logger logger) {
+        logger.info("Inherited member lookups: methods {} found/{}, fields {} found/{}, in the hierarchy of {} classes flattened in {} ms with {} problems",
+                methodsFound.sum(), methodLookups.sum(), fieldsFound.sum(), fieldLookups.sum(), classCount,
+                TimeUnit.NANOSECONDS.toMillis(buildNanos), problems.size());
+    }
+
+    private ObjectArrayList<String> topologicalOrder(ExtraClassesInformation eci) {
+        ObjectSet<String> classes = eci.getClassNames();
+        ObjectArrayList<String> order = new ObjectArrayList<>(classes.size());
+        Object2IntOpenHashMap<String> state = new Object2IntOpenHashMap<>(classes.size());
+        ObjectArrayList<String> stack = new ObjectArrayList<>();
+        IntArrayList cursors = new IntArrayList();
+        for (String root : classes) {
+            if (state.getInt(root) != 0) continue;
+            state.put(root, VISITING);
+            stack.push(root);
+            cursors.push(0);
+            while (!stack.isEmpty()) {
+                String cls = stack.top();
+                int i = cursors.popInt();
+                ObjectList<String> superNames = eci.getSuperNames(cls);
+                if (i < superNames.size()) {
+                    cursors.push(i + 1);
+                    String superName = superNames.get(i);
+                    int s = state.getInt(superName);
+                    if (s == 0 && classes.contains(superName)) {
+                        state.put(superName, VISITING);
+                        stack.push(superName);
+                        cursors.push(0);
+                    } else if (s == VISITING) problems.add("Circular inheritance: " + cls + " -> " + superName);
+                } else {
+                    stack.pop();
+                    state.put(cls, VISITED);
+                    order.add(cls);
+                }
+            }
+        }
+        return order;
+    }
+
+    private static long count(Object2ObjectOpenHashMap<String, Object2ObjectOpenHashMap<String, String[]>> tables) {
+        long count = 0;
+        for (var table : tables.values()) count += table.size();
+        return count;
+    }
+
+    @FunctionalInterface
+    private interface Reducer {
+        String[] reduce(String key, String[] left, String[] right);
+    }
+
+    private final class Table {
+        private final String kind;
+        private final BiConsumer<String, Object2ObjectOpenHashMap<String, String[]>> declaredGetter;
+        private final Reducer reducer;
+        // Members inherited by each class
+        private final Object2ObjectOpenHashMap<String, Object2ObjectOpenHashMap<String, String[]>> inherited = new Object2ObjectOpenHashMap<>();
+        // Members declared by or inherited by each class. Only needed when building
+        private final Object2ObjectOpenHashMap<String, Object2ObjectOpenHashMap<String, String[]>> visible = new Object2ObjectOpenHashMap<>();
+        private final Object2ObjectOpenHashMap<String, Object2ObjectOpenHashMap<String, String[]>> declared = new Object2ObjectOpenHashMap<>();
+
+        private Table(String kind, BiConsumer<String, Object2ObjectOpenHashMap<String, String[]>> declaredGetter, Reducer reducer) {
+            this.kind = kind;
+            this.declaredGetter = declaredGetter;
+            this.reducer = reducer;
+        }
+
+        void inherit(String cls, ObjectList<String> superNames) {
+            Object2ObjectOpenHashMap<String, String[]> result;
+            if (superNames.size() == 1) result = visible(superNames.get(0));
+            else if (superNames.isEmpty()) result = EMPTY;
+            else {
+                result = new Object2ObjectOpenHashMap<>();
+                for (String superName : superNames) merge(cls, result, inherited.getOrDefault(superName, EMPTY));
+                Object2ObjectOpenHashMap<String, String[]> direct = new Object2ObjectOpenHashMap<>();
+                for (String superName : superNames) merge(cls, direct, declared(superName));
+                result.putAll(direct);
+                result.trim();
+            }
+            if (!result.isEmpty()) inherited.put(cls, result);
+        }
+
+        private void merge(String cls, Object2ObjectOpenHashMap<String, String[]> into, Object2ObjectOpenHashMap<String, String[]> from) {
+            from.forEach((key, value) -> into.merge(key, value, (left, right) -> {
+                try {
+                    return reducer.reduce(key, left, right);
+                } catch (IllegalArgumentException e) {
+                    problems.add(kind + ' ' + key + " of " + cls + " is ambiguous, inherited from both " + left[0] + " and " + right[0]);
+                    return left;
+                }
+            }));
+        }
+
+        private Object2ObjectOpenHashMap<String, String[]> visible(String cls) {
+            Object2ObjectOpenHashMap<String, String[]> result = visible.get(cls);
+            if (result == null) {
+                Object2ObjectOpenHashMap<String, String[]> declared = declared(cls);
+                Object2ObjectOpenHashMap<String, String[]> inherited = this.inherited.getOrDefault(cls, EMPTY);
+                if (declared.isEmpty()) result = inherited;
+                else if (inherited.isEmpty()) result = declared;
+                else {
+                    result = new Object2ObjectOpenHashMap<>(inherited);
+                    result.putAll(declared);
+                }
+                visible.put(cls, result);
+            }
+            return result;
+        }
+
+        private Object2ObjectOpenHashMap<String, String[]> declared(String cls) {
+            Object2ObjectOpenHashMap<String, String[]> result = declared.get(cls);
+            if (result == null) {
+                result = new Object2ObjectOpenHashMap<>();
+                declaredGetter.accept(cls, result);
+                if (result.isEmpty()) result = EMPTY;
+                declared.put(cls, result);
+            }
+            return result;
+        }
+    }
+}
@@ -33,6 +33,7 @@ import java.util.Objects;
 import java.util.Optional;
 
 public class MixinClassRemapper extends ClassVisitor {
+    private final ClassFileRemapper cfr;
     private final MappingRemapper remapper;
     private final ExtraClassesInformation info;
 
@@ -43,9 +44,15 @@ public class MixinClassRemapper extends ClassVisitor {
 
     public MixinClassRemapper(ClassVisitor classVisitor, MappingRemapper remapper, ExtraClassesInformation info,
                               Map<String, Map<String, String>> refMap, ObjectSet<String> skipped, String className) {
+        this(classVisitor, new ClassFileRemapper(remapper, info), refMap, skipped, className);
+    }
+
+    public MixinClassRemapper(ClassVisitor classVisitor, ClassFileRemapper cfr, Map<String, Map<String, String>> refMap,
+                              ObjectSet<String> skipped, String className) {
         super(Deobfuscator.ASM_VERSION, classVisitor);
-        this.remapper = remapper;
-        this.info = info;
+        this.cfr = cfr;
+        this.remapper = cfr.remapper;
+        this.info = cfr.eci;
         this.refMap = refMap;
         this.skipped = skipped;
         this.className = className;
@@ -110,12 +117,12 @@ public class MixinClassRemapper extends ClassVisitor {
                     .map(List::of)
                     .or(() -> Optional.ofNullable(info.getSuperNames(className)))
                     .filter(owners -> selector.name() != null)
-                    .flatMap(owners -> selector.field() ? owners.parallelStream()
-                            .map(owner -> remapper.mapField(owner, selector.name()))
-                            .filter(Objects::nonNull).reduce((l, r) -> {
-                                throw new IllegalArgumentException("Multiple matches found");
-                            }) : owners.parallelStream()
-                            .map(owner -> remapper.mapMethod(owner, selector.name(), selector.descriptor()))// FIXME: potentially incorrect remapping
+                    .flatMap(owners -> selector.field() ? owners.stream()
+                            .map(owner -> cfr.resolveField(owner, selector.name()))
+                            .filter(Objects::nonNull).distinct().reduce((l, r) -> {// Owners sharing a super class resolve to the same field
+                                throw new IllegalArgumentException("Multiple matches found: " + l + ", " + r);
+                            }) : owners.stream()
+                            .map(owner -> cfr.resolveMethod(owner, selector.name(), selector.descriptor()))// FIXME: potentially incorrect remapping
                             .filter(Objects::nonNull).findAny()
                     ).map(mapped -> selector.remap(remapper, mapped).toSelectorString())
                     .orElse(s1);
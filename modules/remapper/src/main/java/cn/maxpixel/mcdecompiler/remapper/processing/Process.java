@@ -18,11 +18,13 @@
 
 package cn.maxpixel.mcdecompiler.remapper.processing;
 
+import cn.maxpixel.mcdecompiler.common.app.util.AppUtils;
 import cn.maxpixel.mcdecompiler.remapper.DeobfuscationOptions;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 
 import java.io.IOException;
+import java.security.MessageDigest;
 import java.util.function.Function;
 
 public interface Process {
@@ -37,7 +39,20 @@ public interface Process {
         AFTER
     }
 
-    String getName();// may have uses in the future, or may be removed
+    /**
+     * @return The name of this process
+     */
+    String getName();
+
+    /**
+     * Updates the digest with everything the output of the visitor depends on other than the class and the options. It
+     * is a part of the key of the remap cache. By default, only the name is hashed, so a process with its own
+     * configuration should override this to hash that configuration too.
+     * @param md The digest to update
+     */
+    default void fingerprint(MessageDigest md) {
+        AppUtils.updateDigest(md, getName());
+    }
 
     default void beforeRunning(DeobfuscationOptions options, ClassFileRemapper mappingRemapper) throws IOException {
     }
@@ -52,12 +52,13 @@ public class MappingVariableNameProvider implements VariableNameProvider {
     public @NotNull RenameFunction forMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
         Mapping mapping = methodByMappedName.get(name.concat(descriptor));
         if (mapping != null) {
-            LocalVariableTable<? extends Mapping> lvt;
+            LocalVariableTable<? extends Mapping> lvt;// Called from the remapping threads, so don't create the lazily added tables
             if (mapping.hasComponent(LocalVariableTable.Paired.class)) {
-                lvt = mapping.getComponent(LocalVariableTable.Paired.class);
+                lvt = mapping.peekComponent(LocalVariableTable.Paired.class);
             } else if (mapping.hasComponent(LocalVariableTable.Namespaced.class)) {
-                lvt = mapping.getComponent(LocalVariableTable.Namespaced.class);
+                lvt = mapping.peekComponent(LocalVariableTable.Namespaced.class);
             } else return RenameFunction.NOP;
+            if (lvt == null) return RenameFunction.NOP;// Still empty
             return (originalName, descriptor1, signature1, start, end, index) -> {
                 Mapping m = lvt.getLocalVariable(index);
                 if (m != null) {
@@ -58,7 +58,7 @@ public class RecordNameRemapper extends ClassVisitor implements VariableNameProv
 
                     @Override
                     public @Nullable String getName(String originalName, String descriptor, String signature, Label start, Label end, int index) {
-                        if (index > 0 && i < recordNames.size()) {
+                        if (i < recordNames.size()) {// "this" is never passed here, and the index may have omitted it
                             return recordNames.get(i++);
                         }
                         return null;
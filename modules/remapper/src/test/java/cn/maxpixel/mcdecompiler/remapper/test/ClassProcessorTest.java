@@ -0,0 +1,114 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.remapper.test;
+
+import cn.maxpixel.mcdecompiler.mapping.PairedMapping;
+import cn.maxpixel.mcdecompiler.mapping.collection.ClassMapping;
+import cn.maxpixel.mcdecompiler.mapping.collection.ClassifiedMapping;
+import cn.maxpixel.mcdecompiler.mapping.component.Descriptor;
+import cn.maxpixel.mcdecompiler.mapping.component.Owned;
+import cn.maxpixel.mcdecompiler.mapping.component.StaticIdentifiable;
+import cn.maxpixel.mcdecompiler.mapping.remapper.ClassifiedMappingRemapper;
+import cn.maxpixel.mcdecompiler.remapper.DeobfuscationOptions;
+import cn.maxpixel.mcdecompiler.remapper.processing.ClassFileRemapper;
+import cn.maxpixel.mcdecompiler.remapper.processing.ClassProcessor;
+import cn.maxpixel.mcdecompiler.remapper.processing.ExtraClassesInformation;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassProcessorTest {
+    /**
+     * A record {@code a(int x, int y)} whose constructor parameters are named {@code p} and {@code q}
+     */
+    private static byte[] record() {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER | Opcodes.ACC_RECORD, "a", null,
+                "java/lang/Record", null);
+        cw.visitRecordComponent("x", "I", null).visitEnd();
+        cw.visitRecordComponent("y", "I", null).visitEnd();
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "x", "I", null, null).visitEnd();
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "y", "I", null, null).visitEnd();
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "(II)V", null, null);
+        mv.visitCode();
+        Label start = new Label(), end = new Label();
+        mv.visitLabel(start);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Record", "<init>", "()V", false);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitLabel(end);
+        mv.visitLocalVariable("this", "La;", null, start, end, 0);
+        mv.visitLocalVariable("p", "I", null, start, end, 1);
+        mv.visitLocalVariable("q", "I", null, start, end, 2);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static ClassifiedMappingRemapper remapper() {
+        ClassifiedMapping<PairedMapping> mappings = new ClassifiedMapping<>();
+        ClassMapping<PairedMapping> cm = new ClassMapping<>(new PairedMapping("a", "com/x/Point"));
+        cm.addMethod(new PairedMapping("b", "length", new Owned<>(), new Descriptor.Unmapped("()I"), new StaticIdentifiable()));
+        mappings.classes.add(cm);
+        return new ClassifiedMappingRemapper(mappings);
+    }
+
+    private static byte[] process(ClassifiedMappingRemapper remapper, byte[] bytes) throws IOException {
+        ClassReader reader = new ClassReader(bytes);
+        ExtraClassesInformation info = new ExtraClassesInformation();
+        info.accept(reader);
+        ClassFileRemapper cfr = new ClassFileRemapper(remapper, info);
+        ClassProcessor processor = new ClassProcessor(DeobfuscationOptions.DEFAULT);
+        processor.beforeRunning(cfr);
+        ClassWriter writer = new ClassWriter(0);
+        reader.accept(processor.getVisitor(writer, reader, cfr), 0);
+        processor.afterRunning(cfr);
+        return writer.toByteArray();
+    }
+
+    @Test
+    void testFrozenRecord() throws IOException {
+        byte[] bytes = record();
+        ClassifiedMappingRemapper unfrozen = remapper();
+        assertTrue(unfrozen.isMethodStaticIdentifiable());
+        assertNotNull(unfrozen.getClassMappingUnmapped("a"));
+        byte[] expected = process(unfrozen, bytes);
+
+        ClassifiedMappingRemapper frozen = remapper();
+        frozen.freeze();
+        assertNull(frozen.getClassMappingUnmapped("a"));// No local variables, so dropped
+        assertArrayEquals(expected, process(frozen, bytes));
+
+        ClassNode node = new ClassNode();
+        new ClassReader(expected).accept(node, 0);
+        assertEquals("com/x/Point", node.name);
+        List<String> names = node.methods.get(0).localVariables.stream().map(lv -> lv.name).toList();
+        assertEquals(List.of("this", "x", "y"), names);// Named after the record components
+    }
+}
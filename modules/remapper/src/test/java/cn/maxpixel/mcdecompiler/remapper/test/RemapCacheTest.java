@@ -0,0 +1,202 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.remapper.test;
+
+import cn.maxpixel.mcdecompiler.remapper.DeobfuscationOptions;
+import cn.maxpixel.mcdecompiler.remapper.RemapCache;
+import cn.maxpixel.mcdecompiler.remapper.processing.ClassProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemapCacheTest {
+    private static final byte[] CONTEXT = {1, 2, 3};
+    private static final int CLASS_SIZE = 100;
+    private static final int ENTRY_SIZE = CLASS_SIZE + 12;
+
+    private static byte[] classBytes(int i) {
+        byte[] bytes = new byte[CLASS_SIZE];
+        for (int j = 0; j < bytes.length; j++) bytes[j] = (byte) (i * 31 + j);
+        return bytes;
+    }
+
+    private static String key(int i) {
+        return RemapCache.key(CONTEXT, new byte[] {(byte) i});
+    }
+
+    private static Path file(Path dir, String key) {
+        return dir.resolve(key.substring(0, 2)).resolve(key + ".bin");
+    }
+
+    private static long sizeOnDisk(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(p -> p.toString().endsWith(".bin")).mapToLong(p -> p.toFile().length()).sum();
+        }
+    }
+
+    @Test
+    void testGetAndPut(@TempDir Path tmp) throws IOException {
+        try (RemapCache cache = new RemapCache(tmp, RemapCache.DEFAULT_MAX_SIZE)) {
+            assertNull(cache.get(key(0)));
+            cache.put(key(0), classBytes(0));
+            cache.put(key(0), classBytes(1));// Already cached
+            assertArrayEquals(classBytes(0), cache.get(key(0)));
+            assertEquals(1, cache.getHits());
+            assertEquals(1, cache.getMisses());
+            assertEquals(1, cache.getStores());
+            assertEquals(ENTRY_SIZE, cache.getSize());
+        }
+        try (RemapCache cache = new RemapCache(tmp, RemapCache.DEFAULT_MAX_SIZE)) {// Indexed on open
+            assertEquals(ENTRY_SIZE, cache.getSize());
+            assertArrayEquals(classBytes(0), cache.get(key(0)));
+        }
+    }
+
+    @Test
+    void testCorrupted(@TempDir Path tmp) throws IOException {
+        try (RemapCache cache = new RemapCache(tmp, RemapCache.DEFAULT_MAX_SIZE)) {
+            cache.put(key(0), classBytes(0));
+            cache.put(key(1), classBytes(1));
+            cache.put(key(2), classBytes(2));
+
+            Path flipped = file(tmp, key(0));
+            byte[] data = Files.readAllBytes(flipped);
+            data[data.length - 1] ^= 1;
+            Files.write(flipped, data);
+            Path truncated = file(tmp, key(1));
+            Files.write(truncated, new byte[5]);
+
+            assertNull(cache.get(key(0)));
+            assertNull(cache.get(key(1)));
+            assertFalse(Files.exists(flipped));
+            assertFalse(Files.exists(truncated));
+            assertEquals(ENTRY_SIZE, cache.getSize());
+            assertArrayEquals(classBytes(2), cache.get(key(2)));
+
+            cache.put(key(0), classBytes(0));// Can be stored again
+            assertArrayEquals(classBytes(0), cache.get(key(0)));
+        }
+    }
+
+    @Test
+    void testOrphanedTemporaryFiles(@TempDir Path tmp) throws IOException {
+        try (RemapCache cache = new RemapCache(tmp, RemapCache.DEFAULT_MAX_SIZE)) {
+            cache.put(key(0), classBytes(0));
+        }
+        Path orphan = file(tmp, key(1)).resolveSibling(key(1) + ".1a2b.tmp");// Left by a crashed writer
+        Files.createDirectories(orphan.getParent());
+        Files.write(orphan, classBytes(1));
+        try (RemapCache cache = new RemapCache(tmp, RemapCache.DEFAULT_MAX_SIZE)) {
+            assertFalse(Files.exists(orphan));
+            assertEquals(ENTRY_SIZE, cache.getSize());
+            assertArrayEquals(classBytes(0), cache.get(key(0)));
+            cache.put(key(1), classBytes(1));
+        }
+        try (Stream<Path> files = Files.walk(tmp)) {
+            assertTrue(files.noneMatch(p -> p.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void testEvict(@TempDir Path tmp) throws Exception {
+        long maxSize = ENTRY_SIZE * 10L;
+        try (RemapCache cache = new RemapCache(tmp, maxSize)) {
+            for (int i = 0; i < 10; i++) {
+                cache.put(key(i), classBytes(i));
+                Thread.sleep(5);
+            }
+            assertEquals(maxSize, cache.getSize());
+            assertEquals(0, cache.getEvictions());
+            assertNotNull(cache.get(key(0)));// Now the most recently used
+            Thread.sleep(5);
+
+            cache.put(key(10), classBytes(10));
+            assertTrue(cache.getSize() <= maxSize / 10 * 9);
+            assertEquals(2, cache.getEvictions());
+            assertEquals(cache.getSize(), sizeOnDisk(tmp));
+            assertNotNull(cache.get(key(0)));
+            assertNull(cache.get(key(1)));
+            assertNull(cache.get(key(2)));
+            assertNotNull(cache.get(key(3)));
+            assertNotNull(cache.get(key(10)));
+
+            for (int i = 11; i < 100; i++) {
+                cache.put(key(i), classBytes(i));
+                assertTrue(cache.getSize() <= maxSize);
+            }
+            assertEquals(cache.getSize(), sizeOnDisk(tmp));
+        }
+    }
+
+    @Test
+    void testPersistAccessTime(@TempDir Path tmp) throws IOException {
+        try (RemapCache cache = new RemapCache(tmp, RemapCache.DEFAULT_MAX_SIZE)) {
+            cache.put(key(0), classBytes(0));
+            cache.put(key(1), classBytes(1));
+        }
+        Files.setLastModifiedTime(file(tmp, key(0)), FileTime.fromMillis(1000));
+        Files.setLastModifiedTime(file(tmp, key(1)), FileTime.fromMillis(2000));
+        try (RemapCache cache = new RemapCache(tmp, RemapCache.DEFAULT_MAX_SIZE)) {
+            assertNotNull(cache.get(key(0)));
+        }
+        assertTrue(Files.getLastModifiedTime(file(tmp, key(0))).toMillis() > 2000);
+        assertEquals(2000, Files.getLastModifiedTime(file(tmp, key(1))).toMillis());
+
+        try (RemapCache cache = new RemapCache(tmp, ENTRY_SIZE * 2 - 1)) {// Evicts the least recently used on open
+            assertEquals(1, cache.getEvictions());
+            assertNotNull(cache.get(key(0)));
+            assertNull(cache.get(key(1)));
+        }
+    }
+
+    private static byte[] context(boolean reverse, Map<String, Map<String, String>> refMap) {
+        MessageDigest md = RemapCache.newDigest();
+        new ClassProcessor(new DeobfuscationOptions(true, false, reverse, Set.of(), Set.of(), refMap,
+                Deflater.DEFAULT_COMPRESSION, DeobfuscationOptions.DEFAULT.pipeline)).fingerprint(md);
+        return md.digest();
+    }
+
+    @Test
+    void testOptionsFingerprint() {
+        Map<String, String> forward = new LinkedHashMap<>();
+        forward.put("a", "La;a:I");
+        forward.put("b", "La;b:I");
+        Map<String, String> backward = new LinkedHashMap<>();
+        backward.put("b", "La;b:I");
+        backward.put("a", "La;a:I");
+        byte[] base = context(false, Map.of("Mixin", forward));
+        assertArrayEquals(base, context(false, Map.of("Mixin", backward)));// Insertion order doesn't matter
+        assertFalse(MessageDigest.isEqual(base, context(true, Map.of("Mixin", forward))));
+        assertFalse(MessageDigest.isEqual(base, context(false, Map.of())));
+        assertFalse(MessageDigest.isEqual(base, context(false, Map.of("Mixin", Map.of("a", "La;c:I")))));
+        assertFalse(MessageDigest.isEqual(base, context(false, Map.of("Other", forward))));
+    }
+}
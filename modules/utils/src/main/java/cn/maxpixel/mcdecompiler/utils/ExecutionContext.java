@@ -0,0 +1,390 @@
+/*
+ * MinecraftDecompiler. A tool/library to deobfuscate and decompile jars.
+ * Copyright (C) 2019-2025 MaxPixelStudios(XiaoPangxie732)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cn.maxpixel.mcdecompiler.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The threads a job runs its parallel work on.
+ * <p>
+ * Parallel streams run on the pool of the thread that starts the terminal operation, which is the JVM-wide common
+ * pool for normal threads. Parallel work is therefore started through {@link #invoke}/{@link #run}, which run the task
+ * on the pool of this context, so that jobs sharing one JVM do not starve each other, and nested parallel streams stay
+ * in the same bounded pool.
+ * <p>
+ * Blocking I/O, like downloading and file copying, is run by {@link #forEachBlocking}/{@link #mapBlocking} on a separate
+ * I/O executor instead, so that it does not occupy the workers the CPU-bound work needs. The I/O executor is a pool of
+ * platform threads, or creates a virtual thread per task when {@link #VIRTUAL_THREADS_PROPERTY enabled} and supported by
+ * the running JVM (Java 21 or newer).
+ * <p>
+ * {@link #current()} is the context of the current thread. It is the context owning the current pool worker, or the
+ * context {@link #bind bound} to the current thread, or the {@link #getDefault() default context}.
+ */
+public final class ExecutionContext implements AutoCloseable {
+    /**
+     * System property to override the detected number of processors
+     */
+    public static final String PARALLELISM_PROPERTY = "mcd.parallelism";
+    /**
+     * System property to run blocking I/O on virtual threads by default
+     */
+    public static final String VIRTUAL_THREADS_PROPERTY = "mcd.virtualThreads";
+
+    private static final ThreadLocal<ExecutionContext> BOUND = new ThreadLocal<>();
+    private static final ThreadLocal<ExecutionContext> IO = new ThreadLocal<>();
+    private static final MethodHandle NEW_VIRTUAL_EXECUTOR;// Executors.newVirtualThreadPerTaskExecutor(), absent before Java 21
+    private static volatile ExecutionContext defaultContext;
+
+    static {
+        MethodHandle mh;
+        try {
+            mh = MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (ReflectiveOperationException e) {
+            mh = null;
+        }
+        NEW_VIRTUAL_EXECUTOR = mh;
+    }
+
+    private final String name;
+    private final int parallelism;
+    private final ForkJoinPool pool;
+    private final boolean virtualThreads;
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final AtomicInteger reservedThreads = new AtomicInteger();
+    private volatile ExecutorService ioExecutor;
+    private volatile boolean closed;
+
+    private ExecutionContext(String name, int parallelism, boolean virtualThreads) {
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism must be positive");
+        this.name = Objects.requireNonNull(name, "name cannot be null");
+        this.parallelism = parallelism;
+        this.virtualThreads = virtualThreads;
+        this.pool = new ForkJoinPool(parallelism, p -> new Worker(p, this), null, false);
+    }
+
+    /**
+     * Creates a context with its own pool sized by {@link #availableProcessors()}.
+     * @param name Name of the context, used for naming the threads
+     */
+    public static ExecutionContext create(@NotNull String name) {
+        return create(name, availableProcessors());
+    }
+
+    /**
+     * Creates a context with its own pool.
+     * @param name Name of the context, used for naming the threads
+     * @param parallelism Size of the pool
+     */
+    public static ExecutionContext create(@NotNull String name, int parallelism) {
+        return new ExecutionContext(name, parallelism, Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY));
+    }
+
+    /**
+     * Creates a context with its own pool.
+     * @param name Name of the context, used for naming the threads
+     * @param parallelism Size of the pool
+     * @param virtualThreads Whether to run blocking I/O on virtual threads. Ignored if the running JVM does not support
+     *                       virtual threads
+     */
+    public static ExecutionContext create(@NotNull String name, int parallelism, boolean virtualThreads) {
+        return new ExecutionContext(name, parallelism, virtualThreads);
+    }
+
+    /**
+     * @return The context used when no context is bound. It has its own pool, separated from the common pool
+     */
+    public static ExecutionContext getDefault() {
+        ExecutionContext ctx = defaultContext;
+        if (ctx == null) {
+            synchronized (ExecutionContext.class) {
+                ctx = defaultContext;
+                if (ctx == null) defaultContext = ctx = create("MCD");
+            }
+        }
+        return ctx;
+    }
+
+    public static ExecutionContext current() {
+        if (Thread.currentThread() instanceof Worker w) return w.context;
+        ExecutionContext bound = BOUND.get();
+        return bound != null ? bound : getDefault();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return true if blocking I/O of this context runs on virtual threads
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads && NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * Runs the task on the pool of this context and waits for the result. Runs the task directly if the current thread
+     * is already a worker of this context.
+     */
+    public <T> T invoke(@NotNull Supplier<T> task) {
+        if (Thread.currentThread() instanceof Worker w && w.context == this) return task.get();
+        return pool.invoke(ForkJoinTask.adapt(task::get));
+    }
+
+    /**
+     * Runs the task on the pool of this context and waits for it to complete. Runs the task directly if the current
+     * thread is already a worker of this context.
+     */
+    public void run(@NotNull Runnable task) {
+        if (Thread.currentThread() instanceof Worker w && w.context == this) task.run();
+        else pool.invoke(ForkJoinTask.adapt(task));
+    }
+
+    /**
+     * Binds this context to the current thread while running the task, so that {@link #current()} returns this
+     * context on the current thread.
+     */
+    public <T, E extends Throwable> T bind(@NotNull LambdaUtil.Function_WithThrowable<ExecutionContext, T, E> task) throws E {
+        ExecutionContext prev = BOUND.get();
+        BOUND.set(this);
+        try {
+            return task.apply(this);
+        } finally {
+            if (prev == null) BOUND.remove();
+            else BOUND.set(prev);
+        }
+    }
+
+    /**
+     * Runs the blocking action for each item on the I/O executor, and waits for all of them to complete.
+     * @throws RuntimeException If any of the actions fails, wrapping the first failure. The rest are suppressed
+     */
+    public <T, E extends Exception> void forEachBlocking(@NotNull Collection<? extends T> items,
+                                                         @NotNull LambdaUtil.Consumer_WithThrowable<? super T, E> action) {
+        mapBlocking(items, t -> {
+            action.accept(t);
+            return null;
+        });
+    }
+
+    /**
+     * Runs the blocking function for each item on the I/O executor, and waits for all of them to complete. Runs the
+     * functions sequentially on the current thread if it is already running an I/O task of this context, as waiting for
+     * nested tasks could exhaust the bounded I/O pool.
+     * @return The results, in the iteration order of the items
+     * @throws RuntimeException If any of the functions fails, wrapping the first failure. The rest are suppressed
+     */
+    public <T, R, E extends Exception> List<R> mapBlocking(@NotNull Collection<? extends T> items,
+                                                           @NotNull LambdaUtil.Function_WithThrowable<? super T, R, E> function) {
+        if (items.isEmpty()) return new ArrayList<>();
+        if (IO.get() == this) {
+            ArrayList<R> results = new ArrayList<>(items.size());
+            try {
+                for (T item : items) results.add(function.apply(item));
+            } catch (Exception e) {
+                throw Utils.wrapInRuntime(e);
+            }
+            return results;
+        }
+        ExecutorService executor = ioExecutor();
+        ArrayList<Future<R>> futures = new ArrayList<>(items.size());
+        try {
+            for (T item : items) futures.add(executor.submit(() -> {
+                IO.set(this);
+                try {
+                    return bind(ctx -> function.apply(item));
+                } finally {
+                    IO.remove();
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw e;
+        }
+        ArrayList<R> results = new ArrayList<>(futures.size());
+        Throwable failure = null;
+        for (Future<R> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) failure = e.getCause();
+                else failure.addSuppressed(e.getCause());
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw Utils.wrapInRuntime(e);
+            }
+        }
+        if (failure != null) throw Utils.wrapInRuntime(failure);
+        return results;
+    }
+
+    /**
+     * @return The executor for blocking I/O of this context. The tasks submitted directly do not have this context bound
+     */
+    public ExecutorService ioExecutor() {
+        ExecutorService executor = ioExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                if (closed) throw new IllegalStateException("Context " + name + " is closed");
+                executor = ioExecutor;
+                if (executor == null) ioExecutor = executor = createIoExecutor();
+            }
+        }
+        return executor;
+    }
+
+    private ExecutorService createIoExecutor() {
+        if (virtualThreads && NEW_VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke();
+            } catch (Throwable e) {
+                throw Utils.wrapInRuntime(e);
+            }
+        }
+        // Threads mostly wait on I/O, so there can be more of them than processors. Idle threads are released
+        int threads = Math.max(8, parallelism * 4);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory("IO"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Reserves up to the given number of threads out of the parallelism of this context, for work running on threads of
+     * its own like the stages of a pipeline. Stages running at the same time then share the parallelism instead of each
+     * adding up to a whole of it. At least one thread is always granted, so that every stage can make progress.
+     * @param threads Number of threads wanted
+     * @return Number of threads granted, which must be given back by {@link #releaseThreads}
+     */
+    public int reserveThreads(int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("threads must be positive");
+        while (true) {
+            int reserved = reservedThreads.get();
+            int granted = Math.max(1, Math.min(threads, parallelism - reserved));
+            if (reservedThreads.compareAndSet(reserved, reserved + granted)) return granted;
+        }
+    }
+
+    /**
+     * Gives back the threads granted by {@link #reserveThreads}.
+     */
+    public void releaseThreads(int threads) {
+        reservedThreads.addAndGet(-threads);
+    }
+
+    /**
+     * @param prefix Prefix of the thread names
+     * @return A factory of daemon threads that have this context bound
+     */
+    public ThreadFactory threadFactory(@NotNull String prefix) {
+        return r -> {
+            Thread t = new Thread(() -> {
+                BOUND.set(this);
+                r.run();
+            }, name + '-' + prefix + '-' + threadCount.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    @Override
+    public void close() {
+        if (this == defaultContext) throw new UnsupportedOperationException("The default context cannot be closed");
+        pool.shutdown();
+        synchronized (this) {
+            closed = true;
+            if (ioExecutor != null) ioExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Detects the number of processors this JVM can use.
+     * <p>
+     * The value of the {@value #PARALLELISM_PROPERTY} system property is used if set. Otherwise, it is the smaller of
+     * {@link Runtime#availableProcessors()} and the CPU quota of the cgroup of this process, rounded up. The JVM already
+     * considers the quota, but it can be turned off by {@code -XX:-UseContainerSupport}.
+     */
+    public static int availableProcessors() {
+        String prop = System.getProperty(PARALLELISM_PROPERTY);
+        if (prop != null && !prop.isBlank()) {
+            try {
+                int p = Integer.parseInt(prop.strip());
+                if (p > 0) return p;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int quota = cgroupQuota();
+        return quota > 0 ? Math.min(cpus, quota) : cpus;
+    }
+
+    private static int cgroupQuota() {
+        try {
+            Path v2 = Path.of("/sys/fs/cgroup/cpu.max");
+            if (Files.isReadable(v2)) {// cgroup v2: "<quota> <period>" or "max <period>"
+                String[] parts = Files.readString(v2).strip().split(" ");
+                if (parts.length == 2 && !"max".equals(parts[0])) return ceilDiv(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+                return -1;
+            }
+            Path quota = Path.of("/sys/fs/cgroup/cpu/cpu.cfs_quota_us");
+            Path period = Path.of("/sys/fs/cgroup/cpu/cpu.cfs_period_us");
+            if (Files.isReadable(quota) && Files.isReadable(period)) {// cgroup v1
+                List<String> q = Files.readAllLines(quota), p = Files.readAllLines(period);
+                if (!q.isEmpty() && !p.isEmpty()) return ceilDiv(Long.parseLong(q.get(0).strip()), Long.parseLong(p.get(0).strip()));
+            }
+        } catch (IOException | RuntimeException ignored) {
+        }
+        return -1;
+    }
+
+    private static int ceilDiv(long quota, long period) {
+        if (quota <= 0 || period <= 0) return -1;
+        return (int) Math.max(1, (quota + period - 1) / period);
+    }
+
+    private static final class Worker extends ForkJoinWorkerThread {
+        private final ExecutionContext context;
+
+        private Worker(ForkJoinPool pool, ExecutionContext context) {
+            super(pool);
+            this.context = context;
+            setName(context.name + "-Worker-" + context.threadCount.getAndIncrement());
+            setDaemon(true);
+        }
+    }
+}